@@ -0,0 +1,70 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Helpers for creating the files used by the benchmarks.
+ */
+final class BenchmarkFiles {
+    
+    private BenchmarkFiles() {
+    
+    }
+    
+    /**
+     * Creates a temporary file filled with random bytes. The same seed is always used so every
+     * run of the benchmarks works with the same data. The file is deleted when the JVM exits.
+     * 
+     * @param size The size of the file in bytes.
+     * @return The created file.
+     * @throws IOException Whenever the file can not be written.
+     */
+    static File create (long size) throws IOException {
+        
+        final File file = Files.createTempFile("diluv-benchmark-", ".jar").toFile();
+        file.deleteOnExit();
+        
+        final Random random = new Random(size);
+        final byte[] buffer = new byte[64 * 1024];
+        
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            
+            long remaining = size;
+            
+            while (remaining > 0) {
+                
+                final int length = (int) Math.min(buffer.length, remaining);
+                random.nextBytes(buffer);
+                out.write(buffer, 0, length);
+                remaining -= length;
+            }
+        }
+        
+        return file;
+    }
+    
+    /**
+     * Creates an output stream that throws away everything written to it.
+     * 
+     * @return An output stream that discards all data.
+     */
+    static OutputStream discard () {
+        
+        return new OutputStream() {
+            
+            @Override
+            public void write (int b) {
+            
+            }
+            
+            @Override
+            public void write (byte[] b, int off, int len) {
+            
+            }
+        };
+    }
+}
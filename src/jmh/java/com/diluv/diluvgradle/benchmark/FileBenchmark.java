@@ -0,0 +1,121 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diluv.diluvgradle.http.DigestingFileBody;
+import com.diluv.diluvgradle.util.FileDigests;
+import com.diluv.diluvgradle.util.Hashing;
+
+/**
+ * Benchmarks the parts of the upload path that read the file. This covers hashing the file,
+ * calculating several checksums separately and in a single read, building the multipart
+ * entity and streaming the entity as it would be sent to Diluv.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBenchmark {
+    
+    /**
+     * The checksums that are commonly published next to an upload.
+     */
+    private static final List<String> CHECKSUMS = Arrays.asList("SHA-1", "SHA-256", "SHA-512");
+    
+    /**
+     * The size of the file in bytes. These range from a small library to a large modpack.
+     */
+    @Param({ "65536", "1048576", "16777216", "134217728" })
+    public long size;
+    
+    /**
+     * The file being read.
+     */
+    private File file;
+    
+    @Setup
+    public void setup () throws IOException {
+        
+        this.file = BenchmarkFiles.create(this.size);
+    }
+    
+    @Benchmark
+    public String hash () throws IOException {
+        
+        return Hashing.sha512(this.file);
+    }
+    
+    /**
+     * Calculates the SHA-1, SHA-256 and SHA-512 checksums by reading the file once for each.
+     */
+    @Benchmark
+    public List<String> checksumsSeparately () throws IOException {
+        
+        final List<String> checksums = new ArrayList<>(CHECKSUMS.size());
+        
+        for (final String algorithm : CHECKSUMS) {
+            
+            checksums.add(FileDigests.compute(this.file, Collections.singletonList(algorithm), null).get(algorithm));
+        }
+        
+        return checksums;
+    }
+    
+    /**
+     * Calculates the SHA-1, SHA-256 and SHA-512 checksums from a single read of the file.
+     */
+    @Benchmark
+    public FileDigests checksumsTogether () throws IOException {
+        
+        return FileDigests.compute(this.file, CHECKSUMS, null);
+    }
+    
+    @Benchmark
+    public HttpEntity buildMultipart () {
+        
+        return this.createEntity(new DigestingFileBody(this.file));
+    }
+    
+    @Benchmark
+    public String streamMultipart () throws IOException {
+        
+        final DigestingFileBody body = new DigestingFileBody(this.file);
+        this.createEntity(body).writeTo(BenchmarkFiles.discard());
+        return body.getSha512();
+    }
+    
+    /**
+     * Builds the entity the same way a single request upload does.
+     */
+    private HttpEntity createEntity (DigestingFileBody body) {
+        
+        final MultipartEntityBuilder form = MultipartEntityBuilder.create();
+        form.addPart("file", body);
+        form.addTextBody("filename", this.file.getName());
+        form.addTextBody("data", "{\"version\":\"1.0.0\",\"releaseType\":\"release\",\"classifier\":\"binary\"}", ContentType.APPLICATION_JSON);
+        return form.build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diluv.diluvgradle.http.Responses;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.request.FileProjectRelation;
+import com.diluv.diluvgradle.request.RelationType;
+import com.diluv.diluvgradle.request.RequestData;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Benchmarks the JSON handling of the upload path. This covers serializing the request data
+ * sent with every upload and parsing the response Diluv sends back for an uploaded file. Each
+ * benchmark is run with the shared Gson instance of the plugin and with a default reflective
+ * Gson instance, so the cost of the type adapters can be compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    
+    /**
+     * A response body similar to the one Diluv sends for a newly uploaded file.
+     */
+    static final String RESPONSE = "{\"status\":\"pending\",\"lastStatusChanged\":1622505600000,\"id\":1024,\"name\":\"ExampleMod-1.16.5-1.0.0.jar\",\"downloadURL\":\"https://download.diluv.com/games/minecraft-je/mods/example-mod/1024/ExampleMod-1.16.5-1.0.0.jar\",\"size\":524288,\"changelog\":\"Fixed a crash when loading worlds.\\nAdded a config option for the spawn rate.\",\"sha512\":\"cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e\",\"downloadCount\":0,\"releaseType\":\"release\",\"classifier\":\"binary\",\"createdAt\":1622505600000,\"gameVersions\":[{\"version\":\"1.16.5\",\"type\":\"release\",\"released\":1610582400000},{\"version\":\"1.16.4\",\"type\":\"release\",\"released\":1604275200000}],\"gameSlug\":\"minecraft-je\",\"projectTypeSlug\":\"mods\",\"projectSlug\":\"example-mod\",\"user\":{\"userId\":1,\"username\":\"example\",\"displayName\":\"Example\",\"avatarURL\":\"https://images.diluv.com/users/1.png\",\"createdAt\":1577836800000}}";
+    
+    /**
+     * The Gson instance being measured. "adapters" uses the shared instance of the plugin and
+     * "reflection" uses a Gson instance without any registered type adapters.
+     */
+    @Param({ "adapters", "reflection" })
+    public String gsonType;
+    
+    /**
+     * The Gson instance being measured.
+     */
+    private Gson gson;
+    
+    /**
+     * The request data that is serialized.
+     */
+    private RequestData request;
+    
+    @Setup
+    public void setup () {
+        
+        this.gson = "reflection".equals(this.gsonType) ? new GsonBuilder().create() : DiluvJson.GSON;
+        this.request = new RequestData();
+        this.request.setVersion("1.0.0");
+        this.request.setChangelog("Fixed a crash when loading worlds.\nAdded a config option for the spawn rate.");
+        this.request.setReleaseType("release");
+        this.request.setClassifier("binary");
+        this.request.addGameVersion("1.16.5");
+        this.request.addGameVersion("1.16.4");
+        this.request.addLoader("forge");
+        this.request.addRelation(new FileProjectRelation(12L, RelationType.REQUIRED));
+        this.request.addRelation(new FileProjectRelation(34L, RelationType.OPTIONAL));
+    }
+    
+    @Benchmark
+    public String serializeRequest () {
+        
+        return this.gson.toJson(this.request);
+    }
+    
+    @Benchmark
+    public ResponseUpload parseResponse () {
+        
+        return this.gson.fromJson(RESPONSE, ResponseUpload.class);
+    }
+    
+    @Benchmark
+    public ResponseUpload readResponseEntity () throws IOException {
+        
+        return Responses.read(this.gson, new StringEntity(RESPONSE, ContentType.APPLICATION_JSON), ResponseUpload.class);
+    }
+}
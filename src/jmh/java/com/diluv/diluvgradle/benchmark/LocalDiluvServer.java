@@ -0,0 +1,84 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small in-process HTTP server that stands in for the Diluv API during benchmarks. Every
+ * request body is read in full and answered with the same response, so the benchmarks measure
+ * the client side of the upload without depending on the network or the real API.
+ */
+final class LocalDiluvServer implements AutoCloseable {
+    
+    /**
+     * The underlying server.
+     */
+    private final HttpServer server;
+    
+    /**
+     * The threads used to handle requests.
+     */
+    private final ExecutorService executor;
+    
+    /**
+     * The body sent back for every request.
+     */
+    private final byte[] response;
+    
+    LocalDiluvServer(String response) throws IOException {
+        
+        this.response = response.getBytes(StandardCharsets.UTF_8);
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+    
+    /**
+     * Gets the base URL of the server.
+     * 
+     * @return The base URL, without a trailing slash.
+     */
+    String getUrl () {
+        
+        return "http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort();
+    }
+    
+    private void handle (HttpExchange exchange) throws IOException {
+        
+        final byte[] buffer = new byte[64 * 1024];
+        
+        try (InputStream in = exchange.getRequestBody()) {
+            
+            while (in.read(buffer) != -1) {
+                
+                // The body is only read so the client can finish sending it.
+            }
+        }
+        
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, this.response.length);
+        
+        try (OutputStream out = exchange.getResponseBody()) {
+            
+            out.write(this.response);
+        }
+    }
+    
+    @Override
+    public void close () {
+        
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,98 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.request.FileProjectRelation;
+import com.diluv.diluvgradle.request.RelationType;
+import com.diluv.diluvgradle.request.RequestData;
+
+/**
+ * Benchmarks adding project relations to the request data, the way generated build scripts
+ * add the dependency graph of a modpack, and serializing the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelationBenchmark {
+
+    /**
+     * The amount of relations added to the request.
+     */
+    @Param({ "100", "10000" })
+    public int relations;
+
+    /**
+     * The project IDs of the relations, in a random order.
+     */
+    private long[] projectIds;
+
+    /**
+     * A request that already has every relation.
+     */
+    private RequestData filled;
+
+    @Setup
+    public void setup () {
+
+        final Random random = new Random(42);
+        this.projectIds = new long[this.relations];
+
+        for (int i = 0; i < this.relations; i++) {
+
+            this.projectIds[i] = 1 + random.nextInt(1_000_000);
+        }
+
+        this.filled = this.addEach();
+    }
+
+    @Benchmark
+    public RequestData addEach () {
+
+        final RequestData request = new RequestData();
+
+        for (final long projectId : this.projectIds) {
+
+            request.addRelation(new FileProjectRelation(projectId, RelationType.REQUIRED));
+        }
+
+        return request;
+    }
+
+    @Benchmark
+    public RequestData addAll () {
+
+        final RequestData request = new RequestData();
+        request.addRelations(RelationType.REQUIRED, this.projectIds);
+        return request;
+    }
+
+    @Benchmark
+    public RequestData replaceAll () {
+
+        this.filled.addRelations(RelationType.OPTIONAL, this.projectIds);
+        return this.filled;
+    }
+
+    @Benchmark
+    public String serialize () {
+
+        return DiluvJson.GSON.toJson(this.filled);
+    }
+}
@@ -0,0 +1,65 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diluv.diluvgradle.Constants;
+import com.diluv.diluvgradle.util.SemanticVersion;
+
+/**
+ * Benchmarks the semantic version check that is done before each upload. The parser in
+ * {@link SemanticVersion} is compared against the regex it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemVerBenchmark {
+    
+    @Param({ "1.0.0", "36.1.0-beta.2+build.45", "1.16.5-36.1.0", "1.0", "not-a-version" })
+    public String version;
+    
+    /**
+     * Two prerelease versions that are compared by precedence.
+     */
+    private final SemanticVersion first = SemanticVersion.parse("1.16.5-rc.1.2+build.7");
+    
+    private final SemanticVersion second = SemanticVersion.parse("1.16.5-rc.1.10");
+    
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public boolean matchRegex () {
+        
+        return Constants.SEM_VER.matcher(this.version).matches();
+    }
+    
+    @Benchmark
+    public boolean isValid () {
+        
+        return SemanticVersion.isValid(this.version);
+    }
+    
+    @Benchmark
+    public SemanticVersion tryParse () {
+        
+        return SemanticVersion.tryParse(this.version);
+    }
+    
+    @Benchmark
+    public int compare () {
+        
+        return this.first.compareTo(this.second);
+    }
+}
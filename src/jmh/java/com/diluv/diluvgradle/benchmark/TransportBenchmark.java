@@ -0,0 +1,116 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diluv.diluvgradle.http.DiluvTransport;
+import com.diluv.diluvgradle.http.RetryPolicy;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.upload.FileUploader;
+import com.diluv.diluvgradle.upload.UploadContext;
+import com.diluv.diluvgradle.util.Hashing;
+
+/**
+ * Compares the throughput of the transports when several uploads are sent at once. Each
+ * operation uploads the file from every thread and waits for all of them to finish. The local
+ * server only speaks HTTP/1.1, so this measures the cost of the transports themselves rather
+ * than the gains of HTTP/2 multiplexing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+    
+    /**
+     * The transport used to send the uploads.
+     */
+    @Param({ DiluvTransport.BLOCKING, DiluvTransport.ASYNC })
+    public String transport;
+    
+    /**
+     * The amount of uploads sent at once.
+     */
+    @Param({ "1", "4", "16" })
+    public int concurrency;
+    
+    /**
+     * The size of each uploaded file in bytes.
+     */
+    @Param({ "1048576" })
+    public long size;
+    
+    private File file;
+    
+    private LocalDiluvServer server;
+    
+    private DiluvTransport client;
+    
+    private ExecutorService executor;
+    
+    private FileUploader uploader;
+    
+    @Setup
+    public void setup () throws IOException {
+        
+        this.file = BenchmarkFiles.create(this.size);
+        
+        final String response = JsonBenchmark.RESPONSE.replace("cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e", Hashing.sha512(this.file));
+        this.server = new LocalDiluvServer(response);
+        this.client = DiluvTransport.create(this.transport, this.concurrency, this.concurrency);
+        this.executor = Executors.newFixedThreadPool(this.concurrency);
+        this.uploader = new FileUploader(new UploadContext(this.client, DiluvJson.GSON, "benchmark", RetryPolicy.NONE, null));
+    }
+    
+    @TearDown
+    public void tearDown () {
+        
+        this.executor.shutdownNow();
+        this.client.close();
+        this.server.close();
+    }
+    
+    @Benchmark
+    public List<ResponseUpload> uploadConcurrently () throws InterruptedException, ExecutionException {
+        
+        final String endpoint = this.server.getUrl() + "/v1/projects/1/files";
+        final List<Future<ResponseUpload>> uploads = new ArrayList<>(this.concurrency);
+        
+        for (int i = 0; i < this.concurrency; i++) {
+            
+            uploads.add(this.executor.submit(() -> this.uploader.upload(endpoint, this.file, "{\"version\":\"1.0.0\",\"releaseType\":\"release\",\"classifier\":\"binary\"}")));
+        }
+        
+        final List<ResponseUpload> results = new ArrayList<>(this.concurrency);
+        
+        for (final Future<ResponseUpload> upload : uploads) {
+            
+            results.add(upload.get());
+        }
+        
+        return results;
+    }
+}
@@ -0,0 +1,82 @@
+package com.diluv.diluvgradle.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.diluv.diluvgradle.http.DiluvTransport;
+import com.diluv.diluvgradle.http.RetryPolicy;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.upload.FileUploader;
+import com.diluv.diluvgradle.upload.UploadContext;
+import com.diluv.diluvgradle.util.Hashing;
+import com.google.gson.Gson;
+
+/**
+ * Benchmarks a full single request upload against a local stand-in for the Diluv API. This
+ * covers building and streaming the request, hashing the file while it is sent and reading
+ * and verifying the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadBenchmark {
+    
+    /**
+     * The size of the uploaded file in bytes.
+     */
+    @Param({ "65536", "1048576", "16777216" })
+    public long size;
+    
+    private File file;
+    
+    private LocalDiluvServer server;
+    
+    private DiluvTransport transport;
+    
+    private FileUploader uploader;
+    
+    @Setup
+    public void setup () throws IOException {
+        
+        this.file = BenchmarkFiles.create(this.size);
+        
+        // The server has to report the same hash as the local file or the upload is rejected.
+        final String response = JsonBenchmark.RESPONSE.replace("cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e", Hashing.sha512(this.file));
+        this.server = new LocalDiluvServer(response);
+        
+        final Gson gson = DiluvJson.GSON;
+        this.transport = DiluvTransport.create(DiluvTransport.BLOCKING, 4, 16);
+        this.uploader = new FileUploader(new UploadContext(this.transport, gson, "benchmark", RetryPolicy.NONE, null));
+    }
+    
+    @TearDown
+    public void tearDown () {
+        
+        this.transport.close();
+        this.server.close();
+    }
+    
+    @Benchmark
+    public ResponseUpload upload () throws IOException {
+        
+        return this.uploader.upload(this.server.getUrl() + "/v1/projects/1/files", this.file, "{\"version\":\"1.0.0\",\"releaseType\":\"release\",\"classifier\":\"binary\"}");
+    }
+}
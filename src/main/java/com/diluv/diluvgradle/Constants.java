@@ -7,6 +7,10 @@ public class Constants {
     /**
      * A regex pattern for matching semantic versioning version numbers. This was taken from
      * https://semver.org/.
+     * 
+     * @deprecated Use {@link com.diluv.diluvgradle.util.SemanticVersion} instead, which
+     *             avoids backtracking and reports where a version is invalid.
      */
+    @Deprecated
     public static final Pattern SEM_VER = Pattern.compile("^(0|[1-9]\\d*)\\.(0|[1-9]\\d*)\\.(0|[1-9]\\d*)(?:-((?:0|[1-9]\\d*|\\d*[a-zA-Z-][0-9a-zA-Z-]*)(?:\\.(?:0|[1-9]\\d*|\\d*[a-zA-Z-][0-9a-zA-Z-]*))*))?(?:\\+([0-9a-zA-Z-]+(?:\\.[0-9a-zA-Z-]+)*))?$");
 }
\ No newline at end of file
@@ -3,11 +3,31 @@ package com.diluv.diluvgradle;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 
+import com.diluv.diluvgradle.http.DiluvHttpService;
+import com.diluv.diluvgradle.http.DiluvUploadScheduler;
+import com.diluv.diluvgradle.metrics.DiluvMetricsService;
+
 public class DiluvPlugin implements Plugin<Project> {
     
     @Override
     public void apply (Project project) {
         
+        // The HTTP service, upload scheduler and metrics are shared by every project in the
+        // build.
+        DiluvHttpService.register(project);
+        DiluvUploadScheduler.register(project);
+        DiluvMetricsService.register(project);
+        
+        // Uploads the artifacts that upload tasks in this project wrote to the spool queue.
+        project.getTasks().register(TaskDiluvFlushQueue.NAME, TaskDiluvFlushQueue.class);
+        
+        // Publishes the artifacts of every project in one go. This is only useful once per
+        // build, so it is only registered for the root project.
+        if (project == project.getRootProject()) {
+            
+            project.getTasks().register(TaskDiluvPublishAll.NAME, TaskDiluvPublishAll.class);
+        }
+        
         project.getLogger().debug("Successfully applied the Diluv plugin. Make sure you're using the upload task.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,377 @@
+package com.diluv.diluvgradle;
+
+import java.io.File;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import com.diluv.diluvgradle.http.DiluvHttpService;
+import com.diluv.diluvgradle.http.DiluvUploadScheduler;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.metrics.DiluvMetricsService;
+import com.diluv.diluvgradle.spool.SpoolEntry;
+import com.diluv.diluvgradle.spool.SpoolQueue;
+import com.diluv.diluvgradle.upload.UploadSettings;
+import com.diluv.diluvgradle.upload.UploadWorkAction;
+
+/**
+ * A task that uploads the artifacts waiting in the spool queue of a project. Entries are
+ * uploaded in the order they were spooled and removed from the queue once they have been
+ * uploaded, or once Diluv reports that the file was already published. Entries that fail to
+ * upload stay in the queue for the next run.
+ */
+public abstract class TaskDiluvFlushQueue extends DefaultTask implements UploadSettings {
+    
+    /**
+     * The name of the task registered by the plugin.
+     */
+    public static final String NAME = "diluvFlushQueue";
+    
+    /**
+     * An internal logger instance used to output status and debug information about the plugin
+     * and it's usage.
+     */
+    private final Logger log;
+    
+    /**
+     * The shared HTTP service used to communicate with Diluv.
+     */
+    private final Property<DiluvHttpService> httpService;
+    
+    /**
+     * The shared scheduler that limits the amount of uploads sent at once across the build.
+     */
+    private final Property<DiluvUploadScheduler> scheduler;
+    
+    /**
+     * The shared service that collects the metrics of every upload in the build.
+     */
+    private final Property<DiluvMetricsService> metricsService;
+    
+    /**
+     * The path of the project the task belongs to.
+     */
+    private final String projectPath;
+    
+    /**
+     * The Gradle user home, used to find the published file cache of entries that did not
+     * record the cache directory of the task that spooled them.
+     */
+    private final File gradleUserHome;
+    
+    /**
+     * The API token used to upload the spooled artifacts.
+     */
+    private final Property<String> token;
+    
+    /**
+     * The spool queue directory to upload.
+     */
+    private final DirectoryProperty spoolDirectory;
+    
+    /**
+     * The max amount of spooled artifacts that are uploaded at once.
+     */
+    private final Property<Integer> maxParallelUploads;
+    
+    /**
+     * The max amount of times a request to Diluv is attempted.
+     */
+    private final Property<Integer> maxAttempts;
+    
+    /**
+     * The delay in milliseconds before the first retry of a failed request.
+     */
+    private final Property<Integer> retryDelay;
+    
+    /**
+     * The longest delay in milliseconds between attempts of a failed request.
+     */
+    private final Property<Integer> maxRetryDelay;
+    
+    /**
+     * If enabled, spooled artifacts that were already published are removed from the queue
+     * without being uploaded again.
+     */
+    private final Property<Boolean> skipDuplicates;
+    
+    /**
+     * If enabled, the files of the project are requested from Diluv when checking for
+     * duplicates.
+     */
+    private final Property<Boolean> checkRemoteDuplicates;
+    
+    /**
+     * The directory the upload results are written to.
+     */
+    private final DirectoryProperty resultsDirectory;
+    
+    public TaskDiluvFlushQueue() {
+        
+        this.log = Logging.getLogger("DiluvGradle");
+        
+        final Project project = this.getProject();
+        final ObjectFactory objects = project.getObjects();
+        final ProviderFactory providers = project.getProviders();
+        final ProjectLayout layout = project.getLayout();
+        
+        final Provider<DiluvHttpService> sharedService = DiluvHttpService.register(project);
+        this.httpService = objects.property(DiluvHttpService.class);
+        this.httpService.set(sharedService);
+        this.usesService(sharedService);
+        
+        final Provider<DiluvUploadScheduler> sharedScheduler = DiluvUploadScheduler.register(project);
+        this.scheduler = objects.property(DiluvUploadScheduler.class);
+        this.scheduler.set(sharedScheduler);
+        this.usesService(sharedScheduler);
+        
+        final Provider<DiluvMetricsService> sharedMetrics = DiluvMetricsService.register(project);
+        this.metricsService = objects.property(DiluvMetricsService.class);
+        this.metricsService.set(sharedMetrics);
+        this.usesService(sharedMetrics);
+        
+        this.projectPath = project.getPath();
+        this.gradleUserHome = project.getGradle().getGradleUserHomeDir();
+        this.token = objects.property(String.class).convention(providers.gradleProperty("diluv.token").orElse(providers.environmentVariable("DILUV_TOKEN")));
+        this.spoolDirectory = objects.directoryProperty().convention(SpoolQueue.getDefaultDirectory(project));
+        this.maxParallelUploads = objects.property(Integer.class).convention(4);
+        this.maxAttempts = objects.property(Integer.class).convention(3);
+        this.retryDelay = objects.property(Integer.class).convention(1000);
+        this.maxRetryDelay = objects.property(Integer.class).convention(30000);
+        this.skipDuplicates = objects.property(Boolean.class).convention(true);
+        this.checkRemoteDuplicates = objects.property(Boolean.class).convention(true);
+        this.resultsDirectory = objects.directoryProperty().convention(layout.getBuildDirectory().dir("diluv/" + this.getName()));
+        
+        this.setGroup("publishing");
+        this.setDescription("Uploads the artifacts waiting in the Diluv spool queue.");
+    }
+    
+    /**
+     * The shared HTTP service used to communicate with Diluv.
+     * 
+     * @return The HTTP service used by this task.
+     */
+    @Internal
+    public Property<DiluvHttpService> getHttpService () {
+        
+        return this.httpService;
+    }
+    
+    /**
+     * The shared scheduler that every upload in the build goes through.
+     * 
+     * @return The upload scheduler used by this task.
+     */
+    @Internal
+    public Property<DiluvUploadScheduler> getScheduler () {
+        
+        return this.scheduler;
+    }
+    
+    /**
+     * The shared service that collects the metrics of every upload in the build.
+     * 
+     * @return The metrics service used by this task.
+     */
+    @Internal
+    public Property<DiluvMetricsService> getMetricsService () {
+        
+        return this.metricsService;
+    }
+    
+    /**
+     * The path of the project the task belongs to.
+     * 
+     * @return The project path.
+     */
+    @Internal
+    public String getProjectPath () {
+        
+        return this.projectPath;
+    }
+    
+    /**
+     * The API token used to upload the spooled artifacts. Defaults to the diluv.token Gradle
+     * property or the DILUV_TOKEN environment variable.
+     * 
+     * @return The API token.
+     */
+    @Internal
+    public Property<String> getToken () {
+        
+        return this.token;
+    }
+    
+    /**
+     * The spool queue directory to upload. Defaults to the same queue the upload tasks of the
+     * project write to.
+     * 
+     * @return The spool queue directory.
+     */
+    @Internal
+    public DirectoryProperty getSpoolDirectory () {
+        
+        return this.spoolDirectory;
+    }
+    
+    /**
+     * The max amount of spooled artifacts that are uploaded at once.
+     * 
+     * @return The max amount of parallel uploads.
+     */
+    @Internal
+    public Property<Integer> getMaxParallelUploads () {
+        
+        return this.maxParallelUploads;
+    }
+    
+    /**
+     * The max amount of times a request to Diluv is attempted.
+     * 
+     * @return The max amount of attempts.
+     */
+    @Internal
+    public Property<Integer> getMaxAttempts () {
+        
+        return this.maxAttempts;
+    }
+    
+    /**
+     * The delay in milliseconds before the first retry of a failed request.
+     * 
+     * @return The initial retry delay.
+     */
+    @Internal
+    public Property<Integer> getRetryDelay () {
+        
+        return this.retryDelay;
+    }
+    
+    /**
+     * The longest delay in milliseconds between attempts of a failed request.
+     * 
+     * @return The max retry delay.
+     */
+    @Internal
+    public Property<Integer> getMaxRetryDelay () {
+        
+        return this.maxRetryDelay;
+    }
+    
+    /**
+     * If enabled, spooled artifacts that were already published are removed from the queue
+     * without being uploaded again.
+     * 
+     * @return Whether or not duplicate files are skipped.
+     */
+    @Internal
+    public Property<Boolean> getSkipDuplicates () {
+        
+        return this.skipDuplicates;
+    }
+    
+    /**
+     * If enabled, the files of the project are requested from Diluv when checking for
+     * duplicates. This is enabled by default since the artifacts may have been published by
+     * another machine since they were spooled.
+     * 
+     * @return Whether or not Diluv is checked for duplicates.
+     */
+    @Internal
+    public Property<Boolean> getCheckRemoteDuplicates () {
+        
+        return this.checkRemoteDuplicates;
+    }
+    
+    /**
+     * The directory the upload results are written to.
+     * 
+     * @return The results directory.
+     */
+    @Internal
+    public DirectoryProperty getResultsDirectory () {
+        
+        return this.resultsDirectory;
+    }
+    
+    /**
+     * Gets the worker executor used to upload artifacts in parallel.
+     * 
+     * @return The worker executor.
+     */
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor ();
+    
+    @TaskAction
+    public void flush () {
+        
+        final List<SpoolQueue.Spooled> entries = new SpoolQueue(DiluvJson.GSON, this.spoolDirectory.get().getAsFile()).list();
+        
+        if (entries.isEmpty()) {
+            
+            this.log.lifecycle("The Diluv spool queue of {} is empty.", this.projectPath);
+            return;
+        }
+        
+        if (!this.token.isPresent()) {
+            
+            throw new GradleException("Can not upload the Diluv spool queue. No token was specified.");
+        }
+        
+        this.log.lifecycle("Uploading {} spooled artifacts to Diluv.", entries.size());
+        
+        final File resultDir = this.resultsDirectory.get().getAsFile();
+        final WorkQueue queue = this.getWorkerExecutor().noIsolation();
+        
+        // Entries are submitted in the order they were spooled. The amount of uploads that run
+        // at once is limited by maxParallelUploads and the shared scheduler.
+        for (final SpoolQueue.Spooled spooled : entries) {
+            
+            final SpoolEntry entry = spooled.getEntry();
+            final String name = spooled.getDirectory().getName();
+            
+            queue.submit(UploadWorkAction.class, params -> {
+                
+                UploadWorkAction.configure(params, this);
+                params.getEndpoint().set(entry.getEndpoint());
+                params.getProjectId().set(entry.getProjectId());
+                params.getUploadFile().set(spooled.getArtifact());
+                params.getClassifier().set(entry.getClassifier());
+                params.getRequestData().set(entry.getRequestData());
+                params.getVersion().set(entry.getVersion());
+                
+                // Entries use the cache of the task that spooled them, so a cache directory
+                // set on that task is used here as well.
+                params.getCacheDirectory().set(entry.getCacheDirectory() != null ? new File(entry.getCacheDirectory()) : TaskDiluvUpload.getDefaultCacheDirectory(this.gradleUserHome, entry.getEndpoint()));
+                params.getSpooledEntry().set(spooled.getDirectory());
+                params.getResultFile().set(new File(resultDir, name + ".json"));
+            });
+        }
+        
+        try {
+            
+            queue.await();
+        }
+        
+        catch (final GradleException e) {
+            
+            throw new GradleException("Some spooled artifacts could not be uploaded. They will stay in the queue until the next run of " + this.getPath() + ".", e);
+        }
+    }
+}
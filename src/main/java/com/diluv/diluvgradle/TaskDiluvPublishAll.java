@@ -0,0 +1,892 @@
+package com.diluv.diluvgradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.NamedDomainObjectContainer;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import com.diluv.diluvgradle.http.DiluvHttpService;
+import com.diluv.diluvgradle.http.DiluvUploadScheduler;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.metrics.DiluvMetricsService;
+import com.diluv.diluvgradle.publish.DiluvPublication;
+import com.diluv.diluvgradle.publish.PublishManifest;
+import com.diluv.diluvgradle.publish.PublishSummary;
+import com.diluv.diluvgradle.request.RequestData;
+import com.diluv.diluvgradle.upload.UploadResult;
+import com.diluv.diluvgradle.upload.UploadSettings;
+import com.diluv.diluvgradle.upload.UploadWorkAction;
+import com.diluv.diluvgradle.util.SemanticVersion;
+import com.diluv.diluvgradle.util.VersionFormatException;
+import com.google.gson.JsonParseException;
+
+/**
+ * A task that publishes every artifact of a release in one go. The artifacts are described as
+ * publications, either in the build script or in a JSON manifest. Every publication is
+ * validated before anything is uploaded, then all of them are uploaded in parallel through the
+ * shared HTTP client. The outcome of every publication is written to a single summary file.
+ */
+public abstract class TaskDiluvPublishAll extends DefaultTask implements UploadSettings {
+    
+    /**
+     * The name of the task registered by the plugin.
+     */
+    public static final String NAME = "diluvPublishAll";
+    
+    /**
+     * An internal logger instance used to output status and debug information about the plugin
+     * and it's usage.
+     */
+    private final Logger log;
+    
+    /**
+     * The shared HTTP service used to communicate with Diluv.
+     */
+    private final Property<DiluvHttpService> httpService;
+    
+    /**
+     * The shared scheduler that limits the amount of uploads sent at once across the build.
+     */
+    private final Property<DiluvUploadScheduler> scheduler;
+    
+    /**
+     * The shared service that collects the metrics of every upload in the build.
+     */
+    private final Property<DiluvMetricsService> metricsService;
+    
+    /**
+     * The path of the project the task belongs to.
+     */
+    private final String projectPath;
+    
+    /**
+     * The URL of the Diluv API.
+     */
+    private final Property<String> apiURL;
+    
+    /**
+     * The API token used to upload the artifacts.
+     */
+    private final Property<String> token;
+    
+    /**
+     * The version shared by every publication.
+     */
+    private final Property<String> version;
+    
+    /**
+     * The changelog shared by every publication.
+     */
+    private final Property<String> changelog;
+    
+    /**
+     * The release type shared by every publication.
+     */
+    private final Property<String> releaseType;
+    
+    /**
+     * The game versions shared by every publication.
+     */
+    private final SetProperty<String> gameVersions;
+    
+    /**
+     * The loaders shared by every publication.
+     */
+    private final SetProperty<String> loaders;
+    
+    /**
+     * If enabled the versions do not need to follow semantic versioning.
+     */
+    private final Property<Boolean> ignoreSemVer;
+    
+    /**
+     * If enabled, uploads that have not started yet are cancelled once an upload fails.
+     */
+    private final Property<Boolean> failFast;
+    
+    /**
+     * The max amount of artifacts that are uploaded at once.
+     */
+    private final Property<Integer> maxParallelUploads;
+    
+    /**
+     * The max amount of times a request to Diluv is attempted.
+     */
+    private final Property<Integer> maxAttempts;
+    
+    /**
+     * The delay in milliseconds before the first retry of a failed request.
+     */
+    private final Property<Integer> retryDelay;
+    
+    /**
+     * The longest delay in milliseconds between attempts of a failed request.
+     */
+    private final Property<Integer> maxRetryDelay;
+    
+    /**
+     * If enabled, artifacts that were already published are not uploaded again.
+     */
+    private final Property<Boolean> skipDuplicates;
+    
+    /**
+     * If enabled, the files of each project are requested from Diluv when checking for
+     * duplicates.
+     */
+    private final Property<Boolean> checkRemoteDuplicates;
+    
+    /**
+     * The directory used to cache information about published files.
+     */
+    private final DirectoryProperty cacheDirectory;
+    
+    /**
+     * The directory the results of the individual uploads are written to.
+     */
+    private final DirectoryProperty resultsDirectory;
+    
+    /**
+     * The file the summary of the run is written to.
+     */
+    private final RegularFileProperty summaryFile;
+    
+    /**
+     * The artifacts to publish.
+     */
+    private final NamedDomainObjectContainer<DiluvPublication> publications;
+    
+    public TaskDiluvPublishAll() {
+        
+        this.log = Logging.getLogger("DiluvGradle");
+        
+        final Project project = this.getProject();
+        final ObjectFactory objects = project.getObjects();
+        final ProviderFactory providers = project.getProviders();
+        final ProjectLayout layout = project.getLayout();
+        
+        final Provider<DiluvHttpService> sharedService = DiluvHttpService.register(project);
+        this.httpService = objects.property(DiluvHttpService.class);
+        this.httpService.set(sharedService);
+        this.usesService(sharedService);
+        
+        final Provider<DiluvUploadScheduler> sharedScheduler = DiluvUploadScheduler.register(project);
+        this.scheduler = objects.property(DiluvUploadScheduler.class);
+        this.scheduler.set(sharedScheduler);
+        this.usesService(sharedScheduler);
+        
+        final Provider<DiluvMetricsService> sharedMetrics = DiluvMetricsService.register(project);
+        this.metricsService = objects.property(DiluvMetricsService.class);
+        this.metricsService.set(sharedMetrics);
+        this.usesService(sharedMetrics);
+        
+        this.projectPath = project.getPath();
+        final File gradleUserHome = project.getGradle().getGradleUserHomeDir();
+        this.apiURL = objects.property(String.class).convention("https://api.diluv.com");
+        this.token = objects.property(String.class).convention(providers.gradleProperty("diluv.token").orElse(providers.environmentVariable("DILUV_TOKEN")));
+        this.version = objects.property(String.class).convention(providers.provider( () -> {
+            
+            final String projectVersion = String.valueOf(project.getVersion());
+            return projectVersion.isEmpty() || Project.DEFAULT_VERSION.equals(projectVersion) ? null : projectVersion;
+        }));
+        this.changelog = objects.property(String.class);
+        this.releaseType = objects.property(String.class).convention("alpha");
+        this.gameVersions = objects.setProperty(String.class).empty();
+        this.loaders = objects.setProperty(String.class).empty();
+        this.ignoreSemVer = objects.property(Boolean.class).convention(false);
+        this.failFast = objects.property(Boolean.class).convention(true);
+        this.maxParallelUploads = objects.property(Integer.class).convention(4);
+        this.maxAttempts = objects.property(Integer.class).convention(3);
+        this.retryDelay = objects.property(Integer.class).convention(1000);
+        this.maxRetryDelay = objects.property(Integer.class).convention(30000);
+        this.skipDuplicates = objects.property(Boolean.class).convention(true);
+        this.checkRemoteDuplicates = objects.property(Boolean.class).convention(false);
+        this.cacheDirectory = objects.directoryProperty().convention(layout.dir(this.apiURL.map(url -> TaskDiluvUpload.getDefaultCacheDirectory(gradleUserHome, url))));
+        this.resultsDirectory = objects.directoryProperty().convention(layout.getBuildDirectory().dir("diluv/" + this.getName() + "/results"));
+        this.summaryFile = objects.fileProperty().convention(layout.getBuildDirectory().file("diluv/" + this.getName() + "/summary.json"));
+        this.publications = objects.domainObjectContainer(DiluvPublication.class);
+        
+        // Values that are not set on a publication fall back to the values of the task.
+        this.publications.all(publication -> {
+            
+            publication.getVersion().convention(this.version);
+            publication.getChangelog().convention(this.changelog);
+            publication.getReleaseType().convention(this.releaseType);
+            publication.getGameVersions().convention(this.gameVersions);
+            publication.getLoaders().convention(this.loaders);
+        });
+        
+        // Depend on the tasks that build the artifacts. Publications without a file are
+        // reported when the publications are validated.
+        this.dependsOn((Callable<List<RegularFileProperty>>) () -> this.publications.stream().map(DiluvPublication::getFile).filter(RegularFileProperty::isPresent).collect(Collectors.toList()));
+        
+        this.setGroup("publishing");
+        this.setDescription("Publishes every configured artifact to Diluv.");
+    }
+    
+    /**
+     * The shared HTTP service used to communicate with Diluv.
+     * 
+     * @return The HTTP service used by this task.
+     */
+    @Internal
+    public Property<DiluvHttpService> getHttpService () {
+        
+        return this.httpService;
+    }
+    
+    /**
+     * The shared scheduler that every upload in the build goes through.
+     * 
+     * @return The upload scheduler used by this task.
+     */
+    @Internal
+    public Property<DiluvUploadScheduler> getScheduler () {
+        
+        return this.scheduler;
+    }
+    
+    /**
+     * The shared service that collects the metrics of every upload in the build.
+     * 
+     * @return The metrics service used by this task.
+     */
+    @Internal
+    public Property<DiluvMetricsService> getMetricsService () {
+        
+        return this.metricsService;
+    }
+    
+    /**
+     * The path of the project the task belongs to.
+     * 
+     * @return The project path.
+     */
+    @Internal
+    public String getProjectPath () {
+        
+        return this.projectPath;
+    }
+    
+    /**
+     * The URL of the Diluv API.
+     * 
+     * @return The API URL.
+     */
+    @Internal
+    public Property<String> getApiURL () {
+        
+        return this.apiURL;
+    }
+    
+    /**
+     * The API token used to upload the artifacts. Defaults to the diluv.token Gradle property
+     * or the DILUV_TOKEN environment variable.
+     * 
+     * @return The API token.
+     */
+    @Internal
+    public Property<String> getToken () {
+        
+        return this.token;
+    }
+    
+    /**
+     * The version shared by every publication. Defaults to the version of the project.
+     * 
+     * @return The shared version.
+     */
+    @Internal
+    public Property<String> getVersion () {
+        
+        return this.version;
+    }
+    
+    /**
+     * The changelog shared by every publication.
+     * 
+     * @return The shared changelog.
+     */
+    @Internal
+    public Property<String> getChangelog () {
+        
+        return this.changelog;
+    }
+    
+    /**
+     * The release type shared by every publication. Defaults to alpha.
+     * 
+     * @return The shared release type.
+     */
+    @Internal
+    public Property<String> getReleaseType () {
+        
+        return this.releaseType;
+    }
+    
+    /**
+     * The game versions shared by every publication.
+     * 
+     * @return The shared game versions.
+     */
+    @Internal
+    public SetProperty<String> getGameVersions () {
+        
+        return this.gameVersions;
+    }
+    
+    /**
+     * The loaders shared by every publication.
+     * 
+     * @return The shared loaders.
+     */
+    @Internal
+    public SetProperty<String> getLoaders () {
+        
+        return this.loaders;
+    }
+    
+    /**
+     * If enabled the versions do not need to follow semantic versioning.
+     * 
+     * @return Whether or not semantic versioning is ignored.
+     */
+    @Internal
+    public Property<Boolean> getIgnoreSemVer () {
+        
+        return this.ignoreSemVer;
+    }
+    
+    /**
+     * If enabled, uploads that have not started yet are cancelled once an upload fails. If
+     * disabled every publication is attempted. The task fails when any publication failed
+     * either way. Enabled by default.
+     * 
+     * @return Whether or not to fail fast.
+     */
+    @Internal
+    public Property<Boolean> getFailFast () {
+        
+        return this.failFast;
+    }
+    
+    /**
+     * The max amount of artifacts that are uploaded at once.
+     * 
+     * @return The max amount of parallel uploads.
+     */
+    @Internal
+    public Property<Integer> getMaxParallelUploads () {
+        
+        return this.maxParallelUploads;
+    }
+    
+    /**
+     * The max amount of times a request to Diluv is attempted.
+     * 
+     * @return The max amount of attempts.
+     */
+    @Internal
+    public Property<Integer> getMaxAttempts () {
+        
+        return this.maxAttempts;
+    }
+    
+    /**
+     * The delay in milliseconds before the first retry of a failed request.
+     * 
+     * @return The initial retry delay.
+     */
+    @Internal
+    public Property<Integer> getRetryDelay () {
+        
+        return this.retryDelay;
+    }
+    
+    /**
+     * The longest delay in milliseconds between attempts of a failed request.
+     * 
+     * @return The max retry delay.
+     */
+    @Internal
+    public Property<Integer> getMaxRetryDelay () {
+        
+        return this.maxRetryDelay;
+    }
+    
+    /**
+     * If enabled, artifacts that were already published are not uploaded again. This allows a
+     * failed release to be published again without creating duplicate files.
+     * 
+     * @return Whether or not duplicate files are skipped.
+     */
+    @Internal
+    public Property<Boolean> getSkipDuplicates () {
+        
+        return this.skipDuplicates;
+    }
+    
+    /**
+     * If enabled, the files of each project are requested from Diluv when checking for
+     * duplicates.
+     * 
+     * @return Whether or not Diluv is checked for duplicates.
+     */
+    @Internal
+    public Property<Boolean> getCheckRemoteDuplicates () {
+        
+        return this.checkRemoteDuplicates;
+    }
+    
+    /**
+     * The directory used to cache information about published files. Defaults to a directory
+     * for the Diluv instance in the Gradle user home, which is shared with the upload tasks.
+     * 
+     * @return The cache directory.
+     */
+    @Internal
+    public DirectoryProperty getCacheDirectory () {
+        
+        return this.cacheDirectory;
+    }
+    
+    /**
+     * The directory the results of the individual uploads are written to.
+     * 
+     * @return The results directory.
+     */
+    @Internal
+    public DirectoryProperty getResultsDirectory () {
+        
+        return this.resultsDirectory;
+    }
+    
+    /**
+     * The file the summary of the run is written to.
+     * 
+     * @return The summary file.
+     */
+    @Internal
+    public RegularFileProperty getSummaryFile () {
+        
+        return this.summaryFile;
+    }
+    
+    /**
+     * The artifacts to publish.
+     * 
+     * @return The publications.
+     */
+    @Internal
+    public NamedDomainObjectContainer<DiluvPublication> getPublications () {
+        
+        return this.publications;
+    }
+    
+    /**
+     * Configures the artifacts to publish.
+     * 
+     * @param action The action used to configure the publications.
+     */
+    public void publications (Action<? super NamedDomainObjectContainer<DiluvPublication>> action) {
+        
+        action.execute(this.publications);
+    }
+    
+    /**
+     * Adds a game version shared by every publication.
+     * 
+     * @param version The game version.
+     */
+    public void addGameVersion (String version) {
+        
+        this.gameVersions.add(version);
+    }
+    
+    /**
+     * Adds a loader shared by every publication.
+     * 
+     * @param loader The loader.
+     */
+    public void addLoader (String loader) {
+        
+        this.loaders.add(loader);
+    }
+    
+    /**
+     * Reads publications from a JSON manifest. Values at the top level of the manifest replace
+     * the shared values of the task. Files are resolved relative to the project directory.
+     * 
+     * @param path The manifest file.
+     */
+    public void manifest (Object path) {
+        
+        final Project project = this.getProject();
+        final PublishManifest manifest = PublishManifest.read(project.file(path));
+        
+        if (manifest.getVersion() != null) {
+            
+            this.version.set(manifest.getVersion());
+        }
+        
+        if (manifest.getChangelog() != null) {
+            
+            this.changelog.set(manifest.getChangelog());
+        }
+        
+        if (manifest.getReleaseType() != null) {
+            
+            this.releaseType.set(manifest.getReleaseType());
+        }
+        
+        manifest.getGameVersions().forEach(this::addGameVersion);
+        manifest.getLoaders().forEach(this::addLoader);
+        
+        for (final PublishManifest.Entry entry : manifest.getPublications()) {
+            
+            this.publications.create(entry.getName(), publication -> {
+                
+                if (entry.getProjectId() != null) {
+                    
+                    publication.getProjectId().set(entry.getProjectId());
+                }
+                
+                if (entry.getFile() != null) {
+                    
+                    publication.getFile().set(project.file(entry.getFile()));
+                }
+                
+                if (entry.getBuiltBy() != null) {
+                    
+                    this.dependsOn(entry.getBuiltBy());
+                }
+                
+                if (entry.getClassifier() != null) {
+                    
+                    publication.getClassifier().set(entry.getClassifier());
+                }
+                
+                if (entry.getVersion() != null) {
+                    
+                    publication.getVersion().set(entry.getVersion());
+                }
+                
+                if (entry.getChangelog() != null) {
+                    
+                    publication.getChangelog().set(entry.getChangelog());
+                }
+                
+                if (entry.getReleaseType() != null) {
+                    
+                    publication.getReleaseType().set(entry.getReleaseType());
+                }
+                
+                entry.getGameVersions().forEach(publication::addGameVersion);
+                entry.getLoaders().forEach(publication::addLoader);
+                publication.getRelations().putAll(entry.getRelations());
+            });
+        }
+    }
+    
+    /**
+     * Gets the worker executor used to upload artifacts in parallel.
+     * 
+     * @return The worker executor.
+     */
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor ();
+    
+    @TaskAction
+    public void publish () {
+        
+        final List<DiluvPublication> publications = new ArrayList<>(this.publications);
+        
+        if (publications.isEmpty()) {
+            
+            this.log.lifecycle("No Diluv publications have been configured for {}.", this.getPath());
+            return;
+        }
+        
+        // Everything is validated before the first upload starts, so a mistake in one
+        // publication can not leave a release half published.
+        final Map<DiluvPublication, RequestData> requests = this.validate(publications);
+        final DiluvHttpService http = this.httpService.get();
+        final File resultDir = this.resultsDirectory.get().getAsFile();
+        final WorkQueue queue = this.getWorkerExecutor().noIsolation();
+        
+        this.deleteOldResults(resultDir);
+        http.resetCancelled(this.getPath());
+        this.log.lifecycle("Publishing {} artifacts to Diluv.", requests.size());
+        
+        for (final Map.Entry<DiluvPublication, RequestData> entry : requests.entrySet()) {
+            
+            final DiluvPublication publication = entry.getKey();
+            final RequestData request = entry.getValue();
+            
+            queue.submit(UploadWorkAction.class, params -> {
+                
+                UploadWorkAction.configure(params, this);
+                params.getEndpoint().set(this.getUploadEndpoint(publication));
+                params.getProjectId().set(publication.getProjectId());
+                params.getUploadFile().set(publication.getFile());
+                params.getClassifier().set(request.getClassifier());
+                params.getRequestData().set(DiluvJson.GSON.toJson(request));
+                params.getFailFast().set(this.failFast);
+                params.getVersion().set(request.getVersion());
+                params.getCacheDirectory().set(this.cacheDirectory);
+                params.getResultFile().set(new File(resultDir, publication.getName() + ".json"));
+            });
+        }
+        
+        GradleException failure = null;
+        
+        try {
+            
+            queue.await();
+        }
+        
+        catch (final GradleException e) {
+            
+            failure = e;
+        }
+        
+        final PublishSummary summary = this.writeSummary(publications, resultDir);
+        
+        if (failure != null || summary.getFailures() > 0) {
+            
+            throw new GradleException(summary.getFailures() + " of " + summary.getTotal() + " Diluv publications were not published. See " + this.summaryFile.get().getAsFile() + " for details.", failure);
+        }
+        
+        this.log.lifecycle("Published {} artifacts to Diluv. The summary was written to {}.", summary.getTotal(), this.summaryFile.get().getAsFile());
+    }
+    
+    /**
+     * Validates every publication and creates the request data for them. Every problem that
+     * is found is reported at once.
+     * 
+     * @param publications The publications to validate.
+     * @return The request data of each publication.
+     */
+    private Map<DiluvPublication, RequestData> validate (List<DiluvPublication> publications) {
+        
+        final List<String> problems = new ArrayList<>();
+        final Map<DiluvPublication, RequestData> requests = new LinkedHashMap<>();
+        final Set<String> targets = new HashSet<>();
+        
+        if (!this.token.isPresent()) {
+            
+            problems.add("No token was specified.");
+        }
+        
+        for (final DiluvPublication publication : publications) {
+            
+            final String name = publication.getName();
+            final RequestData request = this.createRequest(publication);
+            final RegularFile file = publication.getFile().getOrNull();
+            
+            if (!publication.getProjectId().isPresent()) {
+                
+                problems.add(name + ": No project ID was specified.");
+            }
+            
+            else {
+                
+                try {
+                    
+                    new URI(this.getUploadEndpoint(publication));
+                }
+                
+                catch (final URISyntaxException e) {
+                    
+                    problems.add(name + ": The upload endpoint is not a valid URI. " + e.getMessage());
+                }
+                
+                if (!targets.add(publication.getProjectId().get() + "/" + request.getClassifier())) {
+                    
+                    problems.add(name + ": Another publication uploads a " + request.getClassifier() + " file to project " + publication.getProjectId().get() + ".");
+                }
+            }
+            
+            if (file == null) {
+                
+                problems.add(name + ": No upload file was specified.");
+            }
+            
+            else if (!file.getAsFile().isFile()) {
+                
+                problems.add(name + ": The upload file " + file.getAsFile() + " does not exist.");
+            }
+            
+            if (!request.hasVersion()) {
+                
+                problems.add(name + ": No version was specified.");
+            }
+            
+            else if (!this.ignoreSemVer.get()) {
+                
+                try {
+                    
+                    SemanticVersion.parse(request.getVersion());
+                }
+                
+                catch (final VersionFormatException e) {
+                    
+                    problems.add(name + ": " + e.getMessage());
+                }
+            }
+            
+            if (!request.hasGameVersion()) {
+                
+                problems.add(name + ": No game version was specified.");
+            }
+            
+            requests.put(publication, request);
+        }
+        
+        if (!problems.isEmpty()) {
+            
+            problems.forEach(this.log::error);
+            throw new GradleException("Can not publish to Diluv. " + problems.size() + " problems were found:\n - " + String.join("\n - ", problems));
+        }
+        
+        if (!this.changelog.isPresent() && publications.stream().anyMatch(publication -> !publication.getChangelog().isPresent())) {
+            
+            this.log.warn("No changelog was specified. A default one will be used. This is not recommended.");
+        }
+        
+        return requests;
+    }
+    
+    /**
+     * Creates the request data sent to Diluv for a publication.
+     * 
+     * @param publication The publication.
+     * @return The request data.
+     */
+    private RequestData createRequest (DiluvPublication publication) {
+        
+        final RequestData request = new RequestData();
+        request.setVersion(publication.getVersion().getOrNull());
+        request.setReleaseType(publication.getReleaseType().get());
+        request.setClassifier(publication.getClassifier().get());
+        publication.getGameVersions().getOrElse(Collections.emptySet()).forEach(request::addGameVersion);
+        publication.getLoaders().getOrElse(Collections.emptySet()).forEach(request::addLoader);
+        request.addRelations(publication.getRelations().getOrElse(Collections.emptyMap()));
+        
+        if (publication.getChangelog().isPresent()) {
+            
+            request.setChangelog(publication.getChangelog().get());
+        }
+        
+        else if (request.hasVersion()) {
+            
+            request.setChangelog("The project has been updated to " + request.getVersion() + ".");
+        }
+        
+        return request;
+    }
+    
+    /**
+     * Collects the results of every publication and writes the summary file.
+     * 
+     * @param publications The publications that were published.
+     * @param resultDir The directory the results were written to.
+     * @return The summary of the run.
+     */
+    private PublishSummary writeSummary (List<DiluvPublication> publications, File resultDir) {
+        
+        final PublishSummary summary = new PublishSummary();
+        
+        for (final DiluvPublication publication : publications) {
+            
+            UploadResult result = null;
+            
+            try {
+                
+                result = UploadResult.load(DiluvJson.GSON, new File(resultDir, publication.getName() + ".json"));
+            }
+            
+            catch (final IOException | JsonParseException e) {
+                
+                this.log.debug("Failed to read upload result for {}.", publication.getName(), e);
+            }
+            
+            summary.add(publication.getName(), publication.getProjectId().get(), publication.getFile().get().getAsFile(), result);
+        }
+        
+        try {
+            
+            summary.save(DiluvJson.GSON, this.summaryFile.get().getAsFile());
+        }
+        
+        catch (final IOException e) {
+            
+            throw new GradleException("Failed to write the Diluv publish summary.", e);
+        }
+        
+        return summary;
+    }
+    
+    /**
+     * Removes results from previous runs, they may be for publications that no longer exist.
+     * 
+     * @param resultDir The results directory.
+     */
+    private void deleteOldResults (File resultDir) {
+        
+        final File[] oldResults = resultDir.listFiles(File::isFile);
+        
+        if (oldResults != null) {
+            
+            for (final File oldResult : oldResults) {
+                
+                if (!oldResult.delete()) {
+                    
+                    throw new GradleException("Could not delete old upload result " + oldResult + ".");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Provides the upload API endpoint for a publication.
+     * 
+     * @param publication The publication.
+     * @return The upload API endpoint.
+     */
+    private String getUploadEndpoint (DiluvPublication publication) {
+        
+        return this.apiURL.get() + "/v1/projects/" + publication.getProjectId().getOrNull() + "/files";
+    }
+}
@@ -2,44 +2,101 @@ package com.diluv.diluvgradle;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.CookieSpecs;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
+import org.gradle.api.Action;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.AppliedPlugin;
-import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
-import com.diluv.diluvgradle.request.FileProjectRelation;
+import com.diluv.diluvgradle.cache.ModuleIndex;
+import com.diluv.diluvgradle.detect.GameVersionDetection;
+import com.diluv.diluvgradle.detect.JarMetadata;
+import com.diluv.diluvgradle.detect.JarMetadataScanner;
+import com.diluv.diluvgradle.http.DiluvHttpService;
+import com.diluv.diluvgradle.http.DiluvUploadScheduler;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.metrics.DiluvMetricsService;
+import com.diluv.diluvgradle.mock.MockDiluvService;
 import com.diluv.diluvgradle.request.RelationType;
 import com.diluv.diluvgradle.request.RequestData;
 import com.diluv.diluvgradle.responses.ResponseError;
 import com.diluv.diluvgradle.responses.ResponseUpload;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.diluv.diluvgradle.spool.SpoolEntry;
+import com.diluv.diluvgradle.spool.SpoolQueue;
+import com.diluv.diluvgradle.upload.UploadArtifact;
+import com.diluv.diluvgradle.upload.UploadResult;
+import com.diluv.diluvgradle.upload.UploadSettings;
+import com.diluv.diluvgradle.upload.UploadWorkAction;
+import com.diluv.diluvgradle.util.FileDigests;
+import com.diluv.diluvgradle.util.Hashing;
+import com.diluv.diluvgradle.util.SemanticVersion;
+import com.diluv.diluvgradle.util.SigningKey;
+import com.diluv.diluvgradle.util.VersionFormatException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 
 /**
  * A task used to communicate with Diluv for the purpose of uploading build artifacts.
  */
-public class TaskDiluvUpload extends DefaultTask {
+public abstract class TaskDiluvUpload extends DefaultTask implements UploadSettings {
+    
+    /**
+     * The Gradle property used to turn on dry runs for every upload task in the build.
+     */
+    public static final String PROPERTY_DRY_RUN = "diluv.dryRun";
     
     /**
      * An internal logger instance used to output status and debug information about the plugin
@@ -48,54 +105,304 @@ public class TaskDiluvUpload extends DefaultTask {
     private final Logger log;
     
     /**
-     * A project specific instance of Gson. Used to serialize JSON objects for use with Diluv's
-     * REST API.
+     * The shared HTTP service used to communicate with Diluv. This is shared with every other
+     * upload task in the build so connections can be reused.
+     */
+    private final Property<DiluvHttpService> httpService;
+    
+    /**
+     * The shared scheduler that limits the amount of uploads sent at once across the build.
+     */
+    private final Property<DiluvUploadScheduler> scheduler;
+    
+    /**
+     * The shared service that collects the metrics of every upload in the build.
      */
-    private final Gson gson;
+    private final Property<DiluvMetricsService> metricsService;
     
     /**
-     * Represents the file upload data attached to the API call when uploading the file.
+     * The path of the project the task belongs to.
      */
-    private final RequestData request;
+    private final String projectPath;
     
     /**
      * The URL used for communicating with Diluv. This should not be changed unless you know
      * what you're doing. It's main use case is for debug, development, or advanced user
      * configurations.
      */
-    public String apiURL = "https://api.diluv.com";
+    private final Property<String> apiURL;
     
     /**
      * The ID of the project to upload to.
      */
-    public String projectId;
+    private final Property<String> projectId;
     
     /**
      * The API token used to communicate with Diluv. Make sure you keep this private!
      */
-    public String token;
+    private final Property<String> token;
+    
+    /**
+     * The upload artifact file.
+     */
+    private final RegularFileProperty uploadFile;
+    
+    /**
+     * The version of the file being uploaded. Defaults to the version of the project.
+     */
+    private final Property<String> fileVersion;
+    
+    /**
+     * The changelog for the file.
+     */
+    private final Property<String> changelog;
+    
+    /**
+     * The release type of the file being uploaded.
+     */
+    private final Property<String> releaseType;
+    
+    /**
+     * The classifier of the main upload file.
+     */
+    private final Property<String> classifier;
+    
+    /**
+     * The game versions the file is compatible with. If none are specified they will be
+     * detected from the build environment.
+     */
+    private final SetProperty<String> gameVersions;
+    
+    /**
+     * The game versions detected from the build environment. These are only used when no game
+     * versions have been specified.
+     */
+    private final SetProperty<String> detectedGameVersions;
+    
+    /**
+     * The loaders the file is compatible with.
+     */
+    private final SetProperty<String> loaders;
+    
+    /**
+     * The loaders detected from the plugins applied to the project.
+     */
+    private final SetProperty<String> detectedLoaders;
     
     /**
-     * The upload artifact file. This can be any object type that is resolvable by
-     * {@link #resolveFile(Project, Object, File)}.
+     * The relations between the file and other projects, keyed by the ID of the other project.
      */
-    public Object uploadFile;
+    private final MapProperty<Long, RelationType> relations;
     
     /**
      * Allows build to continue even if the upload failed.
      */
-    public boolean failSilently = false;
+    private final Property<Boolean> failSilently;
     
     /**
      * If enabled the plugin-side semantic version check will be ignored.
      */
-    public boolean ignoreSemVer = false;
+    private final Property<Boolean> ignoreSemVer;
     
     /**
      * If enabled the plugin will try to define loaders based on other plugins in the project
      * environment.
      */
-    public boolean detectLoaders = true;
+    private final Property<Boolean> detectLoaders;
+    
+    /**
+     * If enabled the file will be uploaded as a series of parts. Completed parts are tracked in
+     * a journal in the build directory, allowing an interrupted upload to be resumed by running
+     * the task again. This requires the Diluv API to support chunked uploads.
+     */
+    private final Property<Boolean> chunkedUpload;
+    
+    /**
+     * The size of each part in bytes when chunked uploads are enabled.
+     */
+    private final Property<Integer> chunkSize;
+    
+    /**
+     * The max amount of parts that can be uploaded at once when chunked uploads are enabled.
+     */
+    private final Property<Integer> chunkParallelism;
+    
+    /**
+     * The max amount of artifacts from this task that can be uploaded at once.
+     */
+    private final Property<Integer> maxParallelUploads;
+    
+    /**
+     * The max amount of times a request to Diluv is attempted. Requests are only retried when
+     * they failed for a temporary reason, such as the API being unavailable.
+     */
+    private final Property<Integer> maxAttempts;
+    
+    /**
+     * The delay before the first retry in milliseconds. The delay doubles with each attempt.
+     */
+    private final Property<Integer> retryDelay;
+    
+    /**
+     * The longest delay between attempts in milliseconds.
+     */
+    private final Property<Integer> maxRetryDelay;
+    
+    /**
+     * If enabled, files that were already uploaded to the project are not uploaded again.
+     * Instead the upload info of the existing file is used. Uploaded files are tracked in a
+     * cache in the Gradle user home.
+     */
+    private final Property<Boolean> skipDuplicates;
+    
+    /**
+     * If enabled, the existing files of the project are requested from Diluv when a file is
+     * not found in the local cache of uploaded files.
+     */
+    private final Property<Boolean> checkRemoteDuplicates;
+    
+    /**
+     * If enabled, uploads are rejected when their version is not higher than the latest
+     * version that was published to the project with the same classifier.
+     */
+    private final Property<Boolean> rejectLowerVersions;
+    
+    /**
+     * How long the cached versions of the project can be used before they are refreshed from
+     * Diluv, in seconds.
+     */
+    private final Property<Integer> versionCacheTtl;
+    
+    /**
+     * If enabled, the task waits for Diluv to finish processing each uploaded file.
+     */
+    private final Property<Boolean> waitForProcessing;
+    
+    /**
+     * The delay in milliseconds before the first status check of a processing file.
+     */
+    private final Property<Integer> pollInterval;
+    
+    /**
+     * The longest delay in milliseconds between status checks of a processing file.
+     */
+    private final Property<Integer> maxPollInterval;
+    
+    /**
+     * How long to wait for Diluv to process a file, in seconds.
+     */
+    private final Property<Integer> waitTimeout;
+    
+    /**
+     * If enabled, artifacts are written to the spool queue instead of being uploaded.
+     */
+    private final Property<Boolean> spool;
+    
+    /**
+     * If enabled, the uploads are validated and their requests are built, but nothing is sent
+     * to Diluv.
+     */
+    private final Property<Boolean> dryRun;
+    
+    /**
+     * If enabled, artifacts that could not be uploaded because Diluv could not be reached are
+     * written to the spool queue instead of failing the upload.
+     */
+    private final Property<Boolean> spoolOnFailure;
+    
+    /**
+     * The spool queue directory that artifacts are written to.
+     */
+    private final DirectoryProperty spoolDirectory;
+    
+    /**
+     * If enabled, files are repacked before they are uploaded.
+     */
+    private final Property<Boolean> repack;
+    
+    /**
+     * The deflate level used when repacking files.
+     */
+    private final Property<Integer> repackLevel;
+    
+    /**
+     * Glob patterns of entries that are left out when repacking files.
+     */
+    private final ListProperty<String> repackExcludes;
+    
+    /**
+     * The digest algorithms of the checksums that are written and sent with each file.
+     */
+    private final ListProperty<String> checksums;
+    
+    /**
+     * The PEM encoded private key used to sign each file.
+     */
+    private final Property<String> signingKey;
+    
+    /**
+     * The signature algorithm used to sign each file.
+     */
+    private final Property<String> signingAlgorithm;
+    
+    /**
+     * The directory the checksum and signature files are written to.
+     */
+    private final DirectoryProperty sidecarDirectory;
+    
+    /**
+     * If enabled, the mod metadata in the upload file is used to fill in loaders, game versions
+     * and relations.
+     */
+    private final Property<Boolean> scanMetadata;
+    
+    /**
+     * The Diluv project IDs of mods, keyed by mod ID. Dependencies found in the mod metadata
+     * are only added as relations when their mod ID is mapped to a project.
+     */
+    private final MapProperty<String, Long> modProjects;
+    
+    /**
+     * The Diluv project IDs of modules, keyed by group and name.
+     */
+    private final MapProperty<String, Long> moduleProjects;
+    
+    /**
+     * The configurations whose modules are added as relations, keyed by configuration name.
+     * Their modules are wired up when the configuration is added to the project, so the task
+     * does not need the project to read them when it runs.
+     */
+    private final Map<String, RelationConfiguration> relationConfigurations = new LinkedHashMap<>();
+    
+    /**
+     * The files of the resolved modules in the relation configurations.
+     */
+    private final ConfigurableFileCollection relationFiles;
+    
+    /**
+     * The directory upload results are written to.
+     */
+    private final DirectoryProperty resultsDirectory;
+    
+    /**
+     * The directory used to store journals for chunked uploads.
+     */
+    private final DirectoryProperty journalDirectory;
+    
+    /**
+     * The directory used to cache information about published files.
+     */
+    private final DirectoryProperty cacheDirectory;
+    
+    /**
+     * Additional artifacts that are uploaded alongside the main upload file.
+     */
+    private final List<UploadArtifact> artifacts = new ArrayList<>();
+    
+    /**
+     * The results of each uploaded artifact, keyed by their classifier.
+     */
+    private final Map<String, UploadResult> results = new LinkedHashMap<>();
     
     /**
      * The response from the API when the file was uploaded successfully.
@@ -114,185 +421,1115 @@ public class TaskDiluvUpload extends DefaultTask {
     public TaskDiluvUpload() {
         
         this.log = Logging.getLogger("DiluvGradle");
-        this.gson = new GsonBuilder().create();
-        this.request = new RequestData();
+        
+        final Project project = this.getProject();
+        final ObjectFactory objects = project.getObjects();
+        final ProviderFactory providers = project.getProviders();
+        final ProjectLayout layout = project.getLayout();
+        final File gradleUserHome = project.getGradle().getGradleUserHomeDir();
+        
+        final Provider<DiluvHttpService> sharedService = DiluvHttpService.register(project);
+        this.httpService = objects.property(DiluvHttpService.class);
+        this.httpService.set(sharedService);
+        this.usesService(sharedService);
+        
+        this.projectPath = project.getPath();
+        
+        final Provider<DiluvUploadScheduler> sharedScheduler = DiluvUploadScheduler.register(project);
+        this.scheduler = objects.property(DiluvUploadScheduler.class);
+        this.scheduler.set(sharedScheduler);
+        this.usesService(sharedScheduler);
+        
+        final Provider<DiluvMetricsService> sharedMetrics = DiluvMetricsService.register(project);
+        this.metricsService = objects.property(DiluvMetricsService.class);
+        this.metricsService.set(sharedMetrics);
+        this.usesService(sharedMetrics);
+        
+        this.apiURL = objects.property(String.class).convention("https://api.diluv.com");
+        this.projectId = objects.property(String.class);
+        this.token = objects.property(String.class);
+        this.uploadFile = objects.fileProperty();
+        this.fileVersion = objects.property(String.class);
+        this.changelog = objects.property(String.class);
+        this.releaseType = objects.property(String.class).convention("alpha");
+        this.classifier = objects.property(String.class).convention("binary");
+        this.gameVersions = objects.setProperty(String.class).empty();
+        this.detectedGameVersions = objects.setProperty(String.class).empty();
+        this.loaders = objects.setProperty(String.class).empty();
+        this.detectedLoaders = objects.setProperty(String.class).empty();
+        this.relations = objects.mapProperty(Long.class, RelationType.class).empty();
+        this.failSilently = objects.property(Boolean.class).convention(false);
+        this.ignoreSemVer = objects.property(Boolean.class).convention(false);
+        this.detectLoaders = objects.property(Boolean.class).convention(true);
+        this.chunkedUpload = objects.property(Boolean.class).convention(false);
+        this.chunkSize = objects.property(Integer.class).convention(8 * 1024 * 1024);
+        this.chunkParallelism = objects.property(Integer.class).convention(4);
+        this.maxParallelUploads = objects.property(Integer.class).convention(4);
+        this.maxAttempts = objects.property(Integer.class).convention(3);
+        this.retryDelay = objects.property(Integer.class).convention(1000);
+        this.maxRetryDelay = objects.property(Integer.class).convention(30000);
+        this.skipDuplicates = objects.property(Boolean.class).convention(true);
+        this.checkRemoteDuplicates = objects.property(Boolean.class).convention(false);
+        this.rejectLowerVersions = objects.property(Boolean.class).convention(false);
+        this.versionCacheTtl = objects.property(Integer.class).convention(300);
+        this.waitForProcessing = objects.property(Boolean.class).convention(false);
+        this.pollInterval = objects.property(Integer.class).convention(2000);
+        this.maxPollInterval = objects.property(Integer.class).convention(30000);
+        this.waitTimeout = objects.property(Integer.class).convention(600);
+        this.spool = objects.property(Boolean.class).convention(false);
+        this.dryRun = objects.property(Boolean.class).convention(providers.gradleProperty(PROPERTY_DRY_RUN).map(Boolean::parseBoolean).orElse(false));
+        this.spoolOnFailure = objects.property(Boolean.class).convention(false);
+        this.spoolDirectory = objects.directoryProperty().convention(SpoolQueue.getDefaultDirectory(project));
+        this.repack = objects.property(Boolean.class).convention(false);
+        this.repackLevel = objects.property(Integer.class).convention(9);
+        this.repackExcludes = objects.listProperty(String.class).empty();
+        this.checksums = objects.listProperty(String.class).empty();
+        this.signingKey = objects.property(String.class);
+        this.signingAlgorithm = objects.property(String.class);
+        this.sidecarDirectory = objects.directoryProperty().convention(layout.getBuildDirectory().dir("diluv/sidecars"));
+        this.scanMetadata = objects.property(Boolean.class).convention(true);
+        this.modProjects = objects.mapProperty(String.class, Long.class).empty();
+        this.moduleProjects = objects.mapProperty(String.class, Long.class).empty();
+        this.relationFiles = objects.fileCollection();
+        this.resultsDirectory = objects.directoryProperty().convention(layout.getBuildDirectory().dir("diluv/" + this.getName()));
+        this.journalDirectory = objects.directoryProperty().convention(layout.getBuildDirectory().dir("diluv/journals"));
+        this.cacheDirectory = objects.directoryProperty().convention(layout.dir(this.apiURL.map(url -> getDefaultCacheDirectory(gradleUserHome, url))));
+        
+        // The task is only up to date if every artifact was uploaded successfully last time.
+        // A failed upload that was allowed by failSilently should be retried.
+        this.getOutputs().upToDateWhen(new SuccessfulResultsSpec());
+        
+        // The project version and the detected values are read once the build script has been
+        // evaluated, so the task does not need to hold on to the project to resolve them later.
+        whenEvaluated(project, evaluated -> {
+            
+            this.fileVersion.convention(getProjectVersion(evaluated));
+            
+            final String gameVersion = GameVersionDetection.of(evaluated).getGameVersion();
+            
+            if (gameVersion != null) {
+                
+                this.detectedGameVersions.add(gameVersion);
+            }
+            
+            this.detectedLoaders.addAll(detectLoaders(evaluated));
+        });
         
         // If the build task is present make sure this task is ran after it. This is required
         // for some environments such as those with parallel tasks enabled.
-        this.mustRunAfter(this.getProject().getTasks().getByName("build"));
+        project.getPlugins().withType(LifecycleBasePlugin.class, plugin -> this.mustRunAfter(project.getTasks().named(LifecycleBasePlugin.BUILD_TASK_NAME)));
     }
     
     /**
-     * Adds a compatible game version to the file.
+     * Gets the shared HTTP service used by the task to communicate with Diluv.
      * 
-     * @param version The compatible game version.
+     * @return The HTTP service used by this task.
      */
-    public void addGameVersion (String version) {
-        
-        this.log.debug("Adding game version {}.", version);
+    @Internal
+    public Property<DiluvHttpService> getHttpService () {
         
-        if (!this.request.addGameVersion(version)) {
-            
-            this.log.warn("The game version {} was not be applied.", version);
-        }
+        return this.httpService;
     }
     
     /**
-     * Sets the version of the file being uploaded.
+     * Gets the shared scheduler that every upload in the build goes through.
      * 
-     * @param version The version of the file being uploaded.
+     * @return The upload scheduler used by this task.
      */
-    public void setVersion (String version) {
-        
-        if (this.request.hasVersion()) {
-            
-            this.log.debug("Replacing file version {} with {}.", this.request.getVersion(), version);
-        }
+    @Internal
+    public Property<DiluvUploadScheduler> getScheduler () {
         
-        this.request.setVersion(version);
+        return this.scheduler;
     }
     
     /**
-     * Sets the changelog for the file.
+     * Gets the shared service that collects the metrics of every upload in the build. Upload
+     * listeners can be added to the service to track upload performance.
      * 
-     * @param changelog The changelog for the file.
+     * @return The metrics service used by this task.
      */
-    public void setChangelog (String changelog) {
+    @Internal
+    public Property<DiluvMetricsService> getMetricsService () {
         
-        this.request.setChangelog(changelog);
-        this.log.debug("Setting changelog to: '{}'", changelog);
+        return this.metricsService;
     }
     
     /**
-     * Sets the release type of the file being uploaded.
+     * Gets the path of the project the task belongs to.
      * 
-     * @param type The type of release.
+     * @return The project path.
      */
-    public void setReleaseType (String type) {
+    @Internal
+    public String getProjectPath () {
         
-        this.log.debug("Setting release type to {}.", type);
-        this.request.setReleaseType(type);
+        return this.projectPath;
     }
     
     /**
-     * Sets the classifier type of the file being uploaded.
+     * Gets the URL used for communicating with Diluv.
      * 
-     * @param classifier The classifier of the file being uploaded.
+     * @return The API URL.
      */
-    public void setClassifier (String classifier) {
+    @Input
+    public Property<String> getApiURL () {
         
-        this.log.debug("Setting classifier to {}.", classifier);
-        this.request.setClassifier(classifier);
+        return this.apiURL;
     }
     
     /**
-     * Adds a required project dependency for the file.
+     * Gets the ID of the project to upload to.
      * 
-     * @param project The project that this file requires.
+     * @return The project ID.
      */
-    public void addDependency (long project) {
+    @Input
+    @Optional
+    public Property<String> getProjectId () {
         
-        this.addRelation(project, RelationType.REQUIRED);
+        return this.projectId;
     }
     
     /**
-     * Adds an optional project dependency for the file.
+     * Gets the API token used to communicate with Diluv.
      * 
-     * @param project The project that is optional.
+     * @return The API token.
      */
-    public void addOptionalDependency (long project) {
+    @Internal
+    public Property<String> getToken () {
         
-        this.addRelation(project, RelationType.OPTIONAL);
+        return this.token;
     }
     
     /**
-     * Adds an incompatibility relationship for the file.
+     * Gets the main file to upload.
      * 
-     * @param project The project that the file is not compatible with.
+     * @return The main upload file.
      */
-    public void addIncompatibility (long project) {
+    @InputFiles
+    @Optional
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public RegularFileProperty getUploadFile () {
         
-        this.addRelation(project, RelationType.INCOMPATIBLE);
+        return this.uploadFile;
     }
     
     /**
-     * Adds a project relationship to the uploaded file. This determines things like
-     * dependencies and incompatibilities.
+     * Sets the main file to upload.
      * 
-     * @param project The project to add a relation with.
-     * @param type The type of relation to add.
+     * @param file The file to upload. This can be any object type that is resolvable by
+     *        {@link #resolveFile(Object)}.
      */
-    private void addRelation (long project, RelationType type) {
-        
-        final FileProjectRelation existingRelation = this.request.addRelation(new FileProjectRelation(project, type));
-        this.log.debug("Added {} relation with project {}.", type, project);
+    public void setUploadFile (Object file) {
         
-        if (existingRelation != null) {
-            
-            this.log.warn("Overwriting relation for {} to {}, was previously set as {}.", project, type, existingRelation);
-        }
+        this.uploadFile.set(this.resolveFile(file));
     }
     
     /**
-     * Adds a loader tag for the file.
+     * Gets the additional artifacts uploaded alongside the main upload file.
      * 
-     * @param loader The loader to allow.
+     * @return The additional artifacts.
      */
-    public void addLoader (String loader) {
-        
-        this.log.debug("Adding loader tag {}.", loader);
+    @Nested
+    public List<UploadArtifact> getArtifacts () {
         
-        if (!this.request.addLoader(loader)) {
-            
-            this.log.warn("The loader tag {} was already applied.", loader);
-        }
+        return this.artifacts;
     }
     
     /**
-     * Checks if the upload was successful or not. This is provided as a small helper for use
-     * in the build script.
+     * Gets the version of the file being uploaded. This defaults to the version of the project.
      * 
-     * @return Whether or not the file was successfully uploaded.
+     * @return The file version.
      */
-    public boolean wasUploadSuccessful () {
+    @Input
+    @Optional
+    public Property<String> getFileVersion () {
         
-        return this.uploadInfo != null && this.errorInfo == null;
+        return this.fileVersion;
     }
     
     /**
-     * Attempts to get the upload info for this task. If the file has not been uploaded yet an
-     * exception will be raised.
+     * Gets the changelog of the file being uploaded.
      * 
-     * @return If the file was uploaded successfully the upload info response will be returned.
-     *         Otherwise null.
+     * @return The changelog.
      */
-    @Nullable
-    public ResponseUpload getUploadInfo () {
+    @Input
+    @Optional
+    public Property<String> getChangelog () {
         
-        if (this.uploadInfo != null) {
-            
-            return this.uploadInfo;
-        }
+        return this.changelog;
+    }
+    
+    /**
+     * Gets the release type of the file being uploaded.
+     * 
+     * @return The release type.
+     */
+    @Input
+    public Property<String> getReleaseType () {
         
-        else if (this.errorInfo == null) {
-            
-            throw new GradleException("Attempted to access upload info before file was uploaded. The info is not available at this stage!");
-        }
+        return this.releaseType;
+    }
+    
+    /**
+     * Gets the classifier of the main upload file.
+     * 
+     * @return The classifier.
+     */
+    @Input
+    public Property<String> getClassifier () {
         
-        return null;
+        return this.classifier;
     }
     
     /**
-     * Attempts to get the upload error info for this task. Attempting to use this before the
-     * file has been uploaded will cause an exception to be raised.
+     * Gets the game versions the file is compatible with. If no versions are specified they
+     * will be detected from the build environment when the request is created.
      * 
-     * @return If the file was uploaded unsuccessfully the error info will be returned.
-     *         Otherwise null.
+     * @return The game versions.
      */
-    @Nullable
-    public ResponseError getErrorInfo () {
+    @Input
+    public SetProperty<String> getGameVersions () {
         
-        if (this.errorInfo != null) {
+        return this.gameVersions;
+    }
+    
+    /**
+     * Gets the loaders the file is compatible with. Detected loaders are added to these when
+     * loader detection is enabled.
+     * 
+     * @return The loaders.
+     */
+    @Input
+    public SetProperty<String> getLoaders () {
+        
+        return this.loaders;
+    }
+    
+    /**
+     * Gets the game versions detected from the build environment. These are only used when no
+     * game versions have been specified.
+     * 
+     * @return The detected game versions.
+     */
+    @Input
+    public Provider<Set<String>> getDetectedGameVersions () {
+        
+        return this.detectedGameVersions;
+    }
+    
+    /**
+     * Gets the loaders detected from the plugins applied to the project. These are only used
+     * when loader detection is enabled and the upload file has no mod metadata.
+     * 
+     * @return The detected loaders.
+     */
+    @Input
+    public Provider<Set<String>> getDetectedLoaders () {
+        
+        return this.detectedLoaders;
+    }
+    
+    /**
+     * Gets the relations between the file and other projects, keyed by the ID of the other
+     * project.
+     * 
+     * @return The project relations.
+     */
+    @Input
+    public MapProperty<Long, RelationType> getRelations () {
+        
+        return this.relations;
+    }
+    
+    /**
+     * Allows build to continue even if the upload failed.
+     * 
+     * @return Whether or not failures are ignored.
+     */
+    @Internal
+    public Property<Boolean> getFailSilently () {
+        
+        return this.failSilently;
+    }
+    
+    /**
+     * If enabled the plugin-side semantic version check will be ignored.
+     * 
+     * @return Whether or not the semantic version check is ignored.
+     */
+    @Internal
+    public Property<Boolean> getIgnoreSemVer () {
+        
+        return this.ignoreSemVer;
+    }
+    
+    /**
+     * If enabled the plugin will try to define loaders based on other plugins in the project
+     * environment.
+     * 
+     * @return Whether or not loaders are detected.
+     */
+    @Input
+    public Property<Boolean> getDetectLoaders () {
+        
+        return this.detectLoaders;
+    }
+    
+    /**
+     * If enabled the file will be uploaded as a series of parts that can be resumed if the
+     * upload is interrupted.
+     * 
+     * @return Whether or not chunked uploads are used.
+     */
+    @Internal
+    public Property<Boolean> getChunkedUpload () {
+        
+        return this.chunkedUpload;
+    }
+    
+    /**
+     * The size of each part in bytes when chunked uploads are enabled.
+     * 
+     * @return The part size.
+     */
+    @Internal
+    public Property<Integer> getChunkSize () {
+        
+        return this.chunkSize;
+    }
+    
+    /**
+     * The max amount of parts that can be uploaded at once when chunked uploads are enabled.
+     * 
+     * @return The max amount of parallel parts.
+     */
+    @Internal
+    public Property<Integer> getChunkParallelism () {
+        
+        return this.chunkParallelism;
+    }
+    
+    /**
+     * The max amount of artifacts from this task that can be uploaded at once.
+     * 
+     * @return The max amount of parallel uploads.
+     */
+    @Internal
+    public Property<Integer> getMaxParallelUploads () {
+        
+        return this.maxParallelUploads;
+    }
+    
+    /**
+     * The max amount of times a request to Diluv is attempted.
+     * 
+     * @return The max amount of attempts.
+     */
+    @Internal
+    public Property<Integer> getMaxAttempts () {
+        
+        return this.maxAttempts;
+    }
+    
+    /**
+     * The delay before the first retry in milliseconds.
+     * 
+     * @return The initial retry delay.
+     */
+    @Internal
+    public Property<Integer> getRetryDelay () {
+        
+        return this.retryDelay;
+    }
+    
+    /**
+     * The longest delay between attempts in milliseconds.
+     * 
+     * @return The max retry delay.
+     */
+    @Internal
+    public Property<Integer> getMaxRetryDelay () {
+        
+        return this.maxRetryDelay;
+    }
+    
+    /**
+     * If enabled, files that were already uploaded to the project are not uploaded again.
+     * 
+     * @return Whether or not duplicate files are skipped.
+     */
+    @Internal
+    public Property<Boolean> getSkipDuplicates () {
+        
+        return this.skipDuplicates;
+    }
+    
+    /**
+     * If enabled, the existing files of the project are requested from Diluv when checking for
+     * duplicates.
+     * 
+     * @return Whether or not Diluv is checked for duplicates.
+     */
+    @Internal
+    public Property<Boolean> getCheckRemoteDuplicates () {
+        
+        return this.checkRemoteDuplicates;
+    }
+    
+    /**
+     * If enabled, uploads are rejected when their version is not higher than the latest
+     * version published to the project with the same classifier. The published versions are
+     * cached in the Gradle user home and refreshed from Diluv once they are older than
+     * {@link #getVersionCacheTtl()}.
+     * 
+     * @return Whether or not lower versions are rejected.
+     */
+    @Internal
+    public Property<Boolean> getRejectLowerVersions () {
+        
+        return this.rejectLowerVersions;
+    }
+    
+    /**
+     * How long the cached versions of the project can be used before they are refreshed from
+     * Diluv, in seconds.
+     * 
+     * @return The time to live of the version cache.
+     */
+    @Internal
+    public Property<Integer> getVersionCacheTtl () {
+        
+        return this.versionCacheTtl;
+    }
+    
+    /**
+     * If enabled, the task waits for Diluv to finish processing each uploaded file before it
+     * completes. The status of the file is polled, starting at {@link #getPollInterval()} and
+     * backing off while the status does not change.
+     * 
+     * @return Whether or not to wait for processing.
+     */
+    @Internal
+    public Property<Boolean> getWaitForProcessing () {
+        
+        return this.waitForProcessing;
+    }
+    
+    /**
+     * The delay in milliseconds before the first status check of a processing file.
+     * 
+     * @return The initial poll interval.
+     */
+    @Internal
+    public Property<Integer> getPollInterval () {
+        
+        return this.pollInterval;
+    }
+    
+    /**
+     * The longest delay in milliseconds between status checks of a processing file.
+     * 
+     * @return The max poll interval.
+     */
+    @Internal
+    public Property<Integer> getMaxPollInterval () {
+        
+        return this.maxPollInterval;
+    }
+    
+    /**
+     * How long to wait for Diluv to process a file, in seconds. The task fails if a file is
+     * still being processed after this time.
+     * 
+     * @return The processing timeout.
+     */
+    @Internal
+    public Property<Integer> getWaitTimeout () {
+        
+        return this.waitTimeout;
+    }
+    
+    /**
+     * If enabled, artifacts are written to the spool queue instead of being uploaded. The
+     * queue can be uploaded later by the diluvFlushQueue task.
+     * 
+     * @return Whether or not artifacts are spooled.
+     */
+    @Internal
+    public Property<Boolean> getSpool () {
+        
+        return this.spool;
+    }
+    
+    /**
+     * If enabled, every upload is validated and its request is built, including repacking,
+     * checksums and signatures, but nothing is sent to Diluv. Checks that need to contact
+     * Diluv, such as finding duplicates and rejecting lower versions, are skipped. Results of
+     * earlier uploads are left as they are. This is an input of the task, so the first real
+     * upload after a dry run is never considered up to date. Defaults to the diluv.dryRun
+     * Gradle property, or false.
+     * 
+     * @return Whether or not uploads are only simulated.
+     */
+    @Input
+    public Property<Boolean> getDryRun () {
+        
+        return this.dryRun;
+    }
+    
+    /**
+     * Uploads to an embedded stand-in for the Diluv API instead of {@link #getApiURL()}. The
+     * mock server accepts every upload the plugin can make and can add latency, failures and
+     * a bandwidth limit through the diluv.mock.* Gradle properties. This allows the upload
+     * path to be tested without a Diluv instance. Files uploaded to the mock server are cached
+     * in the build directory rather than the Gradle user home.
+     */
+    public void useMockServer () {
+        
+        final Provider<MockDiluvService> mock = MockDiluvService.register(this.getProject());
+        this.usesService(mock);
+        this.apiURL.set(mock.map(MockDiluvService::getUrl));
+        this.token.convention("mock");
+        this.cacheDirectory.set(this.getProject().getLayout().getBuildDirectory().dir("diluv/mock-cache"));
+    }
+    
+    /**
+     * If enabled, artifacts that could not be uploaded because Diluv could not be reached are
+     * written to the spool queue instead of failing the upload.
+     * 
+     * @return Whether or not failed uploads are spooled.
+     */
+    @Internal
+    public Property<Boolean> getSpoolOnFailure () {
+        
+        return this.spoolOnFailure;
+    }
+    
+    /**
+     * The spool queue directory that artifacts are written to. By default each project has its
+     * own queue in the .gradle directory of the root project.
+     * 
+     * @return The spool queue directory.
+     */
+    @Internal
+    public DirectoryProperty getSpoolDirectory () {
+        
+        return this.spoolDirectory;
+    }
+    
+    /**
+     * If enabled, jar files are repacked before they are uploaded. Every entry is deflated
+     * again at {@link #getRepackLevel()}, entries matching {@link #getRepackExcludes()} are
+     * left out and every timestamp is reset, so the same input always produces the same
+     * file. Repacked files are cached, and the original file is uploaded when repacking does
+     * not make it smaller.
+     * 
+     * @return Whether or not files are repacked.
+     */
+    @Internal
+    public Property<Boolean> getRepack () {
+        
+        return this.repack;
+    }
+    
+    /**
+     * The deflate level used when repacking files, from 0 to 9. Defaults to 9.
+     * 
+     * @return The repack level.
+     */
+    @Internal
+    public Property<Integer> getRepackLevel () {
+        
+        return this.repackLevel;
+    }
+    
+    /**
+     * Glob patterns of entries that are left out when repacking files, for example
+     * META-INF/*.SF. A single * does not match across directories, while ** does.
+     * 
+     * @return The excluded entries.
+     */
+    @Internal
+    public ListProperty<String> getRepackExcludes () {
+        
+        return this.repackExcludes;
+    }
+    
+    /**
+     * The digest algorithms of the checksums of each file, for example SHA-1, SHA-256 and
+     * SHA-512. A checksum file is written to {@link #getSidecarDirectory()} for each
+     * algorithm, and the checksums are sent with the upload as form fields named after the
+     * algorithm, such as sha256. Every checksum and the signature are calculated from a single
+     * read of the file, and are cached until the file changes. Defaults to none.
+     * 
+     * @return The checksum algorithms.
+     */
+    @Internal
+    public ListProperty<String> getChecksums () {
+        
+        return this.checksums;
+    }
+    
+    /**
+     * An unencrypted PKCS#8 PEM private key. When set, a detached signature of each file is
+     * written to {@link #getSidecarDirectory()} as a .sig file. RSA, EC, Ed25519 and DSA keys
+     * are supported.
+     * 
+     * @return The signing key.
+     */
+    @Internal
+    public Property<String> getSigningKey () {
+        
+        return this.signingKey;
+    }
+    
+    /**
+     * The signature algorithm used to sign files, for example SHA512withRSA. By default
+     * SHA-256 is used with the algorithm of the key.
+     * 
+     * @return The signature algorithm.
+     */
+    @Internal
+    public Property<String> getSigningAlgorithm () {
+        
+        return this.signingAlgorithm;
+    }
+    
+    /**
+     * The directory that checksum and signature files are written to. Each file is named
+     * after the uploaded file, for example example.jar.sha256. Defaults to build/diluv/sidecars.
+     * 
+     * @return The sidecar directory.
+     */
+    @Internal
+    public DirectoryProperty getSidecarDirectory () {
+        
+        return this.sidecarDirectory;
+    }
+    
+    /**
+     * If enabled, the mod metadata in the upload file is used to fill in loaders, game versions
+     * and relations that were not specified.
+     * 
+     * @return Whether or not the mod metadata is used.
+     */
+    @Input
+    public Property<Boolean> getScanMetadata () {
+        
+        return this.scanMetadata;
+    }
+    
+    /**
+     * Gets the Diluv project IDs of mods, keyed by mod ID.
+     * 
+     * @return The project IDs of mods.
+     */
+    @Input
+    public MapProperty<String, Long> getModProjects () {
+        
+        return this.modProjects;
+    }
+    
+    /**
+     * Maps a mod ID to a Diluv project. Dependencies on the mod that are found in the mod
+     * metadata of the upload file will be added as relations with the project.
+     * 
+     * @param modId The ID of the mod.
+     * @param project The ID of the Diluv project for the mod.
+     */
+    public void addModProject (String modId, long project) {
+        
+        this.log.debug("Mapping mod {} to project {}.", modId, project);
+        this.modProjects.put(modId, project);
+    }
+    
+    /**
+     * Gets the Diluv project IDs of modules, keyed by group and name.
+     * 
+     * @return The project IDs of modules.
+     */
+    @Input
+    public MapProperty<String, Long> getModuleProjects () {
+        
+        return this.moduleProjects;
+    }
+    
+    /**
+     * Maps a module to a Diluv project. This is used for modules in the relation
+     * configurations whose mod IDs are not mapped with {@link #addModProject(String, long)},
+     * or that do not contain mod metadata.
+     * 
+     * @param module The group and name of the module, ex. mezz.jei:jei-1.16.5
+     * @param project The ID of the Diluv project for the module.
+     */
+    public void addModuleProject (String module, long project) {
+        
+        this.log.debug("Mapping module {} to project {}.", module, project);
+        this.moduleProjects.put(module, project);
+    }
+    
+    /**
+     * Gets the configurations whose modules are added as relations, keyed by configuration
+     * name.
+     * 
+     * @return The relation configurations and the type of relation they add.
+     */
+    @Input
+    public Map<String, RelationType> getRelationConfigurations () {
+        
+        final Map<String, RelationType> types = new LinkedHashMap<>();
+        this.relationConfigurations.forEach( (name, configuration) -> types.put(name, configuration.type));
+        return Collections.unmodifiableMap(types);
+    }
+    
+    /**
+     * Gets the files of the resolved modules in the relation configurations. The mod IDs in
+     * these files are used to map modules to Diluv projects.
+     * 
+     * @return The files of the relation modules.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public FileCollection getRelationFiles () {
+        
+        return this.relationFiles;
+    }
+    
+    /**
+     * Marks every module in a configuration, such as modImplementation, as a required
+     * dependency. Modules are mapped to Diluv projects through their mod IDs or
+     * {@link #addModuleProject(String, long)}, and modules that can not be mapped are skipped.
+     * 
+     * @param configuration The name of the configuration.
+     */
+    public void addDependencies (String configuration) {
+        
+        this.addRelationConfiguration(configuration, RelationType.REQUIRED);
+    }
+    
+    /**
+     * Marks every module in a configuration, such as modCompileOnly, as an optional
+     * dependency.
+     * 
+     * @param configuration The name of the configuration.
+     */
+    public void addOptionalDependencies (String configuration) {
+        
+        this.addRelationConfiguration(configuration, RelationType.OPTIONAL);
+    }
+    
+    /**
+     * Marks every module in a configuration as incompatible with the file.
+     * 
+     * @param configuration The name of the configuration.
+     */
+    public void addIncompatibilities (String configuration) {
+        
+        this.addRelationConfiguration(configuration, RelationType.INCOMPATIBLE);
+    }
+    
+    /**
+     * Adds the modules of a configuration as relations. The configuration does not need to
+     * exist yet, its modules are wired up once it is added to the project.
+     * 
+     * @param name The name of the configuration.
+     * @param type The type of relation to add.
+     */
+    private void addRelationConfiguration (String name, RelationType type) {
+        
+        final RelationConfiguration relations = new RelationConfiguration(type);
+        this.relationConfigurations.put(name, relations);
+        
+        final ProviderFactory providers = this.getProject().getProviders();
+        this.getProject().getConfigurations().matching(configuration -> configuration.getName().equals(name)).all(configuration -> relations.wire(configuration, this.relationFiles, providers));
+    }
+    
+    /**
+     * Gets the classifiers of every file uploaded by this task, in upload order.
+     * 
+     * @return The classifiers of the uploaded files.
+     */
+    @Input
+    public List<String> getUploadClassifiers () {
+        
+        final List<String> classifiers = new ArrayList<>();
+        classifiers.add(this.classifier.get());
+        
+        for (final UploadArtifact artifact : this.artifacts) {
+            
+            classifiers.add(artifact.getClassifier());
+        }
+        
+        return classifiers;
+    }
+    
+    /**
+     * Gets the directory the upload results are written to. Each artifact has a JSON file
+     * containing the response from Diluv.
+     * 
+     * @return The results directory.
+     */
+    @OutputDirectory
+    public DirectoryProperty getResultsDirectory () {
+        
+        return this.resultsDirectory;
+    }
+    
+    /**
+     * Gets the directory used to store journals for chunked uploads.
+     * 
+     * @return The journal directory.
+     */
+    @Internal
+    public DirectoryProperty getJournalDirectory () {
+        
+        return this.journalDirectory;
+    }
+    
+    /**
+     * Gets the directory used to cache information about published files.
+     * 
+     * @return The cache directory.
+     */
+    @Internal
+    public DirectoryProperty getCacheDirectory () {
+        
+        return this.cacheDirectory;
+    }
+    
+    /**
+     * Gets the worker executor used to upload artifacts in parallel.
+     * 
+     * @return The worker executor.
+     */
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor ();
+    
+    /**
+     * Adds an additional artifact to upload alongside the main upload file. The artifact will
+     * use the same file data as the main upload, except for the classifier.
+     * 
+     * @param file The artifact file. This can be any object type that is resolvable by
+     *        {@link #resolveFile(Object)}.
+     * @param classifier The classifier of the artifact. Ex. "sources"
+     */
+    public void addArtifact (Object file, String classifier) {
+        
+        this.log.debug("Adding {} artifact {}.", classifier, file);
+        this.artifacts.add(new UploadArtifact(this.resolveFile(file), classifier));
+    }
+    
+    /**
+     * Adds a compatible game version to the file.
+     * 
+     * @param version The compatible game version.
+     */
+    public void addGameVersion (String version) {
+        
+        this.log.debug("Adding game version {}.", version);
+        
+        if (this.gameVersions.getOrElse(Collections.emptySet()).contains(version)) {
+            
+            this.log.warn("The game version {} was not be applied.", version);
+        }
+        
+        this.gameVersions.add(version);
+    }
+    
+    /**
+     * Sets the version of the file being uploaded.
+     * 
+     * @param version The version of the file being uploaded.
+     */
+    public void setVersion (String version) {
+        
+        this.log.debug("Setting file version to {}.", version);
+        this.fileVersion.set(version);
+    }
+    
+    /**
+     * Sets the changelog for the file.
+     * 
+     * @param changelog The changelog for the file.
+     */
+    public void setChangelog (String changelog) {
+        
+        this.changelog.set(changelog);
+        this.log.debug("Setting changelog to: '{}'", changelog);
+    }
+    
+    /**
+     * Sets the release type of the file being uploaded.
+     * 
+     * @param type The type of release.
+     */
+    public void setReleaseType (String type) {
+        
+        this.log.debug("Setting release type to {}.", type);
+        this.releaseType.set(type);
+    }
+    
+    /**
+     * Sets the classifier type of the file being uploaded.
+     * 
+     * @param classifier The classifier of the file being uploaded.
+     */
+    public void setClassifier (String classifier) {
+        
+        this.log.debug("Setting classifier to {}.", classifier);
+        this.classifier.set(classifier);
+    }
+    
+    /**
+     * Adds a required project dependency for the file.
+     * 
+     * @param project The project that this file requires.
+     */
+    public void addDependency (long project) {
+        
+        this.addRelation(project, RelationType.REQUIRED);
+    }
+    
+    /**
+     * Adds an optional project dependency for the file.
+     * 
+     * @param project The project that is optional.
+     */
+    public void addOptionalDependency (long project) {
+        
+        this.addRelation(project, RelationType.OPTIONAL);
+    }
+    
+    /**
+     * Adds an incompatibility relationship for the file.
+     * 
+     * @param project The project that the file is not compatible with.
+     */
+    public void addIncompatibility (long project) {
+        
+        this.addRelation(project, RelationType.INCOMPATIBLE);
+    }
+    
+    /**
+     * Adds a project relationship to the uploaded file. This determines things like
+     * dependencies and incompatibilities.
+     * 
+     * @param project The project to add a relation with.
+     * @param type The type of relation to add.
+     */
+    private void addRelation (long project, RelationType type) {
+        
+        final RelationType existingRelation = this.relations.getOrElse(Collections.emptyMap()).get(project);
+        this.relations.put(project, type);
+        this.log.debug("Added {} relation with project {}.", type, project);
+        
+        if (existingRelation != null) {
+            
+            this.log.warn("Overwriting relation for {} to {}, was previously set as {}.", project, type, existingRelation);
+        }
+    }
+    
+    /**
+     * Adds a loader tag for the file.
+     * 
+     * @param loader The loader to allow.
+     */
+    public void addLoader (String loader) {
+        
+        this.log.debug("Adding loader tag {}.", loader);
+        
+        if (this.loaders.getOrElse(Collections.emptySet()).contains(loader)) {
+            
+            this.log.warn("The loader tag {} was already applied.", loader);
+        }
+        
+        this.loaders.add(loader);
+    }
+    
+    /**
+     * Checks if the upload was successful or not. This is provided as a small helper for use
+     * in the build script.
+     * 
+     * @return Whether or not the file was successfully uploaded.
+     */
+    public boolean wasUploadSuccessful () {
+        
+        if (this.results.isEmpty()) {
+            
+            this.loadResults();
+        }
+        
+        return this.uploadInfo != null && this.errorInfo == null && this.results.values().stream().allMatch(UploadResult::isSuccessful);
+    }
+    
+    /**
+     * Provides the upload info of the main file. The provider carries a dependency on this
+     * task, so tasks that use it run after the upload without waiting on unrelated work. When
+     * {@link #getWaitForProcessing()} is enabled the info reflects the processed file.
+     * 
+     * @return A provider for the upload info. It has no value if the upload failed.
+     */
+    @Internal
+    public Provider<ResponseUpload> getUploadedFile () {
+        
+        return this.resultsDirectory.file(this.classifier.map(fileClassifier -> fileClassifier + ".json")).map(TaskDiluvUpload::readUpload);
+    }
+    
+    /**
+     * Provides the upload info of an artifact of this task. The provider carries a dependency
+     * on this task.
+     * 
+     * @param classifier The classifier of the artifact.
+     * @return A provider for the upload info. It has no value if the upload failed.
+     */
+    public Provider<ResponseUpload> getUploadedFile (String classifier) {
+        
+        return this.resultsDirectory.file(classifier + ".json").map(TaskDiluvUpload::readUpload);
+    }
+    
+    /**
+     * Attempts to get the upload info for this task. If the file has not been uploaded yet an
+     * exception will be raised.
+     * 
+     * @return If the file was uploaded successfully the upload info response will be returned.
+     *         Otherwise null.
+     */
+    @Nullable
+    public ResponseUpload getUploadInfo () {
+        
+        if (this.uploadInfo == null && this.errorInfo == null) {
+            
+            this.loadResults();
+        }
+        
+        if (this.uploadInfo != null) {
+            
+            return this.uploadInfo;
+        }
+        
+        else if (this.errorInfo == null) {
+            
+            throw new GradleException("Attempted to access upload info before file was uploaded. The info is not available at this stage!");
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Attempts to get the upload error info for this task. Attempting to use this before the
+     * file has been uploaded will cause an exception to be raised.
+     * 
+     * @return If the file was uploaded unsuccessfully the error info will be returned.
+     *         Otherwise null.
+     */
+    @Nullable
+    public ResponseError getErrorInfo () {
+        
+        if (this.uploadInfo == null && this.errorInfo == null) {
+            
+            this.loadResults();
+        }
+        
+        if (this.errorInfo != null) {
             
             return this.errorInfo;
         }
@@ -305,93 +1542,233 @@ public class TaskDiluvUpload extends DefaultTask {
         return null;
     }
     
+    /**
+     * Attempts to get the upload info for an artifact of this task.
+     * 
+     * @param classifier The classifier of the artifact.
+     * @return If the artifact was uploaded successfully the upload info response will be
+     *         returned. Otherwise null.
+     */
+    @Nullable
+    public ResponseUpload getUploadInfo (String classifier) {
+        
+        if (this.results.isEmpty()) {
+            
+            this.loadResults();
+        }
+        
+        final UploadResult result = this.results.get(classifier);
+        
+        if (result == null) {
+            
+            throw new GradleException("Attempted to access upload info for " + classifier + " before it was uploaded. The info is not available at this stage!");
+        }
+        
+        return result.getUpload();
+    }
+    
+    /**
+     * Attempts to get the upload error info for an artifact of this task.
+     * 
+     * @param classifier The classifier of the artifact.
+     * @return If the artifact was uploaded unsuccessfully the error info will be returned.
+     *         Otherwise null.
+     */
+    @Nullable
+    public ResponseError getErrorInfo (String classifier) {
+        
+        if (this.results.isEmpty()) {
+            
+            this.loadResults();
+        }
+        
+        final UploadResult result = this.results.get(classifier);
+        
+        if (result == null) {
+            
+            throw new GradleException("Attempted to access upload error info for " + classifier + " before it was uploaded. The info is not available at this stage!");
+        }
+        
+        return result.getError();
+    }
+    
+    /**
+     * Creates the request data sent to Diluv from the configured and detected values.
+     * 
+     * @return The request data for the main upload file.
+     */
+    private RequestData createRequest () {
+        
+        final RequestData request = new RequestData();
+        
+        request.setVersion(this.fileVersion.getOrNull());
+        request.setReleaseType(this.releaseType.get());
+        request.setClassifier(this.classifier.get());
+        this.gameVersions.getOrElse(Collections.emptySet()).forEach(request::addGameVersion);
+        
+        // Fall back to the game versions of the build environment.
+        if (!request.hasGameVersion()) {
+            
+            this.detectedGameVersions.getOrElse(Collections.emptySet()).forEach(request::addGameVersion);
+        }
+        
+        final JarMetadata metadata = this.scanMetadata.get() ? this.scanUploadFile() : JarMetadata.EMPTY;
+        
+        // As a last resort use the game versions from the mod metadata in the upload file.
+        if (!request.hasGameVersion()) {
+            
+            metadata.getGameVersions().forEach(request::addGameVersion);
+        }
+        
+        this.loaders.getOrElse(Collections.emptySet()).forEach(request::addLoader);
+        
+        // The loaders in the mod metadata are more accurate than guessing from plugins, which
+        // is wrong for projects that build for several loaders.
+        if (this.detectLoaders.get()) {
+            
+            (metadata.getLoaders().isEmpty() ? this.detectedLoaders.getOrElse(Collections.emptySet()) : metadata.getLoaders()).forEach(request::addLoader);
+        }
+        
+        // Relations from the mod metadata are added first so explicit relations replace them.
+        final Map<String, Long> projects = this.modProjects.getOrElse(Collections.emptyMap());
+        
+        metadata.getRelations().forEach( (modId, type) -> {
+            
+            final Long project = projects.get(modId);
+            
+            if (project != null) {
+                
+                request.addRelation(project, type);
+            }
+        });
+        
+        request.addRelations(this.resolveConfigurationRelations(projects));
+        request.addRelations(this.relations.getOrElse(Collections.emptyMap()));
+        
+        // Set a default changelog if the dev hasn't provided one.
+        if (this.changelog.isPresent()) {
+            
+            request.setChangelog(this.changelog.get());
+        }
+        
+        else if (request.hasVersion()) {
+            
+            request.setChangelog("The project has been updated to " + request.getVersion() + ".");
+        }
+        
+        return request;
+    }
+    
     @TaskAction
     public void apply () {
         
+        // Forget results from previous runs, they are loaded again once the uploads finish.
+        this.results.clear();
+        this.uploadInfo = null;
+        this.errorInfo = null;
+        
         try {
             
-            // Attempt to automatically resolve the game version if one wasn't specified.
-            if (!this.request.hasGameVersion()) {
-                
-                this.detectGameVersionForge();
-                this.detectGameVersionFabric();
-            }
+            final RequestData request = this.createRequest();
             
             // Check the game version again, if it's still not there the upload has failed.
-            if (!this.request.hasGameVersion()) {
+            if (!request.hasGameVersion()) {
                 
                 throw new GradleException("Can not upload to Diluv. No game version specified.");
             }
             
-            // Use project version from Gradle if no version was specified.
-            if (this.request.getVersion() == null || this.request.getVersion().isEmpty()) {
-                
-                final String projectBuildVersion = this.getProject().getVersion().toString();
+            if (!request.hasVersion()) {
+                
+                throw new GradleException("No file version was specified, and the fallback Gradle build version could not be found.");
+            }
+            
+            // Only semantic versioning is allowed.
+            if (!this.ignoreSemVer.get()) {
                 
-                if (projectBuildVersion != null && !projectBuildVersion.isEmpty()) {
+                try {
                     
-                    this.log.debug("File version will fall back to build version of {}.", projectBuildVersion);
-                    this.request.setVersion(projectBuildVersion);
+                    SemanticVersion.parse(request.getVersion());
                 }
                 
-                else {
+                catch (final VersionFormatException e) {
                     
-                    throw new GradleException("No file version was specified, and the fallback Gradle build version could not be found.");
+                    this.log.error("Project version {} is not semantic versioning compatible. The file can not be uploaded. https://semver.org", request.getVersion());
+                    throw new GradleException(e.getMessage() + " The file can not be uploaded. https://semver.org", e);
                 }
             }
             
-            this.addLoaderForPlugin("net.minecraftforge.gradle", "forge");
-            this.addLoaderForPlugin("fabric-loom", "fabric");
-            
-            // Only semantic versioning is allowed.
-            if (!this.ignoreSemVer && !Constants.SEM_VER.matcher(this.request.getVersion()).matches()) {
+            if (this.repack.get() && (this.repackLevel.get() < 0 || this.repackLevel.get() > 9)) {
                 
-                this.log.error("Project version {} is not semantic versioning compatible. The file can not be uploaded. https://semver.org", this.request.getVersion());
-                throw new GradleException("Project version '" + this.request.getVersion() + "' is not semantic versioning compatible. The file can not be uploaded. https://semver.org");
+                throw new GradleException("The repack level must be between 0 and 9. Was " + this.repackLevel.get() + ".");
             }
             
-            // Set a default changelog if the dev hasn't provided one.
-            if (!this.request.hasChangelog()) {
+            try {
                 
-                this.request.setChangelog("The project has been updated to " + this.request.getVersion() + ".");
-                this.log.warn("No changelog was specified. A default one will be used. This is not recommended.");
+                FileDigests.getAlgorithms(this.checksums.get());
             }
             
-            final File file = resolveFile(this.getProject(), this.uploadFile, null);
-            
-            // Ensure the file actually exists before trying to upload it.
-            if (file == null || !file.exists()) {
+            catch (final IllegalArgumentException e) {
                 
-                this.log.error("The upload file is missing or null. {}", this.uploadFile);
-                throw new GradleException("The upload file is missing or null. " + String.valueOf(this.uploadFile));
+                throw new GradleException(e.getMessage(), e);
             }
             
-            try {
-                
-                final URI endpoint = new URI(this.getUploadEndpoint());
+            if (this.signingKey.isPresent()) {
                 
                 try {
                     
-                    this.upload(endpoint, file);
+                    SigningKey.parse(this.signingKey.get(), this.signingAlgorithm.getOrNull());
+                }
+                
+                catch (final GeneralSecurityException e) {
+                    
+                    throw new GradleException("The signing key could not be read. " + e.getMessage(), e);
                 }
+            }
+            
+            if (!this.changelog.isPresent()) {
+                
+                this.log.warn("No changelog was specified. A default one will be used. This is not recommended.");
+            }
+            
+            // The main upload file is always uploaded first, followed by any additional
+            // artifacts in the order they were added.
+            final Map<String, File> files = new LinkedHashMap<>();
+            files.put(request.getClassifier(), this.requireFile(this.uploadFile));
+            
+            for (final UploadArtifact artifact : this.artifacts) {
                 
-                catch (final IOException e) {
+                if (files.put(artifact.getClassifier(), this.requireFile(artifact.getFile())) != null) {
                     
-                    this.log.error("Failed to upload the file!", e);
-                    throw new GradleException("Failed to upload the file!", e);
+                    throw new GradleException("Can not upload to Diluv. Multiple files use the classifier '" + artifact.getClassifier() + "'.");
                 }
             }
             
+            try {
+                
+                new URI(this.getUploadEndpoint());
+            }
+            
             catch (final URISyntaxException e) {
                 
                 this.log.error("Invalid endpoint URI!", e);
                 throw new GradleException("Invalid endpoint URI!", e);
             }
+            
+            // Dry runs go through the same steps as uploads, so they are never spooled.
+            if (this.spool.get() && !this.dryRun.get()) {
+                
+                this.spoolAll(request, files);
+            }
+            
+            else {
+                
+                this.uploadAll(request, files);
+            }
         }
         
         catch (final Exception e) {
             
-            if (this.failSilently) {
+            if (this.failSilently.get()) {
                 
                 this.log.info("Failed to upload to Diluv. Check logs for more info.");
                 this.log.error("Diluv upload failed silently.", e);
@@ -405,55 +1782,326 @@ public class TaskDiluvUpload extends DefaultTask {
     }
     
     /**
-     * Uploads a file using the provided configuration.
+     * Removes results from previous runs, they may be for artifacts that no longer exist.
+     */
+    private void deleteOldResults () {
+        
+        this.results.clear();
+        
+        final File[] oldResults = this.resultsDirectory.get().getAsFile().listFiles();
+        
+        if (oldResults != null) {
+            
+            for (final File oldResult : oldResults) {
+                
+                if (!oldResult.delete()) {
+                    
+                    throw new GradleException("Could not delete old upload result " + oldResult + ".");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes every file to the spool queue so they can be uploaded later by the
+     * diluvFlushQueue task. Nothing is sent to Diluv.
      * 
-     * @param endpoint The upload endpoint.
-     * @param file The file to upload.
-     * @throws IOException Whenever something goes wrong wit uploading the file.
+     * @param request The request data shared by every file.
+     * @param files The files to spool, keyed by their classifier.
      */
-    public void upload (URI endpoint, File file) throws IOException {
+    private void spoolAll (RequestData request, Map<String, File> files) {
         
-        this.log.debug("Uploading {} to {}.", file.getPath(), this.getUploadEndpoint());
+        final SpoolQueue queue = new SpoolQueue(DiluvJson.GSON, this.spoolDirectory.get().getAsFile());
+        
+        // Results from previous runs no longer describe the files, they have not been uploaded.
+        this.deleteOldResults();
+        
+        for (final Map.Entry<String, File> entry : files.entrySet()) {
+            
+            final JsonObject data = DiluvJson.GSON.toJsonTree(request).getAsJsonObject();
+            data.addProperty("classifier", entry.getKey());
+            
+            try {
+                
+                final File file = entry.getValue();
+                
+                if (queue.add(new SpoolEntry(this.getUploadEndpoint(), this.projectId.get(), entry.getKey(), request.getVersion(), file.getName(), Hashing.sha512(file), DiluvJson.GSON.toJson(data), this.getPath(), this.cacheDirectory.get().getAsFile().getAbsolutePath()), file)) {
+                    
+                    this.log.lifecycle("Spooled {} for project {}. Run the diluvFlushQueue task to upload it.", file.getName(), this.projectId.get());
+                }
+            }
+            
+            catch (final IOException e) {
+                
+                throw new GradleException("Failed to spool " + entry.getValue().getName() + ".", e);
+            }
+        }
+    }
+    
+    /**
+     * Uploads every artifact through the worker API. Artifacts are uploaded in parallel, but no
+     * more than {@link #getMaxParallelUploads()} at once. The results are collected once every
+     * upload has finished.
+     * 
+     * @param request The request data for the main upload file.
+     * @param files The files to upload, keyed by their classifier.
+     */
+    private void uploadAll (RequestData request, Map<String, File> files) {
         
-        final HttpClient client = HttpClientBuilder.create().setDefaultRequestConfig(RequestConfig.custom().setCookieSpec(CookieSpecs.IGNORE_COOKIES).build()).build();
-        final HttpPost post = new HttpPost(endpoint);
+        final File resultDir = this.resultsDirectory.get().getAsFile();
+        final File journalDir = this.journalDirectory.get().getAsFile();
+        final WorkQueue queue = this.getWorkerExecutor().noIsolation();
         
-        post.addHeader("Authorization", "Bearer " + this.token);
+        if (!this.dryRun.get()) {
+            
+            this.deleteOldResults();
+        }
         
-        final MultipartEntityBuilder form = MultipartEntityBuilder.create();
-        form.addBinaryBody("file", file);
-        form.addTextBody("filename", file.getName());
-        form.addTextBody("data", this.gson.toJson(this.request), ContentType.APPLICATION_JSON);
-        post.setEntity(form.build());
+        for (final Map.Entry<String, File> entry : files.entrySet()) {
+            
+            final String fileClassifier = entry.getKey();
+            final File resultFile = new File(resultDir, fileClassifier + ".json");
+            
+            // Each artifact receives its own copy of the request data with the classifier set.
+            final JsonObject data = DiluvJson.GSON.toJsonTree(request).getAsJsonObject();
+            data.addProperty("classifier", fileClassifier);
+            
+            queue.submit(UploadWorkAction.class, params -> {
+                
+                UploadWorkAction.configure(params, this);
+                params.getEndpoint().set(this.getUploadEndpoint());
+                params.getProjectId().set(this.projectId);
+                params.getUploadFile().set(entry.getValue());
+                params.getClassifier().set(fileClassifier);
+                params.getRequestData().set(DiluvJson.GSON.toJson(data));
+                params.getChunked().set(this.chunkedUpload);
+                params.getChunkSize().set(this.chunkSize.map(Integer::longValue));
+                params.getChunkParallelism().set(this.chunkParallelism);
+                params.getJournalFile().set(new File(journalDir, this.getName() + "-" + fileClassifier + ".json"));
+                params.getRejectLowerVersions().set(this.rejectLowerVersions);
+                params.getVersionCacheTtl().set(this.versionCacheTtl.map(seconds -> TimeUnit.SECONDS.toMillis(seconds)));
+                params.getRepack().set(this.repack);
+                params.getRepackLevel().set(this.repackLevel);
+                params.getRepackExcludes().set(this.repackExcludes);
+                params.getChecksums().set(this.checksums.map(FileDigests::getAlgorithms));
+                params.getSigningKey().set(this.signingKey);
+                params.getSigningAlgorithm().set(this.signingAlgorithm);
+                params.getSidecarDirectory().set(this.sidecarDirectory);
+                params.getDryRun().set(this.dryRun);
+                params.getVersion().set(request.getVersion());
+                params.getWaitForProcessing().set(this.waitForProcessing);
+                params.getPollInterval().set(this.pollInterval.map(Integer::longValue));
+                params.getMaxPollInterval().set(this.maxPollInterval.map(Integer::longValue));
+                params.getWaitTimeout().set(this.waitTimeout.map(seconds -> TimeUnit.SECONDS.toMillis(seconds)));
+                
+                if (this.spoolOnFailure.get()) {
+                    
+                    params.getSpoolDirectory().set(this.spoolDirectory);
+                }
+                params.getCacheDirectory().set(this.cacheDirectory);
+                params.getResultFile().set(resultFile);
+            });
+        }
         
         try {
             
-            final HttpResponse response = client.execute(post);
-            final int status = response.getStatusLine().getStatusCode();
-            final String responseBody = EntityUtils.toString(response.getEntity());
+            queue.await();
+        }
+        
+        finally {
+            
+            // Collect results even if an upload failed so the successful ones are available.
+            // Dry runs do not write results.
+            if (!this.dryRun.get()) {
+                
+                this.loadResults();
+            }
+        }
+    }
+    
+    /**
+     * Reads the upload results from the results directory. This is also used to provide the
+     * upload info when the task was up to date and the uploads did not run.
+     */
+    private void loadResults () {
+        
+        this.results.clear();
+        
+        for (final String fileClassifier : this.getUploadClassifiers()) {
+            
+            try {
+                
+                final UploadResult result = UploadResult.load(DiluvJson.GSON, this.resultsDirectory.file(fileClassifier + ".json").get().getAsFile());
+                
+                if (result != null) {
+                    
+                    this.results.put(fileClassifier, result);
+                }
+            }
+            
+            catch (final IOException | JsonParseException e) {
+                
+                this.log.debug("Failed to read upload result for {}.", fileClassifier, e);
+            }
+        }
+        
+        final UploadResult main = this.results.get(this.classifier.get());
+        this.uploadInfo = main != null ? main.getUpload() : null;
+        this.errorInfo = main != null ? main.getError() : null;
+    }
+    
+    /**
+     * Checks if the results of the last run show that every artifact was uploaded.
+     * 
+     * @return Whether or not every artifact was uploaded successfully.
+     */
+    private boolean hasSuccessfulResults () {
+        
+        this.loadResults();
+        return this.results.size() == this.getUploadClassifiers().size() && this.results.values().stream().allMatch(UploadResult::isSuccessful);
+    }
+    
+    /**
+     * Resolves the relation configurations and maps their modules to Diluv projects. A module
+     * is mapped by its group and name first, and otherwise by the mod IDs in its jar. The mod
+     * IDs of each jar are cached, so a jar is only read again when it changes.
+     * 
+     * @param modProjects The Diluv project IDs of mods, keyed by mod ID.
+     * @return The relations with the projects of the modules, keyed by project ID.
+     */
+    private Map<Long, RelationType> resolveConfigurationRelations (Map<String, Long> modProjects) {
+        
+        final Map<Long, RelationType> relations = new LinkedHashMap<>();
+        
+        if (this.relationConfigurations.isEmpty()) {
+            
+            return relations;
+        }
+        
+        final Map<String, Long> modules = this.moduleProjects.getOrElse(Collections.emptyMap());
+        final ModuleIndex index = new ModuleIndex(DiluvJson.GSON, this.cacheDirectory.get().getAsFile());
+        final String ownProject = this.projectId.getOrNull();
+        
+        this.relationConfigurations.forEach( (name, configuration) -> {
+            
+            final RelationType type = configuration.type;
+            final Set<String> unmapped = new LinkedHashSet<>();
             
-            this.log.debug("Diluv Response Code: {}", status);
-            this.log.debug("Diluv Response Body: {}", responseBody);
+            if (configuration.artifacts != null) {
+                
+                for (final ResolvedArtifactResult artifact : configuration.artifacts) {
+                    
+                    final ModuleComponentIdentifier id = (ModuleComponentIdentifier) artifact.getId().getComponentIdentifier();
+                    final String module = id.getGroup() + ":" + id.getModule();
+                    Long project = modules.get(module);
+                    
+                    if (project == null) {
+                        
+                        for (final String modId : index.getModIds(module + ":" + id.getVersion(), artifact.getFile())) {
+                            
+                            project = modProjects.get(modId);
+                            
+                            if (project != null) {
+                                
+                                break;
+                            }
+                        }
+                    }
+                    
+                    if (project == null) {
+                        
+                        unmapped.add(module);
+                    }
+                    
+                    else if (!String.valueOf(project).equals(ownProject)) {
+                        
+                        addConfigurationRelation(relations, project, type);
+                    }
+                }
+            }
             
-            if (status == 200) {
+            else if (configuration.declaredModules != null) {
                 
-                this.uploadInfo = this.gson.fromJson(responseBody, ResponseUpload.class);
-                this.log.lifecycle("Sucessfully uploaded {} to {} as file id {}.", file.getName(), this.projectId, this.uploadInfo.getId());
+                for (final String module : configuration.declaredModules.get()) {
+                    
+                    final Long project = modules.get(module);
+                    
+                    if (project != null) {
+                        
+                        addConfigurationRelation(relations, project, type);
+                    }
+                    
+                    else {
+                        
+                        unmapped.add(module);
+                    }
+                }
             }
             
             else {
                 
-                this.errorInfo = this.gson.fromJson(responseBody, ResponseError.class);
-                this.log.error("Upload failed! Status: {} Reason: {}", status, this.errorInfo.getMessage());
-                throw new GradleException("Upload failed! Status: " + status + " Reason: " + this.errorInfo.getMessage());
+                throw new GradleException("The relation configuration " + name + " does not exist.");
+            }
+            
+            if (!unmapped.isEmpty()) {
+                
+                this.log.info("Skipped {} modules from {} that are not mapped to a Diluv project: {}", unmapped.size(), name, unmapped);
             }
+        });
+        
+        index.save();
+        this.log.debug("Resolved relations {} from configurations {}.", relations, this.relationConfigurations.keySet());
+        return relations;
+    }
+    
+    /**
+     * Adds a relation found in a configuration. When a project is found in several
+     * configurations, optional relations are replaced by required ones and incompatibilities.
+     * 
+     * @param relations The relations found so far.
+     * @param project The ID of the project.
+     * @param type The type of relation.
+     */
+    private static void addConfigurationRelation (Map<Long, RelationType> relations, long project, RelationType type) {
+        
+        relations.merge(project, type, (existing, added) -> existing == RelationType.OPTIONAL ? added : existing);
+    }
+    
+    /**
+     * Scans the upload file for mod metadata.
+     * 
+     * @return The mod metadata of the upload file.
+     */
+    private JarMetadata scanUploadFile () {
+        
+        final File file = this.uploadFile.isPresent() ? this.uploadFile.get().getAsFile() : null;
+        
+        if (file == null || !file.isFile()) {
+            
+            return JarMetadata.EMPTY;
         }
         
-        catch (final IOException e) {
+        return JarMetadataScanner.scan(file);
+    }
+    
+    /**
+     * Gets an upload file and makes sure it exists.
+     * 
+     * @param file The file provider.
+     * @return The resolved file.
+     */
+    private File requireFile (Provider<RegularFile> file) {
+        
+        final RegularFile resolved = file.getOrNull();
+        
+        // Ensure the file actually exists before trying to upload it.
+        if (resolved == null || !resolved.getAsFile().exists()) {
             
-            this.log.error("Failure to upload file!", e);
-            throw e;
+            this.log.error("The upload file is missing or null. {}", resolved);
+            throw new GradleException("The upload file is missing or null. " + String.valueOf(resolved));
         }
+        
+        return resolved.getAsFile();
     }
     
     /**
@@ -463,141 +2111,287 @@ public class TaskDiluvUpload extends DefaultTask {
      */
     private String getUploadEndpoint () {
         
-        return this.apiURL + "/v1/projects/" + this.projectId + "/files";
+        return this.apiURL.get() + "/v1/projects/" + this.projectId.getOrNull() + "/files";
     }
     
     /**
-     * Attempts to resolve a file using an arbitrary object provided by a user defined gradle
-     * task.
+     * Reads the upload info from an upload result file.
      * 
-     * @param project The project instance. This is used as a last resort to resolve the file
-     *        using Gradle's built in handling.
-     * @param in The arbitrary input object from the user.
-     * @param fallback A fallback file to use. This can be null.
-     * @return A file handle for the resolved input. If the input can not be resolved this will
-     *         be null or the fallback.
+     * @param resultFile The result file.
+     * @return The upload info, or null if the upload failed or has not happened.
      */
     @Nullable
-    private static File resolveFile (Project project, Object in, @Nullable File fallback) {
+    private static ResponseUpload readUpload (RegularFile resultFile) {
         
-        // If input or project is null shortcut to the fallback.
-        if (in == null || project == null) {
+        try {
             
-            return fallback;
+            final UploadResult result = UploadResult.load(DiluvJson.GSON, resultFile.getAsFile());
+            return result != null ? result.getUpload() : null;
         }
         
-        // If the file is a Java file handle no additional handling is needed.
-        else if (in instanceof File) {
+        catch (final IOException | JsonParseException e) {
             
-            return (File) in;
+            throw new GradleException("Failed to read upload result " + resultFile + ".", e);
         }
+    }
+    
+    /**
+     * Provides a key for the Diluv instance being used. This keeps cached data from different
+     * instances, such as a local development instance, separate.
+     * 
+     * @param apiURL The URL of the Diluv API.
+     * @return A file name safe key for the API host.
+     */
+    static String getCacheKey (String apiURL) {
         
-        // Grabs the file from an archive task. Allows build scripts to do things like the jar
-        // task directly.
-        else if (in instanceof AbstractArchiveTask) {
-            
-            return ((AbstractArchiveTask) in).getArchivePath();
-        }
+        final URI uri = URI.create(apiURL);
+        final String host = uri.getHost() != null ? uri.getHost() : "unknown";
+        return uri.getPort() != -1 ? host + "_" + uri.getPort() : host;
+    }
+    
+    /**
+     * Provides the directory information about published files is cached in by default. Each
+     * Diluv instance has its own directory in the Gradle user home.
+     * 
+     * @param gradleUserHome The Gradle user home.
+     * @param apiURL The URL of the Diluv API, or any other URL on the same host.
+     * @return The default cache directory.
+     */
+    static File getDefaultCacheDirectory (File gradleUserHome, String apiURL) {
         
-        // Fallback to Gradle's built in file resolution mechanics.
-        return project.file(in);
+        return new File(gradleUserHome, "caches/diluv-gradle/" + getCacheKey(apiURL));
     }
     
     /**
-     * Attempts to detect the game version by detecting ForgeGradle data in the build
-     * environment.
+     * Attempts to resolve a file using an arbitrary object provided by a user defined gradle
+     * task. The file is resolved lazily so tasks that produce the file do not need to be
+     * configured yet.
+     * 
+     * @param in The arbitrary input object from the user.
+     * @return A provider for the resolved file.
      */
-    private void detectGameVersionForge () {
+    private Provider<RegularFile> resolveFile (Object in) {
         
-        try {
+        final ProjectLayout layout = this.getProject().getLayout();
+        
+        // Grabs the file from an archive task. Allows build scripts to do things like the jar
+        // task directly. The file also carries a dependency on the task.
+        if (in instanceof AbstractArchiveTask) {
             
-            final ExtraPropertiesExtension extraProps = this.getProject().getExtensions().getExtraProperties();
+            return ((AbstractArchiveTask) in).getArchiveFile();
+        }
+        
+        // Same as above, but for tasks that have not been created yet.
+        else if (in instanceof TaskProvider) {
             
-            // ForgeGradle will store the game version here.
-            // https://github.com/MinecraftForge/ForgeGradle/blob/9252ffe1fa5c2acf133f35d169ba4ffc84e6a9fd/src/userdev/java/net/minecraftforge/gradle/userdev/MinecraftUserRepo.java#L179
-            if (extraProps.has("MC_VERSION")) {
+            return ((TaskProvider<?>) in).flatMap(task -> {
                 
-                final String forgeGameVersion = extraProps.get("MC_VERSION").toString();
-                
-                if (forgeGameVersion != null && !forgeGameVersion.isEmpty()) {
+                if (task instanceof AbstractArchiveTask) {
                     
-                    this.log.debug("Detected fallback game version {} from ForgeGradle.", forgeGameVersion);
-                    this.addGameVersion(forgeGameVersion);
+                    return ((AbstractArchiveTask) task).getArchiveFile();
                 }
-            }
+                
+                throw new GradleException("Task " + task.getName() + " does not produce an archive that can be uploaded.");
+            });
         }
         
-        catch (final Exception e) {
+        // Already a lazy file value. The value is resolved against the project directory so
+        // the provider does not hold on to the project.
+        else if (in instanceof Provider) {
             
-            this.log.debug("Failed to detect ForgeGradle game version.", e);
+            final Directory projectDirectory = layout.getProjectDirectory();
+            return layout.file(((Provider<?>) in).map(value -> resolveFile(projectDirectory, value)));
         }
+        
+        // Fallback to Gradle's built in file resolution mechanics.
+        final File file = in instanceof File ? (File) in : this.getProject().file(in);
+        return layout.file(this.getProject().provider( () -> file));
     }
     
     /**
-     * Attempts to detect the game version by detecting LoomGradle data in the build
-     * environment.
+     * Resolves the value of a lazy file provider to a file.
+     * 
+     * @param projectDirectory The directory relative paths are resolved against.
+     * @param value The value of the provider.
+     * @return The resolved file.
      */
-    private void detectGameVersionFabric () {
+    private static File resolveFile (Directory projectDirectory, Object value) {
         
-        // Loom/Fabric Gradle detection.
-        try {
-            
-            // Using reflection because loom isn't always available.
-            final Class<?> loomType = Class.forName("net.fabricmc.loom.LoomGradleExtension");
-            final Method getProvider = loomType.getMethod("getMinecraftProvider");
+        if (value instanceof RegularFile) {
             
-            final Class<?> minecraftProvider = Class.forName("net.fabricmc.loom.providers.MinecraftProvider");
-            final Method getVersion = minecraftProvider.getMethod("getMinecraftVersion");
+            return ((RegularFile) value).getAsFile();
+        }
+        
+        else if (value instanceof File) {
             
-            final Object loomExt = this.getProject().getExtensions().getByType(loomType);
-            final Object loomProvider = getProvider.invoke(loomExt);
-            final Object loomVersion = getVersion.invoke(loomProvider);
+            return (File) value;
+        }
+        
+        else if (value instanceof Path) {
             
-            final String loomGameVersion = loomVersion.toString();
+            return ((Path) value).toFile();
+        }
+        
+        return projectDirectory.file(String.valueOf(value)).getAsFile();
+    }
+    
+    /**
+     * Runs an action once the build script of a project has been evaluated. If the project
+     * has already been evaluated the action is ran immediately.
+     * 
+     * @param project The project to wait for.
+     * @param action The action to run.
+     */
+    private static void whenEvaluated (Project project, Action<Project> action) {
+        
+        if (project.getState().getExecuted()) {
             
-            if (loomGameVersion != null && !loomGameVersion.isEmpty()) {
-                
-                this.log.debug("Detected fallback game version {} from Loom.", loomGameVersion);
-                this.addGameVersion(loomGameVersion);
-            }
+            action.execute(project);
         }
         
-        catch (final Exception e) {
+        else {
             
-            this.log.debug("Failed to detect Loom game version.", e);
+            project.afterEvaluate(action);
         }
     }
     
+    /**
+     * Gets the version of the project if one has been set.
+     * 
+     * @param project The project to get the version of.
+     * @return The version of the project. This will be null if no version was set.
+     */
+    @Nullable
+    private static String getProjectVersion (Project project) {
+        
+        final String version = String.valueOf(project.getVersion());
+        return version.isEmpty() || Project.DEFAULT_VERSION.equals(version) ? null : version;
+    }
+    
+    /**
+     * Detects mod loaders based on the plugins that have been applied to the project.
+     * 
+     * @param project The project to detect loaders for.
+     * @return The detected loaders.
+     */
+    private static Set<String> detectLoaders (Project project) {
+        
+        final Set<String> loaders = new LinkedHashSet<>();
+        addLoaderForPlugin(project, loaders, "net.minecraftforge.gradle", "forge");
+        addLoaderForPlugin(project, loaders, "fabric-loom", "fabric");
+        return loaders;
+    }
+    
     /**
      * Applies a mod loader automatically if a plugin with the specified name has been applied.
      * 
+     * @param project The project to check for the plugin.
+     * @param loaders The set of detected loaders.
      * @param pluginName The plugin to search for.
      * @param loaderName The mod loader to apply.
      */
-    private void addLoaderForPlugin (String pluginName, String loaderName) {
+    private static void addLoaderForPlugin (Project project, Set<String> loaders, String pluginName, String loaderName) {
         
-        if (this.detectLoaders) {
+        final Logger log = Logging.getLogger("DiluvGradle");
+        
+        try {
             
-            try {
+            final AppliedPlugin plugin = project.getPluginManager().findPlugin(pluginName);
+            
+            if (plugin != null) {
                 
-                final AppliedPlugin plugin = this.getProject().getPluginManager().findPlugin(pluginName);
+                loaders.add(loaderName);
+                log.debug("Applying loader {} because plugin {} was found.", loaderName, pluginName);
+            }
+            
+            else {
                 
-                if (plugin != null) {
-                    
-                    this.addLoader(loaderName);
-                    this.log.debug("Applying loader {} because plugin {} was found.", loaderName, pluginName);
-                }
+                log.debug("Could not automatically apply loader {} because plugin {} has not been applied.", loaderName, pluginName);
+            }
+        }
+        
+        catch (final Exception e) {
+            
+            log.debug("Failed to detect plugin {}.", pluginName, e);
+        }
+    }
+    
+    /**
+     * The modules of a configuration that are added as relations. These are wired up while
+     * the build is configured and only read when the task runs.
+     */
+    private static class RelationConfiguration {
+        
+        /**
+         * The type of relation added for the modules.
+         */
+        private final RelationType type;
+        
+        /**
+         * The resolved artifacts of the modules, if the configuration can be resolved.
+         */
+        @Nullable
+        private ArtifactCollection artifacts;
+        
+        /**
+         * The group and name of the declared modules, if the configuration can not be
+         * resolved.
+         */
+        @Nullable
+        private Provider<List<String>> declaredModules;
+        
+        private RelationConfiguration(RelationType type) {
+            
+            this.type = type;
+        }
+        
+        /**
+         * Wires up the modules of the configuration once it has been added to the project.
+         * 
+         * @param configuration The configuration to read the modules of.
+         * @param files The relation files of the task, which the resolved modules are added
+         *        to.
+         * @param providers The provider factory of the project.
+         */
+        private void wire (Configuration configuration, ConfigurableFileCollection files, ProviderFactory providers) {
+            
+            // Configurations that can not be resolved, such as modImplementation in some Loom
+            // versions, only have their declared modules mapped by group and name.
+            if (configuration.isCanBeResolved()) {
                 
-                else {
-                    
-                    this.log.debug("Could not automatically apply loader {} because plugin {} has not been applied.", loaderName, pluginName);
-                }
+                this.artifacts = configuration.getIncoming().artifactView(view -> view.componentFilter(id -> id instanceof ModuleComponentIdentifier)).getArtifacts();
+                files.from(this.artifacts.getArtifactFiles());
             }
             
-            catch (final Exception e) {
+            else {
                 
-                this.log.debug("Failed to detect plugin {}.", pluginName, e);
+                this.declaredModules = providers.provider( () -> {
+                    
+                    final List<String> modules = new ArrayList<>();
+                    
+                    for (final ExternalModuleDependency dependency : configuration.getAllDependencies().withType(ExternalModuleDependency.class)) {
+                        
+                        modules.add(dependency.getGroup() + ":" + dependency.getName());
+                    }
+                    
+                    return modules;
+                });
             }
         }
     }
+    
+    /**
+     * Checks if the previous run of an upload task uploaded every artifact successfully. This
+     * is a class rather than a lambda so it can be stored in the configuration cache.
+     */
+    private static class SuccessfulResultsSpec implements Spec<Task> {
+        
+        @Override
+        public boolean isSatisfiedBy (Task task) {
+            
+            // Dry runs always run, since they are used to check the current configuration.
+            final TaskDiluvUpload upload = (TaskDiluvUpload) task;
+            return !upload.dryRun.get() && upload.hasSuccessfulResults();
+        }
+    }
 }
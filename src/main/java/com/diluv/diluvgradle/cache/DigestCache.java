@@ -0,0 +1,280 @@
+package com.diluv.diluvgradle.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.util.FileDigests;
+import com.diluv.diluvgradle.util.SigningKey;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A cache of the digests and signatures of uploaded files, keyed by their path. An entry is
+ * only used while the size, modification time and inode of the file are unchanged, so an
+ * artifact that was not rebuilt is never read again to hash it. Like the module index, the
+ * entries are kept on disk and in memory for later builds in the same daemon.
+ */
+public class DigestCache {
+    
+    /**
+     * The entries of every cache that has been read by this daemon, keyed by the path of the
+     * cache file.
+     */
+    private static final Map<String, Entries> LOADED = new ConcurrentHashMap<>();
+    
+    /**
+     * An internal logger instance used to output debug information about the cache.
+     */
+    private static final Logger LOG = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The Gson instance used to read and write the cache.
+     */
+    private final Gson gson;
+    
+    /**
+     * The file the cache is stored in.
+     */
+    private final File file;
+    
+    public DigestCache(Gson gson, File cacheDir) {
+        
+        this.gson = gson;
+        this.file = new File(cacheDir, "digests.json");
+    }
+    
+    /**
+     * Gets the digests and signature of a file. The file is only read when it changed since it
+     * was last hashed, or when a digest or signature is needed that was not cached.
+     * 
+     * @param file The file to hash.
+     * @param algorithms The digest algorithms to calculate.
+     * @param signingKey The key used to sign the file, or null if it should not be signed.
+     * @return The digests and signature of the file.
+     * @throws IOException Whenever the file could not be read or signed.
+     */
+    public FileDigests get (File file, Collection<String> algorithms, @Nullable SigningKey signingKey) throws IOException {
+        
+        final String path = file.getAbsolutePath();
+        final Entries entries = this.entries();
+        final Entry current = Entry.of(file);
+        
+        synchronized (entries) {
+            
+            final Entry known = entries.files.get(path);
+            
+            if (known != null && known.matches(current) && known.digests.keySet().containsAll(algorithms) && (signingKey == null || known.signatures.containsKey(signingKey.getId()))) {
+                
+                LOG.debug("Using cached digests of {}.", file.getName());
+                return known.toDigests(algorithms, signingKey);
+            }
+        }
+        
+        final FileDigests computed = FileDigests.compute(file, algorithms, signingKey);
+        
+        // A file that changed while it was read is not cached, the digests may not match
+        // either version of the file.
+        if (!current.matches(Entry.of(file))) {
+            
+            return computed;
+        }
+        
+        synchronized (entries) {
+            
+            final Entry known = entries.files.get(path);
+            
+            // Digests of other algorithms are kept as long as they describe the same file.
+            if (known != null && known.matches(current)) {
+                
+                current.digests.putAll(known.digests);
+                current.signatures.putAll(known.signatures);
+            }
+            
+            current.digests.putAll(computed.getDigests());
+            
+            if (signingKey != null) {
+                
+                current.signatures.put(signingKey.getId(), Base64.getEncoder().encodeToString(computed.getSignature()));
+            }
+            
+            entries.files.put(path, current);
+            entries.dirty = true;
+        }
+        
+        return computed;
+    }
+    
+    /**
+     * Writes the cache to disk if any files were hashed since it was last written. Entries of
+     * files that no longer exist are removed.
+     */
+    public void save () {
+        
+        final Entries entries = this.entries();
+        
+        synchronized (entries) {
+            
+            if (!entries.dirty) {
+                
+                return;
+            }
+            
+            entries.files.keySet().removeIf(path -> !new File(path).isFile());
+            
+            final Path target = this.file.toPath();
+            final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            
+            try {
+                
+                Files.createDirectories(target.getParent());
+                
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    
+                    this.gson.toJson(entries, writer);
+                }
+                
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                entries.dirty = false;
+            }
+            
+            catch (final IOException e) {
+                
+                // The cache only saves time, failing to write it should not fail the build.
+                LOG.warn("Failed to write digest cache {}.", this.file, e);
+            }
+        }
+    }
+    
+    private Entries entries () {
+        
+        return LOADED.computeIfAbsent(this.file.getAbsolutePath(), key -> this.read());
+    }
+    
+    private Entries read () {
+        
+        if (this.file.isFile()) {
+            
+            try (Reader reader = Files.newBufferedReader(this.file.toPath(), StandardCharsets.UTF_8)) {
+                
+                final Entries entries = this.gson.fromJson(reader, Entries.class);
+                
+                if (entries != null && entries.files != null) {
+                    
+                    entries.files.values().removeIf(entry -> entry == null || entry.digests == null || entry.signatures == null);
+                    return entries;
+                }
+            }
+            
+            catch (final IOException | JsonParseException e) {
+                
+                LOG.debug("Ignoring unreadable digest cache {}.", this.file, e);
+            }
+        }
+        
+        return new Entries();
+    }
+    
+    /**
+     * The serialized form of the cache.
+     */
+    private static class Entries {
+        
+        @Expose
+        @SerializedName("files")
+        private Map<String, Entry> files = new LinkedHashMap<>();
+        
+        /**
+         * Whether or not the entries changed since they were read or written.
+         */
+        private transient boolean dirty;
+    }
+    
+    /**
+     * The digests and signatures of a single file.
+     */
+    private static class Entry {
+        
+        @Expose
+        @SerializedName("size")
+        private long size;
+        
+        /**
+         * The modification time of the file in nanoseconds, as precise as the file system
+         * allows.
+         */
+        @Expose
+        @SerializedName("modified")
+        private long modified;
+        
+        /**
+         * Identifies the file on the file system. On most systems this includes the inode, so
+         * a file that was replaced rather than changed in place is hashed again. This is null
+         * on file systems without file keys.
+         */
+        @Expose
+        @SerializedName("fileKey")
+        private String fileKey;
+        
+        /**
+         * The digests of the file, keyed by their algorithm.
+         */
+        @Expose
+        @SerializedName("digests")
+        private Map<String, String> digests = new LinkedHashMap<>();
+        
+        /**
+         * The base64 encoded signatures of the file, keyed by the ID of the key.
+         */
+        @Expose
+        @SerializedName("signatures")
+        private Map<String, String> signatures = new LinkedHashMap<>();
+        
+        private boolean matches (Entry other) {
+            
+            return this.size == other.size && this.modified == other.modified && Objects.equals(this.fileKey, other.fileKey);
+        }
+        
+        private FileDigests toDigests (Collection<String> algorithms, @Nullable SigningKey signingKey) {
+            
+            final Map<String, String> digests = new LinkedHashMap<>();
+            
+            for (final String algorithm : algorithms) {
+                
+                digests.put(algorithm, this.digests.get(algorithm));
+            }
+            
+            return new FileDigests(digests, signingKey != null ? Base64.getDecoder().decode(this.signatures.get(signingKey.getId())) : null);
+        }
+        
+        private static Entry of (File file) throws IOException {
+            
+            final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            final Entry entry = new Entry();
+            entry.size = attributes.size();
+            entry.modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            entry.fileKey = attributes.fileKey() != null ? attributes.fileKey().toString() : null;
+            return entry;
+        }
+    }
+}
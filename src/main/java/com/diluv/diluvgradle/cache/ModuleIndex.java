@@ -0,0 +1,198 @@
+package com.diluv.diluvgradle.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.detect.JarMetadataScanner;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A lookup table of the mod IDs provided by resolved modules, keyed by their coordinates. Each
+ * module jar is only scanned the first time it is seen, and the result is kept on disk and in
+ * memory so later builds in the same daemon do not read the index again. An entry is scanned
+ * again when the size or modification time of the jar changes, which covers snapshots and
+ * locally built modules.
+ */
+public class ModuleIndex {
+    
+    /**
+     * The entries of every index that has been read by this daemon, keyed by the path of the
+     * index file.
+     */
+    private static final Map<String, Entries> LOADED = new ConcurrentHashMap<>();
+    
+    /**
+     * An internal logger instance used to output debug information about the cache.
+     */
+    private static final Logger LOG = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The Gson instance used to read and write the index.
+     */
+    private final Gson gson;
+    
+    /**
+     * The file the index is stored in.
+     */
+    private final File file;
+    
+    public ModuleIndex(Gson gson, File cacheDir) {
+        
+        this.gson = gson;
+        this.file = new File(cacheDir, "modules.json");
+    }
+    
+    /**
+     * Gets the IDs of the mods provided by a module. The jar of the module is scanned if it is
+     * not in the index, or if it changed since it was scanned.
+     * 
+     * @param coordinates The coordinates of the module, ex. group:name:version.
+     * @param jar The resolved jar of the module.
+     * @return The IDs of the mods in the jar. This is empty if the jar is not a mod.
+     */
+    public List<String> getModIds (String coordinates, File jar) {
+        
+        final Entries entries = this.entries();
+        
+        synchronized (entries) {
+            
+            final Entry known = entries.modules.get(coordinates);
+            
+            if (known != null && known.size == jar.length() && known.modified == jar.lastModified()) {
+                
+                return Collections.unmodifiableList(known.modIds);
+            }
+        }
+        
+        final Entry scanned = new Entry();
+        scanned.size = jar.length();
+        scanned.modified = jar.lastModified();
+        scanned.modIds = new ArrayList<>(JarMetadataScanner.scan(jar).getModIds());
+        
+        synchronized (entries) {
+            
+            entries.modules.put(coordinates, scanned);
+            entries.dirty = true;
+        }
+        
+        return Collections.unmodifiableList(scanned.modIds);
+    }
+    
+    /**
+     * Writes the index to disk if any modules were scanned since it was last written.
+     */
+    public void save () {
+        
+        final Entries entries = this.entries();
+        
+        synchronized (entries) {
+            
+            if (!entries.dirty) {
+                
+                return;
+            }
+            
+            final Path target = this.file.toPath();
+            final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            
+            try {
+                
+                Files.createDirectories(target.getParent());
+                
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    
+                    this.gson.toJson(entries, writer);
+                }
+                
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                entries.dirty = false;
+            }
+            
+            catch (final IOException e) {
+                
+                // The index is only a cache, failing to write it should not fail the build.
+                LOG.warn("Failed to write module index {}.", this.file, e);
+            }
+        }
+    }
+    
+    private Entries entries () {
+        
+        return LOADED.computeIfAbsent(this.file.getAbsolutePath(), key -> this.read());
+    }
+    
+    private Entries read () {
+        
+        if (this.file.isFile()) {
+            
+            try (Reader reader = Files.newBufferedReader(this.file.toPath(), StandardCharsets.UTF_8)) {
+                
+                final Entries entries = this.gson.fromJson(reader, Entries.class);
+                
+                if (entries != null && entries.modules != null) {
+                    
+                    entries.modules.values().removeIf(entry -> entry == null || entry.modIds == null);
+                    return entries;
+                }
+            }
+            
+            catch (final IOException | JsonParseException e) {
+                
+                LOG.debug("Ignoring unreadable module index {}.", this.file, e);
+            }
+        }
+        
+        return new Entries();
+    }
+    
+    /**
+     * The serialized form of the index.
+     */
+    private static class Entries {
+        
+        @Expose
+        @SerializedName("modules")
+        private Map<String, Entry> modules = new LinkedHashMap<>();
+        
+        /**
+         * Whether or not the entries changed since they were read or written.
+         */
+        private transient boolean dirty;
+    }
+    
+    /**
+     * The mod IDs of a single module.
+     */
+    private static class Entry {
+        
+        @Expose
+        @SerializedName("size")
+        private long size;
+        
+        @Expose
+        @SerializedName("modified")
+        private long modified;
+        
+        @Expose
+        @SerializedName("modIds")
+        private List<String> modIds;
+    }
+}
@@ -0,0 +1,322 @@
+package com.diluv.diluvgradle.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.util.SemanticVersion;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * An on-disk index of files that have been published to a Diluv project, keyed by their
+ * SHA-512 hash. Each project has its own index file in the cache directory. This is used to
+ * avoid uploading the same file to a project more than once, and to check the version of a
+ * file against the versions that were already published.
+ * 
+ * The index remembers when it was last refreshed from Diluv along with the validators of that
+ * response, so it can be refreshed with a conditional request once it is older than its time
+ * to live.
+ */
+public class PublishedFileIndex {
+    
+    /**
+     * Locks used to prevent multiple uploads in the same build from writing an index at the
+     * same time.
+     */
+    private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+    
+    /**
+     * An internal logger instance used to output debug information about the cache.
+     */
+    private static final Logger LOG = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The Gson instance used to read and write the index.
+     */
+    private final Gson gson;
+    
+    /**
+     * The file the index is stored in.
+     */
+    private final File file;
+    
+    public PublishedFileIndex(Gson gson, File cacheDir, String projectId) {
+        
+        this.gson = gson;
+        this.file = new File(cacheDir, "published/" + projectId + ".json");
+    }
+    
+    /**
+     * Finds a published file by its hash.
+     * 
+     * @param sha512 The SHA-512 hash of the file.
+     * @return The file that was published with the hash. If no file is known this will be
+     *         null.
+     */
+    @Nullable
+    public ResponseUpload find (String sha512) {
+        
+        synchronized (this.lock()) {
+            
+            return this.read().files.get(sha512.toLowerCase(Locale.ROOT));
+        }
+    }
+    
+    /**
+     * Finds the latest version that was published to the project with a classifier. Files that
+     * do not use semantic versioning are ignored.
+     * 
+     * @param classifier The classifier of the files to check.
+     * @return The latest known version. If no versions are known this will be null.
+     */
+    @Nullable
+    public SemanticVersion findLatestVersion (String classifier) {
+        
+        SemanticVersion latest = null;
+        
+        synchronized (this.lock()) {
+            
+            for (final ResponseUpload upload : this.read().files.values()) {
+                
+                final SemanticVersion version = upload.getVersion() != null && classifier.equals(upload.getClassifier()) ? SemanticVersion.tryParse(upload.getVersion()) : null;
+                
+                if (version != null && (latest == null || version.compareTo(latest) > 0)) {
+                    
+                    latest = version;
+                }
+            }
+        }
+        
+        return latest;
+    }
+    
+    /**
+     * Checks if the index was refreshed from Diluv recently enough to be used without asking
+     * Diluv again.
+     * 
+     * @param ttl The time to live of the index in milliseconds.
+     * @return Whether or not the index is still fresh.
+     */
+    public boolean isFresh (long ttl) {
+        
+        synchronized (this.lock()) {
+            
+            final long refreshedAt = this.read().refreshedAt;
+            return refreshedAt > 0 && System.currentTimeMillis() - refreshedAt < ttl;
+        }
+    }
+    
+    /**
+     * Gets the validators of the last listing that was received from Diluv. These are sent
+     * with the next listing request so Diluv can respond without a body when nothing has
+     * changed.
+     * 
+     * @return The validators of the last listing.
+     */
+    public Validators getValidators () {
+        
+        synchronized (this.lock()) {
+            
+            final Entries entries = this.read();
+            return new Validators(entries.etag, entries.lastModified);
+        }
+    }
+    
+    /**
+     * Records that the index was refreshed from Diluv. When files are provided they are added
+     * to the index, otherwise Diluv reported that nothing has changed since the last listing.
+     * 
+     * @param uploads The files listed by Diluv, or null when the listing was not modified.
+     * @param validators The validators of the listing.
+     */
+    public void refreshed (@Nullable Iterable<ResponseUpload> uploads, Validators validators) {
+        
+        synchronized (this.lock()) {
+            
+            final Entries entries = this.read();
+            
+            if (uploads != null) {
+                
+                add(entries, uploads);
+            }
+            
+            if (validators.getETag() != null || validators.getLastModified() != null) {
+                
+                entries.etag = validators.getETag();
+                entries.lastModified = validators.getLastModified();
+            }
+            
+            entries.refreshedAt = System.currentTimeMillis();
+            this.write(entries);
+        }
+    }
+    
+    /**
+     * Records files as being published to the project.
+     * 
+     * @param uploads The published files.
+     */
+    public void record (Iterable<ResponseUpload> uploads) {
+        
+        synchronized (this.lock()) {
+            
+            final Entries entries = this.read();
+            
+            if (add(entries, uploads)) {
+                
+                this.write(entries);
+            }
+        }
+    }
+    
+    private static boolean add (Entries entries, Iterable<ResponseUpload> uploads) {
+        
+        boolean changed = false;
+        
+        for (final ResponseUpload upload : uploads) {
+            
+            if (upload != null && upload.getSha512() != null) {
+                
+                entries.files.put(upload.getSha512().toLowerCase(Locale.ROOT), upload);
+                changed = true;
+            }
+        }
+        
+        return changed;
+    }
+    
+    private Object lock () {
+        
+        return LOCKS.computeIfAbsent(this.file.getAbsolutePath(), key -> new Object());
+    }
+    
+    private Entries read () {
+        
+        if (this.file.isFile()) {
+            
+            try (Reader reader = Files.newBufferedReader(this.file.toPath(), StandardCharsets.UTF_8)) {
+                
+                final Entries entries = this.gson.fromJson(reader, Entries.class);
+                
+                if (entries != null && entries.files != null) {
+                    
+                    return entries;
+                }
+            }
+            
+            catch (final IOException | JsonParseException e) {
+                
+                LOG.debug("Ignoring unreadable published file index {}.", this.file, e);
+            }
+        }
+        
+        return new Entries();
+    }
+    
+    private void write (Entries entries) {
+        
+        final Path target = this.file.toPath();
+        final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        
+        try {
+            
+            Files.createDirectories(target.getParent());
+            
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                
+                this.gson.toJson(entries, writer);
+            }
+            
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        catch (final IOException e) {
+            
+            // The index is only a cache, failing to write it should not fail the upload.
+            LOG.warn("Failed to write published file index {}.", this.file, e);
+        }
+    }
+    
+    /**
+     * The serialized form of the index.
+     */
+    private static class Entries {
+        
+        @Expose
+        @SerializedName("files")
+        private Map<String, ResponseUpload> files = new LinkedHashMap<>();
+        
+        /**
+         * The time the index was last refreshed from Diluv, in milliseconds since the epoch.
+         */
+        @Expose
+        @SerializedName("refreshedAt")
+        private long refreshedAt;
+        
+        @Expose
+        @SerializedName("etag")
+        private String etag;
+        
+        @Expose
+        @SerializedName("lastModified")
+        private String lastModified;
+    }
+    
+    /**
+     * The validators of a listing response, used to make conditional requests.
+     */
+    public static class Validators {
+        
+        @Nullable
+        private final String etag;
+        
+        @Nullable
+        private final String lastModified;
+        
+        public Validators(@Nullable String etag, @Nullable String lastModified) {
+            
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+        
+        /**
+         * Gets the value of the ETag header of the listing.
+         * 
+         * @return The entity tag. If Diluv did not send one this will be null.
+         */
+        @Nullable
+        public String getETag () {
+            
+            return this.etag;
+        }
+        
+        /**
+         * Gets the value of the Last-Modified header of the listing.
+         * 
+         * @return The last modified date. If Diluv did not send one this will be null.
+         */
+        @Nullable
+        public String getLastModified () {
+            
+            return this.lastModified;
+        }
+    }
+}
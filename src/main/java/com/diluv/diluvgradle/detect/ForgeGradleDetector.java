@@ -0,0 +1,54 @@
+package com.diluv.diluvgradle.detect;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.Project;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+
+import com.diluv.diluvgradle.util.MethodHandleCache;
+
+/**
+ * Detects the game version from ForgeGradle. ForgeGradle 3 and newer store the version in an
+ * extra property, while ForgeGradle 2 provides it through the minecraft extension.
+ */
+public class ForgeGradleDetector implements GameVersionDetector {
+    
+    private static final MethodHandleCache HANDLES = new MethodHandleCache();
+    
+    @Override
+    public String getName () {
+        
+        return "ForgeGradle";
+    }
+    
+    @Nullable
+    @Override
+    public String detect (Project project) throws Exception {
+        
+        final ExtraPropertiesExtension extraProps = project.getExtensions().getExtraProperties();
+        
+        // ForgeGradle will store the game version here.
+        // https://github.com/MinecraftForge/ForgeGradle/blob/9252ffe1fa5c2acf133f35d169ba4ffc84e6a9fd/src/userdev/java/net/minecraftforge/gradle/userdev/MinecraftUserRepo.java#L179
+        if (extraProps.has("MC_VERSION")) {
+            
+            return String.valueOf(extraProps.get("MC_VERSION"));
+        }
+        
+        // ForgeGradle 2 uses a version like 1.12.2-14.23.5.2847 on the minecraft extension.
+        final Object extension = project.getExtensions().findByName("minecraft");
+        
+        if (extension != null && extension.getClass().getName().startsWith("net.minecraftforge.gradle")) {
+            
+            final Object version = HANDLES.invoke(extension, "getVersion");
+            
+            if (version != null) {
+                
+                final String forgeVersion = version.toString();
+                final int separator = forgeVersion.indexOf('-');
+                return separator > 0 ? forgeVersion.substring(0, separator) : forgeVersion;
+            }
+        }
+        
+        return null;
+    }
+}
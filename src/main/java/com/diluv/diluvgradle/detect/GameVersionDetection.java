@@ -0,0 +1,137 @@
+package com.diluv.diluvgradle.detect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+
+/**
+ * Runs the {@link GameVersionDetector game version detectors} for a project. The detected
+ * version is remembered by the project, so every upload task in the project shares the result
+ * and the detectors only run once per project.
+ */
+public final class GameVersionDetection {
+    
+    /**
+     * The extra property used to store the detection of a project.
+     */
+    private static final String PROPERTY = "diluvGameVersionDetection";
+    
+    /**
+     * The detectors provided by the plugin and any other plugins on the build script class
+     * path, in the order they are tried.
+     */
+    private static final List<GameVersionDetector> DETECTORS = loadDetectors();
+    
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The project to detect the game version for.
+     */
+    private final Project project;
+    
+    /**
+     * Whether or not the detectors have been ran.
+     */
+    private boolean detected = false;
+    
+    /**
+     * The detected game version.
+     */
+    @Nullable
+    private String gameVersion = null;
+    
+    private GameVersionDetection(Project project) {
+        
+        this.project = project;
+    }
+    
+    /**
+     * Gets the game version of the project. The detectors are ran the first time this is
+     * called and the result is reused afterwards.
+     * 
+     * @return The detected game version, or null if it could not be detected.
+     */
+    @Nullable
+    public synchronized String getGameVersion () {
+        
+        if (!this.detected) {
+            
+            this.gameVersion = this.detect();
+            this.detected = true;
+        }
+        
+        return this.gameVersion;
+    }
+    
+    @Nullable
+    private String detect () {
+        
+        for (final GameVersionDetector detector : DETECTORS) {
+            
+            try {
+                
+                final String version = detector.detect(this.project);
+                
+                if (version != null && !version.isEmpty()) {
+                    
+                    this.log.debug("Detected fallback game version {} from {}.", version, detector.getName());
+                    return version;
+                }
+            }
+            
+            catch (final Exception e) {
+                
+                this.log.debug("Failed to detect {} game version.", detector.getName(), e);
+            }
+        }
+        
+        this.log.debug("Could not detect the game version of {}.", this.project.getPath());
+        return null;
+    }
+    
+    /**
+     * Gets the game version detection for a project.
+     * 
+     * @param project The project to detect the game version for.
+     * @return The game version detection for the project.
+     */
+    public static GameVersionDetection of (Project project) {
+        
+        final ExtraPropertiesExtension extraProps = project.getExtensions().getExtraProperties();
+        
+        synchronized (extraProps) {
+            
+            // The property may have been set by a copy of the plugin from another class loader.
+            final Object existing = extraProps.has(PROPERTY) ? extraProps.get(PROPERTY) : null;
+            
+            if (existing instanceof GameVersionDetection) {
+                
+                return (GameVersionDetection) existing;
+            }
+            
+            final GameVersionDetection detection = new GameVersionDetection(project);
+            
+            if (existing == null) {
+                
+                extraProps.set(PROPERTY, detection);
+            }
+            
+            return detection;
+        }
+    }
+    
+    private static List<GameVersionDetector> loadDetectors () {
+        
+        final List<GameVersionDetector> detectors = new ArrayList<>();
+        ServiceLoader.load(GameVersionDetector.class, GameVersionDetector.class.getClassLoader()).forEach(detectors::add);
+        return Collections.unmodifiableList(detectors);
+    }
+}
@@ -0,0 +1,32 @@
+package com.diluv.diluvgradle.detect;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.Project;
+
+/**
+ * Detects the version of the game a project is built for from the build environment, such as
+ * the plugins that have been applied to the project. Detectors are loaded using a
+ * {@link java.util.ServiceLoader}, which allows other plugins to provide their own detectors.
+ * Detectors are tried in the order they are loaded and the first detected version is used.
+ */
+public interface GameVersionDetector {
+    
+    /**
+     * Gets the name of the detector. This is used when logging detected versions.
+     * 
+     * @return The name of the detector.
+     */
+    String getName ();
+    
+    /**
+     * Attempts to detect the game version of a project. This is called when the upload task is
+     * ran, after the project has been configured.
+     * 
+     * @param project The project to detect the game version for.
+     * @return The detected game version, or null if it could not be detected.
+     * @throws Exception Whenever the build environment could not be read.
+     */
+    @Nullable
+    String detect (Project project) throws Exception;
+}
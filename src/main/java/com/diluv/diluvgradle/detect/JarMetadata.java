@@ -0,0 +1,76 @@
+package com.diluv.diluvgradle.detect;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.diluv.diluvgradle.request.RelationType;
+
+/**
+ * The mod metadata read from a jar by the {@link JarMetadataScanner}.
+ */
+public class JarMetadata {
+    
+    /**
+     * An empty result, used when a jar has no metadata or could not be read.
+     */
+    public static final JarMetadata EMPTY = new JarMetadata();
+    
+    /**
+     * The IDs of the mods in the jar.
+     */
+    final Set<String> modIds = new LinkedHashSet<>();
+    
+    /**
+     * The loaders the jar provides metadata for.
+     */
+    final Set<String> loaders = new LinkedHashSet<>();
+    
+    /**
+     * The game versions the jar supports. For version ranges this is the lowest version.
+     */
+    final Set<String> gameVersions = new LinkedHashSet<>();
+    
+    /**
+     * The relations with other mods, keyed by mod ID.
+     */
+    final Map<String, RelationType> relations = new LinkedHashMap<>();
+    
+    JarMetadata() {
+    
+    }
+    
+    public Set<String> getModIds () {
+        
+        return Collections.unmodifiableSet(this.modIds);
+    }
+    
+    public Set<String> getLoaders () {
+        
+        return Collections.unmodifiableSet(this.loaders);
+    }
+    
+    public Set<String> getGameVersions () {
+        
+        return Collections.unmodifiableSet(this.gameVersions);
+    }
+    
+    public Map<String, RelationType> getRelations () {
+        
+        return Collections.unmodifiableMap(this.relations);
+    }
+    
+    /**
+     * Adds a relation with another mod. Stronger relations replace weaker ones, so a mod that
+     * is both required and recommended is treated as required.
+     * 
+     * @param modId The ID of the other mod.
+     * @param type The type of relation.
+     */
+    void addRelation (String modId, RelationType type) {
+        
+        this.relations.merge(modId, type, (existing, added) -> existing == RelationType.OPTIONAL ? added : existing);
+    }
+}
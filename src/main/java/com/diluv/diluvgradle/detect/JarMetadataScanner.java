@@ -0,0 +1,355 @@
+package com.diluv.diluvgradle.detect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.request.RelationType;
+import com.diluv.diluvgradle.util.Hashing;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Reads the loaders, game versions and dependencies of a mod from the metadata files in its
+ * jar. The jar is opened once and only the central directory and the metadata entries are
+ * read, so large jars are scanned as quickly as small ones. Supports fabric.mod.json,
+ * quilt.mod.json, META-INF/mods.toml and META-INF/neoforge.mods.toml.
+ */
+public final class JarMetadataScanner {
+    
+    private static final Logger LOG = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * Mod IDs that belong to the game or a loader rather than to another mod.
+     */
+    private static final Set<String> PLATFORM_IDS = new HashSet<>(Arrays.asList("minecraft", "java", "fabricloader", "quilt_loader", "forge", "neoforge"));
+    
+    /**
+     * Matches versions that name a single version of the game.
+     */
+    private static final Pattern PLAIN_VERSION = Pattern.compile("[0-9][0-9A-Za-wyz.\\-]*");
+    
+    /**
+     * The largest metadata file that will be read. Anything larger is not a real metadata file.
+     */
+    private static final int MAX_METADATA_SIZE = 1024 * 1024;
+    
+    private JarMetadataScanner() {
+    
+    }
+    
+    /**
+     * Scans a jar for mod metadata. Problems reading the jar are logged and result in empty
+     * metadata rather than an error, as the metadata is only used to fill in missing data.
+     * 
+     * @param jar The jar to scan.
+     * @return The metadata of the jar.
+     */
+    public static JarMetadata scan (File jar) {
+        
+        final JarMetadata metadata = new JarMetadata();
+        
+        try (ZipFile zip = new ZipFile(jar)) {
+            
+            final String fabric = readEntry(zip, "fabric.mod.json");
+            
+            if (fabric != null) {
+                
+                metadata.loaders.add("fabric");
+                readFabric(metadata, JsonParser.parseString(fabric));
+            }
+            
+            final String quilt = readEntry(zip, "quilt.mod.json");
+            
+            if (quilt != null) {
+                
+                metadata.loaders.add("quilt");
+                readQuilt(metadata, JsonParser.parseString(quilt));
+            }
+            
+            final String forge = readEntry(zip, "META-INF/mods.toml");
+            
+            if (forge != null) {
+                
+                metadata.loaders.add("forge");
+                readModsToml(metadata, forge);
+            }
+            
+            final String neoForge = readEntry(zip, "META-INF/neoforge.mods.toml");
+            
+            if (neoForge != null) {
+                
+                metadata.loaders.add("neoforge");
+                readModsToml(metadata, neoForge);
+            }
+        }
+        
+        catch (final IOException | JsonParseException | IllegalStateException e) {
+            
+            LOG.debug("Failed to read mod metadata from {}.", jar, e);
+            return JarMetadata.EMPTY;
+        }
+        
+        LOG.debug("Read mods {}, loaders {}, game versions {} and relations {} from {}.", metadata.modIds, metadata.loaders, metadata.gameVersions, metadata.relations, jar);
+        return metadata;
+    }
+    
+    /**
+     * Reads the dependencies of fabric.mod.json.
+     * 
+     * @param metadata The metadata to fill.
+     * @param json The parsed fabric.mod.json file.
+     */
+    private static void readFabric (JarMetadata metadata, JsonElement json) {
+        
+        if (!json.isJsonObject()) {
+            
+            return;
+        }
+        
+        final JsonObject root = json.getAsJsonObject();
+        
+        if (root.has("id") && root.get("id").isJsonPrimitive()) {
+            
+            metadata.modIds.add(root.get("id").getAsString());
+        }
+        
+        readFabricDependencies(metadata, root.get("depends"), RelationType.REQUIRED);
+        readFabricDependencies(metadata, root.get("recommends"), RelationType.OPTIONAL);
+        readFabricDependencies(metadata, root.get("suggests"), RelationType.OPTIONAL);
+        readFabricDependencies(metadata, root.get("breaks"), RelationType.INCOMPATIBLE);
+        readFabricDependencies(metadata, root.get("conflicts"), RelationType.INCOMPATIBLE);
+    }
+    
+    private static void readFabricDependencies (JarMetadata metadata, @Nullable JsonElement dependencies, RelationType type) {
+        
+        if (dependencies == null || !dependencies.isJsonObject()) {
+            
+            return;
+        }
+        
+        for (final Map.Entry<String, JsonElement> dependency : dependencies.getAsJsonObject().entrySet()) {
+            
+            if ("minecraft".equals(dependency.getKey()) && type == RelationType.REQUIRED) {
+                
+                readVersions(metadata, dependency.getValue());
+            }
+            
+            else if (!PLATFORM_IDS.contains(dependency.getKey())) {
+                
+                metadata.addRelation(dependency.getKey(), type);
+            }
+        }
+    }
+    
+    /**
+     * Reads the dependencies of quilt.mod.json. Dependencies are either a mod ID or an object
+     * with an ID, versions and whether or not the dependency is optional.
+     * 
+     * @param metadata The metadata to fill.
+     * @param json The parsed quilt.mod.json file.
+     */
+    private static void readQuilt (JarMetadata metadata, JsonElement json) {
+        
+        if (!json.isJsonObject() || !json.getAsJsonObject().has("quilt_loader")) {
+            
+            return;
+        }
+        
+        final JsonObject loader = json.getAsJsonObject().getAsJsonObject("quilt_loader");
+        
+        if (loader.has("id") && loader.get("id").isJsonPrimitive()) {
+            
+            metadata.modIds.add(loader.get("id").getAsString());
+        }
+        
+        readQuiltDependencies(metadata, loader.get("depends"), RelationType.REQUIRED);
+        readQuiltDependencies(metadata, loader.get("breaks"), RelationType.INCOMPATIBLE);
+    }
+    
+    private static void readQuiltDependencies (JarMetadata metadata, @Nullable JsonElement dependencies, RelationType type) {
+        
+        if (dependencies == null || !dependencies.isJsonArray()) {
+            
+            return;
+        }
+        
+        for (final JsonElement dependency : dependencies.getAsJsonArray()) {
+            
+            if (dependency.isJsonPrimitive()) {
+                
+                if (!PLATFORM_IDS.contains(dependency.getAsString())) {
+                    
+                    metadata.addRelation(dependency.getAsString(), type);
+                }
+            }
+            
+            else if (dependency.isJsonObject() && dependency.getAsJsonObject().has("id")) {
+                
+                final JsonObject object = dependency.getAsJsonObject();
+                final String modId = object.get("id").getAsString();
+                final boolean optional = object.has("optional") && object.get("optional").getAsBoolean();
+                
+                if ("minecraft".equals(modId) && type == RelationType.REQUIRED) {
+                    
+                    readVersions(metadata, object.get("versions"));
+                }
+                
+                else if (!PLATFORM_IDS.contains(modId)) {
+                    
+                    metadata.addRelation(modId, optional && type == RelationType.REQUIRED ? RelationType.OPTIONAL : type);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads the dependencies of mods.toml. Newer versions of Forge and NeoForge use a type key
+     * while older versions use the mandatory key.
+     * 
+     * @param metadata The metadata to fill.
+     * @param contents The contents of the mods.toml file.
+     */
+    private static void readModsToml (JarMetadata metadata, String contents) {
+        
+        for (final TomlReader.Table table : TomlReader.read(contents)) {
+            
+            final String modId = table.getString("modId");
+            
+            if ("mods".equals(table.name) && modId != null) {
+                
+                metadata.modIds.add(modId);
+                continue;
+            }
+            
+            if (!table.name.startsWith("dependencies.") || modId == null) {
+                
+                continue;
+            }
+            
+            final String type = table.getString("type");
+            final RelationType relation;
+            
+            if (type != null) {
+                
+                relation = "required".equalsIgnoreCase(type) ? RelationType.REQUIRED : "incompatible".equalsIgnoreCase(type) ? RelationType.INCOMPATIBLE : RelationType.OPTIONAL;
+            }
+            
+            else {
+                
+                relation = Boolean.TRUE.equals(table.values.get("mandatory")) ? RelationType.REQUIRED : RelationType.OPTIONAL;
+            }
+            
+            if ("minecraft".equals(modId)) {
+                
+                final String range = table.getString("versionRange");
+                
+                if (range != null) {
+                    
+                    addVersion(metadata, range.replaceFirst("^[\\[(]", "").split(",")[0]);
+                }
+            }
+            
+            else if (!PLATFORM_IDS.contains(modId)) {
+                
+                metadata.addRelation(modId, relation);
+            }
+        }
+    }
+    
+    /**
+     * Reads a fabric or quilt version predicate, or an array of them.
+     * 
+     * @param metadata The metadata to fill.
+     * @param versions The version predicates.
+     */
+    private static void readVersions (JarMetadata metadata, @Nullable JsonElement versions) {
+        
+        if (versions == null) {
+            
+            return;
+        }
+        
+        if (versions.isJsonArray()) {
+            
+            versions.getAsJsonArray().forEach(version -> readVersions(metadata, version));
+        }
+        
+        else if (versions.isJsonPrimitive()) {
+            
+            // Predicates like ">=1.16.5 <1.17" use the lower bound.
+            final String predicate = versions.getAsString().trim();
+            addVersion(metadata, predicate.split("\\s+")[0].replaceFirst("^[<>=~^]+", ""));
+        }
+    }
+    
+    private static void addVersion (JarMetadata metadata, String version) {
+        
+        final String trimmed = version.trim();
+        
+        // Wildcard versions such as 1.16.x can not be used.
+        if (PLAIN_VERSION.matcher(trimmed).matches()) {
+            
+            metadata.gameVersions.add(trimmed);
+        }
+    }
+    
+    /**
+     * Reads an entry of the jar as a UTF-8 string.
+     * 
+     * @param zip The jar to read.
+     * @param name The name of the entry.
+     * @return The contents of the entry, or null if the jar does not have the entry.
+     * @throws IOException Whenever the entry could not be read.
+     */
+    @Nullable
+    private static String readEntry (ZipFile zip, String name) throws IOException {
+        
+        final ZipEntry entry = zip.getEntry(name);
+        
+        if (entry == null) {
+            
+            return null;
+        }
+        
+        if (entry.getSize() > MAX_METADATA_SIZE) {
+            
+            throw new IOException("The " + name + " entry is too large to be mod metadata.");
+        }
+        
+        try (InputStream stream = zip.getInputStream(entry)) {
+            
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : 4096);
+            final byte[] buffer = new byte[Math.min(Hashing.CHUNK_SIZE, MAX_METADATA_SIZE)];
+            int read;
+            
+            while ((read = stream.read(buffer)) != -1) {
+                
+                out.write(buffer, 0, read);
+                
+                if (out.size() > MAX_METADATA_SIZE) {
+                    
+                    throw new IOException("The " + name + " entry is too large to be mod metadata.");
+                }
+            }
+            
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.diluv.diluvgradle.detect;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.Project;
+
+import com.diluv.diluvgradle.util.MethodHandleCache;
+
+/**
+ * Detects the game version from Loom. Older versions of Loom register their extension as
+ * minecraft while newer versions use loom. The minecraft provider has moved packages between
+ * versions and newer versions renamed the version getter, so the methods are looked up on the
+ * runtime types rather than on fixed class names.
+ */
+public class LoomDetector implements GameVersionDetector {
+    
+    private static final MethodHandleCache HANDLES = new MethodHandleCache();
+    
+    @Override
+    public String getName () {
+        
+        return "Loom";
+    }
+    
+    @Nullable
+    @Override
+    public String detect (Project project) throws Exception {
+        
+        for (final String extensionName : new String[] { "loom", "minecraft" }) {
+            
+            final Object extension = project.getExtensions().findByName(extensionName);
+            
+            if (extension != null && extension.getClass().getName().contains(".loom.")) {
+                
+                final Object provider = HANDLES.invoke(extension, "getMinecraftProvider");
+                
+                if (provider != null) {
+                    
+                    final Object version = HANDLES.invoke(provider, "minecraftVersion", "getMinecraftVersion");
+                    
+                    if (version != null) {
+                        
+                        return version.toString();
+                    }
+                }
+            }
+        }
+        
+        return null;
+    }
+}
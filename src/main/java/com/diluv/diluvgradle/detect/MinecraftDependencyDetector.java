@@ -0,0 +1,57 @@
+package com.diluv.diluvgradle.detect;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+
+/**
+ * Detects the game version from the dependency declared in the minecraft configuration. Both
+ * Loom and ForgeGradle 3 and newer use this configuration, which makes this detector work with
+ * versions of those plugins that the other detectors do not know about.
+ */
+public class MinecraftDependencyDetector implements GameVersionDetector {
+    
+    @Override
+    public String getName () {
+        
+        return "minecraft dependency";
+    }
+    
+    @Nullable
+    @Override
+    public String detect (Project project) {
+        
+        final Configuration configuration = project.getConfigurations().findByName("minecraft");
+        
+        if (configuration == null) {
+            
+            return null;
+        }
+        
+        for (final Dependency dependency : configuration.getDependencies()) {
+            
+            final String version = dependency.getVersion();
+            
+            if (version == null) {
+                
+                continue;
+            }
+            
+            // Loom uses the vanilla game, ex. com.mojang:minecraft:1.16.5
+            if ("com.mojang".equals(dependency.getGroup()) && "minecraft".equals(dependency.getName())) {
+                
+                return version;
+            }
+            
+            // ForgeGradle uses the game and Forge version, ex. net.minecraftforge:forge:1.16.5-36.1.0
+            if ("net.minecraftforge".equals(dependency.getGroup()) && "forge".equals(dependency.getName()) && version.indexOf('-') > 0) {
+                
+                return version.substring(0, version.indexOf('-'));
+            }
+        }
+        
+        return null;
+    }
+}
@@ -0,0 +1,219 @@
+package com.diluv.diluvgradle.detect;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal reader for the subset of TOML used by mods.toml files. Tables, arrays of tables and
+ * keys with string, boolean and number values are read. Other values such as inline arrays and
+ * tables are skipped, and multi-line strings are read but never split into tables.
+ */
+final class TomlReader {
+    
+    private TomlReader() {
+    
+    }
+    
+    /**
+     * Reads the tables of a TOML document. Keys before the first table header are placed in a
+     * table with an empty name.
+     * 
+     * @param contents The TOML document.
+     * @return The tables of the document, in the order they were defined.
+     */
+    static List<Table> read (String contents) {
+        
+        final List<Table> tables = new ArrayList<>();
+        Table current = new Table("");
+        tables.add(current);
+        
+        final String[] lines = contents.split("\r?\n");
+        
+        for (int i = 0; i < lines.length; i++) {
+            
+            final String line = stripComment(lines[i]).trim();
+            
+            if (line.isEmpty()) {
+                
+                continue;
+            }
+            
+            if (line.startsWith("[")) {
+                
+                final boolean array = line.startsWith("[[");
+                final int end = line.indexOf(array ? "]]" : "]");
+                current = new Table(unquote(line.substring(array ? 2 : 1, end > 0 ? end : line.length()).trim()));
+                tables.add(current);
+                continue;
+            }
+            
+            final int separator = line.indexOf('=');
+            
+            if (separator <= 0) {
+                
+                continue;
+            }
+            
+            final String key = unquote(line.substring(0, separator).trim());
+            String value = line.substring(separator + 1).trim();
+            
+            // Multi-line strings are joined until the closing delimiter is found.
+            if (value.startsWith("\"\"\"") || value.startsWith("'''")) {
+                
+                final String delimiter = value.substring(0, 3);
+                final StringBuilder builder = new StringBuilder(value.substring(3));
+                
+                while (builder.indexOf(delimiter) == -1 && i + 1 < lines.length) {
+                    
+                    builder.append('\n').append(lines[++i]);
+                }
+                
+                final int end = builder.indexOf(delimiter);
+                current.values.put(key, end >= 0 ? builder.substring(0, end) : builder.toString());
+                continue;
+            }
+            
+            final Object parsed = parseValue(value);
+            
+            if (parsed != null) {
+                
+                current.values.put(key, parsed);
+            }
+        }
+        
+        return tables;
+    }
+    
+    private static Object parseValue (String value) {
+        
+        if (value.startsWith("\"") || value.startsWith("'")) {
+            
+            return unquote(value);
+        }
+        
+        if ("true".equals(value) || "false".equals(value)) {
+            
+            return Boolean.valueOf(value);
+        }
+        
+        if (!value.isEmpty() && (Character.isDigit(value.charAt(0)) || value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            
+            return value;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Reads a basic or literal string. Values that are not quoted are returned as is.
+     * 
+     * @param value The raw value.
+     * @return The contents of the string.
+     */
+    private static String unquote (String value) {
+        
+        if (value.startsWith("'")) {
+            
+            final int end = value.indexOf('\'', 1);
+            return value.substring(1, end > 0 ? end : value.length());
+        }
+        
+        if (!value.startsWith("\"")) {
+            
+            return value;
+        }
+        
+        final StringBuilder builder = new StringBuilder();
+        
+        for (int i = 1; i < value.length(); i++) {
+            
+            final char c = value.charAt(i);
+            
+            if (c == '"') {
+                
+                break;
+            }
+            
+            if (c == '\\' && i + 1 < value.length()) {
+                
+                final char escaped = value.charAt(++i);
+                builder.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+                continue;
+            }
+            
+            builder.append(c);
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Removes a comment from a line, ignoring # characters inside of strings.
+     * 
+     * @param line The line to strip.
+     * @return The line without the comment.
+     */
+    private static String stripComment (String line) {
+        
+        char quote = 0;
+        
+        for (int i = 0; i < line.length(); i++) {
+            
+            final char c = line.charAt(i);
+            
+            if (quote != 0) {
+                
+                if (c == '\\' && quote == '"') {
+                    
+                    i++;
+                }
+                
+                else if (c == quote) {
+                    
+                    quote = 0;
+                }
+            }
+            
+            else if (c == '"' || c == '\'') {
+                
+                quote = c;
+            }
+            
+            else if (c == '#') {
+                
+                return line.substring(0, i);
+            }
+        }
+        
+        return line;
+    }
+    
+    /**
+     * A table from a TOML document.
+     */
+    static final class Table {
+        
+        /**
+         * The name of the table, ex. dependencies.examplemod
+         */
+        final String name;
+        
+        /**
+         * The values of the table, keyed by name.
+         */
+        final Map<String, Object> values = new LinkedHashMap<>();
+        
+        Table(String name) {
+            
+            this.name = name;
+        }
+        
+        String getString (String key) {
+            
+            final Object value = this.values.get(key);
+            return value != null ? value.toString() : null;
+        }
+    }
+}
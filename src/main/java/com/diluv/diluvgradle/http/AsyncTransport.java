@@ -0,0 +1,459 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http.nio.support.classic.AbstractClassicEntityProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.metrics.PhaseTimings;
+
+/**
+ * A transport that sends requests using the non-blocking HttpClient 5 client. Connections are
+ * handled by a small set of I/O threads instead of one thread per request, and when HTTP/2 is
+ * used several uploads and lookups to the same host are multiplexed over one connection.
+ * Request bodies are still written by a blocking entity, on a separate thread, so every
+ * entity used with the blocking transport works with this one as well.
+ * 
+ * <p>
+ * Responses are read into memory before they are returned. Once a body grows past
+ * {@link Responses#MAX_BODY_SIZE} the exchange is cancelled rather than reading the rest of
+ * it, and the response is returned without its body, which {@link Responses} then rejects.
+ * Connection and TLS timings are not recorded by this transport.
+ */
+public class AsyncTransport implements DiluvTransport {
+    
+    /**
+     * An internal logger instance used to output status and debug information about the
+     * transport.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * Whether or not every request is sent over HTTP/2.
+     */
+    private final boolean http2;
+    
+    /**
+     * The client used to send requests.
+     */
+    private final CloseableHttpAsyncClient client;
+    
+    /**
+     * The threads used to write request bodies.
+     */
+    private final ExecutorService bodyWriters;
+    
+    /**
+     * Creates a new non-blocking transport. The client is started right away.
+     * 
+     * @param http2 If true, every request to a host is multiplexed over a single HTTP/2
+     *        connection. The host must support HTTP/2. If false, HTTP/2 is only used when the
+     *        host offers it during the TLS handshake and connections are pooled otherwise.
+     * @param maxPerRoute The max amount of pooled connections to a single host.
+     * @param maxTotal The max amount of pooled connections.
+     */
+    public AsyncTransport(boolean http2, int maxPerRoute, int maxTotal) {
+        
+        this.http2 = http2;
+        
+        final AtomicInteger threads = new AtomicInteger();
+        this.bodyWriters = Executors.newCachedThreadPool(task -> {
+            
+            final Thread thread = new Thread(task, "diluv-http-body-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // Retries are handled by the retry policy of each upload. The client must not retry
+        // on its own since request bodies can only be written once.
+        if (http2) {
+            
+            this.client = HttpAsyncClients.customHttp2()
+                    .disableCookieManagement()
+                    .disableAutomaticRetries()
+                    .build();
+        }
+        
+        else {
+            
+            this.client = HttpAsyncClients.custom()
+                    .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                    .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create().setMaxConnPerRoute(maxPerRoute).setMaxConnTotal(maxTotal).build())
+                    .disableCookieManagement()
+                    .disableAutomaticRetries()
+                    .evictIdleConnections(TimeValue.ofSeconds(30))
+                    .build();
+        }
+        
+        this.client.start();
+    }
+    
+    @Override
+    public String getName () {
+        
+        return this.http2 ? HTTP2 : ASYNC;
+    }
+    
+    @Override
+    public CloseableHttpResponse execute (HttpRequestBase request, PhaseTimings timings) throws IOException {
+        
+        final AsyncRequestBuilder builder = AsyncRequestBuilder.create(request.getMethod()).setUri(request.getURI());
+        
+        for (final Header header : request.getAllHeaders()) {
+            
+            builder.addHeader(header.getName(), header.getValue());
+        }
+        
+        if (request instanceof HttpEntityEnclosingRequest) {
+            
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            
+            if (entity != null) {
+                
+                builder.setEntity(new EntityProducer(entity, this.bodyWriters));
+            }
+        }
+        
+        final AsyncRequestProducer producer = builder.build();
+        final HttpClientContext context = HttpClientContext.create();
+        final LimitedResponseConsumer consumer = new LimitedResponseConsumer(Responses.MAX_BODY_SIZE);
+        final Future<Message<HttpResponse, byte[]>> future = this.client.execute(producer, consumer, context, null);
+        
+        try {
+            
+            final Message<HttpResponse, byte[]> message = future.get();
+            return toResponse(message.getHead(), message.getBody(), context.getProtocolVersion());
+        }
+        
+        catch (final InterruptedException e) {
+            
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.getMethod() + " " + request.getURI());
+        }
+        
+        catch (final ExecutionException e) {
+            
+            final Throwable cause = e.getCause();
+            
+            // The status and headers are still returned when the body was too large, so the
+            // caller can report the status. The body is reported as too large to be read.
+            if (cause instanceof Responses.BodyTooLargeException && consumer.head != null) {
+                
+                final CloseableHttpResponse response = toResponse(consumer.head, null, context.getProtocolVersion());
+                final BasicHttpEntity entity = new BasicHttpEntity();
+                entity.setContent(new ByteArrayInputStream(new byte[0]));
+                entity.setContentLength(Responses.MAX_BODY_SIZE + 1);
+                response.setEntity(entity);
+                return response;
+            }
+            
+            if (cause instanceof IOException) {
+                
+                throw (IOException) cause;
+            }
+            
+            if (cause instanceof HttpException) {
+                
+                throw new ClientProtocolException(cause.getMessage(), cause);
+            }
+            
+            if (cause instanceof RuntimeException) {
+                
+                throw (RuntimeException) cause;
+            }
+            
+            throw new IOException("Request to " + request.getURI() + " failed.", cause);
+        }
+    }
+    
+    /**
+     * Converts a buffered response to the response type used by the rest of the plugin.
+     * 
+     * @param head The status and headers of the response.
+     * @param body The buffered body, or null if the response has no body.
+     * @param negotiated The protocol version the request was sent with, or null if it is not
+     *        known.
+     * @return The converted response.
+     */
+    private static CloseableHttpResponse toResponse (HttpResponse head, @Nullable byte[] body, @Nullable org.apache.hc.core5.http.ProtocolVersion negotiated) {
+        
+        final org.apache.hc.core5.http.ProtocolVersion version = head.getVersion() != null ? head.getVersion() : negotiated;
+        final ProtocolVersion protocol = version != null ? new ProtocolVersion(version.getProtocol(), version.getMajor(), version.getMinor()) : HttpVersion.HTTP_1_1;
+        final BufferedResponse response = new BufferedResponse(protocol, head.getCode(), head.getReasonPhrase());
+        String contentType = null;
+        
+        for (final org.apache.hc.core5.http.Header header : head.getHeaders()) {
+            
+            response.addHeader(header.getName(), header.getValue());
+            
+            if ("Content-Type".equalsIgnoreCase(header.getName())) {
+                
+                contentType = header.getValue();
+            }
+        }
+        
+        if (body != null) {
+            
+            final ByteArrayEntity entity = new ByteArrayEntity(body);
+            entity.setContentType(contentType);
+            response.setEntity(entity);
+        }
+        
+        return response;
+    }
+    
+    @Override
+    public void close () {
+        
+        try {
+            
+            this.client.close();
+        }
+        
+        catch (final IOException e) {
+            
+            this.log.debug("Failed to close the Diluv HTTP client.", e);
+        }
+        
+        this.bodyWriters.shutdownNow();
+    }
+    
+    /**
+     * Writes the body of a request using a blocking entity. The entity is written on a body
+     * writer thread and handed to the client as it is produced. The classic producer always
+     * streams with an unknown length, so the length of the entity is reported here instead
+     * and the request is only chunked when the entity does not know its length.
+     */
+    private static class EntityProducer implements AsyncEntityProducer {
+        
+        /**
+         * The entity to write.
+         */
+        private final HttpEntity entity;
+        
+        /**
+         * The producer that writes the entity on a body writer thread.
+         */
+        private final AbstractClassicEntityProducer producer;
+        
+        EntityProducer(HttpEntity entity, ExecutorService executor) {
+            
+            this.entity = entity;
+            this.producer = new AbstractClassicEntityProducer(64 * 1024, entity.getContentType() != null ? ContentType.parse(entity.getContentType().getValue()) : null, executor) {
+                
+                @Override
+                protected void produceData (ContentType contentType, OutputStream outputStream) throws IOException {
+                    
+                    entity.writeTo(outputStream);
+                }
+            };
+        }
+        
+        @Override
+        public boolean isRepeatable () {
+            
+            return false;
+        }
+        
+        @Override
+        public long getContentLength () {
+            
+            return this.entity.getContentLength();
+        }
+        
+        @Override
+        public String getContentType () {
+            
+            return this.producer.getContentType();
+        }
+        
+        @Override
+        public String getContentEncoding () {
+            
+            return this.entity.getContentEncoding() != null ? this.entity.getContentEncoding().getValue() : null;
+        }
+        
+        @Override
+        public boolean isChunked () {
+            
+            return this.entity.getContentLength() < 0;
+        }
+        
+        @Override
+        public Set<String> getTrailerNames () {
+            
+            return null;
+        }
+        
+        @Override
+        public int available () {
+            
+            return this.producer.available();
+        }
+        
+        @Override
+        public void produce (DataStreamChannel channel) throws IOException {
+            
+            this.producer.produce(channel);
+        }
+        
+        @Override
+        public void failed (Exception cause) {
+            
+            this.producer.failed(cause);
+        }
+        
+        @Override
+        public void releaseResources () {
+            
+            this.producer.releaseResources();
+        }
+    }
+    
+    /**
+     * Reads a response and keeps its status and headers, so they are still available when
+     * reading the body fails.
+     */
+    private static class LimitedResponseConsumer extends BasicResponseConsumer<byte[]> {
+        
+        /**
+         * The status and headers of the response, or null if they have not been received.
+         */
+        @Nullable
+        private volatile HttpResponse head;
+        
+        LimitedResponseConsumer(long limit) {
+            
+            super(new LimitedBodyConsumer(limit));
+        }
+        
+        @Override
+        public void consumeResponse (HttpResponse response, EntityDetails entityDetails, HttpContext context, FutureCallback<Message<HttpResponse, byte[]>> resultCallback) throws HttpException, IOException {
+            
+            this.head = response;
+            super.consumeResponse(response, entityDetails, context, resultCallback);
+        }
+    }
+    
+    /**
+     * Reads a response body into memory. Once the body grows past the limit, reading fails so
+     * the exchange is cancelled instead of reading a body that may never end.
+     */
+    private static class LimitedBodyConsumer extends AbstractBinAsyncEntityConsumer<byte[]> {
+        
+        /**
+         * The max amount of bytes that are read.
+         */
+        private final long limit;
+        
+        /**
+         * The bytes of the body that have been read so far.
+         */
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        
+        LimitedBodyConsumer(long limit) {
+            
+            this.limit = limit;
+        }
+        
+        @Override
+        protected void streamStart (@Nullable ContentType contentType) {
+            
+            // The content type is read from the response headers instead.
+        }
+        
+        @Override
+        protected int capacityIncrement () {
+            
+            return Integer.MAX_VALUE;
+        }
+        
+        @Override
+        protected void data (ByteBuffer src, boolean endOfStream) throws IOException {
+            
+            if (this.body.size() + (long) src.remaining() > this.limit) {
+                
+                throw new Responses.BodyTooLargeException(this.limit);
+            }
+            
+            final byte[] chunk = new byte[src.remaining()];
+            src.get(chunk);
+            this.body.write(chunk, 0, chunk.length);
+        }
+        
+        @Override
+        protected byte[] generateContent () {
+            
+            return this.body.toByteArray();
+        }
+        
+        @Override
+        public void releaseResources () {
+            
+            this.body.reset();
+        }
+    }
+    
+    /**
+     * A response that has already been read into memory, so closing it does nothing. The
+     * protocol version is the one that was negotiated with the server, such as HTTP/2.0.
+     */
+    private static class BufferedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        
+        BufferedResponse(ProtocolVersion version, int code, String reason) {
+            
+            super(version, code, reason);
+        }
+        
+        @Override
+        public void close () {
+            
+            // The response does not hold on to a connection.
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Limits the rate at which request bodies are sent. A single limiter is shared by every upload
+ * in the build, so the combined rate of all uploads stays under the limit. The limit is
+ * implemented as a token bucket that holds up to one second worth of bytes, which allows short
+ * bursts while keeping the average rate at the limit.
+ */
+public class BandwidthLimiter {
+    
+    /**
+     * The largest amount of bytes that is written before waiting for the bucket. Smaller writes
+     * keep concurrent uploads interleaved instead of one upload taking the whole budget.
+     */
+    private static final int MAX_WRITE = 16 * 1024;
+    
+    /**
+     * The max amount of bytes per second.
+     */
+    private final long bytesPerSecond;
+    
+    /**
+     * The amount of bytes that can be sent without waiting.
+     */
+    private double available;
+    
+    /**
+     * The time the bucket was last refilled, from {@link System#nanoTime()}.
+     */
+    private long lastRefill;
+    
+    public BandwidthLimiter(long bytesPerSecond) {
+        
+        this.bytesPerSecond = bytesPerSecond;
+        this.available = bytesPerSecond;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    /**
+     * Waits until the given amount of bytes can be sent.
+     * 
+     * @param bytes The amount of bytes that will be sent.
+     * @throws InterruptedException Whenever the thread is interrupted while waiting.
+     */
+    public void acquire (int bytes) throws InterruptedException {
+        
+        final long wait;
+        
+        synchronized (this) {
+            
+            final long now = System.nanoTime();
+            this.available = Math.min(this.bytesPerSecond, this.available + (now - this.lastRefill) * this.bytesPerSecond / 1e9);
+            this.lastRefill = now;
+            
+            // The bytes are taken right away. If the bucket is in debt the caller waits until
+            // the debt has been paid off, which keeps callers in the order they arrived.
+            this.available -= bytes;
+            wait = this.available < 0 ? (long) (-this.available * 1e9 / this.bytesPerSecond) : 0;
+        }
+        
+        if (wait > 0) {
+            
+            Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+        }
+    }
+    
+    /**
+     * Gets the max amount of bytes per second.
+     * 
+     * @return The max amount of bytes per second.
+     */
+    public long getBytesPerSecond () {
+        
+        return this.bytesPerSecond;
+    }
+    
+    /**
+     * Wraps an entity so writing it is limited by this limiter.
+     * 
+     * @param entity The entity to limit.
+     * @return The limited entity.
+     */
+    public HttpEntity limit (HttpEntity entity) {
+        
+        return new HttpEntityWrapper(entity) {
+            
+            @Override
+            public void writeTo (OutputStream out) throws IOException {
+                
+                super.writeTo(new LimitedOutputStream(out));
+            }
+        };
+    }
+    
+    /**
+     * An output stream that waits for the limiter before writing.
+     */
+    private class LimitedOutputStream extends FilterOutputStream {
+        
+        LimitedOutputStream(OutputStream out) {
+            
+            super(out);
+        }
+        
+        @Override
+        public void write (int b) throws IOException {
+            
+            this.await(1);
+            this.out.write(b);
+        }
+        
+        @Override
+        public void write (byte[] bytes, int off, int len) throws IOException {
+            
+            int written = 0;
+            
+            while (written < len) {
+                
+                final int count = Math.min(MAX_WRITE, len - written);
+                this.await(count);
+                this.out.write(bytes, off + written, count);
+                written += count;
+            }
+        }
+        
+        private void await (int bytes) throws IOException {
+            
+            try {
+                
+                BandwidthLimiter.this.acquire(bytes);
+            }
+            
+            catch (final InterruptedException e) {
+                
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for upload bandwidth.");
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.metrics.PhaseTimings;
+import com.diluv.diluvgradle.metrics.TimingDnsResolver;
+import com.diluv.diluvgradle.metrics.TimingSocketFactories;
+
+/**
+ * A transport that sends each request over a blocking connection from a pool. The thread that
+ * sends a request is blocked until the response headers have been read, and a connection can
+ * only be used by one request at a time. This transport records the time spent on DNS
+ * lookups, connecting and TLS handshakes.
+ */
+public class BlockingTransport implements DiluvTransport {
+    
+    /**
+     * An internal logger instance used to output status and debug information about the
+     * transport.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The pool of connections used by the client.
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+    
+    /**
+     * The client used to send requests.
+     */
+    private final CloseableHttpClient client;
+    
+    /**
+     * The amount of requests that were sent over a newly opened connection.
+     */
+    private final AtomicLong openedConnections = new AtomicLong();
+    
+    /**
+     * The amount of requests that were sent over a connection that was reused from the pool.
+     */
+    private final AtomicLong reusedConnections = new AtomicLong();
+    
+    public BlockingTransport(int maxPerRoute, int maxTotal) {
+        
+        // Connections are made through factories that record the time spent on DNS lookups,
+        // connecting and TLS handshakes for the upload metrics.
+        this.connectionManager = new PoolingHttpClientConnectionManager(TimingSocketFactories.create(), new TimingDnsResolver());
+        this.connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        this.connectionManager.setMaxTotal(maxTotal);
+        
+        this.client = HttpClientBuilder.create()
+                .setConnectionManager(this.connectionManager)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .setDefaultRequestConfig(RequestConfig.custom().setCookieSpec(CookieSpecs.IGNORE_COOKIES).build())
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .setRequestExecutor(new CountingRequestExecutor())
+                .build();
+    }
+    
+    @Override
+    public String getName () {
+        
+        return BLOCKING;
+    }
+    
+    @Override
+    public CloseableHttpResponse execute (HttpRequestBase request, PhaseTimings timings) throws IOException {
+        
+        final HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(PhaseTimings.CONTEXT_ATTRIBUTE, timings);
+        PhaseTimings.setCurrent(timings);
+        
+        try {
+            
+            return this.client.execute(request, context);
+        }
+        
+        finally {
+            
+            PhaseTimings.setCurrent(null);
+        }
+    }
+    
+    /**
+     * Gets the amount of requests that needed a new connection to be opened.
+     * 
+     * @return The amount of opened connections.
+     */
+    public long getOpenedConnections () {
+        
+        return this.openedConnections.get();
+    }
+    
+    /**
+     * Gets the amount of requests that were able to reuse a pooled connection.
+     * 
+     * @return The amount of reused connections.
+     */
+    public long getReusedConnections () {
+        
+        return this.reusedConnections.get();
+    }
+    
+    /**
+     * Tracks whether or not the connection used for a request was reused. This is called
+     * before the request is sent, so any connection that has already sent a request was taken
+     * from the pool.
+     * 
+     * @param connection The connection the request is about to be sent over.
+     */
+    private void recordConnection (HttpConnection connection) {
+        
+        final HttpConnectionMetrics metrics = connection.getMetrics();
+        
+        if (metrics != null && metrics.getRequestCount() > 0) {
+            
+            this.reusedConnections.incrementAndGet();
+        }
+        
+        else {
+            
+            this.openedConnections.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void close () {
+        
+        if (this.openedConnections.get() > 0 || this.reusedConnections.get() > 0) {
+            
+            this.log.lifecycle("Diluv HTTP connections opened: {}, reused: {}.", this.openedConnections.get(), this.reusedConnections.get());
+        }
+        
+        try {
+            
+            this.client.close();
+        }
+        
+        catch (final IOException e) {
+            
+            this.log.debug("Failed to close the Diluv HTTP client.", e);
+        }
+        
+        this.connectionManager.shutdown();
+    }
+    
+    /**
+     * Records whether each request reuses a pooled connection. The connection is checked
+     * while it is still leased for the request. A response interceptor would be too late,
+     * since responses without a body release their connection before the interceptors run.
+     */
+    private class CountingRequestExecutor extends HttpRequestExecutor {
+        
+        @Override
+        public HttpResponse execute (HttpRequest request, HttpClientConnection connection, HttpContext context) throws IOException, HttpException {
+            
+            BlockingTransport.this.recordConnection(connection);
+            return super.execute(request, connection, context);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+import com.diluv.diluvgradle.util.Hashing;
+
+/**
+ * A multipart body that streams a file to the server in fixed size chunks. When the SHA-512
+ * hash of the file is already known the file is transferred without being hashed again,
+ * otherwise the hash is calculated while the file is being written. Either way the file only
+ * needs to be read once, and the file is never fully loaded into memory.
+ */
+public class DigestingFileBody extends AbstractContentBody {
+    
+    /**
+     * The file being uploaded.
+     */
+    private final File file;
+    
+    /**
+     * The hash of the file calculated before the upload, or null if it should be calculated
+     * while the file is written.
+     */
+    @Nullable
+    private final String knownSha512;
+    
+    /**
+     * The hash of the file from the last time it was written. This will be null until the
+     * file has been fully written.
+     */
+    @Nullable
+    private volatile String sha512;
+    
+    public DigestingFileBody(File file) {
+        
+        this(file, null);
+    }
+    
+    public DigestingFileBody(File file, @Nullable String knownSha512) {
+        
+        super(ContentType.DEFAULT_BINARY);
+        this.file = file;
+        this.knownSha512 = knownSha512;
+    }
+    
+    @Override
+    public void writeTo (OutputStream out) throws IOException {
+        
+        // Reset the hash in case the body is being written again.
+        this.sha512 = null;
+        
+        final WritableByteChannel target = Channels.newChannel(out);
+        
+        try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+            
+            this.sha512 = this.knownSha512 != null ? this.transfer(channel, target) : this.digest(channel, target);
+        }
+        
+        out.flush();
+    }
+    
+    /**
+     * Transfers the file without hashing it, as the hash is already known.
+     */
+    private String transfer (FileChannel channel, WritableByteChannel target) throws IOException {
+        
+        final long size = channel.size();
+        long position = 0;
+        
+        while (position < size) {
+            
+            final long transferred = channel.transferTo(position, size - position, target);
+            
+            if (transferred <= 0) {
+                
+                throw new IOException("The file " + this.file.getName() + " changed while it was being uploaded.");
+            }
+            
+            position += transferred;
+        }
+        
+        return this.knownSha512;
+    }
+    
+    /**
+     * Writes the file and calculates its hash from the same reads.
+     */
+    private String digest (FileChannel channel, WritableByteChannel target) throws IOException {
+        
+        final MessageDigest digest = Hashing.createDigest("SHA-512");
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(Hashing.CHUNK_SIZE);
+        
+        while (channel.read(buffer) != -1) {
+            
+            buffer.flip();
+            digest.update(buffer.duplicate());
+            
+            while (buffer.hasRemaining()) {
+                
+                target.write(buffer);
+            }
+            
+            buffer.clear();
+        }
+        
+        return Hashing.toHex(digest.digest());
+    }
+    
+    /**
+     * Gets the SHA-512 hash of the file that was written.
+     * 
+     * @return The hash of the written file as a lower case hex string. If the file has not
+     *         been fully written this will be null.
+     */
+    @Nullable
+    public String getSha512 () {
+        
+        return this.sha512;
+    }
+    
+    @Override
+    public String getFilename () {
+        
+        return this.file.getName();
+    }
+    
+    @Override
+    public String getTransferEncoding () {
+        
+        return MIME.ENC_BINARY;
+    }
+    
+    @Override
+    public long getContentLength () {
+        
+        return this.file.length();
+    }
+}
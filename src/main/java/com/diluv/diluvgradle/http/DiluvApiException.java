@@ -0,0 +1,76 @@
+package com.diluv.diluvgradle.http;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.GradleException;
+
+import com.diluv.diluvgradle.responses.ResponseError;
+
+/**
+ * An exception raised when the Diluv API responds with an unsuccessful status code.
+ */
+public class DiluvApiException extends GradleException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The HTTP status code returned by the API.
+     */
+    private final int status;
+    
+    /**
+     * The error returned by the API. This can be null if the API did not provide a body.
+     */
+    @Nullable
+    private final transient ResponseError error;
+    
+    /**
+     * The amount of milliseconds the API asked to wait before trying again, or -1 if the API
+     * did not provide a Retry-After header.
+     */
+    private final long retryAfter;
+    
+    public DiluvApiException(String action, int status, @Nullable ResponseError error) {
+        
+        this(action, status, error, -1);
+    }
+    
+    public DiluvApiException(String action, int status, @Nullable ResponseError error, long retryAfter) {
+        
+        super(action + " failed! Status: " + status + " Reason: " + (error != null ? error.getMessage() : "Unknown"));
+        this.status = status;
+        this.error = error;
+        this.retryAfter = retryAfter;
+    }
+    
+    /**
+     * Gets the HTTP status code returned by the API.
+     * 
+     * @return The HTTP status code.
+     */
+    public int getStatus () {
+        
+        return this.status;
+    }
+    
+    /**
+     * Gets the error returned by the API.
+     * 
+     * @return The error returned by the API. This will be null if no error was provided.
+     */
+    @Nullable
+    public ResponseError getError () {
+        
+        return this.error;
+    }
+    
+    /**
+     * Gets the amount of time the API asked to wait before the request is sent again.
+     * 
+     * @return The delay in milliseconds, or -1 if the API did not ask for a delay.
+     */
+    public long getRetryAfter () {
+        
+        return this.retryAfter;
+    }
+}
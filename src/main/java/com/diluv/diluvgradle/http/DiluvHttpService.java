@@ -0,0 +1,168 @@
+package com.diluv.diluvgradle.http;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * A build wide service that owns the transport used to communicate with Diluv. A single
+ * transport is shared by every upload task in the build so connections, TLS sessions and DNS
+ * lookups can be reused between uploads. The transport is closed when the build finishes.
+ */
+public abstract class DiluvHttpService implements BuildService<DiluvHttpService.Params>, AutoCloseable {
+    
+    /**
+     * The name the service is registered under.
+     */
+    public static final String NAME = "diluvHttp";
+    
+    /**
+     * The Gradle property used to configure the max amount of connections per route.
+     */
+    public static final String PROPERTY_MAX_PER_ROUTE = "diluv.http.maxConnectionsPerRoute";
+    
+    /**
+     * The Gradle property used to configure the max amount of connections in the pool.
+     */
+    public static final String PROPERTY_MAX_TOTAL = "diluv.http.maxConnections";
+    
+    /**
+     * The Gradle property used to choose the transport. See {@link DiluvTransport} for the
+     * accepted values.
+     */
+    public static final String PROPERTY_TRANSPORT = "diluv.http.transport";
+    
+    /**
+     * The shared transport instance.
+     */
+    private final DiluvTransport transport;
+    
+    /**
+     * Limits on the amount of uploads that can run at once, keyed by the task that owns them.
+     */
+    private final Map<String, Semaphore> uploadLimits = new ConcurrentHashMap<>();
+    
+    /**
+     * The owners whose uploads have been cancelled because one of their uploads failed.
+     */
+    private final Set<String> cancelledOwners = ConcurrentHashMap.newKeySet();
+    
+    public DiluvHttpService() {
+        
+        final Params params = this.getParameters();
+        this.transport = DiluvTransport.create(params.getTransport().getOrElse(DiluvTransport.BLOCKING), params.getMaxConnectionsPerRoute().getOrElse(4), params.getMaxConnections().getOrElse(16));
+    }
+    
+    /**
+     * Gets the shared transport. Responses must be closed so their connection can be reused.
+     * 
+     * @return The shared transport.
+     */
+    public DiluvTransport getTransport () {
+        
+        return this.transport;
+    }
+    
+    /**
+     * Gets the limit on the amount of uploads that a task can run at once. The limit is
+     * created the first time it is requested.
+     * 
+     * @param owner The path of the task that owns the uploads.
+     * @param permits The max amount of uploads that can run at once.
+     * @return The limit for the task.
+     */
+    public Semaphore getUploadLimit (String owner, int permits) {
+        
+        return this.uploadLimits.computeIfAbsent(owner, key -> new Semaphore(Math.max(1, permits), true));
+    }
+    
+    /**
+     * Cancels the uploads of an owner that have not started yet. This is used by tasks that
+     * fail fast, so the remaining uploads stop once one of them fails.
+     * 
+     * @param owner The path of the task that owns the uploads.
+     */
+    public void cancelUploads (String owner) {
+        
+        this.cancelledOwners.add(owner);
+    }
+    
+    /**
+     * Checks if the uploads of an owner have been cancelled.
+     * 
+     * @param owner The path of the task that owns the uploads.
+     * @return Whether or not the uploads have been cancelled.
+     */
+    public boolean isCancelled (String owner) {
+        
+        return this.cancelledOwners.contains(owner);
+    }
+    
+    /**
+     * Clears the cancelled state of an owner. Tasks call this before submitting their
+     * uploads, since the service outlives a single task execution.
+     * 
+     * @param owner The path of the task that owns the uploads.
+     */
+    public void resetCancelled (String owner) {
+        
+        this.cancelledOwners.remove(owner);
+    }
+    
+    @Override
+    public void close () {
+        
+        this.transport.close();
+    }
+    
+    /**
+     * Registers the service with the build if it has not already been registered. Every
+     * project receives the same service instance.
+     * 
+     * @param project The project requesting the service.
+     * @return A provider for the shared service.
+     */
+    public static Provider<DiluvHttpService> register (Project project) {
+        
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, DiluvHttpService.class, spec -> {
+            
+            spec.getParameters().getMaxConnectionsPerRoute().set(project.getProviders().gradleProperty(PROPERTY_MAX_PER_ROUTE).map(Integer::parseInt));
+            spec.getParameters().getMaxConnections().set(project.getProviders().gradleProperty(PROPERTY_MAX_TOTAL).map(Integer::parseInt));
+            spec.getParameters().getTransport().set(project.getProviders().gradleProperty(PROPERTY_TRANSPORT));
+        });
+    }
+    
+    /**
+     * Parameters used to configure the shared HTTP service.
+     */
+    public interface Params extends BuildServiceParameters {
+        
+        /**
+         * The max amount of connections that can be open to a single host at once.
+         * 
+         * @return The max connections per route.
+         */
+        Property<Integer> getMaxConnectionsPerRoute ();
+        
+        /**
+         * The max amount of connections that can be open at once.
+         * 
+         * @return The max amount of connections.
+         */
+        Property<Integer> getMaxConnections ();
+        
+        /**
+         * The name of the transport used to send requests.
+         * 
+         * @return The name of the transport.
+         */
+        Property<String> getTransport ();
+    }
+}
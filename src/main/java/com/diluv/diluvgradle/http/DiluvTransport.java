@@ -0,0 +1,85 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.gradle.api.GradleException;
+
+import com.diluv.diluvgradle.metrics.PhaseTimings;
+
+/**
+ * Sends requests to Diluv. Every upload, status check and lookup goes through a transport, so
+ * the HTTP client behind them can be swapped without changing the code that builds the
+ * requests or reads the responses.
+ */
+public interface DiluvTransport extends AutoCloseable {
+    
+    /**
+     * The name of the transport that uses blocking connections from a pool.
+     */
+    String BLOCKING = "blocking";
+    
+    /**
+     * The name of the non-blocking transport that uses HTTP/2 when the server supports it.
+     */
+    String ASYNC = "async";
+    
+    /**
+     * The name of the non-blocking transport that sends every request to a host over a single
+     * HTTP/2 connection.
+     */
+    String HTTP2 = "http2";
+    
+    /**
+     * Gets the name of the transport.
+     * 
+     * @return The name of the transport.
+     */
+    String getName ();
+    
+    /**
+     * Sends a request and waits for the response. The response must be closed once it has
+     * been handled.
+     * 
+     * @param request The request to send.
+     * @param timings The timings of the request.
+     * @return The response to the request.
+     * @throws IOException Whenever the request could not be sent or the response could not be
+     *         received.
+     */
+    CloseableHttpResponse execute (HttpRequestBase request, PhaseTimings timings) throws IOException;
+    
+    /**
+     * Closes the transport and any connections it has open.
+     */
+    @Override
+    void close ();
+    
+    /**
+     * Creates a transport by name.
+     * 
+     * @param name The name of the transport.
+     * @param maxPerRoute The max amount of connections that can be open to a single host.
+     * @param maxTotal The max amount of connections that can be open at once.
+     * @return The new transport.
+     */
+    static DiluvTransport create (String name, int maxPerRoute, int maxTotal) {
+        
+        switch (name.toLowerCase(Locale.ROOT)) {
+            
+            case BLOCKING:
+                return new BlockingTransport(maxPerRoute, maxTotal);
+            
+            case ASYNC:
+                return new AsyncTransport(false, maxPerRoute, maxTotal);
+            
+            case HTTP2:
+                return new AsyncTransport(true, maxPerRoute, maxTotal);
+            
+            default:
+                throw new GradleException("Unknown Diluv HTTP transport '" + name + "'. Expected " + BLOCKING + ", " + ASYNC + " or " + HTTP2 + ".");
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.diluv.diluvgradle.http;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * A build wide service that schedules uploads. No more than a fixed amount of uploads are sent
+ * at once, no matter how many upload tasks are running in parallel. Waiting uploads are queued
+ * per project and the projects take turns, so a project with many artifacts can not hold up
+ * the uploads of other projects. The combined upload rate can optionally be limited as well.
+ */
+public abstract class DiluvUploadScheduler implements BuildService<DiluvUploadScheduler.Params>, AutoCloseable {
+    
+    /**
+     * The name the service is registered under.
+     */
+    public static final String NAME = "diluvUploadScheduler";
+    
+    /**
+     * The Gradle property used to configure the max amount of uploads that can run at once.
+     */
+    public static final String PROPERTY_MAX_IN_FLIGHT = "diluv.upload.maxInFlight";
+    
+    /**
+     * The Gradle property used to configure the max combined upload rate in bytes per second.
+     */
+    public static final String PROPERTY_BYTES_PER_SECOND = "diluv.upload.bytesPerSecond";
+    
+    /**
+     * An internal logger instance used to output status and debug information about the
+     * service.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The max amount of uploads that can run at once.
+     */
+    private final int maxInFlight;
+    
+    /**
+     * The limiter for the combined upload rate. This is null if the rate is not limited.
+     */
+    @Nullable
+    private final BandwidthLimiter bandwidthLimiter;
+    
+    /**
+     * Waiting uploads, queued per project. The order of the map is the order the projects
+     * take turns in.
+     */
+    private final Map<String, ArrayDeque<Ticket>> waiting = new LinkedHashMap<>();
+    
+    /**
+     * The amount of uploads that are currently running.
+     */
+    private int inFlight = 0;
+    
+    /**
+     * The amount of uploads that have been completed.
+     */
+    private final AtomicLong completedUploads = new AtomicLong();
+    
+    /**
+     * The combined amount of bytes sent by completed uploads.
+     */
+    private final AtomicLong completedBytes = new AtomicLong();
+    
+    /**
+     * The combined time completed uploads spent waiting in the queue, in milliseconds.
+     */
+    private final AtomicLong completedWait = new AtomicLong();
+    
+    public DiluvUploadScheduler() {
+        
+        final Params params = this.getParameters();
+        final long bytesPerSecond = params.getBytesPerSecond().getOrElse(0L);
+        
+        this.maxInFlight = Math.max(1, params.getMaxInFlight().getOrElse(4));
+        this.bandwidthLimiter = bytesPerSecond > 0 ? new BandwidthLimiter(bytesPerSecond) : null;
+    }
+    
+    /**
+     * Waits until an upload can be started. The returned ticket must be closed once the upload
+     * has finished.
+     * 
+     * @param project The path of the project that owns the upload.
+     * @param name A name for the upload, used for logging.
+     * @return The ticket for the upload.
+     * @throws InterruptedException Whenever the thread is interrupted while waiting.
+     */
+    public Ticket acquire (String project, String name) throws InterruptedException {
+        
+        final Ticket ticket = new Ticket(name);
+        
+        synchronized (this) {
+            
+            this.waiting.computeIfAbsent(project, key -> new ArrayDeque<>()).add(ticket);
+            this.grant();
+            
+            try {
+                
+                while (!ticket.granted) {
+                    
+                    this.wait();
+                }
+            }
+            
+            catch (final InterruptedException e) {
+                
+                // Give up the place in the queue, or the slot if it was granted in the meantime.
+                if (ticket.granted) {
+                    
+                    this.inFlight--;
+                    this.grant();
+                }
+                
+                else {
+                    
+                    this.waiting.get(project).remove(ticket);
+                }
+                
+                throw e;
+            }
+        }
+        
+        ticket.startTime = System.nanoTime();
+        this.log.debug("Started upload {} after waiting {} ms in the queue.", name, ticket.getQueueWait());
+        return ticket;
+    }
+    
+    /**
+     * Gets the limiter for the combined upload rate.
+     * 
+     * @return The bandwidth limiter, or null if the rate is not limited.
+     */
+    @Nullable
+    public BandwidthLimiter getBandwidthLimiter () {
+        
+        return this.bandwidthLimiter;
+    }
+    
+    /**
+     * Gives free slots to waiting uploads. The first project in the queue receives the slot and
+     * is then moved to the back of the queue.
+     */
+    private void grant () {
+        
+        boolean granted = false;
+        
+        while (this.inFlight < this.maxInFlight && !this.waiting.isEmpty()) {
+            
+            final Iterator<Map.Entry<String, ArrayDeque<Ticket>>> iterator = this.waiting.entrySet().iterator();
+            final Map.Entry<String, ArrayDeque<Ticket>> next = iterator.next();
+            final Ticket ticket = next.getValue().poll();
+            iterator.remove();
+            
+            if (!next.getValue().isEmpty()) {
+                
+                this.waiting.put(next.getKey(), next.getValue());
+            }
+            
+            if (ticket != null) {
+                
+                ticket.granted = true;
+                this.inFlight++;
+                granted = true;
+            }
+        }
+        
+        if (granted) {
+            
+            this.notifyAll();
+        }
+    }
+    
+    private synchronized void release (Ticket ticket) {
+        
+        this.inFlight--;
+        this.completedUploads.incrementAndGet();
+        this.completedBytes.addAndGet(ticket.bytes);
+        this.completedWait.addAndGet(ticket.getQueueWait());
+        this.grant();
+    }
+    
+    @Override
+    public void close () {
+        
+        final long uploads = this.completedUploads.get();
+        
+        if (uploads > 0) {
+            
+            this.log.lifecycle("Diluv uploads: {}, bytes sent: {}, average queue wait: {} ms.", uploads, this.completedBytes.get(), this.completedWait.get() / uploads);
+        }
+    }
+    
+    /**
+     * Registers the service with the build if it has not already been registered. Every
+     * project receives the same service instance.
+     * 
+     * @param project The project requesting the service.
+     * @return A provider for the shared service.
+     */
+    public static Provider<DiluvUploadScheduler> register (Project project) {
+        
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, DiluvUploadScheduler.class, spec -> {
+            
+            spec.getParameters().getMaxInFlight().set(project.getProviders().gradleProperty(PROPERTY_MAX_IN_FLIGHT).map(Integer::parseInt));
+            spec.getParameters().getBytesPerSecond().set(project.getProviders().gradleProperty(PROPERTY_BYTES_PER_SECOND).map(Long::parseLong));
+        });
+    }
+    
+    /**
+     * A scheduled upload. Closing the ticket frees the slot for the next upload.
+     */
+    public final class Ticket implements AutoCloseable {
+        
+        /**
+         * The name of the upload.
+         */
+        private final String name;
+        
+        /**
+         * The time the upload was queued, from {@link System#nanoTime()}.
+         */
+        private final long queueTime = System.nanoTime();
+        
+        /**
+         * The time the upload was started, from {@link System#nanoTime()}.
+         */
+        private volatile long startTime = -1;
+        
+        /**
+         * The amount of bytes sent by the upload.
+         */
+        private volatile long bytes = 0;
+        
+        /**
+         * Whether or not the upload has been given a slot. Guarded by the scheduler.
+         */
+        private boolean granted = false;
+        
+        private boolean closed = false;
+        
+        private Ticket(String name) {
+            
+            this.name = name;
+        }
+        
+        /**
+         * Sets the amount of bytes sent by the upload.
+         * 
+         * @param bytes The amount of bytes sent.
+         */
+        public void setBytes (long bytes) {
+            
+            this.bytes = bytes;
+        }
+        
+        /**
+         * Gets the time the upload spent waiting in the queue.
+         * 
+         * @return The queue wait in milliseconds.
+         */
+        public long getQueueWait () {
+            
+            return this.startTime < 0 ? (System.nanoTime() - this.queueTime) / 1_000_000L : (this.startTime - this.queueTime) / 1_000_000L;
+        }
+        
+        /**
+         * Gets the time since the upload was started.
+         * 
+         * @return The upload time in milliseconds.
+         */
+        public long getUploadTime () {
+            
+            return this.startTime < 0 ? 0 : (System.nanoTime() - this.startTime) / 1_000_000L;
+        }
+        
+        @Override
+        public void close () {
+            
+            if (this.closed) {
+                
+                return;
+            }
+            
+            this.closed = true;
+            final long uploadTime = this.getUploadTime();
+            
+            // Throughput is only meaningful for uploads that sent data.
+            if (this.bytes > 0) {
+                
+                DiluvUploadScheduler.this.log.lifecycle("Uploaded {} ({} bytes) in {} ms after waiting {} ms in the queue. Effective throughput: {} KiB/s.", this.name, this.bytes, uploadTime, this.getQueueWait(), this.bytes * 1000 / Math.max(1, uploadTime) / 1024);
+            }
+            
+            DiluvUploadScheduler.this.release(this);
+        }
+    }
+    
+    /**
+     * Parameters used to configure the upload scheduler.
+     */
+    public interface Params extends BuildServiceParameters {
+        
+        /**
+         * The max amount of uploads that can run at once across the whole build.
+         * 
+         * @return The max amount of uploads in flight.
+         */
+        Property<Integer> getMaxInFlight ();
+        
+        /**
+         * The max combined upload rate in bytes per second. Zero or less disables the limit.
+         * 
+         * @return The max upload rate.
+         */
+        Property<Long> getBytesPerSecond ();
+    }
+}
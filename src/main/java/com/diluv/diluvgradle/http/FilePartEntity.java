@@ -0,0 +1,147 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * An entity that streams a single range of a file. This is used to send individual parts of a
+ * file without reading the whole file.
+ */
+public class FilePartEntity extends AbstractHttpEntity {
+    
+    /**
+     * The size of the chunks used to read the file.
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    /**
+     * The file to read the part from.
+     */
+    private final Path file;
+    
+    /**
+     * The position in the file where the part starts.
+     */
+    private final long offset;
+    
+    /**
+     * The length of the part in bytes.
+     */
+    private final long length;
+    
+    public FilePartEntity(Path file, long offset, long length) {
+        
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+    }
+    
+    @Override
+    public boolean isRepeatable () {
+        
+        return true;
+    }
+    
+    @Override
+    public long getContentLength () {
+        
+        return this.length;
+    }
+    
+    @Override
+    public InputStream getContent () throws IOException {
+        
+        final FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ);
+        channel.position(this.offset);
+        
+        // Bound the stream so only the bytes belonging to this part can be read.
+        return new FilterInputStream(Channels.newInputStream(channel)) {
+            
+            private long remaining = FilePartEntity.this.length;
+            
+            @Override
+            public int read () throws IOException {
+                
+                if (this.remaining <= 0) {
+                    
+                    return -1;
+                }
+                
+                final int read = super.read();
+                
+                if (read != -1) {
+                    
+                    this.remaining--;
+                }
+                
+                return read;
+            }
+            
+            @Override
+            public int read (byte[] bytes, int off, int len) throws IOException {
+                
+                if (this.remaining <= 0) {
+                    
+                    return -1;
+                }
+                
+                final int read = super.read(bytes, off, (int) Math.min(len, this.remaining));
+                
+                if (read != -1) {
+                    
+                    this.remaining -= read;
+                }
+                
+                return read;
+            }
+        };
+    }
+    
+    @Override
+    public void writeTo (OutputStream out) throws IOException {
+        
+        final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            
+            long position = this.offset;
+            long remaining = this.length;
+            
+            while (remaining > 0) {
+                
+                buffer.clear();
+                buffer.limit((int) Math.min(CHUNK_SIZE, remaining));
+                
+                final int read = channel.read(buffer, position);
+                
+                if (read == -1) {
+                    
+                    throw new IOException("Unexpected end of file while reading part of " + this.file + ".");
+                }
+                
+                out.write(buffer.array(), 0, read);
+                position += read;
+                remaining -= read;
+            }
+        }
+        
+        out.flush();
+    }
+    
+    @Override
+    public boolean isStreaming () {
+        
+        return false;
+    }
+}
@@ -0,0 +1,347 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectionReleaseTrigger;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.responses.ResponseError;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Helpers for reading responses from the Diluv API.
+ */
+public final class Responses {
+    
+    /**
+     * An internal logger instance used to output debug information about responses.
+     */
+    private static final Logger LOG = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The largest response body that will be read, in bytes. Larger bodies are rejected rather
+     * than being buffered, so a misbehaving server can not exhaust the memory of the build.
+     */
+    public static final long MAX_BODY_SIZE = 16L * 1024 * 1024;
+    
+    /**
+     * The largest error response body that will be read, in bytes. Error bodies only contain
+     * a short message, so anything larger is most likely an HTML error page.
+     */
+    public static final long MAX_ERROR_SIZE = 64L * 1024;
+    
+    private Responses() {
+    
+    }
+    
+    /**
+     * Reads a JSON response body directly from the response stream. The rest of the body is read
+     * afterwards, up to the size limit, so the connection can be reused.
+     * 
+     * @param gson The Gson instance used to read the body.
+     * @param entity The response entity to read.
+     * @param type The type to read the response as.
+     * @return The deserialized response. This will be null if the response had no body.
+     * @throws IOException Whenever the response body could not be read.
+     */
+    @Nullable
+    public static <T> T read (Gson gson, @Nullable HttpEntity entity, Class<T> type) throws IOException {
+        
+        return read(gson, entity, (Type) type);
+    }
+    
+    /**
+     * Reads a JSON response body directly from the response stream. The rest of the body is read
+     * afterwards, up to the size limit, so the connection can be reused.
+     * 
+     * @param gson The Gson instance used to read the body.
+     * @param entity The response entity to read.
+     * @param type The type to read the response as. This can be a generic type.
+     * @return The deserialized response. This will be null if the response had no body.
+     * @throws IOException Whenever the response body could not be read.
+     */
+    @Nullable
+    public static <T> T read (Gson gson, @Nullable HttpEntity entity, Type type) throws IOException {
+        
+        return read(gson, entity, type, MAX_BODY_SIZE);
+    }
+    
+    /**
+     * Reads a JSON response body directly from the response stream with a {@link JsonReader},
+     * without buffering the body first. Reading stops once the body exceeds the size limit, so
+     * memory use and the amount of data read are bounded no matter what the server sends. The
+     * rest of the body is read afterwards, up to the size limit, so the connection can be
+     * reused. If the body is larger than the limit or could not be read, the connection is
+     * closed instead of reading the rest of the body.
+     * 
+     * @param gson The Gson instance used to read the body.
+     * @param entity The response entity to read.
+     * @param type The type to read the response as. This can be a generic type.
+     * @param maxSize The largest body that will be read, in bytes.
+     * @return The deserialized response. This will be null if the response had no body.
+     * @throws IOException Whenever the response body could not be read.
+     * @throws JsonParseException Whenever the body was malformed or exceeded the size limit.
+     */
+    @Nullable
+    public static <T> T read (Gson gson, @Nullable HttpEntity entity, Type type, long maxSize) throws IOException {
+        
+        if (entity == null) {
+            
+            return null;
+        }
+        
+        final InputStream content = entity.getContent();
+        
+        // Bodies that are known to be too large are rejected before any of them is read.
+        if (entity.getContentLength() > maxSize) {
+            
+            abort(content);
+            throw new JsonIOException("Response body of " + entity.getContentLength() + " bytes exceeds the limit of " + maxSize + " bytes.");
+        }
+        
+        final LimitedInputStream limited = new LimitedInputStream(content, maxSize);
+        boolean consumed = false;
+        
+        try {
+            
+            final T response = gson.fromJson(new JsonReader(new InputStreamReader(limited, StandardCharsets.UTF_8)), type);
+            limited.drain();
+            consumed = true;
+            
+            if (LOG.isDebugEnabled()) {
+                
+                LOG.debug("Diluv Response Body: {}", gson.toJson(response));
+            }
+            
+            return response;
+        }
+        
+        finally {
+            
+            if (consumed) {
+                
+                content.close();
+            }
+            
+            else {
+                
+                abort(content);
+            }
+        }
+    }
+    
+    /**
+     * Creates an exception for an unsuccessful response. The error body is read from the
+     * response if one was provided.
+     * 
+     * @param gson The Gson instance used to read the body.
+     * @param response The unsuccessful response.
+     * @param action A short description of the action that failed.
+     * @return An exception describing the failed response.
+     */
+    public static DiluvApiException error (Gson gson, HttpResponse response, String action) {
+        
+        final int status = response.getStatusLine().getStatusCode();
+        ResponseError error = null;
+        
+        try {
+            
+            error = read(gson, response.getEntity(), ResponseError.class, MAX_ERROR_SIZE);
+        }
+        
+        catch (final Exception e) {
+            
+            LOG.debug("Failed to read error response for status {}.", status, e);
+        }
+        
+        return new DiluvApiException(action, status, error, getRetryAfter(response));
+    }
+    
+    /**
+     * Reads the Retry-After header of a response. The header can either be an amount of
+     * seconds or a HTTP date.
+     * 
+     * @param response The response to read.
+     * @return The amount of milliseconds to wait, or -1 if the header is missing or invalid.
+     */
+    public static long getRetryAfter (HttpResponse response) {
+        
+        final Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        
+        if (header == null || header.getValue() == null) {
+            
+            return -1;
+        }
+        
+        final String value = header.getValue().trim();
+        
+        try {
+            
+            return Math.max(0, Long.parseLong(value) * 1000);
+        }
+        
+        catch (final NumberFormatException e) {
+            
+            final Date date = DateUtils.parseDate(value);
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+    
+    /**
+     * Closes the connection a response body is being read from, without reading the rest of
+     * the body. Closing the stream instead would read the body to its end, which may never
+     * come.
+     * 
+     * @param content The content of the response.
+     */
+    private static void abort (InputStream content) {
+        
+        try {
+            
+            if (content instanceof ConnectionReleaseTrigger) {
+                
+                ((ConnectionReleaseTrigger) content).abortConnection();
+            }
+            
+            else {
+                
+                content.close();
+            }
+        }
+        
+        catch (final IOException e) {
+            
+            LOG.debug("Failed to close the response body.", e);
+        }
+    }
+    
+    /**
+     * Thrown when a response body exceeds the size limit. Gson wraps this in a
+     * {@link JsonParseException}, which is not an IOException, so an oversized body is not
+     * retried by the {@link RetryPolicy}. The non-blocking transport also throws this when a
+     * buffered body exceeds the size limit.
+     */
+    static final class BodyTooLargeException extends IOException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        BodyTooLargeException(long maxSize) {
+            
+            super("Response body exceeds the limit of " + maxSize + " bytes.");
+        }
+    }
+    
+    /**
+     * A stream that fails once more than a set amount of bytes have been read from it.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        
+        /**
+         * The max amount of bytes that can be read.
+         */
+        private final long maxSize;
+        
+        /**
+         * The amount of bytes that have been read so far.
+         */
+        private long count;
+        
+        LimitedInputStream(InputStream in, long maxSize) {
+            
+            super(in);
+            this.maxSize = maxSize;
+        }
+        
+        @Override
+        public int read () throws IOException {
+            
+            final int value = super.read();
+            
+            if (value != -1) {
+                
+                this.count(1);
+            }
+            
+            return value;
+        }
+        
+        @Override
+        public int read (byte[] buffer, int offset, int length) throws IOException {
+            
+            final int read = super.read(buffer, offset, length);
+            
+            if (read > 0) {
+                
+                this.count(read);
+            }
+            
+            return read;
+        }
+        
+        @Override
+        public long skip (long amount) throws IOException {
+            
+            final long skipped = super.skip(amount);
+            this.count(skipped);
+            return skipped;
+        }
+        
+        @Override
+        public boolean markSupported () {
+            
+            return false;
+        }
+        
+        /**
+         * Reads the rest of the stream. Anything after the JSON value still counts towards the
+         * size limit, so a body that exceeds the limit is rejected however it is padded.
+         * 
+         * @throws IOException Whenever the stream could not be read.
+         * @throws JsonIOException Whenever the stream exceeds the size limit.
+         */
+        private void drain () throws IOException {
+            
+            final byte[] buffer = new byte[8192];
+            
+            try {
+                
+                while (this.read(buffer, 0, buffer.length) != -1) {
+                    
+                    // The rest of the body is discarded.
+                }
+            }
+            
+            catch (final BodyTooLargeException e) {
+                
+                throw new JsonIOException(e.getMessage(), e);
+            }
+        }
+        
+        private void count (long amount) throws BodyTooLargeException {
+            
+            this.count += amount;
+            
+            if (this.count > this.maxSize) {
+                
+                throw new BodyTooLargeException(this.maxSize);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,218 @@
+package com.diluv.diluvgradle.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.net.ssl.SSLException;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.responses.ResponseError;
+
+/**
+ * Retries requests to the Diluv API that failed for temporary reasons, such as the API being
+ * overloaded or a connection being reset. The delay between attempts grows exponentially and
+ * is randomized so parallel uploads do not retry at the same time. If the API provides a
+ * Retry-After header the delay will be at least that long.
+ */
+public class RetryPolicy {
+    
+    /**
+     * A policy that only makes a single attempt.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+    
+    /**
+     * Status codes that indicate the request may succeed if it is sent again.
+     */
+    private static final Set<Integer> RETRYABLE_STATUS = new HashSet<>(Arrays.asList(408, 429, 500, 502, 503, 504));
+    
+    /**
+     * Error types from the API that will fail again no matter how often they are retried.
+     * These take priority over the status code.
+     */
+    private static final Set<String> TERMINAL_TYPES = new HashSet<>(Arrays.asList("bad request", "unauthorized", "forbidden", "not found", "conflict", "payload too large", "unsupported media type", "unprocessable entity"));
+    
+    /**
+     * Error types from the API that indicate the request may succeed if it is sent again.
+     */
+    private static final Set<String> RETRYABLE_TYPES = new HashSet<>(Arrays.asList("too many requests", "service unavailable", "bad gateway", "gateway timeout", "request timeout"));
+    
+    /**
+     * An internal logger instance used to output status and debug information about retries.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The max amount of times a request is attempted.
+     */
+    private final int maxAttempts;
+    
+    /**
+     * The delay before the first retry in milliseconds.
+     */
+    private final long initialDelay;
+    
+    /**
+     * The longest delay between attempts in milliseconds.
+     */
+    private final long maxDelay;
+    
+    public RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+        
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialDelay = Math.max(0, initialDelay);
+        this.maxDelay = Math.max(this.initialDelay, maxDelay);
+    }
+    
+    /**
+     * Runs an action, retrying it whenever it fails with a retryable error. Every attempt and
+     * the final outcome are logged.
+     * 
+     * @param action A short description of the action. Ex. "Upload of example.jar"
+     * @param attempt The action to run.
+     * @return The result of the successful attempt.
+     * @throws IOException Whenever the last attempt failed with an IOException.
+     */
+    public <T> T execute (String action, Attempt<T> attempt) throws IOException {
+        
+        final long start = System.nanoTime();
+        
+        for (int attemptNumber = 1;; attemptNumber++) {
+            
+            final long attemptStart = System.nanoTime();
+            
+            try {
+                
+                final T result = attempt.run(attemptNumber);
+                this.log.info("{} succeeded on attempt {}/{} in {} ms.", action, attemptNumber, this.maxAttempts, millisSince(attemptStart));
+                
+                if (attemptNumber > 1) {
+                    
+                    this.log.lifecycle("{} succeeded after {} attempts in {} ms.", action, attemptNumber, millisSince(start));
+                }
+                
+                return result;
+            }
+            
+            catch (final IOException | RuntimeException e) {
+                
+                final long latency = millisSince(attemptStart);
+                
+                if (attemptNumber >= this.maxAttempts || !isRetryable(e)) {
+                    
+                    this.log.info("{} failed on attempt {}/{} in {} ms. {}", action, attemptNumber, this.maxAttempts, latency, e.getMessage());
+                    
+                    if (attemptNumber > 1) {
+                        
+                        this.log.error("{} failed after {} attempts in {} ms.", action, attemptNumber, millisSince(start));
+                    }
+                    
+                    throw e;
+                }
+                
+                final long retryAfter = e instanceof DiluvApiException ? ((DiluvApiException) e).getRetryAfter() : -1;
+                
+                // Waiting longer than the max delay would stall the build, so give up instead.
+                if (retryAfter > this.maxDelay) {
+                    
+                    this.log.error("{} failed on attempt {}/{}. Diluv asked to retry in {} ms, which is longer than the max delay of {} ms.", action, attemptNumber, this.maxAttempts, retryAfter, this.maxDelay);
+                    throw e;
+                }
+                
+                final long delay = Math.max(retryAfter, this.getDelay(attemptNumber));
+                this.log.warn("{} failed on attempt {}/{} in {} ms. {} Retrying in {} ms.", action, attemptNumber, this.maxAttempts, latency, e.getMessage(), delay);
+                sleep(delay);
+            }
+        }
+    }
+    
+    /**
+     * Gets the delay before the next attempt. The delay doubles with every attempt up to the
+     * max delay. Half of the delay is randomized.
+     * 
+     * @param attempt The attempt that failed, starting at 1.
+     * @return The delay in milliseconds.
+     */
+    long getDelay (int attempt) {
+        
+        final long delay = Math.min(this.maxDelay, this.initialDelay << Math.min(attempt - 1, 30));
+        final long half = delay / 2;
+        return half + (half > 0 ? ThreadLocalRandom.current().nextLong(half + 1) : 0);
+    }
+    
+    /**
+     * Checks if a failure is temporary and the request may succeed if it is sent again.
+     * Responses from the API are checked by the error type first and then by status code.
+     * Connection problems are retried, except for unknown hosts and TLS failures.
+     * 
+     * @param error The failure.
+     * @return Whether or not the failure can be retried.
+     */
+    public static boolean isRetryable (Exception error) {
+        
+        if (error instanceof DiluvApiException) {
+            
+            final DiluvApiException apiError = (DiluvApiException) error;
+            final ResponseError response = apiError.getError();
+            final String type = response != null && response.getType() != null ? response.getType().toLowerCase(Locale.ROOT) : null;
+            
+            if (type != null && TERMINAL_TYPES.contains(type)) {
+                
+                return false;
+            }
+            
+            return RETRYABLE_STATUS.contains(apiError.getStatus()) || type != null && RETRYABLE_TYPES.contains(type);
+        }
+        
+        if (error instanceof IOException) {
+            
+            return !(error instanceof UnknownHostException || error instanceof SSLException || error instanceof InterruptedIOException && Thread.currentThread().isInterrupted());
+        }
+        
+        return false;
+    }
+    
+    private static long millisSince (long start) {
+        
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+    
+    private static void sleep (long delay) {
+        
+        try {
+            
+            Thread.sleep(delay);
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting to retry a request.", e);
+        }
+    }
+    
+    /**
+     * A single attempt of an action.
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        
+        /**
+         * Runs the attempt.
+         * 
+         * @param attempt The number of the attempt, starting at 1.
+         * @return The result of the attempt.
+         * @throws IOException Whenever the attempt failed.
+         */
+        T run (int attempt) throws IOException;
+    }
+}
@@ -0,0 +1,37 @@
+package com.diluv.diluvgradle.json;
+
+import com.diluv.diluvgradle.request.FileProjectRelation;
+import com.diluv.diluvgradle.request.RelationType;
+import com.diluv.diluvgradle.request.RequestData;
+import com.diluv.diluvgradle.responses.ResponseError;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.responses.ResponseUploadSession;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Holds the Gson instance shared by the whole plugin. The request and response types of the
+ * Diluv API are read and written by hand written type adapters, so they are handled without
+ * reflection. Gson instances are thread safe and caching their adapters is expensive, so a
+ * single instance is used everywhere.
+ */
+public final class DiluvJson {
+    
+    /**
+     * The shared Gson instance.
+     */
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(RequestData.class, RequestData.ADAPTER)
+            .registerTypeAdapter(FileProjectRelation.class, FileProjectRelation.ADAPTER)
+            .registerTypeAdapter(RelationType.class, RelationType.ADAPTER)
+            .registerTypeAdapter(ResponseUpload.class, ResponseUpload.ADAPTER)
+            .registerTypeAdapter(ResponseUpload.GameVersion.class, ResponseUpload.GameVersion.ADAPTER)
+            .registerTypeAdapter(ResponseUpload.UserInfo.class, ResponseUpload.UserInfo.ADAPTER)
+            .registerTypeAdapter(ResponseUploadSession.class, ResponseUploadSession.ADAPTER)
+            .registerTypeAdapter(ResponseError.class, ResponseError.ADAPTER)
+            .create();
+    
+    private DiluvJson() {
+    
+    }
+}
@@ -0,0 +1,157 @@
+package com.diluv.diluvgradle.json;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Helpers for the hand written type adapters. These read values that may be null, which the
+ * methods of {@link JsonReader} do not allow.
+ */
+public final class JsonValues {
+    
+    private JsonValues() {
+    
+    }
+    
+    /**
+     * Reads a string that may be null.
+     * 
+     * @param reader The reader to read from.
+     * @return The string that was read, or null.
+     * @throws IOException Whenever the value could not be read.
+     */
+    @Nullable
+    public static String nextString (JsonReader reader) throws IOException {
+        
+        if (reader.peek() == JsonToken.NULL) {
+            
+            reader.nextNull();
+            return null;
+        }
+        
+        return reader.nextString();
+    }
+    
+    /**
+     * Reads a number that may be null.
+     * 
+     * @param reader The reader to read from.
+     * @return The number that was read, or null.
+     * @throws IOException Whenever the value could not be read.
+     */
+    @Nullable
+    public static Long nextLong (JsonReader reader) throws IOException {
+        
+        if (reader.peek() == JsonToken.NULL) {
+            
+            reader.nextNull();
+            return null;
+        }
+        
+        return reader.nextLong();
+    }
+    
+    /**
+     * Reads an array of values into a collection. A null array leaves the collection empty.
+     * 
+     * @param reader The reader to read from.
+     * @param adapter The adapter used to read each value.
+     * @param values The collection to add the values to.
+     * @return The collection that was filled.
+     * @throws IOException Whenever the array could not be read.
+     */
+    public static <T, C extends Collection<T>> C nextArray (JsonReader reader, TypeAdapter<T> adapter, C values) throws IOException {
+        
+        if (reader.peek() == JsonToken.NULL) {
+            
+            reader.nextNull();
+            return values;
+        }
+        
+        reader.beginArray();
+        
+        while (reader.hasNext()) {
+            
+            values.add(adapter.read(reader));
+        }
+        
+        reader.endArray();
+        return values;
+    }
+    
+    /**
+     * Reads an array of strings into a collection.
+     * 
+     * @param reader The reader to read from.
+     * @param values The collection to add the values to.
+     * @throws IOException Whenever the array could not be read.
+     */
+    public static void nextStrings (JsonReader reader, Collection<String> values) throws IOException {
+        
+        nextArray(reader, STRING, values);
+    }
+    
+    /**
+     * Writes an array of values. A null list is written as null.
+     * 
+     * @param writer The writer to write to.
+     * @param adapter The adapter used to write each value.
+     * @param values The values to write.
+     * @throws IOException Whenever the array could not be written.
+     */
+    public static <T> void writeArray (JsonWriter writer, TypeAdapter<T> adapter, @Nullable Collection<T> values) throws IOException {
+        
+        if (values == null) {
+            
+            writer.nullValue();
+            return;
+        }
+        
+        writer.beginArray();
+        
+        for (final T value : values) {
+            
+            adapter.write(writer, value);
+        }
+        
+        writer.endArray();
+    }
+    
+    /**
+     * Writes an array of strings.
+     * 
+     * @param writer The writer to write to.
+     * @param values The values to write.
+     * @throws IOException Whenever the array could not be written.
+     */
+    public static void writeStrings (JsonWriter writer, @Nullable Collection<String> values) throws IOException {
+        
+        writeArray(writer, STRING, values);
+    }
+    
+    /**
+     * An adapter for strings that may be null.
+     */
+    private static final TypeAdapter<String> STRING = new TypeAdapter<String>() {
+        
+        @Override
+        public void write (JsonWriter writer, String value) throws IOException {
+            
+            writer.value(value);
+        }
+        
+        @Override
+        public String read (JsonReader reader) throws IOException {
+            
+            return nextString(reader);
+        }
+    };
+}
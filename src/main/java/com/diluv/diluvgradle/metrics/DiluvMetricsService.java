@@ -0,0 +1,176 @@
+package com.diluv.diluvgradle.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * A build wide service that collects the metrics of every upload in the build. The metrics
+ * are passed to any registered {@link UploadListener listeners} as uploads finish, and are
+ * written to a JSON and HTML report when the build finishes.
+ */
+public abstract class DiluvMetricsService implements BuildService<DiluvMetricsService.Params>, AutoCloseable {
+    
+    /**
+     * The name the service is registered under.
+     */
+    public static final String NAME = "diluvMetrics";
+    
+    /**
+     * An internal logger instance used to output status and debug information about the
+     * service.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The metrics of every upload in the build, in the order they finished.
+     */
+    private final List<UploadMetrics> uploads = new ArrayList<>();
+    
+    /**
+     * Listeners that are notified when an upload finishes.
+     */
+    private final List<UploadListener> listeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Adds a listener that is notified whenever an upload finishes.
+     * 
+     * @param listener The listener to add.
+     */
+    public void addListener (UploadListener listener) {
+        
+        this.listeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously added listener.
+     * 
+     * @param listener The listener to remove.
+     */
+    public void removeListener (UploadListener listener) {
+        
+        this.listeners.remove(listener);
+    }
+    
+    /**
+     * Gets the metrics of the uploads that have finished so far.
+     * 
+     * @return The metrics of finished uploads.
+     */
+    public synchronized List<UploadMetrics> getUploads () {
+        
+        return new ArrayList<>(this.uploads);
+    }
+    
+    /**
+     * Records the metrics of a finished upload and notifies the listeners.
+     * 
+     * @param metrics The metrics of the upload.
+     */
+    public void record (UploadMetrics metrics) {
+        
+        synchronized (this) {
+            
+            this.uploads.add(metrics);
+        }
+        
+        for (final UploadListener listener : this.listeners) {
+            
+            try {
+                
+                listener.uploadFinished(metrics);
+            }
+            
+            catch (final Exception e) {
+                
+                this.log.warn("An upload listener failed to handle the metrics for {}.", metrics.getFile(), e);
+            }
+        }
+    }
+    
+    @Override
+    public void close () {
+        
+        final List<UploadMetrics> finished = this.getUploads();
+        
+        if (finished.isEmpty()) {
+            
+            return;
+        }
+        
+        final File reportDir = this.getParameters().getReportDirectory().get().getAsFile();
+        
+        try {
+            
+            Files.createDirectories(reportDir.toPath());
+            
+            final Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
+            
+            try (Writer writer = Files.newBufferedWriter(new File(reportDir, "uploads.json").toPath(), StandardCharsets.UTF_8)) {
+                
+                gson.toJson(finished, writer);
+            }
+            
+            final File html = new File(reportDir, "index.html");
+            Files.write(html.toPath(), MetricsReport.toHtml(finished).getBytes(StandardCharsets.UTF_8));
+            this.log.lifecycle("Diluv upload report: {}", html.toURI());
+            
+            final long savedBytes = finished.stream().mapToLong(UploadMetrics::getRepackSavedBytes).sum();
+            
+            if (savedBytes > 0) {
+                
+                this.log.lifecycle("Repacking saved {} KiB of uploads, about {} ms of upload time.", savedBytes / 1024, finished.stream().mapToLong(UploadMetrics::getRepackSavedMillis).sum());
+            }
+        }
+        
+        catch (final IOException e) {
+            
+            this.log.warn("Failed to write the Diluv upload report to {}.", reportDir, e);
+        }
+    }
+    
+    /**
+     * Registers the service with the build if it has not already been registered. Every
+     * project receives the same service instance. The report is written to the build
+     * directory of the root project.
+     * 
+     * @param project The project requesting the service.
+     * @return A provider for the shared service.
+     */
+    public static Provider<DiluvMetricsService> register (Project project) {
+        
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, DiluvMetricsService.class, spec -> {
+            
+            spec.getParameters().getReportDirectory().set(project.getRootProject().getLayout().getBuildDirectory().dir("reports/diluv"));
+        });
+    }
+    
+    /**
+     * Parameters used to configure the metrics service.
+     */
+    public interface Params extends BuildServiceParameters {
+        
+        /**
+         * The directory the report is written to.
+         * 
+         * @return The report directory.
+         */
+        DirectoryProperty getReportDirectory ();
+    }
+}
@@ -0,0 +1,93 @@
+package com.diluv.diluvgradle.metrics;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders upload metrics as a HTML report.
+ */
+final class MetricsReport {
+    
+    private static final String[] COLUMNS = { "Task", "File", "Outcome", "Bytes", "Requests", "Retries", "Queue", "Hash", "Repack", "Saved", "DNS", "Connect", "TLS", "Body", "Server", "Response", "Total", "Throughput" };
+    
+    private MetricsReport() {
+    
+    }
+    
+    /**
+     * Renders a table with a row for each upload. Times are in milliseconds.
+     * 
+     * @param uploads The metrics of the uploads.
+     * @return The HTML report.
+     */
+    static String toHtml (List<UploadMetrics> uploads) {
+        
+        final StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Diluv Uploads</title>\n");
+        html.append("<style>body{font-family:sans-serif}table{border-collapse:collapse}th,td{border:1px solid #ccc;padding:4px 8px;text-align:right}th:nth-child(-n+3),td:nth-child(-n+3){text-align:left}</style>\n");
+        html.append("</head>\n<body>\n<h1>Diluv Uploads</h1>\n<p>Times are in milliseconds. Saved is the size repacking removed from the upload in KiB. Throughput is in KiB/s.</p>\n<table>\n<tr>");
+        
+        for (final String column : COLUMNS) {
+            
+            html.append("<th>").append(column).append("</th>");
+        }
+        
+        html.append("</tr>\n");
+        
+        for (final UploadMetrics upload : uploads) {
+            
+            final Long throughput = upload.getThroughput();
+            html.append("<tr>");
+            cell(html, upload.getTask());
+            cell(html, upload.getFile() + " (" + upload.getClassifier() + ")");
+            cell(html, upload.getOutcome().name().toLowerCase(Locale.ROOT) + (upload.getStatus() > 0 ? " " + upload.getStatus() : ""));
+            cell(html, upload.getBytesSent());
+            cell(html, upload.getRequests());
+            cell(html, upload.getRetries());
+            cell(html, upload.getQueueWaitMillis());
+            cell(html, upload.getHashMillis());
+            cell(html, upload.getRepackMillis());
+            cell(html, upload.getRepackSavedBytes() / 1024);
+            cell(html, upload.getDnsMillis());
+            cell(html, upload.getConnectMillis());
+            cell(html, upload.getTlsMillis());
+            cell(html, upload.getRequestBodyMillis());
+            cell(html, upload.getServerMillis());
+            cell(html, upload.getResponseMillis());
+            cell(html, upload.getTotalMillis());
+            cell(html, throughput != null ? throughput / 1024 : "");
+            html.append("</tr>\n");
+        }
+        
+        html.append("</table>\n</body>\n</html>\n");
+        return html.toString();
+    }
+    
+    private static void cell (StringBuilder html, Object value) {
+        
+        html.append("<td>");
+        
+        for (final char c : String.valueOf(value).toCharArray()) {
+            
+            switch (c) {
+                
+                case '<':
+                    html.append("&lt;");
+                    break;
+                case '>':
+                    html.append("&gt;");
+                    break;
+                case '&':
+                    html.append("&amp;");
+                    break;
+                case '"':
+                    html.append("&quot;");
+                    break;
+                default:
+                    html.append(c);
+            }
+        }
+        
+        html.append("</td>");
+    }
+}
@@ -0,0 +1,195 @@
+package com.diluv.diluvgradle.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * Time spent in each phase of sending requests to Diluv. A new instance is used for each
+ * request and then merged into the totals for the upload, so requests that run in parallel do
+ * not interfere with each other.
+ */
+public class PhaseTimings {
+    
+    /**
+     * The HTTP context attribute used to pass the timings of a request to the socket factories.
+     */
+    public static final String CONTEXT_ATTRIBUTE = "diluv.timings";
+    
+    /**
+     * The timings of the request being sent on the current thread. DNS lookups do not have
+     * access to the HTTP context, so they use this instead.
+     */
+    private static final ThreadLocal<PhaseTimings> CURRENT = new ThreadLocal<>();
+    
+    private final AtomicLong dns = new AtomicLong();
+    private final AtomicLong connect = new AtomicLong();
+    private final AtomicLong tls = new AtomicLong();
+    private final AtomicLong requestBody = new AtomicLong();
+    private final AtomicLong server = new AtomicLong();
+    private final AtomicLong response = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    
+    public void addDns (long nanos) {
+        
+        this.dns.addAndGet(nanos);
+    }
+    
+    public void addConnect (long nanos) {
+        
+        this.connect.addAndGet(nanos);
+    }
+    
+    public void addTls (long nanos) {
+        
+        this.tls.addAndGet(nanos);
+    }
+    
+    public void addRequestBody (long nanos, long bytes) {
+        
+        this.requestBody.addAndGet(nanos);
+        this.bytesSent.addAndGet(bytes);
+    }
+    
+    public void addResponse (long nanos) {
+        
+        this.response.addAndGet(nanos);
+    }
+    
+    /**
+     * Records an attempt of an action that may be retried.
+     * 
+     * @param attempt The number of the attempt, starting at 1.
+     */
+    public void addAttempt (int attempt) {
+        
+        this.attempts.incrementAndGet();
+        
+        if (attempt > 1) {
+            
+            this.retries.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Records a completed request. Time that was not spent connecting or sending the body is
+     * counted as time the server spent processing the request.
+     * 
+     * @param nanos The time from sending the request until the response headers were read.
+     */
+    public void completeRequest (long nanos) {
+        
+        this.requests.incrementAndGet();
+        this.server.addAndGet(Math.max(0, nanos - this.dns.get() - this.connect.get() - this.tls.get() - this.requestBody.get()));
+    }
+    
+    /**
+     * Adds the timings of a request to these timings.
+     * 
+     * @param other The timings to add.
+     */
+    public void merge (PhaseTimings other) {
+        
+        this.dns.addAndGet(other.dns.get());
+        this.connect.addAndGet(other.connect.get());
+        this.tls.addAndGet(other.tls.get());
+        this.requestBody.addAndGet(other.requestBody.get());
+        this.server.addAndGet(other.server.get());
+        this.response.addAndGet(other.response.get());
+        this.bytesSent.addAndGet(other.bytesSent.get());
+        this.requests.addAndGet(other.requests.get());
+    }
+    
+    public long getDnsMillis () {
+        
+        return toMillis(this.dns);
+    }
+    
+    public long getConnectMillis () {
+        
+        return toMillis(this.connect);
+    }
+    
+    public long getTlsMillis () {
+        
+        return toMillis(this.tls);
+    }
+    
+    long getTlsNanos () {
+        
+        return this.tls.get();
+    }
+    
+    public long getRequestBodyMillis () {
+        
+        return toMillis(this.requestBody);
+    }
+    
+    public long getServerMillis () {
+        
+        return toMillis(this.server);
+    }
+    
+    public long getResponseMillis () {
+        
+        return toMillis(this.response);
+    }
+    
+    public long getBytesSent () {
+        
+        return this.bytesSent.get();
+    }
+    
+    public long getRequests () {
+        
+        return this.requests.get();
+    }
+    
+    public long getAttempts () {
+        
+        return this.attempts.get();
+    }
+    
+    public long getRetries () {
+        
+        return this.retries.get();
+    }
+    
+    private static long toMillis (AtomicLong nanos) {
+        
+        return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+    }
+    
+    /**
+     * Gets the timings of the request being sent on the current thread.
+     * 
+     * @return The current timings, or null if no request is being sent.
+     */
+    @Nullable
+    static PhaseTimings current () {
+        
+        return CURRENT.get();
+    }
+    
+    /**
+     * Sets the timings of the request being sent on the current thread.
+     * 
+     * @param timings The timings of the request, or null once the request has been sent.
+     */
+    public static void setCurrent (@Nullable PhaseTimings timings) {
+        
+        if (timings == null) {
+            
+            CURRENT.remove();
+        }
+        
+        else {
+            
+            CURRENT.set(timings);
+        }
+    }
+}
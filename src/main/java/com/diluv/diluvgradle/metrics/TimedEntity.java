@@ -0,0 +1,58 @@
+package com.diluv.diluvgradle.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * An entity that records the time spent writing the request body and the amount of bytes that
+ * were written.
+ */
+public class TimedEntity extends HttpEntityWrapper {
+    
+    /**
+     * The timings of the request the entity belongs to.
+     */
+    private final PhaseTimings timings;
+    
+    public TimedEntity(HttpEntity entity, PhaseTimings timings) {
+        
+        super(entity);
+        this.timings = timings;
+    }
+    
+    @Override
+    public void writeTo (OutputStream out) throws IOException {
+        
+        final long start = System.nanoTime();
+        final long[] written = { 0 };
+        
+        try {
+            
+            super.writeTo(new FilterOutputStream(out) {
+                
+                @Override
+                public void write (int b) throws IOException {
+                    
+                    this.out.write(b);
+                    written[0]++;
+                }
+                
+                @Override
+                public void write (byte[] bytes, int off, int len) throws IOException {
+                    
+                    this.out.write(bytes, off, len);
+                    written[0] += len;
+                }
+            });
+        }
+        
+        finally {
+            
+            this.timings.addRequestBody(System.nanoTime() - start, written[0]);
+        }
+    }
+}
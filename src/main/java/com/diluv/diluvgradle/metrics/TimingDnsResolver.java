@@ -0,0 +1,34 @@
+package com.diluv.diluvgradle.metrics;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+/**
+ * Resolves hosts using the system resolver and records the time spent on the lookup.
+ */
+public class TimingDnsResolver implements DnsResolver {
+    
+    @Override
+    public InetAddress[] resolve (String host) throws UnknownHostException {
+        
+        final long start = System.nanoTime();
+        
+        try {
+            
+            return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+        }
+        
+        finally {
+            
+            final PhaseTimings timings = PhaseTimings.current();
+            
+            if (timings != null) {
+                
+                timings.addDns(System.nanoTime() - start);
+            }
+        }
+    }
+}
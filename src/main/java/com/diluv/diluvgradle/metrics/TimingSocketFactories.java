@@ -0,0 +1,119 @@
+package com.diluv.diluvgradle.metrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpHost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+/**
+ * Socket factories that record the time spent connecting and performing TLS handshakes. The
+ * timings are read from the {@link PhaseTimings#CONTEXT_ATTRIBUTE} attribute of the request.
+ */
+public final class TimingSocketFactories {
+    
+    private TimingSocketFactories() {
+    
+    }
+    
+    /**
+     * Creates a registry with timing socket factories for HTTP and HTTPS.
+     * 
+     * @return The socket factory registry.
+     */
+    public static Registry<ConnectionSocketFactory> create () {
+        
+        return RegistryBuilder.<ConnectionSocketFactory> create().register("http", new Plain()).register("https", new Secure()).build();
+    }
+    
+    @Nullable
+    private static PhaseTimings getTimings (HttpContext context) {
+        
+        final Object timings = context != null ? context.getAttribute(PhaseTimings.CONTEXT_ATTRIBUTE) : null;
+        return timings instanceof PhaseTimings ? (PhaseTimings) timings : null;
+    }
+    
+    private static class Plain extends PlainConnectionSocketFactory {
+        
+        @Override
+        public Socket connectSocket (int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException {
+            
+            final long start = System.nanoTime();
+            
+            try {
+                
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            }
+            
+            finally {
+                
+                final PhaseTimings timings = getTimings(context);
+                
+                if (timings != null) {
+                    
+                    timings.addConnect(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+    
+    private static class Secure extends SSLConnectionSocketFactory {
+        
+        Secure() {
+            
+            super(SSLContexts.createDefault(), SSLConnectionSocketFactory.getDefaultHostnameVerifier());
+        }
+        
+        @Override
+        public Socket connectSocket (int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException {
+            
+            final PhaseTimings timings = getTimings(context);
+            final long tlsBefore = timings != null ? timings.getTlsNanos() : 0;
+            final long start = System.nanoTime();
+            
+            try {
+                
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            }
+            
+            finally {
+                
+                // The handshake happens inside of connectSocket, it is recorded separately.
+                if (timings != null) {
+                    
+                    timings.addConnect(System.nanoTime() - start - (timings.getTlsNanos() - tlsBefore));
+                }
+            }
+        }
+        
+        @Override
+        public Socket createLayeredSocket (Socket socket, String target, int port, HttpContext context) throws IOException {
+            
+            final long start = System.nanoTime();
+            
+            try {
+                
+                return super.createLayeredSocket(socket, target, port, context);
+            }
+            
+            finally {
+                
+                final PhaseTimings timings = getTimings(context);
+                
+                if (timings != null) {
+                    
+                    timings.addTls(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.diluv.diluvgradle.metrics;
+
+/**
+ * A listener that is notified whenever an artifact has finished uploading. Listeners are added
+ * to the {@link DiluvMetricsService} and can be used to track upload performance over time.
+ * Listeners are called from the thread that uploaded the artifact.
+ */
+@FunctionalInterface
+public interface UploadListener {
+    
+    /**
+     * Called when an artifact has finished uploading, whether or not the upload succeeded.
+     * 
+     * @param metrics The metrics of the upload.
+     */
+    void uploadFinished (UploadMetrics metrics);
+}
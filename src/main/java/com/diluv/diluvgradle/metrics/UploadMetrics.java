@@ -0,0 +1,277 @@
+package com.diluv.diluvgradle.metrics;
+
+import javax.annotation.Nullable;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The metrics recorded for a single uploaded artifact. These are passed to
+ * {@link UploadListener upload listeners} and written to the build report.
+ */
+public class UploadMetrics {
+    
+    /**
+     * The outcome of an upload.
+     */
+    public enum Outcome {
+        
+        /**
+         * The file was uploaded.
+         */
+        @SerializedName("uploaded")
+        UPLOADED,
+        
+        /**
+         * The file was not uploaded because it had already been published.
+         */
+        @SerializedName("skipped")
+        SKIPPED,
+        
+        /**
+         * The upload could not reach Diluv and the file was written to the spool queue.
+         */
+        @SerializedName("spooled")
+        SPOOLED,
+        
+        /**
+         * The upload failed.
+         */
+        @SerializedName("failed")
+        FAILED;
+    }
+    
+    @Expose
+    @SerializedName("task")
+    private final String task;
+    
+    @Expose
+    @SerializedName("file")
+    private final String file;
+    
+    @Expose
+    @SerializedName("classifier")
+    private final String classifier;
+    
+    @Expose
+    @SerializedName("outcome")
+    private final Outcome outcome;
+    
+    /**
+     * The HTTP status of the failed request, or 0 if the upload did not fail because of an
+     * error response.
+     */
+    @Expose
+    @SerializedName("status")
+    private final int status;
+    
+    @Expose
+    @SerializedName("bytesSent")
+    private final long bytesSent;
+    
+    @Expose
+    @SerializedName("requests")
+    private final long requests;
+    
+    @Expose
+    @SerializedName("attempts")
+    private final long attempts;
+    
+    @Expose
+    @SerializedName("retries")
+    private final long retries;
+    
+    @Expose
+    @SerializedName("queueWaitMillis")
+    private final long queueWaitMillis;
+    
+    @Expose
+    @SerializedName("hashMillis")
+    private final long hashMillis;
+    
+    @Expose
+    @SerializedName("repackMillis")
+    private final long repackMillis;
+    
+    /**
+     * The amount of bytes that repacking the file removed from the upload. This is 0 if the
+     * file was not repacked.
+     */
+    @Expose
+    @SerializedName("repackSavedBytes")
+    private final long repackSavedBytes;
+    
+    @Expose
+    @SerializedName("dnsMillis")
+    private final long dnsMillis;
+    
+    @Expose
+    @SerializedName("connectMillis")
+    private final long connectMillis;
+    
+    @Expose
+    @SerializedName("tlsMillis")
+    private final long tlsMillis;
+    
+    @Expose
+    @SerializedName("requestBodyMillis")
+    private final long requestBodyMillis;
+    
+    @Expose
+    @SerializedName("serverMillis")
+    private final long serverMillis;
+    
+    @Expose
+    @SerializedName("responseMillis")
+    private final long responseMillis;
+    
+    @Expose
+    @SerializedName("totalMillis")
+    private final long totalMillis;
+    
+    public UploadMetrics(String task, String file, String classifier, Outcome outcome, int status, PhaseTimings timings, long queueWaitMillis, long hashMillis, long repackMillis, long repackSavedBytes, long totalMillis) {
+        
+        this.task = task;
+        this.file = file;
+        this.classifier = classifier;
+        this.outcome = outcome;
+        this.status = status;
+        this.bytesSent = timings.getBytesSent();
+        this.requests = timings.getRequests();
+        this.attempts = timings.getAttempts();
+        this.retries = timings.getRetries();
+        this.queueWaitMillis = queueWaitMillis;
+        this.hashMillis = hashMillis;
+        this.repackMillis = repackMillis;
+        this.repackSavedBytes = repackSavedBytes;
+        this.dnsMillis = timings.getDnsMillis();
+        this.connectMillis = timings.getConnectMillis();
+        this.tlsMillis = timings.getTlsMillis();
+        this.requestBodyMillis = timings.getRequestBodyMillis();
+        this.serverMillis = timings.getServerMillis();
+        this.responseMillis = timings.getResponseMillis();
+        this.totalMillis = totalMillis;
+    }
+    
+    public String getTask () {
+        
+        return this.task;
+    }
+    
+    public String getFile () {
+        
+        return this.file;
+    }
+    
+    public String getClassifier () {
+        
+        return this.classifier;
+    }
+    
+    public Outcome getOutcome () {
+        
+        return this.outcome;
+    }
+    
+    public int getStatus () {
+        
+        return this.status;
+    }
+    
+    public long getBytesSent () {
+        
+        return this.bytesSent;
+    }
+    
+    public long getRequests () {
+        
+        return this.requests;
+    }
+    
+    public long getAttempts () {
+        
+        return this.attempts;
+    }
+    
+    public long getRetries () {
+        
+        return this.retries;
+    }
+    
+    public long getQueueWaitMillis () {
+        
+        return this.queueWaitMillis;
+    }
+    
+    public long getHashMillis () {
+        
+        return this.hashMillis;
+    }
+    
+    public long getRepackMillis () {
+        
+        return this.repackMillis;
+    }
+    
+    public long getRepackSavedBytes () {
+        
+        return this.repackSavedBytes;
+    }
+    
+    public long getDnsMillis () {
+        
+        return this.dnsMillis;
+    }
+    
+    public long getConnectMillis () {
+        
+        return this.connectMillis;
+    }
+    
+    public long getTlsMillis () {
+        
+        return this.tlsMillis;
+    }
+    
+    public long getRequestBodyMillis () {
+        
+        return this.requestBodyMillis;
+    }
+    
+    public long getServerMillis () {
+        
+        return this.serverMillis;
+    }
+    
+    public long getResponseMillis () {
+        
+        return this.responseMillis;
+    }
+    
+    public long getTotalMillis () {
+        
+        return this.totalMillis;
+    }
+    
+    /**
+     * Gets the rate the request bodies were sent at.
+     * 
+     * @return The throughput in bytes per second, or null if nothing was sent.
+     */
+    @Nullable
+    public Long getThroughput () {
+        
+        return this.bytesSent > 0 ? this.bytesSent * 1000 / Math.max(1, this.requestBodyMillis) : null;
+    }
+    
+    /**
+     * Estimates how much time repacking saved, based on the rate the file was sent at.
+     * 
+     * @return The estimated time saved in milliseconds, or 0 if nothing was saved or sent.
+     */
+    public long getRepackSavedMillis () {
+        
+        final Long throughput = this.getThroughput();
+        return this.repackSavedBytes > 0 && throughput != null && throughput > 0 ? this.repackSavedBytes * 1000 / throughput : 0;
+    }
+}
\ No newline at end of file
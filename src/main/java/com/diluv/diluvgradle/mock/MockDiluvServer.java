@@ -0,0 +1,985 @@
+package com.diluv.diluvgradle.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.http.BandwidthLimiter;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.util.Hashing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded stand-in for the parts of the Diluv API that the plugin uses. It accepts single
+ * request and chunked uploads to {@code /v1/projects/{id}/files}, lists the files of a project
+ * and reports the status of a file, answering in the same shape as {@code ResponseUpload} and
+ * {@code ResponseError}. Files are hashed as they are received and only their details are kept
+ * in memory, so large uploads do not need disk space.
+ * 
+ * <p>
+ * Latency, failures and a bandwidth limit can be added to every request, so retries, timeouts
+ * and slow connections can be tested without a real Diluv instance.
+ */
+public class MockDiluvServer implements AutoCloseable {
+    
+    /**
+     * Matches the paths handled by the server. The groups are the project ID and the rest of
+     * the path after the files endpoint.
+     */
+    private static final Pattern PATH = Pattern.compile("^/v1/projects/(\\d+)/files(/.*)?$");
+    
+    /**
+     * The size of the buffer used to read request bodies.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * An internal logger instance used to output debug information about received requests.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The underlying server.
+     */
+    private final HttpServer server;
+    
+    /**
+     * The threads used to handle requests.
+     */
+    private final ExecutorService executor;
+    
+    /**
+     * The token requests must be authorized with, or null to accept any token.
+     */
+    @Nullable
+    private final String token;
+    
+    /**
+     * The delay in milliseconds added before every response.
+     */
+    private final long latency;
+    
+    /**
+     * The chance from 0 to 1 that a request fails.
+     */
+    private final double failureRate;
+    
+    /**
+     * The status code sent for failed requests.
+     */
+    private final int failureStatus;
+    
+    /**
+     * The amount of requests that still fail before requests are handled normally.
+     */
+    private final AtomicInteger remainingFailures;
+    
+    /**
+     * How long in milliseconds uploaded files are reported as processing.
+     */
+    private final long processingTime;
+    
+    /**
+     * Limits the combined rate at which request bodies are read, or null if there is no limit.
+     */
+    @Nullable
+    private final BandwidthLimiter bandwidth;
+    
+    /**
+     * Decides which requests fail. The seed is fixed so the same requests fail in every run.
+     */
+    private final Random random = new Random(0);
+    
+    /**
+     * The uploaded files of each project, in the order they were uploaded.
+     */
+    private final Map<Long, List<JsonObject>> projects = new HashMap<>();
+    
+    /**
+     * The chunked upload sessions that have not been completed yet, keyed by their ID.
+     */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    
+    /**
+     * The ID of the next uploaded file.
+     */
+    private final AtomicLong nextFileId = new AtomicLong(1);
+    
+    /**
+     * Changes whenever a file is uploaded, and is used as the ETag of file listings.
+     */
+    private final AtomicLong revision = new AtomicLong();
+    
+    /**
+     * Starts a server on the loopback address.
+     * 
+     * @param port The port to listen on, or 0 to pick a free port.
+     * @param token The token requests must be authorized with, or null to accept any token.
+     * @param latency The delay in milliseconds added before every response.
+     * @param failureRate The chance from 0 to 1 that a request fails.
+     * @param failFirst The amount of requests that fail before requests are handled normally.
+     * @param failureStatus The status code sent for failed requests.
+     * @param bytesPerSecond The max rate at which request bodies are read, or 0 for no limit.
+     * @param processingTime How long in milliseconds uploaded files are reported as processing.
+     * @throws IOException Whenever the server could not be started.
+     */
+    public MockDiluvServer(int port, @Nullable String token, long latency, double failureRate, int failFirst, int failureStatus, long bytesPerSecond, long processingTime) throws IOException {
+        
+        this.token = token;
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.remainingFailures = new AtomicInteger(failFirst);
+        this.failureStatus = failureStatus;
+        this.bandwidth = bytesPerSecond > 0 ? new BandwidthLimiter(bytesPerSecond) : null;
+        this.processingTime = processingTime;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            
+            final Thread thread = new Thread(runnable, "DiluvGradle Mock Server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+    
+    /**
+     * Gets the base URL of the server. This can be used as the API URL of upload tasks.
+     * 
+     * @return The base URL, without a trailing slash.
+     */
+    public String getUrl () {
+        
+        return "http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort();
+    }
+    
+    /**
+     * Gets the files that were uploaded to a project.
+     * 
+     * @param projectId The ID of the project.
+     * @return The uploaded files, serialized the same way as the files endpoint.
+     */
+    public List<JsonObject> getFiles (long projectId) {
+        
+        synchronized (this.projects) {
+            
+            return new ArrayList<>(this.projects.getOrDefault(projectId, new ArrayList<>()));
+        }
+    }
+    
+    @Override
+    public void close () {
+        
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+    
+    private void handle (HttpExchange exchange) throws IOException {
+        
+        try {
+            
+            this.route(exchange);
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            this.log.debug("Mock Diluv server failed to handle {} {}.", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            this.drain(exchange);
+            this.sendError(exchange, 500, "Internal Server Error", "errors.internal", e.toString());
+        }
+        
+        finally {
+            
+            exchange.close();
+        }
+    }
+    
+    private void route (HttpExchange exchange) throws IOException {
+        
+        final String method = exchange.getRequestMethod();
+        final Matcher matcher = PATH.matcher(exchange.getRequestURI().getPath());
+        
+        this.log.debug("Mock Diluv server received {} {}.", method, exchange.getRequestURI());
+        
+        if (this.latency > 0) {
+            
+            sleep(this.latency);
+        }
+        
+        if (this.token != null && !("Bearer " + this.token).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            
+            this.drain(exchange);
+            this.sendError(exchange, 401, "Unauthorized", "errors.token.invalid", "The token is missing or not valid.");
+            return;
+        }
+        
+        if (this.shouldFail()) {
+            
+            this.drain(exchange);
+            this.sendError(exchange, this.failureStatus, "Injected Failure", "errors.mock.injected", "The mock server was configured to fail this request.");
+            return;
+        }
+        
+        if (!matcher.matches()) {
+            
+            this.drain(exchange);
+            this.sendError(exchange, 404, "Not Found", "errors.not_found", "The mock server does not handle " + exchange.getRequestURI().getPath() + ".");
+            return;
+        }
+        
+        final long projectId = Long.parseLong(matcher.group(1));
+        final String[] rest = matcher.group(2) == null ? new String[0] : matcher.group(2).substring(1).split("/");
+        
+        if (rest.length == 0 && "POST".equals(method)) {
+            
+            this.upload(exchange, projectId);
+        }
+        
+        else if (rest.length == 0 && "GET".equals(method)) {
+            
+            this.list(exchange, projectId);
+        }
+        
+        else if (rest.length == 1 && "POST".equals(method) && "uploads".equals(rest[0])) {
+            
+            this.startSession(exchange, projectId);
+        }
+        
+        else if (rest.length == 4 && "PUT".equals(method) && "uploads".equals(rest[0]) && "parts".equals(rest[2])) {
+            
+            this.uploadPart(exchange, projectId, rest[1], rest[3]);
+        }
+        
+        else if (rest.length == 3 && "POST".equals(method) && "uploads".equals(rest[0]) && "complete".equals(rest[2])) {
+            
+            this.completeSession(exchange, projectId, rest[1]);
+        }
+        
+        else if (rest.length == 1 && "GET".equals(method)) {
+            
+            this.status(exchange, projectId, rest[0]);
+        }
+        
+        else {
+            
+            this.drain(exchange);
+            this.sendError(exchange, 404, "Not Found", "errors.not_found", "The mock server does not handle " + method + " " + exchange.getRequestURI().getPath() + ".");
+        }
+    }
+    
+    /**
+     * Handles a single request upload.
+     */
+    private void upload (HttpExchange exchange, long projectId) throws IOException {
+        
+        final Form form = this.readForm(exchange);
+        
+        if (form == null || form.fileSha512 == null) {
+            
+            this.sendError(exchange, 400, "Bad Request", "errors.file.missing", "The request did not contain a file.");
+            return;
+        }
+        
+        this.publish(exchange, projectId, form, form.fileSha512, form.fileSize);
+    }
+    
+    /**
+     * Handles listing the files of a project. The listing has an ETag so the plugin can skip
+     * reading it when nothing changed.
+     */
+    private void list (HttpExchange exchange, long projectId) throws IOException {
+        
+        this.drain(exchange);
+        
+        final String etag = "\"" + this.revision.get() + "\"";
+        exchange.getResponseHeaders().add("ETag", etag);
+        
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        
+        final JsonArray files = new JsonArray();
+        
+        for (final JsonObject file : this.getFiles(projectId)) {
+            
+            files.add(this.withStatus(file));
+        }
+        
+        this.sendJson(exchange, 200, files);
+    }
+    
+    /**
+     * Handles checking the status of a single file.
+     */
+    private void status (HttpExchange exchange, long projectId, String fileId) throws IOException {
+        
+        this.drain(exchange);
+        
+        for (final JsonObject file : this.getFiles(projectId)) {
+            
+            if (fileId.equals(file.get("id").getAsString())) {
+                
+                this.sendJson(exchange, 200, this.withStatus(file));
+                return;
+            }
+        }
+        
+        this.sendError(exchange, 404, "Not Found", "errors.file.not_found", "File " + fileId + " does not exist.");
+    }
+    
+    /**
+     * Handles starting a chunked upload session.
+     */
+    private void startSession (HttpExchange exchange, long projectId) throws IOException {
+        
+        final JsonObject body;
+        
+        try (InputStream in = this.throttle(exchange.getRequestBody())) {
+            
+            body = JsonParser.parseString(new String(readAll(in), StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+        
+        catch (final JsonParseException | IllegalStateException e) {
+            
+            this.sendError(exchange, 400, "Bad Request", "errors.session.invalid", "The upload session could not be read.");
+            return;
+        }
+        
+        final Session session = new Session(projectId, body.has("sha512") ? body.get("sha512").getAsString() : null);
+        this.sessions.put(session.id, session);
+        
+        final JsonObject response = new JsonObject();
+        response.addProperty("uploadId", session.id);
+        this.sendJson(exchange, 201, response);
+    }
+    
+    /**
+     * Handles a single part of a chunked upload. Parts are kept in memory until the session
+     * is completed.
+     */
+    private void uploadPart (HttpExchange exchange, long projectId, String sessionId, String part) throws IOException {
+        
+        final Session session = this.sessions.get(sessionId);
+        final byte[] bytes;
+        
+        try (InputStream in = this.throttle(exchange.getRequestBody())) {
+            
+            bytes = readAll(in);
+        }
+        
+        if (session == null || session.projectId != projectId) {
+            
+            this.sendError(exchange, 404, "Not Found", "errors.session.not_found", "Upload session " + sessionId + " does not exist.");
+            return;
+        }
+        
+        synchronized (session.parts) {
+            
+            session.parts.put(Integer.parseInt(part), bytes);
+        }
+        
+        exchange.sendResponseHeaders(204, -1);
+    }
+    
+    /**
+     * Handles completing a chunked upload. The parts are joined in order and hashed.
+     */
+    private void completeSession (HttpExchange exchange, long projectId, String sessionId) throws IOException {
+        
+        final Form form = this.readForm(exchange);
+        final Session session = this.sessions.remove(sessionId);
+        
+        if (session == null || session.projectId != projectId) {
+            
+            this.sendError(exchange, 404, "Not Found", "errors.session.not_found", "Upload session " + sessionId + " does not exist.");
+            return;
+        }
+        
+        if (form == null) {
+            
+            this.sendError(exchange, 400, "Bad Request", "errors.data.missing", "The request did not contain the file data.");
+            return;
+        }
+        
+        final MessageDigest digest = Hashing.createDigest("SHA-512");
+        long size = 0;
+        
+        synchronized (session.parts) {
+            
+            for (final byte[] bytes : session.parts.values()) {
+                
+                digest.update(bytes);
+                size += bytes.length;
+            }
+        }
+        
+        final String sha512 = Hashing.toHex(digest.digest());
+        
+        if (session.sha512 != null && !session.sha512.equalsIgnoreCase(sha512)) {
+            
+            this.sendError(exchange, 400, "Bad Request", "errors.upload.hash_mismatch", "The received parts do not match the hash of the upload session.");
+            return;
+        }
+        
+        this.publish(exchange, projectId, form, sha512, size);
+    }
+    
+    /**
+     * Adds a received file to a project and sends it back to the client.
+     */
+    private void publish (HttpExchange exchange, long projectId, Form form, String sha512, long size) throws IOException {
+        
+        final JsonObject data;
+        
+        try {
+            
+            data = JsonParser.parseString(form.fields.getOrDefault("data", "")).getAsJsonObject();
+        }
+        
+        catch (final JsonParseException | IllegalStateException e) {
+            
+            this.sendError(exchange, 400, "Bad Request", "errors.data.invalid", "The file data is missing or is not a JSON object.");
+            return;
+        }
+        
+        for (final String required : new String[] { "version", "releaseType", "classifier" }) {
+            
+            if (!data.has(required) || data.get(required).isJsonNull()) {
+                
+                this.sendError(exchange, 400, "Bad Request", "errors.data." + required, "The file data does not contain " + required + ".");
+                return;
+            }
+        }
+        
+        final long id = this.nextFileId.getAndIncrement();
+        final String name = form.fields.getOrDefault("filename", form.fileName);
+        final JsonObject file = new JsonObject();
+        file.addProperty("id", id);
+        file.addProperty("name", name);
+        file.addProperty("downloadURL", this.getUrl() + "/files/" + id + "/" + name);
+        file.addProperty("size", size);
+        file.addProperty("sha512", sha512);
+        file.add("version", data.get("version"));
+        file.add("changelog", data.get("changelog"));
+        file.add("releaseType", data.get("releaseType"));
+        file.add("classifier", data.get("classifier"));
+        file.addProperty("createdAt", System.currentTimeMillis());
+        file.add("gameVersions", toGameVersions(data.get("gameVersions")));
+        file.addProperty("projectSlug", "project-" + projectId);
+        
+        synchronized (this.projects) {
+            
+            this.projects.computeIfAbsent(projectId, key -> new ArrayList<>()).add(file);
+            this.revision.incrementAndGet();
+        }
+        
+        this.log.debug("Mock Diluv server received {} ({} bytes) for project {} as file {}.", name, size, projectId, id);
+        this.sendJson(exchange, 200, this.withStatus(file));
+    }
+    
+    /**
+     * Copies a file and adds its status. Files are pending until the processing time has
+     * passed since they were uploaded.
+     */
+    private JsonObject withStatus (JsonObject file) {
+        
+        final long processed = file.get("createdAt").getAsLong() + this.processingTime;
+        final boolean pending = System.currentTimeMillis() < processed;
+        final JsonObject copy = file.deepCopy();
+        copy.addProperty("status", pending ? "pending" : "approved");
+        copy.addProperty("lastStatusChanged", pending ? file.get("createdAt").getAsLong() : processed);
+        return copy;
+    }
+    
+    /**
+     * Reads a multipart form. File parts are hashed as they are read and are not kept.
+     * 
+     * @return The form, or null if the request was not a multipart form.
+     */
+    @Nullable
+    private Form readForm (HttpExchange exchange) throws IOException {
+        
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        final String boundary = contentType != null ? parameter(contentType, "boundary") : null;
+        
+        try (InputStream in = this.throttle(exchange.getRequestBody())) {
+            
+            if (boundary == null) {
+                
+                readAll(in);
+                return null;
+            }
+            
+            final Form form = new Form();
+            new MultipartReader(in, boundary).read(form);
+            return form;
+        }
+    }
+    
+    /**
+     * Reads and discards the request body, so the client can finish sending it before the
+     * response is sent.
+     */
+    private void drain (HttpExchange exchange) throws IOException {
+        
+        try (InputStream in = this.throttle(exchange.getRequestBody())) {
+            
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            
+            while (in.read(buffer) != -1) {
+                
+                // The body is only read so the client can finish sending it.
+            }
+        }
+    }
+    
+    private boolean shouldFail () {
+        
+        if (this.remainingFailures.get() > 0 && this.remainingFailures.getAndDecrement() > 0) {
+            
+            return true;
+        }
+        
+        synchronized (this.random) {
+            
+            return this.failureRate > 0 && this.random.nextDouble() < this.failureRate;
+        }
+    }
+    
+    private InputStream throttle (InputStream in) {
+        
+        if (this.bandwidth == null) {
+            
+            return in;
+        }
+        
+        return new InputStream() {
+            
+            @Override
+            public int read () throws IOException {
+                
+                final byte[] single = new byte[1];
+                return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+            
+            @Override
+            public int read (byte[] buffer, int offset, int length) throws IOException {
+                
+                final int read = in.read(buffer, offset, Math.min(length, 16 * 1024));
+                
+                if (read > 0) {
+                    
+                    try {
+                        
+                        MockDiluvServer.this.bandwidth.acquire(read);
+                    }
+                    
+                    catch (final InterruptedException e) {
+                        
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while throttling the request body.");
+                    }
+                }
+                
+                return read;
+            }
+            
+            @Override
+            public void close () throws IOException {
+                
+                in.close();
+            }
+        };
+    }
+    
+    private void sendError (HttpExchange exchange, int status, String type, String error, String message) throws IOException {
+        
+        final JsonObject body = new JsonObject();
+        body.addProperty("type", type);
+        body.addProperty("error", error);
+        body.addProperty("message", message);
+        this.sendJson(exchange, status, body);
+    }
+    
+    private void sendJson (HttpExchange exchange, int status, JsonElement body) throws IOException {
+        
+        final byte[] bytes = DiluvJson.GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        
+        try (OutputStream out = exchange.getResponseBody()) {
+            
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Converts the game versions of the request data to the shape used in responses.
+     */
+    private static JsonArray toGameVersions (@Nullable JsonElement requested) {
+        
+        final JsonArray versions = new JsonArray();
+        
+        if (requested != null && requested.isJsonArray()) {
+            
+            for (final JsonElement version : requested.getAsJsonArray()) {
+                
+                final JsonObject gameVersion = new JsonObject();
+                gameVersion.add("version", version);
+                gameVersion.addProperty("type", "release");
+                gameVersion.addProperty("released", 0);
+                versions.add(gameVersion);
+            }
+        }
+        
+        return versions;
+    }
+    
+    /**
+     * Reads a parameter of a header value, ex. the boundary of a content type.
+     */
+    @Nullable
+    private static String parameter (String header, String name) {
+        
+        for (final String part : header.split(";")) {
+            
+            final String[] pair = part.trim().split("=", 2);
+            
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase(name)) {
+                
+                final String value = pair[1].trim();
+                return value.length() > 1 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+            }
+        }
+        
+        return null;
+    }
+    
+    private static byte[] readAll (InputStream in) throws IOException {
+        
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        
+        while ((read = in.read(buffer)) != -1) {
+            
+            out.write(buffer, 0, read);
+        }
+        
+        return out.toByteArray();
+    }
+    
+    private static void sleep (long millis) throws InterruptedIOException {
+        
+        try {
+            
+            Thread.sleep(millis);
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while adding latency.");
+        }
+    }
+    
+    /**
+     * A chunked upload that has not been completed yet.
+     */
+    private static final class Session {
+        
+        private final String id = UUID.randomUUID().toString();
+        
+        private final long projectId;
+        
+        /**
+         * The hash the client announced for the file, or null if it did not send one.
+         */
+        @Nullable
+        private final String sha512;
+        
+        /**
+         * The received parts, ordered by their number.
+         */
+        private final Map<Integer, byte[]> parts = new TreeMap<>();
+        
+        private Session(long projectId, @Nullable String sha512) {
+            
+            this.projectId = projectId;
+            this.sha512 = sha512;
+        }
+    }
+    
+    /**
+     * The fields of a multipart form. The file part is only kept as its size and hash.
+     */
+    private static final class Form {
+        
+        private final Map<String, String> fields = new LinkedHashMap<>();
+        
+        @Nullable
+        private String fileName;
+        
+        @Nullable
+        private String fileSha512;
+        
+        private long fileSize;
+    }
+    
+    /**
+     * Reads a multipart body as it arrives. The body is scanned for the boundary one byte at a
+     * time, so parts of any size can be read without keeping them in memory.
+     */
+    private static final class MultipartReader {
+        
+        private final InputStream in;
+        
+        /**
+         * The line break and dashes that come before every boundary.
+         */
+        private final byte[] delimiter;
+        
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        
+        private int position;
+        
+        private int limit;
+        
+        private MultipartReader(InputStream in, String boundary) {
+            
+            this.in = in;
+            this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        }
+        
+        private void read (Form form) throws IOException {
+            
+            // The body starts with the first boundary, without the line break before it.
+            if (!this.skipToDelimiter(2, null)) {
+                
+                return;
+            }
+            
+            while (true) {
+                
+                final int first = this.next();
+                final int second = this.next();
+                
+                // Two dashes after the boundary mark the end of the body.
+                if (first != '\r' || second != '\n') {
+                    
+                    break;
+                }
+                
+                String name = null;
+                String fileName = null;
+                String line;
+                
+                while (!(line = this.readLine()).isEmpty()) {
+                    
+                    if (line.toLowerCase(Locale.ROOT).startsWith("content-disposition:")) {
+                        
+                        name = parameter(line, "name");
+                        fileName = parameter(line, "filename");
+                    }
+                }
+                
+                if (fileName != null) {
+                    
+                    final MessageDigest digest = Hashing.createDigest("SHA-512");
+                    final long[] size = new long[1];
+                    final boolean found = this.skipToDelimiter(0, (bytes, offset, length) -> {
+                        
+                        digest.update(bytes, offset, length);
+                        size[0] += length;
+                    });
+                    
+                    form.fileName = fileName;
+                    form.fileSha512 = Hashing.toHex(digest.digest());
+                    form.fileSize = size[0];
+                    
+                    if (!found) {
+                        
+                        return;
+                    }
+                }
+                
+                else {
+                    
+                    final ByteArrayOutputStream value = new ByteArrayOutputStream();
+                    final boolean found = this.skipToDelimiter(0, value::write);
+                    
+                    if (name != null) {
+                        
+                        form.fields.put(name, new String(value.toByteArray(), StandardCharsets.UTF_8));
+                    }
+                    
+                    if (!found) {
+                        
+                        return;
+                    }
+                }
+            }
+            
+            // Read whatever comes after the last boundary so the client can finish sending.
+            while (this.next() != -1) {
+                
+                this.position = this.limit;
+            }
+        }
+        
+        /**
+         * Reads until the next delimiter, passing every byte before it to the sink.
+         * 
+         * @param matched The amount of delimiter bytes that are already matched.
+         * @param sink Receives the bytes before the delimiter, or null to discard them.
+         * @return Whether or not the delimiter was found before the end of the body.
+         */
+        private boolean skipToDelimiter (int matched, @Nullable Sink sink) throws IOException {
+            
+            final byte[] out = new byte[BUFFER_SIZE];
+            int length = 0;
+            int b;
+            
+            while ((b = this.next()) != -1) {
+                
+                if (b == (this.delimiter[matched] & 0xFF)) {
+                    
+                    if (++matched == this.delimiter.length) {
+                        
+                        if (sink != null && length > 0) {
+                            
+                            sink.accept(out, 0, length);
+                        }
+                        
+                        return true;
+                    }
+                    
+                    continue;
+                }
+                
+                // The delimiter only starts with a line break, so a partial match can only
+                // restart at the current byte.
+                if (matched > 0) {
+                    
+                    for (int i = 0; i < matched; i++) {
+                        
+                        if (length == out.length) {
+                            
+                            if (sink != null) {
+                                
+                                sink.accept(out, 0, length);
+                            }
+                            
+                            length = 0;
+                        }
+                        
+                        out[length++] = this.delimiter[i];
+                    }
+                    
+                    matched = b == (this.delimiter[0] & 0xFF) ? 1 : 0;
+                    
+                    if (matched == 1) {
+                        
+                        continue;
+                    }
+                }
+                
+                if (length == out.length) {
+                    
+                    if (sink != null) {
+                        
+                        sink.accept(out, 0, length);
+                    }
+                    
+                    length = 0;
+                }
+                
+                out[length++] = (byte) b;
+            }
+            
+            if (sink != null && length > 0) {
+                
+                sink.accept(out, 0, length);
+            }
+            
+            return false;
+        }
+        
+        private String readLine () throws IOException {
+            
+            final ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            
+            while ((b = this.next()) != -1 && b != '\n') {
+                
+                if (b != '\r') {
+                    
+                    line.write(b);
+                }
+            }
+            
+            return new String(line.toByteArray(), StandardCharsets.UTF_8);
+        }
+        
+        private int next () throws IOException {
+            
+            if (this.position == this.limit) {
+                
+                this.limit = this.in.read(this.buffer, 0, this.buffer.length);
+                this.position = 0;
+                
+                if (this.limit <= 0) {
+                    
+                    this.limit = 0;
+                    return -1;
+                }
+            }
+            
+            return this.buffer[this.position++] & 0xFF;
+        }
+    }
+    
+    /**
+     * Receives the bytes of a part.
+     */
+    private interface Sink {
+        
+        void accept (byte[] bytes, int offset, int length) throws IOException;
+    }
+}
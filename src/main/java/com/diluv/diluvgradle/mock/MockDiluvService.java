@@ -0,0 +1,204 @@
+package com.diluv.diluvgradle.mock;
+
+import java.io.IOException;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * A build wide service that runs a {@link MockDiluvServer}. The server is started the first
+ * time an upload task needs it and is stopped when the build finishes, so every task that uses
+ * the mock server in a build uploads to the same server. The server is configured through
+ * Gradle properties, so the same build script can be tested with different conditions from the
+ * command line.
+ */
+public abstract class MockDiluvService implements BuildService<MockDiluvService.Params>, AutoCloseable {
+    
+    /**
+     * The name the service is registered under.
+     */
+    public static final String NAME = "diluvMock";
+    
+    /**
+     * The Gradle property used to configure the port of the server.
+     */
+    public static final String PROPERTY_PORT = "diluv.mock.port";
+    
+    /**
+     * The Gradle property used to configure the token the server accepts.
+     */
+    public static final String PROPERTY_TOKEN = "diluv.mock.token";
+    
+    /**
+     * The Gradle property used to configure the delay in milliseconds before every response.
+     */
+    public static final String PROPERTY_LATENCY = "diluv.mock.latency";
+    
+    /**
+     * The Gradle property used to configure the chance from 0 to 1 that a request fails.
+     */
+    public static final String PROPERTY_FAILURE_RATE = "diluv.mock.failureRate";
+    
+    /**
+     * The Gradle property used to configure the amount of requests that fail first.
+     */
+    public static final String PROPERTY_FAIL_FIRST = "diluv.mock.failFirst";
+    
+    /**
+     * The Gradle property used to configure the status code of failed requests.
+     */
+    public static final String PROPERTY_FAILURE_STATUS = "diluv.mock.failureStatus";
+    
+    /**
+     * The Gradle property used to configure the max rate request bodies are read at.
+     */
+    public static final String PROPERTY_BANDWIDTH = "diluv.mock.bandwidth";
+    
+    /**
+     * The Gradle property used to configure how long uploaded files are processing.
+     */
+    public static final String PROPERTY_PROCESSING_TIME = "diluv.mock.processingTime";
+    
+    /**
+     * The running server.
+     */
+    private final MockDiluvServer server;
+    
+    public MockDiluvService() {
+        
+        final Params params = this.getParameters();
+        
+        try {
+            
+            this.server = new MockDiluvServer(params.getPort().getOrElse(0), params.getToken().getOrNull(), params.getLatency().getOrElse(0L), params.getFailureRate().getOrElse(0d), params.getFailFirst().getOrElse(0), params.getFailureStatus().getOrElse(503), params.getBandwidth().getOrElse(0L), params.getProcessingTime().getOrElse(0L));
+        }
+        
+        catch (final IOException e) {
+            
+            throw new GradleException("Failed to start the mock Diluv server.", e);
+        }
+        
+        Logging.getLogger("DiluvGradle").lifecycle("Started the mock Diluv server at {}.", this.server.getUrl());
+    }
+    
+    /**
+     * Gets the running server.
+     * 
+     * @return The mock server.
+     */
+    public MockDiluvServer getServer () {
+        
+        return this.server;
+    }
+    
+    /**
+     * Gets the base URL of the server.
+     * 
+     * @return The base URL of the server.
+     */
+    public String getUrl () {
+        
+        return this.server.getUrl();
+    }
+    
+    @Override
+    public void close () {
+        
+        this.server.close();
+    }
+    
+    /**
+     * Registers the service with the build if it has not already been registered. Every
+     * project receives the same service instance.
+     * 
+     * @param project The project requesting the service.
+     * @return A provider for the shared service.
+     */
+    public static Provider<MockDiluvService> register (Project project) {
+        
+        final ProviderFactory providers = project.getProviders();
+        
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, MockDiluvService.class, spec -> {
+            
+            final Params params = spec.getParameters();
+            params.getPort().set(providers.gradleProperty(PROPERTY_PORT).map(Integer::parseInt));
+            params.getToken().set(providers.gradleProperty(PROPERTY_TOKEN));
+            params.getLatency().set(providers.gradleProperty(PROPERTY_LATENCY).map(Long::parseLong));
+            params.getFailureRate().set(providers.gradleProperty(PROPERTY_FAILURE_RATE).map(Double::parseDouble));
+            params.getFailFirst().set(providers.gradleProperty(PROPERTY_FAIL_FIRST).map(Integer::parseInt));
+            params.getFailureStatus().set(providers.gradleProperty(PROPERTY_FAILURE_STATUS).map(Integer::parseInt));
+            params.getBandwidth().set(providers.gradleProperty(PROPERTY_BANDWIDTH).map(Long::parseLong));
+            params.getProcessingTime().set(providers.gradleProperty(PROPERTY_PROCESSING_TIME).map(Long::parseLong));
+        });
+    }
+    
+    /**
+     * Parameters used to configure the mock server.
+     */
+    public interface Params extends BuildServiceParameters {
+        
+        /**
+         * The port the server listens on. A free port is picked when this is not set.
+         * 
+         * @return The port of the server.
+         */
+        Property<Integer> getPort ();
+        
+        /**
+         * The token requests must be authorized with. Any token is accepted when this is not
+         * set.
+         * 
+         * @return The accepted token.
+         */
+        Property<String> getToken ();
+        
+        /**
+         * The delay in milliseconds added before every response.
+         * 
+         * @return The latency of the server.
+         */
+        Property<Long> getLatency ();
+        
+        /**
+         * The chance from 0 to 1 that a request fails.
+         * 
+         * @return The failure rate.
+         */
+        Property<Double> getFailureRate ();
+        
+        /**
+         * The amount of requests that fail before requests are handled normally.
+         * 
+         * @return The amount of requests that fail first.
+         */
+        Property<Integer> getFailFirst ();
+        
+        /**
+         * The status code sent for failed requests. Defaults to 503.
+         * 
+         * @return The failure status code.
+         */
+        Property<Integer> getFailureStatus ();
+        
+        /**
+         * The max rate in bytes per second at which request bodies are read. There is no
+         * limit when this is not set.
+         * 
+         * @return The bandwidth of the server.
+         */
+        Property<Long> getBandwidth ();
+        
+        /**
+         * How long in milliseconds uploaded files are reported as processing.
+         * 
+         * @return The processing time.
+         */
+        Property<Long> getProcessingTime ();
+    }
+}
@@ -0,0 +1,232 @@
+package com.diluv.diluvgradle.publish;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Named;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+
+import com.diluv.diluvgradle.request.RelationType;
+
+/**
+ * A single artifact published by the diluvPublishAll task. Values that are not set on the
+ * publication fall back to the values of the task, so shared values such as the version and
+ * changelog only need to be set once.
+ */
+public class DiluvPublication implements Named {
+    
+    /**
+     * The name of the publication. This is used to name the result of the upload.
+     */
+    private final String name;
+    
+    /**
+     * The ID of the Diluv project the artifact is uploaded to.
+     */
+    private final Property<String> projectId;
+    
+    /**
+     * The artifact to upload.
+     */
+    private final RegularFileProperty file;
+    
+    /**
+     * The type of file being uploaded.
+     */
+    private final Property<String> classifier;
+    
+    /**
+     * The version of the artifact.
+     */
+    private final Property<String> version;
+    
+    /**
+     * The changelog of the artifact.
+     */
+    private final Property<String> changelog;
+    
+    /**
+     * The release type of the artifact.
+     */
+    private final Property<String> releaseType;
+    
+    /**
+     * The game versions the artifact supports.
+     */
+    private final SetProperty<String> gameVersions;
+    
+    /**
+     * The mod loaders the artifact supports.
+     */
+    private final SetProperty<String> loaders;
+    
+    /**
+     * The relations the artifact has with other projects on Diluv.
+     */
+    private final MapProperty<Long, RelationType> relations;
+    
+    @Inject
+    public DiluvPublication(String name, ObjectFactory objects) {
+        
+        this.name = name;
+        this.projectId = objects.property(String.class);
+        this.file = objects.fileProperty();
+        this.classifier = objects.property(String.class).convention("binary");
+        this.version = objects.property(String.class);
+        this.changelog = objects.property(String.class);
+        this.releaseType = objects.property(String.class);
+        this.gameVersions = objects.setProperty(String.class);
+        this.loaders = objects.setProperty(String.class);
+        this.relations = objects.mapProperty(Long.class, RelationType.class).empty();
+    }
+    
+    @Override
+    public String getName () {
+        
+        return this.name;
+    }
+    
+    /**
+     * The ID of the Diluv project the artifact is uploaded to.
+     * 
+     * @return The project ID.
+     */
+    public Property<String> getProjectId () {
+        
+        return this.projectId;
+    }
+    
+    /**
+     * The artifact to upload. When this is set to the output of a task, such as the archive
+     * file of a jar task, the publish task depends on that task.
+     * 
+     * @return The artifact to upload.
+     */
+    public RegularFileProperty getFile () {
+        
+        return this.file;
+    }
+    
+    /**
+     * The type of file being uploaded. Defaults to binary.
+     * 
+     * @return The classifier of the file.
+     */
+    public Property<String> getClassifier () {
+        
+        return this.classifier;
+    }
+    
+    /**
+     * The version of the artifact. Defaults to the version of the task.
+     * 
+     * @return The version of the artifact.
+     */
+    public Property<String> getVersion () {
+        
+        return this.version;
+    }
+    
+    /**
+     * The changelog of the artifact. Defaults to the changelog of the task.
+     * 
+     * @return The changelog.
+     */
+    public Property<String> getChangelog () {
+        
+        return this.changelog;
+    }
+    
+    /**
+     * The release type of the artifact. Defaults to the release type of the task.
+     * 
+     * @return The release type.
+     */
+    public Property<String> getReleaseType () {
+        
+        return this.releaseType;
+    }
+    
+    /**
+     * The game versions the artifact supports. Defaults to the game versions of the task.
+     * 
+     * @return The game versions.
+     */
+    public SetProperty<String> getGameVersions () {
+        
+        return this.gameVersions;
+    }
+    
+    /**
+     * The mod loaders the artifact supports. Defaults to the loaders of the task.
+     * 
+     * @return The loaders.
+     */
+    public SetProperty<String> getLoaders () {
+        
+        return this.loaders;
+    }
+    
+    /**
+     * The relations the artifact has with other projects on Diluv, keyed by project ID.
+     * 
+     * @return The relations of the artifact.
+     */
+    public MapProperty<Long, RelationType> getRelations () {
+        
+        return this.relations;
+    }
+    
+    /**
+     * Adds a game version the artifact supports.
+     * 
+     * @param version The game version.
+     */
+    public void addGameVersion (String version) {
+        
+        this.gameVersions.add(version);
+    }
+    
+    /**
+     * Adds a mod loader the artifact supports.
+     * 
+     * @param loader The mod loader.
+     */
+    public void addLoader (String loader) {
+        
+        this.loaders.add(loader);
+    }
+    
+    /**
+     * Marks a project as required by the artifact.
+     * 
+     * @param project The ID of the project.
+     */
+    public void addDependency (long project) {
+        
+        this.relations.put(project, RelationType.REQUIRED);
+    }
+    
+    /**
+     * Marks a project as optional for the artifact.
+     * 
+     * @param project The ID of the project.
+     */
+    public void addOptionalDependency (long project) {
+        
+        this.relations.put(project, RelationType.OPTIONAL);
+    }
+    
+    /**
+     * Marks a project as incompatible with the artifact.
+     * 
+     * @param project The ID of the project.
+     */
+    public void addIncompatibility (long project) {
+        
+        this.relations.put(project, RelationType.INCOMPATIBLE);
+    }
+}
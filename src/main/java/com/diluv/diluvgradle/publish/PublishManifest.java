@@ -0,0 +1,332 @@
+package com.diluv.diluvgradle.publish;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.gradle.api.GradleException;
+
+import com.diluv.diluvgradle.request.RelationType;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * A JSON manifest describing the artifacts of a release. The manifest is read when the build
+ * is configured and turns into the publications of the diluvPublishAll task.
+ * 
+ * <pre>
+ * {
+ *   "version": "1.2.0",
+ *   "changelog": "Fixed a crash when loading worlds.",
+ *   "releaseType": "release",
+ *   "gameVersions": ["1.16.5"],
+ *   "publications": {
+ *     "forge": {
+ *       "projectId": "123",
+ *       "file": "forge/build/libs/example-forge-1.2.0.jar",
+ *       "builtBy": ":forge:jar",
+ *       "loaders": ["forge"],
+ *       "relations": { "456": "required" }
+ *     }
+ *   }
+ * }
+ * </pre>
+ */
+public final class PublishManifest {
+    
+    /**
+     * The version shared by every publication.
+     */
+    @Nullable
+    private final String version;
+    
+    /**
+     * The changelog shared by every publication.
+     */
+    @Nullable
+    private final String changelog;
+    
+    /**
+     * The release type shared by every publication.
+     */
+    @Nullable
+    private final String releaseType;
+    
+    /**
+     * The game versions shared by every publication.
+     */
+    private final Set<String> gameVersions;
+    
+    /**
+     * The loaders shared by every publication.
+     */
+    private final Set<String> loaders;
+    
+    /**
+     * The publications in the manifest, in the order they were defined.
+     */
+    private final List<Entry> publications;
+    
+    private PublishManifest(JsonObject json) {
+        
+        this.version = getString(json, "version");
+        this.changelog = getString(json, "changelog");
+        this.releaseType = getString(json, "releaseType");
+        this.gameVersions = getStrings(json, "gameVersions");
+        this.loaders = getStrings(json, "loaders");
+        this.publications = new ArrayList<>();
+        
+        final JsonObject entries = json.has("publications") ? json.getAsJsonObject("publications") : new JsonObject();
+        
+        for (final Map.Entry<String, JsonElement> entry : entries.entrySet()) {
+            
+            if (!entry.getValue().isJsonObject()) {
+                
+                throw new JsonParseException("Publication " + entry.getKey() + " must be an object.");
+            }
+            
+            this.publications.add(new Entry(entry.getKey(), entry.getValue().getAsJsonObject()));
+        }
+    }
+    
+    @Nullable
+    public String getVersion () {
+        
+        return this.version;
+    }
+    
+    @Nullable
+    public String getChangelog () {
+        
+        return this.changelog;
+    }
+    
+    @Nullable
+    public String getReleaseType () {
+        
+        return this.releaseType;
+    }
+    
+    public Set<String> getGameVersions () {
+        
+        return this.gameVersions;
+    }
+    
+    public Set<String> getLoaders () {
+        
+        return this.loaders;
+    }
+    
+    public List<Entry> getPublications () {
+        
+        return this.publications;
+    }
+    
+    /**
+     * Reads a manifest from disk.
+     * 
+     * @param file The manifest file.
+     * @return The manifest that was read.
+     */
+    public static PublishManifest read (File file) {
+        
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            
+            final JsonElement json = JsonParser.parseReader(reader);
+            
+            if (!json.isJsonObject()) {
+                
+                throw new JsonParseException("The manifest must be a JSON object.");
+            }
+            
+            return new PublishManifest(json.getAsJsonObject());
+        }
+        
+        catch (final IOException | JsonParseException | IllegalStateException | ClassCastException e) {
+            
+            throw new GradleException("Invalid Diluv publish manifest " + file + ". " + e.getMessage(), e);
+        }
+    }
+    
+    @Nullable
+    private static String getString (JsonObject json, String key) {
+        
+        final JsonElement value = json.get(key);
+        return value != null && !value.isJsonNull() ? value.getAsString() : null;
+    }
+    
+    private static Set<String> getStrings (JsonObject json, String key) {
+        
+        final JsonElement value = json.get(key);
+        
+        if (value == null || value.isJsonNull()) {
+            
+            return Collections.emptySet();
+        }
+        
+        final Set<String> values = new LinkedHashSet<>();
+        value.getAsJsonArray().forEach(element -> values.add(element.getAsString()));
+        return values;
+    }
+    
+    /**
+     * A single publication in the manifest.
+     */
+    public static final class Entry {
+        
+        /**
+         * The name of the publication.
+         */
+        private final String name;
+        
+        /**
+         * The ID of the Diluv project to upload to.
+         */
+        @Nullable
+        private final String projectId;
+        
+        /**
+         * The path of the artifact, relative to the root project.
+         */
+        @Nullable
+        private final String file;
+        
+        /**
+         * The path of the task that builds the artifact.
+         */
+        @Nullable
+        private final String builtBy;
+        
+        @Nullable
+        private final String classifier;
+        
+        @Nullable
+        private final String version;
+        
+        @Nullable
+        private final String changelog;
+        
+        @Nullable
+        private final String releaseType;
+        
+        private final Set<String> gameVersions;
+        
+        private final Set<String> loaders;
+        
+        /**
+         * The relations of the artifact, keyed by project ID.
+         */
+        private final Map<Long, RelationType> relations = new LinkedHashMap<>();
+        
+        private Entry(String name, JsonObject json) {
+            
+            this.name = name;
+            this.projectId = getString(json, "projectId");
+            this.file = getString(json, "file");
+            this.builtBy = getString(json, "builtBy");
+            this.classifier = getString(json, "classifier");
+            this.version = getString(json, "version");
+            this.changelog = getString(json, "changelog");
+            this.releaseType = getString(json, "releaseType");
+            this.gameVersions = getStrings(json, "gameVersions");
+            this.loaders = getStrings(json, "loaders");
+            
+            final JsonObject relations = json.has("relations") ? json.getAsJsonObject("relations") : new JsonObject();
+            
+            for (final Map.Entry<String, JsonElement> relation : relations.entrySet()) {
+                
+                final RelationType type = RelationType.fromSerializedName(relation.getValue().getAsString());
+                
+                if (type == null) {
+                    
+                    throw new JsonParseException("Publication " + name + " has an unknown relation type '" + relation.getValue().getAsString() + "'.");
+                }
+                
+                try {
+                    
+                    this.relations.put(Long.parseLong(relation.getKey()), type);
+                }
+                
+                catch (final NumberFormatException e) {
+                    
+                    throw new JsonParseException("Publication " + name + " has a relation with an invalid project ID '" + relation.getKey() + "'.");
+                }
+            }
+        }
+        
+        public String getName () {
+            
+            return this.name;
+        }
+        
+        @Nullable
+        public String getProjectId () {
+            
+            return this.projectId;
+        }
+        
+        @Nullable
+        public String getFile () {
+            
+            return this.file;
+        }
+        
+        @Nullable
+        public String getBuiltBy () {
+            
+            return this.builtBy;
+        }
+        
+        @Nullable
+        public String getClassifier () {
+            
+            return this.classifier;
+        }
+        
+        @Nullable
+        public String getVersion () {
+            
+            return this.version;
+        }
+        
+        @Nullable
+        public String getChangelog () {
+            
+            return this.changelog;
+        }
+        
+        @Nullable
+        public String getReleaseType () {
+            
+            return this.releaseType;
+        }
+        
+        public Set<String> getGameVersions () {
+            
+            return this.gameVersions;
+        }
+        
+        public Set<String> getLoaders () {
+            
+            return this.loaders;
+        }
+        
+        public Map<Long, RelationType> getRelations () {
+            
+            return this.relations;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.diluv.diluvgradle.publish;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.annotation.Nullable;
+
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.upload.UploadResult;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * The combined results of a diluvPublishAll run. Every publication is listed with its outcome
+ * so CI jobs can read a single file instead of one result per artifact.
+ */
+public class PublishSummary {
+    
+    /**
+     * The status of a publication that was uploaded, or was already published.
+     */
+    public static final String PUBLISHED = "published";
+    
+    /**
+     * The status of a publication that Diluv rejected.
+     */
+    public static final String FAILED = "failed";
+    
+    /**
+     * The status of a publication that was not published. The upload either failed before
+     * Diluv responded or was cancelled after another upload failed.
+     */
+    public static final String NOT_PUBLISHED = "not-published";
+    
+    /**
+     * The publications and their outcomes.
+     */
+    private final JsonArray publications = new JsonArray();
+    
+    /**
+     * The amount of publications that were published.
+     */
+    private int published = 0;
+    
+    /**
+     * Adds the outcome of a publication to the summary.
+     * 
+     * @param publication The name of the publication.
+     * @param projectId The ID of the project the artifact was uploaded to.
+     * @param file The artifact.
+     * @param result The result of the upload. This is null if no result was written.
+     */
+    public void add (String publication, String projectId, File file, @Nullable UploadResult result) {
+        
+        final JsonObject entry = new JsonObject();
+        entry.addProperty("name", publication);
+        entry.addProperty("projectId", projectId);
+        entry.addProperty("file", file.getName());
+        
+        if (result == null) {
+            
+            entry.addProperty("status", NOT_PUBLISHED);
+        }
+        
+        else if (result.isSuccessful()) {
+            
+            final ResponseUpload upload = result.getUpload();
+            entry.addProperty("status", PUBLISHED);
+            entry.addProperty("classifier", result.getClassifier());
+            entry.addProperty("fileId", upload.getId());
+            entry.addProperty("version", upload.getVersion());
+            entry.addProperty("downloadURL", upload.getDownloadURL());
+            entry.addProperty("processingStatus", upload.getStatus());
+            this.published++;
+        }
+        
+        else {
+            
+            entry.addProperty("status", FAILED);
+            entry.addProperty("classifier", result.getClassifier());
+            entry.addProperty("error", result.getError() != null ? result.getError().getMessage() : null);
+        }
+        
+        this.publications.add(entry);
+    }
+    
+    /**
+     * Gets the amount of publications in the summary.
+     * 
+     * @return The amount of publications.
+     */
+    public int getTotal () {
+        
+        return this.publications.size();
+    }
+    
+    /**
+     * Gets the amount of publications that were not published.
+     * 
+     * @return The amount of failed publications.
+     */
+    public int getFailures () {
+        
+        return this.publications.size() - this.published;
+    }
+    
+    /**
+     * Writes the summary to disk.
+     * 
+     * @param gson The Gson instance used to write the summary.
+     * @param file The file to write to.
+     * @throws IOException Whenever the summary could not be written.
+     */
+    public void save (Gson gson, File file) throws IOException {
+        
+        final JsonObject json = new JsonObject();
+        json.addProperty("total", this.getTotal());
+        json.addProperty("published", this.published);
+        json.addProperty("failed", this.getFailures());
+        json.add("publications", this.publications);
+        
+        Files.createDirectories(file.toPath().getParent());
+        
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            
+            gson.newBuilder().setPrettyPrinting().create().toJson(json, writer);
+        }
+    }
+}
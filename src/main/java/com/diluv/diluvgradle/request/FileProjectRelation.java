@@ -1,7 +1,14 @@
 package com.diluv.diluvgradle.request;
 
+import java.io.IOException;
+
+import com.diluv.diluvgradle.json.JsonValues;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * A POJO that defines a relationship between a file and a project hosted on Diluv. These are
@@ -10,12 +17,17 @@ import com.google.gson.annotations.SerializedName;
  */
 public final class FileProjectRelation {
     
+    /**
+     * An adapter that reads and writes relations without using reflection.
+     */
+    public static final TypeAdapter<FileProjectRelation> ADAPTER = new Adapter().nullSafe();
+    
     /**
      * The ID of the project that the relation is for.
      */
     @Expose
     @SerializedName("projectId")
-    private final Long projectId;
+    private final long projectId;
     
     /**
      * The type of relation being defined.
@@ -30,13 +42,13 @@ public final class FileProjectRelation {
      * @param projectId The ID of the project to create a relation with.
      * @param type The type of relation being created.
      */
-    public FileProjectRelation(Long projectId, RelationType type) {
+    public FileProjectRelation(long projectId, RelationType type) {
         
         this.projectId = projectId;
         this.type = type;
     }
     
-    public Long getProjectId () {
+    public long getProjectId () {
         
         return this.projectId;
     }
@@ -45,4 +57,51 @@ public final class FileProjectRelation {
         
         return this.type;
     }
+    
+    private static final class Adapter extends TypeAdapter<FileProjectRelation> {
+        
+        @Override
+        public void write (JsonWriter writer, FileProjectRelation relation) throws IOException {
+            
+            writer.beginObject();
+            writer.name("projectId").value(relation.projectId);
+            writer.name("type");
+            RelationType.ADAPTER.write(writer, relation.type);
+            writer.endObject();
+        }
+        
+        @Override
+        public FileProjectRelation read (JsonReader reader) throws IOException {
+            
+            Long projectId = null;
+            RelationType type = null;
+            reader.beginObject();
+            
+            while (reader.hasNext()) {
+                
+                switch (reader.nextName()) {
+                    
+                    case "projectId":
+                        projectId = JsonValues.nextLong(reader);
+                        break;
+                    
+                    case "type":
+                        type = RelationType.ADAPTER.read(reader);
+                        break;
+                    
+                    default:
+                        reader.skipValue();
+                }
+            }
+            
+            reader.endObject();
+            
+            if (projectId == null) {
+                
+                throw new JsonParseException("Project relation is missing a projectId.");
+            }
+            
+            return new FileProjectRelation(projectId, type);
+        }
+    }
 }
\ No newline at end of file
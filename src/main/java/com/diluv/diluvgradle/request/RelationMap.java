@@ -0,0 +1,295 @@
+package com.diluv.diluvgradle.request;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * An insertion ordered map from the ID of a Diluv project to the relation with that project.
+ * Project IDs are kept as primitives. Relations are stored in arrays in the order they were
+ * added, and an open addressing table points from each ID to its position. This makes adding,
+ * replacing and looking up a relation take constant time, so adding thousands of relations
+ * does not slow down as the map grows.
+ * 
+ * <p>
+ * Removed relations leave a gap in the arrays, which is cleared out the next time the arrays
+ * are full. The map is serialized as an array of relations, in the same shape as a list of
+ * {@link FileProjectRelation}.
+ */
+@JsonAdapter(RelationMap.Adapter.class)
+final class RelationMap {
+    
+    /**
+     * An adapter that reads and writes the relations as a JSON array.
+     */
+    static final Adapter ADAPTER = new Adapter();
+    
+    /**
+     * The value of a table slot that does not point to a relation.
+     */
+    private static final int FREE = -1;
+    
+    /**
+     * The project IDs, in the order they were added.
+     */
+    private long[] ids;
+    
+    /**
+     * The relation types, at the same position as their project ID. Relations that have been
+     * removed are null.
+     */
+    private RelationType[] types;
+    
+    /**
+     * The position of each project ID in the arrays, indexed by the hash of the ID. The table
+     * is always at least twice as large as the arrays so probes stay short.
+     */
+    private int[] table;
+    
+    /**
+     * The amount of positions used in the arrays, including removed relations.
+     */
+    private int end;
+    
+    /**
+     * The amount of relations in the map.
+     */
+    private int size;
+    
+    RelationMap() {
+        
+        this.allocate(8);
+    }
+    
+    /**
+     * Gets the amount of relations in the map.
+     * 
+     * @return The amount of relations.
+     */
+    int size () {
+        
+        return this.size;
+    }
+    
+    /**
+     * Gets the relation with a project.
+     * 
+     * @param projectId The ID of the project.
+     * @return The relation with the project, or null if there is none.
+     */
+    @Nullable
+    RelationType get (long projectId) {
+        
+        final int index = this.table[this.find(projectId)];
+        return index == FREE ? null : this.types[index];
+    }
+    
+    /**
+     * Sets the relation with a project. A relation that replaces an existing one keeps its
+     * position, while a new relation is added at the end.
+     * 
+     * @param projectId The ID of the project.
+     * @param type The relation with the project.
+     * @return The relation that was replaced, or null if there was none.
+     */
+    @Nullable
+    RelationType put (long projectId, RelationType type) {
+        
+        Objects.requireNonNull(type, "type");
+        
+        if (this.end == this.ids.length) {
+            
+            this.allocate(this.size * 2 < this.ids.length ? this.ids.length : this.ids.length * 2);
+        }
+        
+        final int slot = this.find(projectId);
+        final int index = this.table[slot];
+        
+        if (index != FREE) {
+            
+            final RelationType previous = this.types[index];
+            
+            if (previous != null) {
+                
+                this.types[index] = type;
+                return previous;
+            }
+        }
+        
+        // The slot is either free or points to a removed relation with the same ID. Either way
+        // the relation is added at the end so it is ordered like a new relation.
+        this.ids[this.end] = projectId;
+        this.types[this.end] = type;
+        this.table[slot] = this.end++;
+        this.size++;
+        return null;
+    }
+    
+    /**
+     * Removes the relation with a project.
+     * 
+     * @param projectId The ID of the project.
+     * @return The relation that was removed, or null if there was none.
+     */
+    @Nullable
+    RelationType remove (long projectId) {
+        
+        final int index = this.table[this.find(projectId)];
+        
+        if (index == FREE || this.types[index] == null) {
+            
+            return null;
+        }
+        
+        final RelationType previous = this.types[index];
+        this.types[index] = null;
+        this.size--;
+        return previous;
+    }
+    
+    /**
+     * Makes room for an amount of relations, so adding them does not resize the map more than
+     * once.
+     * 
+     * @param expected The amount of relations the map is expected to hold.
+     */
+    void ensureCapacity (int expected) {
+        
+        if (expected > this.ids.length - this.end + this.size) {
+            
+            this.allocate(expected);
+        }
+    }
+    
+    /**
+     * Finds the table slot of a project ID. This is either the slot that points to the ID, or
+     * the free slot where the ID would be added.
+     * 
+     * @param projectId The ID of the project.
+     * @return The slot of the ID.
+     */
+    private int find (long projectId) {
+        
+        final int mask = this.table.length - 1;
+        int slot = hash(projectId) & mask;
+        
+        while (this.table[slot] != FREE && this.ids[this.table[slot]] != projectId) {
+            
+            slot = slot + 1 & mask;
+        }
+        
+        return slot;
+    }
+    
+    /**
+     * Moves the relations into new arrays, leaving out removed relations, and rebuilds the
+     * table.
+     * 
+     * @param minCapacity The minimum amount of relations the new arrays can hold.
+     */
+    private void allocate (int minCapacity) {
+        
+        final int capacity = Math.max(8, Integer.highestOneBit(Math.max(minCapacity, this.size) - 1) << 1);
+        final long[] oldIds = this.ids;
+        final RelationType[] oldTypes = this.types;
+        final int oldEnd = this.end;
+        
+        this.ids = new long[capacity];
+        this.types = new RelationType[capacity];
+        this.table = new int[capacity * 2];
+        Arrays.fill(this.table, FREE);
+        this.end = 0;
+        
+        for (int i = 0; i < oldEnd; i++) {
+            
+            if (oldTypes[i] != null) {
+                
+                this.ids[this.end] = oldIds[i];
+                this.types[this.end] = oldTypes[i];
+                this.table[this.find(oldIds[i])] = this.end++;
+            }
+        }
+    }
+    
+    /**
+     * Spreads the bits of a project ID, since IDs are often small and sequential.
+     * 
+     * @param projectId The ID to hash.
+     * @return The hash of the ID.
+     */
+    private static int hash (long projectId) {
+        
+        final long hash = projectId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32);
+    }
+    
+    static final class Adapter extends TypeAdapter<RelationMap> {
+        
+        @Override
+        public void write (JsonWriter writer, RelationMap relations) throws IOException {
+            
+            writer.beginArray();
+            
+            for (int i = 0; i < relations.end; i++) {
+                
+                if (relations.types[i] != null) {
+                    
+                    writer.beginObject();
+                    writer.name("projectId").value(relations.ids[i]);
+                    writer.name("type");
+                    RelationType.ADAPTER.write(writer, relations.types[i]);
+                    writer.endObject();
+                }
+            }
+            
+            writer.endArray();
+        }
+        
+        @Override
+        public RelationMap read (JsonReader reader) throws IOException {
+            
+            final RelationMap relations = new RelationMap();
+            this.read(reader, relations);
+            return relations;
+        }
+        
+        /**
+         * Reads an array of relations into an existing map. Relations with an unknown type are
+         * skipped.
+         * 
+         * @param reader The reader to read from.
+         * @param relations The map to add the relations to.
+         * @throws IOException Whenever the relations could not be read.
+         */
+        void read (JsonReader reader, RelationMap relations) throws IOException {
+            
+            if (reader.peek() == JsonToken.NULL) {
+                
+                reader.nextNull();
+                return;
+            }
+            
+            reader.beginArray();
+            
+            while (reader.hasNext()) {
+                
+                final FileProjectRelation relation = FileProjectRelation.ADAPTER.read(reader);
+                
+                if (relation != null && relation.getRelationType() != null) {
+                    
+                    relations.put(relation.getProjectId(), relation.getRelationType());
+                }
+            }
+            
+            reader.endArray();
+        }
+    }
+}
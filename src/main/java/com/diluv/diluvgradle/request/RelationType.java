@@ -1,6 +1,14 @@
 package com.diluv.diluvgradle.request;
 
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * All valid options for the types of relations a file can have with other projects.
@@ -24,4 +32,71 @@ public enum RelationType {
      */
     @SerializedName("incompatible")
     INCOMPATIBLE;
+    
+    /**
+     * An adapter that reads and writes relation types using their lower case names, without
+     * looking up the serialized names through reflection.
+     */
+    public static final TypeAdapter<RelationType> ADAPTER = new TypeAdapter<RelationType>() {
+        
+        @Override
+        public void write (JsonWriter writer, RelationType type) throws IOException {
+            
+            writer.value(type.getSerializedName());
+        }
+        
+        @Override
+        public RelationType read (JsonReader reader) throws IOException {
+            
+            final String name = reader.nextString();
+            final RelationType type = fromSerializedName(name);
+            
+            if (type == null) {
+                
+                throw new IOException("Unknown relation type '" + name + "' at " + reader.getPath());
+            }
+            
+            return type;
+        }
+    }.nullSafe();
+    
+    /**
+     * A cached copy of the values, as {@link #values()} creates a new array every time.
+     */
+    private static final RelationType[] VALUES = values();
+    
+    /**
+     * The name used for the type in the Diluv API.
+     */
+    private final String serializedName = this.name().toLowerCase(Locale.ROOT);
+    
+    /**
+     * Gets the name used for the type in the Diluv API.
+     * 
+     * @return The serialized name of the type.
+     */
+    public String getSerializedName () {
+        
+        return this.serializedName;
+    }
+    
+    /**
+     * Finds a relation type by the name used for it in the Diluv API.
+     * 
+     * @param name The serialized name, for example "required".
+     * @return The relation type, or null if there is no type with the name.
+     */
+    @Nullable
+    public static RelationType fromSerializedName (String name) {
+        
+        for (final RelationType type : VALUES) {
+            
+            if (type.serializedName.equals(name)) {
+                
+                return type;
+            }
+        }
+        
+        return null;
+    }
 }
\ No newline at end of file
@@ -1,18 +1,27 @@
 package com.diluv.diluvgradle.request;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
+import com.diluv.diluvgradle.json.JsonValues;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 public class RequestData {
     
+    /**
+     * An adapter that reads and writes request data without using reflection.
+     */
+    public static final TypeAdapter<RequestData> ADAPTER = new Adapter().nullSafe();
+    
     @Expose
     @SerializedName("version")
     private String version;
@@ -31,7 +40,7 @@ public class RequestData {
     
     @Expose
     @SerializedName("gameVersions")
-    private final Collection<String> gameVersions = new HashSet<>();
+    private final Collection<String> gameVersions = new LinkedHashSet<>();
     
     @Expose
     @SerializedName("loaders")
@@ -39,7 +48,7 @@ public class RequestData {
     
     @Expose
     @SerializedName("dependencies")
-    private final List<FileProjectRelation> dependencies = new ArrayList<>();
+    private final RelationMap dependencies = new RelationMap();
     
     public void setVersion (String version) {
         
@@ -76,6 +85,11 @@ public class RequestData {
         this.classifier = classifier;
     }
     
+    public String getClassifier () {
+        
+        return this.classifier;
+    }
+    
     public boolean addGameVersion (String gameVersion) {
         
         return this.gameVersions.add(gameVersion);
@@ -96,23 +110,168 @@ public class RequestData {
         return !this.loaders.isEmpty();
     }
     
+    /**
+     * Adds a relation with a project. An existing relation with the same project is replaced.
+     * 
+     * @param relation The relation to add.
+     * @return The relation that was replaced, or null if there was none.
+     */
     @Nullable
     public FileProjectRelation addRelation (FileProjectRelation relation) {
         
-        final ListIterator<FileProjectRelation> iter = this.dependencies.listIterator();
+        final RelationType existing = this.addRelation(relation.getProjectId(), relation.getRelationType());
+        return existing != null ? new FileProjectRelation(relation.getProjectId(), existing) : null;
+    }
+    
+    /**
+     * Adds a relation with a project. An existing relation with the same project is replaced
+     * and keeps its place in the request.
+     * 
+     * @param projectId The ID of the project.
+     * @param type The type of relation.
+     * @return The type of the relation that was replaced, or null if there was none.
+     */
+    @Nullable
+    public RelationType addRelation (long projectId, RelationType type) {
+        
+        return this.dependencies.put(projectId, type);
+    }
+    
+    /**
+     * Adds relations with several projects. Existing relations with the same projects are
+     * replaced.
+     * 
+     * @param relations The relations to add, keyed by project ID.
+     */
+    public void addRelations (Map<Long, RelationType> relations) {
+        
+        this.dependencies.ensureCapacity(this.dependencies.size() + relations.size());
+        relations.forEach(this.dependencies::put);
+    }
+    
+    /**
+     * Adds the same type of relation with several projects. Existing relations with the same
+     * projects are replaced.
+     * 
+     * @param type The type of relation.
+     * @param projectIds The IDs of the projects.
+     */
+    public void addRelations (RelationType type, long... projectIds) {
+        
+        this.dependencies.ensureCapacity(this.dependencies.size() + projectIds.length);
+        
+        for (final long projectId : projectIds) {
+            
+            this.dependencies.put(projectId, type);
+        }
+    }
+    
+    /**
+     * Removes the relation with a project.
+     * 
+     * @param projectId The ID of the project.
+     * @return The type of the relation that was removed, or null if there was none.
+     */
+    @Nullable
+    public RelationType removeRelation (long projectId) {
+        
+        return this.dependencies.remove(projectId);
+    }
+    
+    /**
+     * Removes the relations with several projects.
+     * 
+     * @param projectIds The IDs of the projects.
+     */
+    public void removeRelations (long... projectIds) {
+        
+        for (final long projectId : projectIds) {
+            
+            this.dependencies.remove(projectId);
+        }
+    }
+    
+    /**
+     * Gets the relation with a project.
+     * 
+     * @param projectId The ID of the project.
+     * @return The type of relation with the project, or null if there is none.
+     */
+    @Nullable
+    public RelationType getRelation (long projectId) {
+        
+        return this.dependencies.get(projectId);
+    }
+    
+    public int getRelationCount () {
+        
+        return this.dependencies.size();
+    }
+    
+    private static final class Adapter extends TypeAdapter<RequestData> {
         
-        while (iter.hasNext()) {
+        @Override
+        public void write (JsonWriter writer, RequestData data) throws IOException {
             
-            final FileProjectRelation existingRelation = iter.next();
+            writer.beginObject();
+            writer.name("version").value(data.version);
+            writer.name("changelog").value(data.changelog);
+            writer.name("releaseType").value(data.releaseType);
+            writer.name("classifier").value(data.classifier);
+            writer.name("gameVersions");
+            JsonValues.writeStrings(writer, data.gameVersions);
+            writer.name("loaders");
+            JsonValues.writeStrings(writer, data.loaders);
+            writer.name("dependencies");
+            RelationMap.ADAPTER.write(writer, data.dependencies);
+            writer.endObject();
+        }
+        
+        @Override
+        public RequestData read (JsonReader reader) throws IOException {
+            
+            final RequestData data = new RequestData();
+            reader.beginObject();
             
-            if (existingRelation.getProjectId().equals(relation.getProjectId())) {
+            while (reader.hasNext()) {
                 
-                iter.remove();
-                iter.add(relation);
-                return existingRelation;
+                switch (reader.nextName()) {
+                    
+                    case "version":
+                        data.version = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "changelog":
+                        data.changelog = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "releaseType":
+                        data.releaseType = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "classifier":
+                        data.classifier = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "gameVersions":
+                        JsonValues.nextStrings(reader, data.gameVersions);
+                        break;
+                    
+                    case "loaders":
+                        JsonValues.nextStrings(reader, data.loaders);
+                        break;
+                    
+                    case "dependencies":
+                        RelationMap.ADAPTER.read(reader, data.dependencies);
+                        break;
+                    
+                    default:
+                        reader.skipValue();
+                }
             }
+            
+            reader.endObject();
+            return data;
         }
-        
-        return null;
     }
 }
@@ -1,7 +1,13 @@
 package com.diluv.diluvgradle.responses;
 
+import java.io.IOException;
+
+import com.diluv.diluvgradle.json.JsonValues;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * A binding for Diluv API error messages. These are created by deserializing the JSON response
@@ -9,6 +15,11 @@ import com.google.gson.annotations.SerializedName;
  */
 public class ResponseError {
     
+    /**
+     * An adapter that reads and writes errors without using reflection.
+     */
+    public static final TypeAdapter<ResponseError> ADAPTER = new Adapter().nullSafe();
+    
     /**
      * The type of error that was encountered. Ex. "Bad Request"
      */
@@ -59,4 +70,48 @@ public class ResponseError {
         
         return this.message;
     }
+    
+    private static final class Adapter extends TypeAdapter<ResponseError> {
+        
+        @Override
+        public void write (JsonWriter writer, ResponseError error) throws IOException {
+            
+            writer.beginObject();
+            writer.name("type").value(error.type);
+            writer.name("error").value(error.error);
+            writer.name("message").value(error.message);
+            writer.endObject();
+        }
+        
+        @Override
+        public ResponseError read (JsonReader reader) throws IOException {
+            
+            final ResponseError error = new ResponseError();
+            reader.beginObject();
+            
+            while (reader.hasNext()) {
+                
+                switch (reader.nextName()) {
+                    
+                    case "type":
+                        error.type = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "error":
+                        error.error = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "message":
+                        error.message = JsonValues.nextString(reader);
+                        break;
+                    
+                    default:
+                        reader.skipValue();
+                }
+            }
+            
+            reader.endObject();
+            return error;
+        }
+    }
 }
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.diluv.diluvgradle.responses;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
+import com.diluv.diluvgradle.json.JsonValues;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * This class defines a POJO that represents the API response for files that have been
@@ -11,6 +17,11 @@ import com.google.gson.annotations.SerializedName;
  */
 public class ResponseUpload {
     
+    /**
+     * An adapter that reads and writes uploads without using reflection.
+     */
+    public static final TypeAdapter<ResponseUpload> ADAPTER = new Adapter().nullSafe();
+    
     /**
      * The upload status for the file. Barring rare exceptions this will always be PENDING for
      * newly uploaded files.
@@ -54,6 +65,13 @@ public class ResponseUpload {
     @SerializedName("size")
     private Long size;
     
+    /**
+     * The version of the uploaded file.
+     */
+    @Expose
+    @SerializedName("version")
+    private String version;
+    
     /**
      * The changelog of the uploaded file.
      */
@@ -162,6 +180,11 @@ public class ResponseUpload {
         return this.size;
     }
     
+    public String getVersion () {
+        
+        return this.version;
+    }
+    
     public String getChangelog () {
         
         return this.changelog;
@@ -219,6 +242,11 @@ public class ResponseUpload {
     
     public static class UserInfo {
         
+        /**
+         * An adapter that reads and writes user info without using reflection.
+         */
+        public static final TypeAdapter<UserInfo> ADAPTER = new Adapter().nullSafe();
+        
         @Expose
         @SerializedName("userId")
         private Long userId;
@@ -263,10 +291,69 @@ public class ResponseUpload {
             
             return this.createdAt;
         }
+        
+        private static final class Adapter extends TypeAdapter<UserInfo> {
+            
+            @Override
+            public void write (JsonWriter writer, UserInfo user) throws IOException {
+                
+                writer.beginObject();
+                writer.name("userId").value(user.userId);
+                writer.name("username").value(user.username);
+                writer.name("displayName").value(user.displayName);
+                writer.name("avatarURL").value(user.avatarURL);
+                writer.name("createdAt").value(user.createdAt);
+                writer.endObject();
+            }
+            
+            @Override
+            public UserInfo read (JsonReader reader) throws IOException {
+                
+                final UserInfo user = new UserInfo();
+                reader.beginObject();
+                
+                while (reader.hasNext()) {
+                    
+                    switch (reader.nextName()) {
+                        
+                        case "userId":
+                            user.userId = JsonValues.nextLong(reader);
+                            break;
+                        
+                        case "username":
+                            user.username = JsonValues.nextString(reader);
+                            break;
+                        
+                        case "displayName":
+                            user.displayName = JsonValues.nextString(reader);
+                            break;
+                        
+                        case "avatarURL":
+                            user.avatarURL = JsonValues.nextString(reader);
+                            break;
+                        
+                        case "createdAt":
+                            user.createdAt = JsonValues.nextLong(reader);
+                            break;
+                        
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                
+                reader.endObject();
+                return user;
+            }
+        }
     }
     
     public static class GameVersion {
         
+        /**
+         * An adapter that reads and writes game versions without using reflection.
+         */
+        public static final TypeAdapter<GameVersion> ADAPTER = new Adapter().nullSafe();
+        
         @Expose
         @SerializedName("version")
         private String version;
@@ -293,5 +380,171 @@ public class ResponseUpload {
             
             return this.released;
         }
+        
+        private static final class Adapter extends TypeAdapter<GameVersion> {
+            
+            @Override
+            public void write (JsonWriter writer, GameVersion gameVersion) throws IOException {
+                
+                writer.beginObject();
+                writer.name("version").value(gameVersion.version);
+                writer.name("type").value(gameVersion.type);
+                writer.name("released").value(gameVersion.released);
+                writer.endObject();
+            }
+            
+            @Override
+            public GameVersion read (JsonReader reader) throws IOException {
+                
+                final GameVersion gameVersion = new GameVersion();
+                reader.beginObject();
+                
+                while (reader.hasNext()) {
+                    
+                    switch (reader.nextName()) {
+                        
+                        case "version":
+                            gameVersion.version = JsonValues.nextString(reader);
+                            break;
+                        
+                        case "type":
+                            gameVersion.type = JsonValues.nextString(reader);
+                            break;
+                        
+                        case "released":
+                            final Long released = JsonValues.nextLong(reader);
+                            gameVersion.released = released != null ? released : 0L;
+                            break;
+                        
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                
+                reader.endObject();
+                return gameVersion;
+            }
+        }
+    }
+    
+    private static final class Adapter extends TypeAdapter<ResponseUpload> {
+        
+        @Override
+        public void write (JsonWriter writer, ResponseUpload upload) throws IOException {
+            
+            writer.beginObject();
+            writer.name("status").value(upload.status);
+            writer.name("lastStatusChanged").value(upload.lastStatusChanged);
+            writer.name("id").value(upload.id);
+            writer.name("name").value(upload.name);
+            writer.name("downloadURL").value(upload.downloadURL);
+            writer.name("size").value(upload.size);
+            writer.name("version").value(upload.version);
+            writer.name("changelog").value(upload.changelog);
+            writer.name("sha512").value(upload.sha512);
+            writer.name("downloads").value(upload.downloadCount);
+            writer.name("releaseType").value(upload.releaseType);
+            writer.name("classifier").value(upload.classifier);
+            writer.name("createdAt").value(upload.createdAt);
+            writer.name("gameVersions");
+            JsonValues.writeArray(writer, GameVersion.ADAPTER, upload.gameVersions);
+            writer.name("gameSlug").value(upload.gameSlug);
+            writer.name("projectTypeSlug").value(upload.projectTypeSlug);
+            writer.name("projectSlug").value(upload.projectSlug);
+            writer.name("user");
+            UserInfo.ADAPTER.write(writer, upload.uploader);
+            writer.endObject();
+        }
+        
+        @Override
+        public ResponseUpload read (JsonReader reader) throws IOException {
+            
+            final ResponseUpload upload = new ResponseUpload();
+            reader.beginObject();
+            
+            while (reader.hasNext()) {
+                
+                switch (reader.nextName()) {
+                    
+                    case "status":
+                        upload.status = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "lastStatusChanged":
+                        upload.lastStatusChanged = JsonValues.nextLong(reader);
+                        break;
+                    
+                    case "id":
+                        upload.id = JsonValues.nextLong(reader);
+                        break;
+                    
+                    case "name":
+                        upload.name = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "downloadURL":
+                        upload.downloadURL = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "size":
+                        upload.size = JsonValues.nextLong(reader);
+                        break;
+                    
+                    case "version":
+                        upload.version = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "changelog":
+                        upload.changelog = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "sha512":
+                        upload.sha512 = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "downloads":
+                        upload.downloadCount = JsonValues.nextLong(reader);
+                        break;
+                    
+                    case "releaseType":
+                        upload.releaseType = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "classifier":
+                        upload.classifier = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "createdAt":
+                        upload.createdAt = JsonValues.nextLong(reader);
+                        break;
+                    
+                    case "gameVersions":
+                        upload.gameVersions = JsonValues.nextArray(reader, GameVersion.ADAPTER, new ArrayList<>());
+                        break;
+                    
+                    case "gameSlug":
+                        upload.gameSlug = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "projectTypeSlug":
+                        upload.projectTypeSlug = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "projectSlug":
+                        upload.projectSlug = JsonValues.nextString(reader);
+                        break;
+                    
+                    case "user":
+                        upload.uploader = UserInfo.ADAPTER.read(reader);
+                        break;
+                    
+                    default:
+                        reader.skipValue();
+                }
+            }
+            
+            reader.endObject();
+            return upload;
+        }
     }
 }
\ No newline at end of file
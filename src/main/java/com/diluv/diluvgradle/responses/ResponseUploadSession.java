@@ -0,0 +1,69 @@
+package com.diluv.diluvgradle.responses;
+
+import java.io.IOException;
+
+import com.diluv.diluvgradle.json.JsonValues;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * This class defines a POJO that represents the API response for a newly started chunked
+ * upload session.
+ */
+public class ResponseUploadSession {
+    
+    /**
+     * An adapter that reads and writes upload sessions without using reflection.
+     */
+    public static final TypeAdapter<ResponseUploadSession> ADAPTER = new Adapter().nullSafe();
+    
+    /**
+     * An ID assigned to the upload session by Diluv. This is used to upload the individual
+     * parts of the file.
+     */
+    @Expose
+    @SerializedName("uploadId")
+    private String uploadId;
+    
+    public String getUploadId () {
+        
+        return this.uploadId;
+    }
+    
+    private static final class Adapter extends TypeAdapter<ResponseUploadSession> {
+        
+        @Override
+        public void write (JsonWriter writer, ResponseUploadSession session) throws IOException {
+            
+            writer.beginObject();
+            writer.name("uploadId").value(session.uploadId);
+            writer.endObject();
+        }
+        
+        @Override
+        public ResponseUploadSession read (JsonReader reader) throws IOException {
+            
+            final ResponseUploadSession session = new ResponseUploadSession();
+            reader.beginObject();
+            
+            while (reader.hasNext()) {
+                
+                switch (reader.nextName()) {
+                    
+                    case "uploadId":
+                        session.uploadId = JsonValues.nextString(reader);
+                        break;
+                    
+                    default:
+                        reader.skipValue();
+                }
+            }
+            
+            reader.endObject();
+            return session;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.diluv.diluvgradle.spool;
+
+import javax.annotation.Nullable;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Describes an artifact that was written to the spool queue instead of being uploaded. The
+ * entry holds everything needed to upload the artifact later, except for the token which is
+ * never written to disk.
+ */
+public class SpoolEntry {
+    
+    /**
+     * The upload endpoint of the project.
+     */
+    @Expose
+    @SerializedName("endpoint")
+    private String endpoint;
+    
+    /**
+     * The ID of the project the artifact is uploaded to.
+     */
+    @Expose
+    @SerializedName("projectId")
+    private String projectId;
+    
+    /**
+     * The classifier of the artifact.
+     */
+    @Expose
+    @SerializedName("classifier")
+    private String classifier;
+    
+    /**
+     * The version of the artifact.
+     */
+    @Expose
+    @SerializedName("version")
+    private String version;
+    
+    /**
+     * The name of the artifact file. The spooled copy of the file uses this name.
+     */
+    @Expose
+    @SerializedName("fileName")
+    private String fileName;
+    
+    /**
+     * The SHA-512 hash of the artifact.
+     */
+    @Expose
+    @SerializedName("sha512")
+    private String sha512;
+    
+    /**
+     * The serialized request data sent with the artifact.
+     */
+    @Expose
+    @SerializedName("requestData")
+    private String requestData;
+    
+    /**
+     * The path of the task that spooled the artifact.
+     */
+    @Expose
+    @SerializedName("task")
+    private String task;
+    
+    /**
+     * The absolute path of the cache directory used by the task that spooled the artifact.
+     * This is null for entries spooled before the cache directory was recorded.
+     */
+    @Nullable
+    @Expose
+    @SerializedName("cacheDirectory")
+    private String cacheDirectory;
+    
+    /**
+     * The time the artifact was spooled, in milliseconds since the epoch.
+     */
+    @Expose
+    @SerializedName("spooledAt")
+    private long spooledAt;
+    
+    private SpoolEntry() {
+    
+    }
+    
+    public SpoolEntry(String endpoint, String projectId, String classifier, String version, String fileName, String sha512, String requestData, String task, String cacheDirectory) {
+        
+        this.endpoint = endpoint;
+        this.projectId = projectId;
+        this.classifier = classifier;
+        this.version = version;
+        this.fileName = fileName;
+        this.sha512 = sha512;
+        this.requestData = requestData;
+        this.task = task;
+        this.cacheDirectory = cacheDirectory;
+        this.spooledAt = System.currentTimeMillis();
+    }
+    
+    public String getEndpoint () {
+        
+        return this.endpoint;
+    }
+    
+    public String getProjectId () {
+        
+        return this.projectId;
+    }
+    
+    public String getClassifier () {
+        
+        return this.classifier;
+    }
+    
+    public String getVersion () {
+        
+        return this.version;
+    }
+    
+    public String getFileName () {
+        
+        return this.fileName;
+    }
+    
+    public String getSha512 () {
+        
+        return this.sha512;
+    }
+    
+    public String getRequestData () {
+        
+        return this.requestData;
+    }
+    
+    public String getTask () {
+        
+        return this.task;
+    }
+    
+    @Nullable
+    public String getCacheDirectory () {
+        
+        return this.cacheDirectory;
+    }
+    
+    public long getSpooledAt () {
+        
+        return this.spooledAt;
+    }
+}
@@ -0,0 +1,233 @@
+package com.diluv.diluvgradle.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.Directory;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * A durable queue of artifacts that are waiting to be uploaded. Each entry is a directory that
+ * holds a copy of the artifact and a {@link SpoolEntry} describing the upload. Entries are
+ * named after the time they were added so they are drained in the order they were spooled.
+ * 
+ * Entries are written to a hidden temporary directory first and then moved into place, so an
+ * interrupted build never leaves a partial entry in the queue.
+ */
+public class SpoolQueue {
+    
+    /**
+     * The Gradle property used to change the directory spooled artifacts are written to.
+     */
+    public static final String PROPERTY_DIRECTORY = "diluv.spool.directory";
+    
+    /**
+     * The name of the file that describes an entry.
+     */
+    private static final String ENTRY_FILE = "entry.json";
+    
+    /**
+     * A counter used to keep the order of entries that were spooled in the same millisecond.
+     */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    
+    /**
+     * An internal logger instance used to output status and debug information about the queue.
+     */
+    private static final Logger LOG = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The Gson instance used to read and write entries.
+     */
+    private final Gson gson;
+    
+    /**
+     * The directory of the queue.
+     */
+    private final File directory;
+    
+    public SpoolQueue(Gson gson, File directory) {
+        
+        this.gson = gson;
+        this.directory = directory;
+    }
+    
+    /**
+     * Adds an artifact to the queue. The artifact is copied into the queue so it can be
+     * uploaded even after the build output has been cleaned.
+     * 
+     * @param entry The upload info of the artifact.
+     * @param artifact The artifact file.
+     * @return Whether or not the artifact was added. An artifact that is already waiting in
+     *         the queue for the same project and classifier is not added again.
+     * @throws IOException Whenever the entry could not be written.
+     */
+    public boolean add (SpoolEntry entry, File artifact) throws IOException {
+        
+        for (final Spooled spooled : this.list()) {
+            
+            final SpoolEntry existing = spooled.getEntry();
+            
+            if (existing.getEndpoint().equals(entry.getEndpoint()) && existing.getClassifier().equals(entry.getClassifier()) && existing.getSha512().equalsIgnoreCase(entry.getSha512())) {
+                
+                LOG.lifecycle("{} is already waiting in the Diluv spool queue.", artifact.getName());
+                return false;
+            }
+        }
+        
+        final String name = String.format(Locale.ROOT, "%013d-%04d-%s", entry.getSpooledAt(), SEQUENCE.getAndIncrement() % 10000, entry.getClassifier().replaceAll("[^A-Za-z0-9._-]", "_"));
+        final Path target = new File(this.directory, name).toPath();
+        final Path temp = new File(this.directory, "." + name + ".tmp").toPath();
+        
+        Files.createDirectories(temp);
+        Files.copy(artifact.toPath(), temp.resolve(entry.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        
+        try (Writer writer = Files.newBufferedWriter(temp.resolve(ENTRY_FILE), StandardCharsets.UTF_8)) {
+            
+            this.gson.toJson(entry, writer);
+        }
+        
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+    
+    /**
+     * Lists the entries in the queue in the order they were added. Entries that can not be
+     * read are skipped.
+     * 
+     * @return The entries in the queue.
+     */
+    public List<Spooled> list () {
+        
+        final List<Spooled> entries = new ArrayList<>();
+        final File[] children = this.directory.listFiles(file -> file.isDirectory() && !file.getName().startsWith("."));
+        
+        if (children != null) {
+            
+            Arrays.sort(children);
+            
+            for (final File child : children) {
+                
+                try (Reader reader = Files.newBufferedReader(new File(child, ENTRY_FILE).toPath(), StandardCharsets.UTF_8)) {
+                    
+                    final SpoolEntry entry = this.gson.fromJson(reader, SpoolEntry.class);
+                    
+                    if (entry != null) {
+                        
+                        entries.add(new Spooled(child, entry));
+                    }
+                }
+                
+                catch (final IOException | JsonParseException e) {
+                    
+                    LOG.warn("Skipping unreadable Diluv spool entry {}.", child, e);
+                }
+            }
+        }
+        
+        return entries;
+    }
+    
+    /**
+     * Removes an entry from the queue once it has been uploaded.
+     * 
+     * @param entryDir The directory of the entry.
+     */
+    public static void remove (File entryDir) {
+        
+        final File[] files = entryDir.listFiles();
+        
+        if (files != null) {
+            
+            for (final File file : files) {
+                
+                if (!file.delete()) {
+                    
+                    LOG.warn("Could not delete spooled file {}.", file);
+                }
+            }
+        }
+        
+        if (!entryDir.delete()) {
+            
+            LOG.warn("Could not delete Diluv spool entry {}.", entryDir);
+        }
+    }
+    
+    /**
+     * Gets the default queue directory of a project. Queues are kept in the .gradle directory
+     * of the root project so they survive a clean build. Each project has its own queue.
+     * 
+     * @param project The project to get the queue of.
+     * @return The queue directory of the project.
+     */
+    public static Provider<Directory> getDefaultDirectory (Project project) {
+        
+        final String path = project.getPath().equals(":") ? "root" : project.getPath().substring(1).replace(':', '-');
+        final Directory root = project.getRootProject().getLayout().getProjectDirectory();
+        
+        // Only the root directory is captured, so the provider can be stored in the
+        // configuration cache.
+        final Provider<Directory> base = project.getProviders().gradleProperty(PROPERTY_DIRECTORY).map(root::dir);
+        return base.orElse(root.dir(".gradle/diluv-spool")).map(dir -> dir.dir(path));
+    }
+    
+    /**
+     * An entry that is waiting in the queue.
+     */
+    public static class Spooled {
+        
+        /**
+         * The directory of the entry.
+         */
+        private final File directory;
+        
+        /**
+         * The upload info of the entry.
+         */
+        private final SpoolEntry entry;
+        
+        public Spooled(File directory, SpoolEntry entry) {
+            
+            this.directory = directory;
+            this.entry = entry;
+        }
+        
+        public File getDirectory () {
+            
+            return this.directory;
+        }
+        
+        public SpoolEntry getEntry () {
+            
+            return this.entry;
+        }
+        
+        /**
+         * Gets the spooled copy of the artifact.
+         * 
+         * @return The artifact file.
+         */
+        public File getArtifact () {
+            
+            return new File(this.directory, this.entry.getFileName());
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.util.EntityUtils;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.http.DiluvApiException;
+import com.diluv.diluvgradle.http.FilePartEntity;
+import com.diluv.diluvgradle.http.Responses;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.responses.ResponseUploadSession;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Uploads a file to Diluv as a series of numbered parts. Completed parts are recorded in an
+ * {@link UploadJournal} so an interrupted upload can be resumed without sending the parts that
+ * were already received.
+ * 
+ * The upload is done in three steps. A session is started by posting the file details to
+ * {@code <files>/uploads}. Each part is then sent to {@code <files>/uploads/<id>/parts/<n>},
+ * and finally the upload is completed by posting the file data to
+ * {@code <files>/uploads/<id>/complete}.
+ */
+public class ChunkedUploader {
+    
+    /**
+     * An internal logger instance used to output status and debug information about the
+     * upload.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The context used to send requests.
+     */
+    private final UploadContext context;
+    
+    /**
+     * The Gson instance used to read and write JSON.
+     */
+    private final Gson gson;
+    
+    /**
+     * The size of each part in bytes.
+     */
+    private final long chunkSize;
+    
+    /**
+     * The max amount of parts that can be uploaded at once.
+     */
+    private final int parallelism;
+    
+    public ChunkedUploader(UploadContext context, long chunkSize, int parallelism) {
+        
+        if (chunkSize <= 0) {
+            
+            throw new GradleException("The chunk size must be greater than 0. Got " + chunkSize + ".");
+        }
+        
+        this.context = context;
+        this.gson = context.getGson();
+        this.chunkSize = chunkSize;
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * Uploads a file in parts. If the journal file describes an earlier upload of the same
+     * file, only the parts that were not completed will be uploaded.
+     * 
+     * @param filesEndpoint The files endpoint of the project being uploaded to.
+     * @param file The file to upload.
+     * @param sha512 The SHA-512 hash of the file.
+     * @param requestData The serialized request data for the file.
+     * @param fields Additional form fields sent when completing the upload.
+     * @param journalFile The file used to store the upload journal.
+     * @return The response from Diluv once the upload was completed.
+     * @throws IOException Whenever something goes wrong with uploading the file.
+     */
+    public ResponseUpload upload (String filesEndpoint, File file, String sha512, String requestData, Map<String, String> fields, File journalFile) throws IOException {
+        
+        final long size = file.length();
+        
+        try {
+            
+            return this.upload(filesEndpoint, file, size, sha512, requestData, fields, journalFile);
+        }
+        
+        catch (final DiluvApiException e) {
+            
+            // The session is no longer known by Diluv, most likely because it expired. Start
+            // over with a new session.
+            if (e.getStatus() == 404 && journalFile.delete()) {
+                
+                this.log.warn("The upload session for {} is no longer available. Restarting the upload.", file.getName());
+                return this.upload(filesEndpoint, file, size, sha512, requestData, fields, journalFile);
+            }
+            
+            throw e;
+        }
+    }
+    
+    private ResponseUpload upload (String filesEndpoint, File file, long size, String sha512, String requestData, Map<String, String> fields, File journalFile) throws IOException {
+        
+        final int parts = (int) Math.max(1, (size + this.chunkSize - 1) / this.chunkSize);
+        UploadJournal journal = UploadJournal.load(this.gson, journalFile);
+        
+        if (journal != null && journal.matches(size, sha512, this.chunkSize)) {
+            
+            this.log.lifecycle("Resuming upload of {}. {}/{} parts were already uploaded.", file.getName(), journal.getCompletedCount(), parts);
+        }
+        
+        else {
+            
+            final String uploadId = this.context.retry("Starting upload of " + file.getName(), attempt -> this.startSession(filesEndpoint, file, size, sha512, parts));
+            journal = new UploadJournal(uploadId, size, sha512, this.chunkSize);
+            journal.save(this.gson, journalFile);
+            this.log.debug("Started upload session {} for {} with {} parts.", journal.getUploadId(), file.getName(), parts);
+        }
+        
+        final String sessionEndpoint = filesEndpoint + "/uploads/" + journal.getUploadId();
+        this.uploadParts(sessionEndpoint, file, size, parts, journal, journalFile);
+        
+        final ResponseUpload uploaded = this.context.retry("Completing upload of " + file.getName(), attempt -> this.complete(sessionEndpoint, file, requestData, fields));
+        
+        if (uploaded.getSha512() != null && !sha512.equalsIgnoreCase(uploaded.getSha512())) {
+            
+            throw new GradleException("Upload hash mismatch! The file received by Diluv (" + uploaded.getSha512() + ") does not match the local file (" + sha512 + ").");
+        }
+        
+        // The upload is done, the journal is no longer needed.
+        if (!journalFile.delete()) {
+            
+            this.log.debug("Could not delete upload journal {}.", journalFile);
+        }
+        
+        return uploaded;
+    }
+    
+    /**
+     * Completes an upload session once every part has been uploaded.
+     */
+    private ResponseUpload complete (String sessionEndpoint, File file, String requestData, Map<String, String> fields) throws IOException {
+        
+        final HttpPost post = new HttpPost(sessionEndpoint + "/complete");
+        
+        final MultipartEntityBuilder form = MultipartEntityBuilder.create();
+        form.addTextBody("filename", file.getName());
+        form.addTextBody("data", requestData, ContentType.APPLICATION_JSON);
+        fields.forEach(form::addTextBody);
+        post.setEntity(form.build());
+        
+        return this.context.send(post, response -> {
+            
+            if (response.getStatusLine().getStatusCode() != 200) {
+                
+                throw Responses.error(this.gson, response, "Completing upload");
+            }
+            
+            final ResponseUpload uploaded = Responses.read(this.gson, response.getEntity(), ResponseUpload.class);
+            
+            if (uploaded == null) {
+                
+                throw new GradleException("Completing upload failed! The response body was empty.");
+            }
+            
+            return uploaded;
+        });
+    }
+    
+    /**
+     * Starts a new upload session.
+     */
+    private String startSession (String filesEndpoint, File file, long size, String sha512, int parts) throws IOException {
+        
+        final JsonObject body = new JsonObject();
+        body.addProperty("filename", file.getName());
+        body.addProperty("size", size);
+        body.addProperty("sha512", sha512);
+        body.addProperty("chunkSize", this.chunkSize);
+        body.addProperty("parts", parts);
+        
+        final HttpPost post = new HttpPost(filesEndpoint + "/uploads");
+        post.setEntity(new StringEntity(this.gson.toJson(body), ContentType.APPLICATION_JSON));
+        
+        return this.context.send(post, response -> {
+            
+            final int status = response.getStatusLine().getStatusCode();
+            
+            if (status != 200 && status != 201) {
+                
+                throw Responses.error(this.gson, response, "Starting upload");
+            }
+            
+            final ResponseUploadSession session = Responses.read(this.gson, response.getEntity(), ResponseUploadSession.class);
+            
+            if (session == null || session.getUploadId() == null) {
+                
+                throw new GradleException("Starting upload failed! No upload ID was provided.");
+            }
+            
+            return session.getUploadId();
+        });
+    }
+    
+    /**
+     * Uploads every part that has not been completed yet. At most {@link #parallelism} parts
+     * are uploaded at once. The journal is saved after each completed part.
+     */
+    private void uploadParts (String sessionEndpoint, File file, long size, int parts, UploadJournal journal, File journalFile) throws IOException {
+        
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism, parts));
+        final List<Future<?>> pending = new ArrayList<>();
+        
+        try {
+            
+            for (int part = 0; part < parts; part++) {
+                
+                if (journal.isComplete(part)) {
+                    
+                    continue;
+                }
+                
+                final int partNumber = part;
+                final long offset = part * this.chunkSize;
+                final long length = Math.min(this.chunkSize, size - offset);
+                
+                pending.add(executor.submit( () -> {
+                    
+                    this.context.retry("Uploading part " + (partNumber + 1) + "/" + parts + " of " + file.getName(), attempt -> {
+                        
+                        this.uploadPart(sessionEndpoint, file, partNumber, offset, length);
+                        return null;
+                    });
+                    journal.markComplete(partNumber);
+                    journal.save(this.gson, journalFile);
+                    this.log.info("Uploaded part {}/{} of {}.", partNumber + 1, parts, file.getName());
+                    return null;
+                }));
+            }
+            
+            for (final Future<?> future : pending) {
+                
+                future.get();
+            }
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while uploading " + file.getName() + ".", e);
+        }
+        
+        catch (final ExecutionException e) {
+            
+            final Throwable cause = e.getCause();
+            
+            if (cause instanceof IOException) {
+                
+                throw (IOException) cause;
+            }
+            
+            else if (cause instanceof RuntimeException) {
+                
+                throw (RuntimeException) cause;
+            }
+            
+            throw new GradleException("Failed to upload " + file.getName() + ".", cause);
+        }
+        
+        finally {
+            
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Uploads a single part of the file.
+     */
+    private void uploadPart (String sessionEndpoint, File file, int part, long offset, long length) throws IOException {
+        
+        final HttpPut put = new HttpPut(sessionEndpoint + "/parts/" + part);
+        put.setEntity(new FilePartEntity(file.toPath(), offset, length));
+        
+        this.context.send(put, response -> {
+            
+            final int status = response.getStatusLine().getStatusCode();
+            
+            if (status < 200 || status >= 300) {
+                
+                throw Responses.error(this.gson, response, "Uploading part " + part);
+            }
+            
+            EntityUtils.consume(response.getEntity());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,177 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.cache.PublishedFileIndex;
+import com.diluv.diluvgradle.http.Responses;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.util.SemanticVersion;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Checks if a file has already been published to a project. The local
+ * {@link PublishedFileIndex} is checked first. If enabled, the files of the project are then
+ * requested from Diluv and added to the index. Listings are requested conditionally, so an
+ * unchanged project costs a single empty response.
+ */
+public class DuplicateChecker {
+    
+    /**
+     * The type of the response when listing the files of a project.
+     */
+    private static final Type FILE_LIST = new TypeToken<List<ResponseUpload>>() {}.getType();
+    
+    /**
+     * An internal logger instance used to output status and debug information.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The context used to send requests.
+     */
+    private final UploadContext context;
+    
+    /**
+     * The local index of published files.
+     */
+    private final PublishedFileIndex index;
+    
+    public DuplicateChecker(UploadContext context, PublishedFileIndex index) {
+        
+        this.context = context;
+        this.index = index;
+    }
+    
+    /**
+     * Finds a file that was already published with the same hash.
+     * 
+     * @param filesEndpoint The files endpoint of the project.
+     * @param sha512 The SHA-512 hash of the file.
+     * @param checkRemote Whether or not the files of the project should be requested from
+     *        Diluv when the file is not known locally.
+     * @return The existing file. If the file has not been published this will be null.
+     */
+    @Nullable
+    public ResponseUpload findExisting (String filesEndpoint, String sha512, boolean checkRemote) {
+        
+        final ResponseUpload known = this.index.find(sha512);
+        
+        if (known != null || !checkRemote) {
+            
+            return known;
+        }
+        
+        try {
+            
+            this.refresh(filesEndpoint);
+        }
+        
+        catch (final Exception e) {
+            
+            // The lookup is only an optimization, the upload can still continue.
+            this.log.debug("Failed to list existing files from {}.", filesEndpoint, e);
+        }
+        
+        return this.index.find(sha512);
+    }
+    
+    /**
+     * Finds the latest version that was published to the project with the same classifier.
+     * The local index is used while it is younger than the time to live, otherwise it is
+     * refreshed from Diluv first. Files that do not use semantic versioning are ignored.
+     * 
+     * @param filesEndpoint The files endpoint of the project.
+     * @param classifier The classifier of the file being uploaded.
+     * @param ttl How long the index can be used without being refreshed, in milliseconds.
+     * @return The latest published version. If no versions were found this will be null.
+     * @throws IOException Whenever the files of the project could not be requested.
+     */
+    @Nullable
+    public SemanticVersion findLatestVersion (String filesEndpoint, String classifier, long ttl) throws IOException {
+        
+        if (!this.index.isFresh(ttl)) {
+            
+            this.refresh(filesEndpoint);
+        }
+        
+        return this.index.findLatestVersion(classifier);
+    }
+    
+    /**
+     * Records a file as published so later uploads of the same file can be skipped.
+     * 
+     * @param upload The published file.
+     */
+    public void record (ResponseUpload upload) {
+        
+        this.index.record(Collections.singletonList(upload));
+    }
+    
+    /**
+     * Refreshes the index with the files of the project. The validators of the last listing
+     * are sent along so Diluv only sends the listing again when it has changed.
+     */
+    private void refresh (String filesEndpoint) throws IOException {
+        
+        final PublishedFileIndex.Validators validators = this.index.getValidators();
+        
+        this.context.retry("Listing existing files", attempt -> {
+            
+            final HttpGet get = new HttpGet(filesEndpoint);
+            
+            if (validators.getETag() != null) {
+                
+                get.addHeader(HttpHeaders.IF_NONE_MATCH, validators.getETag());
+            }
+            
+            if (validators.getLastModified() != null) {
+                
+                get.addHeader(HttpHeaders.IF_MODIFIED_SINCE, validators.getLastModified());
+            }
+            
+            return this.context.send(get, response -> {
+                
+                final int status = response.getStatusLine().getStatusCode();
+                final PublishedFileIndex.Validators received = new PublishedFileIndex.Validators(header(response, HttpHeaders.ETAG), header(response, HttpHeaders.LAST_MODIFIED));
+                
+                if (status == HttpStatus.SC_NOT_MODIFIED) {
+                    
+                    this.log.debug("The files of {} have not changed since they were last listed.", filesEndpoint);
+                    EntityUtils.consume(response.getEntity());
+                    this.index.refreshed(null, received);
+                    return null;
+                }
+                
+                if (status != 200) {
+                    
+                    throw Responses.error(this.context.getGson(), response, "Listing existing files");
+                }
+                
+                final List<ResponseUpload> files = Responses.read(this.context.getGson(), response.getEntity(), FILE_LIST);
+                this.index.refreshed(files != null ? files : Collections.emptyList(), received);
+                return null;
+            });
+        });
+    }
+    
+    @Nullable
+    private static String header (HttpResponse response, String name) {
+        
+        final Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+}
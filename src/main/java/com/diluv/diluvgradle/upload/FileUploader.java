@@ -0,0 +1,163 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.http.DigestingFileBody;
+import com.diluv.diluvgradle.http.Responses;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+
+/**
+ * Uploads a single file to Diluv using a single multipart request.
+ */
+public class FileUploader {
+    
+    /**
+     * An internal logger instance used to output status and debug information about the
+     * upload.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The context used to send requests.
+     */
+    private final UploadContext context;
+    
+    public FileUploader(UploadContext context) {
+        
+        this.context = context;
+    }
+    
+    /**
+     * Uploads a file using the provided configuration.
+     * 
+     * @param endpoint The upload endpoint.
+     * @param file The file to upload.
+     * @param requestData The serialized request data for the file.
+     * @return The response from Diluv for the uploaded file.
+     * @throws IOException Whenever something goes wrong with uploading the file.
+     */
+    public ResponseUpload upload (String endpoint, File file, String requestData) throws IOException {
+        
+        return this.upload(endpoint, file, requestData, Collections.emptyMap());
+    }
+    
+    /**
+     * Uploads a file using the provided configuration, along with additional form fields such
+     * as the checksums of the file.
+     * 
+     * @param endpoint The upload endpoint.
+     * @param file The file to upload.
+     * @param requestData The serialized request data for the file.
+     * @param fields Additional form fields sent with the file.
+     * @return The response from Diluv for the uploaded file.
+     * @throws IOException Whenever something goes wrong with uploading the file.
+     */
+    public ResponseUpload upload (String endpoint, File file, String requestData, Map<String, String> fields) throws IOException {
+        
+        return this.upload(endpoint, file, null, requestData, fields);
+    }
+    
+    /**
+     * Uploads a file using the provided configuration, along with additional form fields such
+     * as the checksums of the file. When the hash of the file is known the file is not hashed
+     * again while it is sent.
+     * 
+     * @param endpoint The upload endpoint.
+     * @param file The file to upload.
+     * @param sha512 The SHA-512 hash of the file, or null if it should be calculated while the
+     *        file is sent.
+     * @param requestData The serialized request data for the file.
+     * @param fields Additional form fields sent with the file.
+     * @return The response from Diluv for the uploaded file.
+     * @throws IOException Whenever something goes wrong with uploading the file.
+     */
+    public ResponseUpload upload (String endpoint, File file, @Nullable String sha512, String requestData, Map<String, String> fields) throws IOException {
+        
+        this.log.debug("Uploading {} to {}.", file.getPath(), endpoint);
+        
+        final HttpPost post = new HttpPost(endpoint);
+        
+        // The file is streamed from disk, and hashed while it is being sent if the hash is not
+        // known yet.
+        final DigestingFileBody fileBody = new DigestingFileBody(file, sha512);
+        post.setEntity(createEntity(fileBody, file, requestData, fields));
+        
+        try {
+            
+            return this.context.send(post, response -> {
+                
+                final int status = response.getStatusLine().getStatusCode();
+                
+                this.log.debug("Diluv Response Code: {}", status);
+                
+                if (status != 200) {
+                    
+                    throw Responses.error(this.context.getGson(), response, "Upload");
+                }
+                
+                final ResponseUpload uploaded = Responses.read(this.context.getGson(), response.getEntity(), ResponseUpload.class);
+                
+                if (uploaded == null) {
+                    
+                    throw new GradleException("Upload failed! Status: " + status + " Reason: The response body was empty.");
+                }
+                
+                // Make sure the file Diluv received is the same as the local file.
+                final String localHash = fileBody.getSha512();
+                
+                if (uploaded.getSha512() == null) {
+                    
+                    this.log.warn("Diluv did not provide a hash for {}. The upload could not be verified.", file.getName());
+                }
+                
+                else if (localHash == null || !localHash.equalsIgnoreCase(uploaded.getSha512())) {
+                    
+                    this.log.error("Upload hash mismatch! Local: {} Diluv: {}", localHash, uploaded.getSha512());
+                    throw new GradleException("Upload hash mismatch! The file received by Diluv (" + uploaded.getSha512() + ") does not match the local file (" + localHash + ").");
+                }
+                
+                return uploaded;
+            });
+        }
+        
+        catch (final IOException e) {
+            
+            this.log.debug("Failure to upload file!", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Builds the multipart form sent to upload a file. This is also used by dry runs, which
+     * build the form without sending it.
+     * 
+     * @param fileBody The body of the file part.
+     * @param file The file being uploaded.
+     * @param requestData The serialized request data for the file.
+     * @param fields Additional form fields sent with the file.
+     * @return The multipart form.
+     */
+    static HttpEntity createEntity (ContentBody fileBody, File file, String requestData, Map<String, String> fields) {
+        
+        final MultipartEntityBuilder form = MultipartEntityBuilder.create();
+        form.addPart("file", fileBody);
+        form.addTextBody("filename", file.getName());
+        form.addTextBody("data", requestData, ContentType.APPLICATION_JSON);
+        fields.forEach(form::addTextBody);
+        return form.build();
+    }
+}
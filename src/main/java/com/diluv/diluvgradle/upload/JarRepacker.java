@@ -0,0 +1,763 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.cache.DigestCache;
+import com.diluv.diluvgradle.util.Hashing;
+
+/**
+ * Repacks jar files before they are uploaded. Every entry is deflated again at the configured
+ * level, in parallel across the available cores. Entries are written as soon as they are
+ * deflated, and only a limited amount of entries are deflated ahead of the writer, so memory
+ * use does not grow with the size of the jar. The output is reproducible: entries are
+ * sorted by name with the manifest first, every entry uses the same fixed timestamp, and no
+ * extra fields, comments or file attributes are written. Entries matching the exclude
+ * patterns and duplicate entries are left out.
+ * 
+ * Repacked files are cached by the hash of the input file and the repack options, so a file
+ * that has already been repacked is not repacked again. The hash is read from the digest
+ * cache, so an input file that did not change is not read to find its cache entry. Files that were not repacked because
+ * the result would not be smaller are remembered under the same key.
+ */
+public class JarRepacker {
+    
+    /**
+     * The DOS date used for every entry, 1980-02-01. This is the same fixed date Gradle uses
+     * for reproducible archives.
+     */
+    private static final int DOS_DATE = (2 << 5) | 1;
+    
+    /**
+     * The DOS time used for every entry, midnight.
+     */
+    private static final int DOS_TIME = 0;
+    
+    /**
+     * The zip version needed to extract deflated entries.
+     */
+    private static final int ZIP_VERSION = 20;
+    
+    /**
+     * The general purpose flag marking entry names as UTF-8.
+     */
+    private static final int FLAG_UTF8 = 0x800;
+    
+    /**
+     * The largest size that can be written without zip64 extensions.
+     */
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    
+    /**
+     * The largest amount of entries that can be written without zip64 extensions.
+     */
+    private static final int MAX_ENTRIES = 0xFFFF;
+    
+    /**
+     * The amount of entries that can be deflated ahead of the entry being written.
+     */
+    private static final int MAX_PENDING_ENTRIES = 2 * Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * The uncompressed size of the entries that can be deflated ahead of the entry being
+     * written. A single entry larger than this is still deflated, just not alongside others.
+     */
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+    
+    /**
+     * The name of the file that marks a cache entry as not being worth repacking.
+     */
+    private static final String NOT_SMALLER_MARKER = "not-smaller";
+    
+    /**
+     * How long repacked files are kept in the cache after they were last used.
+     */
+    private static final long CACHE_TTL = TimeUnit.DAYS.toMillis(7);
+    
+    /**
+     * Orders entries by name, with the manifest first so it can be read by JarInputStream.
+     */
+    private static final Comparator<String> ENTRY_ORDER = Comparator.comparingInt(JarRepacker::getEntryPriority).thenComparing(Comparator.naturalOrder());
+    
+    /**
+     * An internal logger instance used to output status and debug information about
+     * repacking.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The deflate level used for entries, from 0 to 9.
+     */
+    private final int level;
+    
+    /**
+     * The glob patterns of entries that are left out.
+     */
+    private final List<String> excludes;
+    
+    /**
+     * The compiled exclude patterns.
+     */
+    private final List<Pattern> excludePatterns;
+    
+    /**
+     * The directory repacked files are cached in.
+     */
+    private final File cacheDirectory;
+    
+    /**
+     * The cache used to look up the hash of input files.
+     */
+    private final DigestCache digests;
+    
+    /**
+     * Creates a new repacker.
+     * 
+     * @param level The deflate level used for entries, from 0 to 9.
+     * @param excludes Glob patterns of entries to leave out, such as META-INF/*.SF. A single
+     *        * does not match across directories, while ** does.
+     * @param cacheDirectory The directory repacked files are cached in.
+     * @param digests The cache used to look up the hash of input files.
+     */
+    public JarRepacker(int level, List<String> excludes, File cacheDirectory, DigestCache digests) {
+        
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            
+            throw new IllegalArgumentException("The repack level must be between 0 and 9. Was " + level + ".");
+        }
+        
+        this.level = level;
+        this.excludes = new ArrayList<>(excludes);
+        this.excludePatterns = excludes.stream().map(JarRepacker::compileGlob).collect(Collectors.toList());
+        this.cacheDirectory = cacheDirectory;
+        this.digests = digests;
+    }
+    
+    /**
+     * Repacks a jar file. If the file can not be repacked, or repacking does not make it
+     * smaller, the original file is used.
+     * 
+     * @param input The jar file to repack.
+     * @return The outcome of repacking the file.
+     * @throws IOException Whenever the file could not be read or the repacked file could not
+     *         be written.
+     */
+    public Result repack (File input) throws IOException {
+        
+        final long start = System.nanoTime();
+        final File directory = new File(this.cacheDirectory, this.getCacheKey(input));
+        final File target = new File(directory, input.getName());
+        
+        if (target.isFile()) {
+            
+            // Mark the file as recently used so it is not pruned from the cache.
+            directory.setLastModified(System.currentTimeMillis());
+            this.log.debug("Using cached repacked file {}.", target);
+            return new Result(target, input.length(), target.length(), millisSince(start), true);
+        }
+        
+        if (new File(directory, NOT_SMALLER_MARKER).isFile()) {
+            
+            directory.setLastModified(System.currentTimeMillis());
+            this.log.debug("Not repacking {}, it was not smaller when it was last repacked.", input.getName());
+            return new Result(input, input.length(), input.length(), millisSince(start), true);
+        }
+        
+        Files.createDirectories(directory.toPath());
+        final Path temp = Files.createTempFile(directory.toPath(), input.getName(), ".tmp");
+        
+        try (ZipFile zip = new ZipFile(input)) {
+            
+            final List<ZipEntry> entries = this.getEntries(zip);
+            
+            if (entries.size() > MAX_ENTRIES) {
+                
+                this.log.debug("Not repacking {}, it has too many entries.", input.getName());
+                return new Result(input, input.length(), input.length(), millisSince(start), false);
+            }
+            
+            final long size = this.write(zip, entries, temp);
+            
+            if (size < 0 || size >= input.length()) {
+                
+                this.log.debug("Not repacking {}, the repacked file would not be smaller.", input.getName());
+                Files.write(new File(directory, NOT_SMALLER_MARKER).toPath(), new byte[0]);
+                this.pruneCache();
+                return new Result(input, input.length(), input.length(), millisSince(start), false);
+            }
+            
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        catch (final ZipException e) {
+            
+            this.log.debug("Not repacking {}, it is not a valid jar file.", input.getName(), e);
+            return new Result(input, input.length(), input.length(), millisSince(start), false);
+        }
+        
+        finally {
+            
+            Files.deleteIfExists(temp);
+        }
+        
+        this.pruneCache();
+        return new Result(target, input.length(), target.length(), millisSince(start), false);
+    }
+    
+    /**
+     * Reads the entries of a jar that are kept, in the order they are written.
+     */
+    private List<ZipEntry> getEntries (ZipFile zip) {
+        
+        // Only the first entry with a name is kept, later duplicates are left out.
+        final Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        final Enumeration<? extends ZipEntry> enumeration = zip.entries();
+        
+        while (enumeration.hasMoreElements()) {
+            
+            final ZipEntry entry = enumeration.nextElement();
+            
+            if (!this.isExcluded(entry.getName())) {
+                
+                entries.putIfAbsent(entry.getName(), entry);
+            }
+        }
+        
+        final List<ZipEntry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparing(ZipEntry::getName, ENTRY_ORDER));
+        return sorted;
+    }
+    
+    /**
+     * Deflates the entries of a jar and writes them as a zip file. Entries are deflated in
+     * parallel, but only a limited amount of them are deflated ahead of the entry being
+     * written. The deflated data of an entry is dropped once it has been written.
+     * 
+     * @return The size of the written file, or -1 if the file would need zip64 extensions.
+     */
+    private long write (ZipFile zip, List<ZipEntry> entries, Path target) throws IOException {
+        
+        final List<Packed> written = new ArrayList<>(entries.size());
+        final Deque<CompletableFuture<Packed>> pending = new ArrayDeque<>();
+        long pendingBytes = 0;
+        int next = 0;
+        
+        try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024))) {
+            
+            while (next < entries.size() || !pending.isEmpty()) {
+                
+                while (next < entries.size() && (pending.isEmpty() || pending.size() < MAX_PENDING_ENTRIES && pendingBytes + getPendingSize(entries.get(next)) <= MAX_PENDING_BYTES)) {
+                    
+                    final ZipEntry entry = entries.get(next++);
+                    pendingBytes += getPendingSize(entry);
+                    pending.add(CompletableFuture.supplyAsync( () -> this.deflate(zip, entry)));
+                }
+                
+                final Packed entry = join(pending.poll());
+                pendingBytes -= entry.pendingSize;
+                
+                if (out.count > MAX_SIZE || entry.size > MAX_SIZE) {
+                    
+                    return -1;
+                }
+                
+                entry.offset = out.count;
+                out.writeInt(0x04034b50);
+                out.writeShort(ZIP_VERSION);
+                out.writeShort(entry.flags);
+                out.writeShort(entry.method);
+                out.writeShort(DOS_TIME);
+                out.writeShort(DOS_DATE);
+                out.writeInt(entry.crc);
+                out.writeInt(entry.compressedSize);
+                out.writeInt(entry.size);
+                out.writeShort(entry.name.length);
+                out.writeShort(0);
+                out.write(entry.name);
+                out.write(entry.data);
+                entry.data = null;
+                written.add(entry);
+            }
+            
+            final long directoryOffset = out.count;
+            
+            for (final Packed entry : written) {
+                
+                out.writeInt(0x02014b50);
+                out.writeShort(ZIP_VERSION);
+                out.writeShort(ZIP_VERSION);
+                out.writeShort(entry.flags);
+                out.writeShort(entry.method);
+                out.writeShort(DOS_TIME);
+                out.writeShort(DOS_DATE);
+                out.writeInt(entry.crc);
+                out.writeInt(entry.compressedSize);
+                out.writeInt(entry.size);
+                out.writeShort(entry.name.length);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeInt(0);
+                out.writeInt(entry.offset);
+                out.write(entry.name);
+            }
+            
+            final long directorySize = out.count - directoryOffset;
+            
+            if (directoryOffset > MAX_SIZE || out.count > MAX_SIZE) {
+                
+                return -1;
+            }
+            
+            out.writeInt(0x06054b50);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(written.size());
+            out.writeShort(written.size());
+            out.writeInt(directorySize);
+            out.writeInt(directoryOffset);
+            out.writeShort(0);
+            return out.count;
+        }
+        
+        finally {
+            
+            // Entries that were deflated ahead are not needed when writing stopped early. They
+            // are still waited for, so the jar is not closed while they are being read.
+            for (final CompletableFuture<Packed> future : pending) {
+                
+                try {
+                    
+                    future.join();
+                }
+                
+                catch (final RuntimeException e) {
+                    
+                    // The entry is not written, so its failure does not matter.
+                }
+            }
+        }
+    }
+    
+    /**
+     * Deflates a single entry. Entries that do not get smaller are stored instead.
+     */
+    private Packed deflate (ZipFile zip, ZipEntry entry) {
+        
+        if (entry.isDirectory()) {
+            
+            return new Packed(entry, ZipEntry.STORED, 0, 0, new byte[0]);
+        }
+        
+        final byte[] data;
+        
+        try (InputStream stream = zip.getInputStream(entry)) {
+            
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) Math.min(entry.getSize(), Integer.MAX_VALUE - 8) : 8192);
+            final byte[] chunk = new byte[8192];
+            int read;
+            
+            while ((read = stream.read(chunk)) != -1) {
+                
+                buffer.write(chunk, 0, read);
+            }
+            
+            data = buffer.toByteArray();
+        }
+        
+        catch (final IOException e) {
+            
+            throw new UncheckedIOException(e);
+        }
+        
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        
+        final Deflater deflater = new Deflater(this.level, true);
+        
+        try {
+            
+            deflater.setInput(data);
+            deflater.finish();
+            
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            final byte[] chunk = new byte[8192];
+            
+            while (!deflater.finished()) {
+                
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            
+            if (compressed.size() < data.length) {
+                
+                return new Packed(entry, ZipEntry.DEFLATED, crc.getValue(), data.length, compressed.toByteArray());
+            }
+        }
+        
+        finally {
+            
+            deflater.end();
+        }
+        
+        return new Packed(entry, ZipEntry.STORED, crc.getValue(), data.length, data);
+    }
+    
+    /**
+     * Checks if an entry matches one of the exclude patterns.
+     */
+    private boolean isExcluded (String name) {
+        
+        for (final Pattern pattern : this.excludePatterns) {
+            
+            if (pattern.matcher(name).matches()) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Provides the cache key of a file. This covers the contents of the file and every option
+     * that changes the output.
+     */
+    private String getCacheKey (File input) throws IOException {
+        
+        final MessageDigest digest = Hashing.createDigest("SHA-256");
+        digest.update(this.digests.get(input, Collections.singleton("SHA-512"), null).get("SHA-512").getBytes(StandardCharsets.UTF_8));
+        digest.update(("\n" + this.level + "\n" + String.join("\n", this.excludes)).getBytes(StandardCharsets.UTF_8));
+        return Hashing.toHex(digest.digest());
+    }
+    
+    /**
+     * Removes repacked files that have not been used for a while.
+     */
+    private void pruneCache () {
+        
+        final File[] cached = this.cacheDirectory.listFiles(File::isDirectory);
+        final long cutoff = System.currentTimeMillis() - CACHE_TTL;
+        
+        if (cached != null) {
+            
+            for (final File directory : cached) {
+                
+                if (directory.lastModified() < cutoff) {
+                    
+                    final File[] files = directory.listFiles();
+                    
+                    if (files != null) {
+                        
+                        for (final File file : files) {
+                            
+                            file.delete();
+                        }
+                    }
+                    
+                    directory.delete();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Waits for an entry to be deflated.
+     */
+    private static Packed join (CompletableFuture<Packed> future) throws IOException {
+        
+        try {
+            
+            return future.join();
+        }
+        
+        catch (final CompletionException e) {
+            
+            if (e.getCause() instanceof UncheckedIOException) {
+                
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            
+            throw e;
+        }
+    }
+    
+    /**
+     * Provides the size an entry counts towards the limit of entries deflated ahead. Entries
+     * that do not know their size count as a single buffer.
+     */
+    private static long getPendingSize (ZipEntry entry) {
+        
+        return entry.getSize() > 0 ? entry.getSize() : 8192;
+    }
+    
+    /**
+     * Entries in META-INF are written first, starting with the directory and the manifest.
+     */
+    private static int getEntryPriority (String name) {
+        
+        if ("META-INF/".equals(name)) {
+            
+            return 0;
+        }
+        
+        if ("META-INF/MANIFEST.MF".equalsIgnoreCase(name)) {
+            
+            return 1;
+        }
+        
+        return name.startsWith("META-INF/") ? 2 : 3;
+    }
+    
+    /**
+     * Compiles a glob pattern for entry names.
+     */
+    private static Pattern compileGlob (String glob) {
+        
+        final StringBuilder regex = new StringBuilder();
+        
+        for (int i = 0; i < glob.length(); i++) {
+            
+            final char c = glob.charAt(i);
+            
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                
+                regex.append(".*");
+                i++;
+            }
+            
+            else if (c == '*') {
+                
+                regex.append("[^/]*");
+            }
+            
+            else if (c == '?') {
+                
+                regex.append("[^/]");
+            }
+            
+            else {
+                
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        
+        return Pattern.compile(regex.toString());
+    }
+    
+    private static long millisSince (long start) {
+        
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+    
+    /**
+     * The outcome of repacking a file.
+     */
+    public static class Result {
+        
+        /**
+         * The file to upload. This is the original file if it was not repacked.
+         */
+        private final File file;
+        
+        /**
+         * The size of the original file in bytes.
+         */
+        private final long originalSize;
+        
+        /**
+         * The size of the file to upload in bytes.
+         */
+        private final long size;
+        
+        /**
+         * The time spent repacking the file in milliseconds.
+         */
+        private final long millis;
+        
+        /**
+         * Whether or not the repacked file was taken from the cache.
+         */
+        private final boolean cached;
+        
+        Result(File file, long originalSize, long size, long millis, boolean cached) {
+            
+            this.file = file;
+            this.originalSize = originalSize;
+            this.size = size;
+            this.millis = millis;
+            this.cached = cached;
+        }
+        
+        /**
+         * Creates a result for a file that was not repacked.
+         * 
+         * @param file The original file.
+         * @return A result that uploads the original file.
+         */
+        public static Result unchanged (File file) {
+            
+            return new Result(file, file.length(), file.length(), 0, false);
+        }
+        
+        public File getFile () {
+            
+            return this.file;
+        }
+        
+        public long getOriginalSize () {
+            
+            return this.originalSize;
+        }
+        
+        public long getSize () {
+            
+            return this.size;
+        }
+        
+        public long getMillis () {
+            
+            return this.millis;
+        }
+        
+        public boolean isCached () {
+            
+            return this.cached;
+        }
+        
+        /**
+         * Gets the amount of bytes that no longer need to be uploaded.
+         * 
+         * @return The amount of bytes saved by repacking.
+         */
+        public long getSavedBytes () {
+            
+            return this.originalSize - this.size;
+        }
+    }
+    
+    /**
+     * An entry that is ready to be written. Once written, only what the central directory
+     * needs is kept.
+     */
+    private static final class Packed {
+        
+        private final byte[] name;
+        
+        private final int flags;
+        
+        private final int method;
+        
+        private final long crc;
+        
+        private final long size;
+        
+        private final long compressedSize;
+        
+        /**
+         * The size the entry counted towards the limit of entries deflated ahead.
+         */
+        private final long pendingSize;
+        
+        /**
+         * The data of the entry, or null once it has been written.
+         */
+        private byte[] data;
+        
+        /**
+         * The offset of the local header of the entry, once it has been written.
+         */
+        private long offset;
+        
+        Packed(ZipEntry entry, int method, long crc, long size, byte[] data) {
+            
+            this.name = entry.getName().getBytes(StandardCharsets.UTF_8);
+            this.flags = this.name.length != entry.getName().length() ? FLAG_UTF8 : 0;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = data.length;
+            this.pendingSize = getPendingSize(entry);
+            this.data = data;
+        }
+    }
+    
+    /**
+     * A stream that writes little endian values and counts the bytes written.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        
+        private final OutputStream out;
+        
+        private long count = 0;
+        
+        CountingOutputStream(OutputStream out) {
+            
+            this.out = out;
+        }
+        
+        @Override
+        public void write (int b) throws IOException {
+            
+            this.out.write(b);
+            this.count++;
+        }
+        
+        @Override
+        public void write (byte[] b, int off, int len) throws IOException {
+            
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+        
+        void writeShort (int value) throws IOException {
+            
+            this.write(value & 0xFF);
+            this.write((value >>> 8) & 0xFF);
+        }
+        
+        void writeInt (long value) throws IOException {
+            
+            this.writeShort((int) (value & 0xFFFF));
+            this.writeShort((int) ((value >>> 16) & 0xFFFF));
+        }
+        
+        @Override
+        public void close () throws IOException {
+            
+            this.out.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import com.diluv.diluvgradle.http.Responses;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+
+/**
+ * Waits for Diluv to finish processing an uploaded file by polling the status of the file. The
+ * delay between polls starts small and grows while the file is unchanged, and is reset when
+ * the status changes. Each poll is sent with the ETag of the previous response so an
+ * unchanged file costs an empty response.
+ */
+public class StatusPoller {
+    
+    /**
+     * Statuses that mean Diluv has not finished processing the file yet.
+     */
+    private static final Set<String> PENDING_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("pending", "processing")));
+    
+    /**
+     * An internal logger instance used to output status and debug information.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The context used to send requests.
+     */
+    private final UploadContext context;
+    
+    /**
+     * The delay in milliseconds before the first poll, and after the status changes.
+     */
+    private final long interval;
+    
+    /**
+     * The longest delay in milliseconds between polls.
+     */
+    private final long maxInterval;
+    
+    /**
+     * How long to wait in milliseconds before giving up.
+     */
+    private final long timeout;
+    
+    public StatusPoller(UploadContext context, long interval, long maxInterval, long timeout) {
+        
+        this.context = context;
+        this.interval = Math.max(1, interval);
+        this.maxInterval = Math.max(this.interval, maxInterval);
+        this.timeout = timeout;
+    }
+    
+    /**
+     * Checks if Diluv is still processing a file.
+     * 
+     * @param upload The file to check.
+     * @return Whether or not the file is still being processed.
+     */
+    public static boolean isPending (ResponseUpload upload) {
+        
+        return upload.getStatus() == null || PENDING_STATUSES.contains(upload.getStatus().toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Waits until Diluv has finished processing a file.
+     * 
+     * @param filesEndpoint The files endpoint of the project.
+     * @param upload The file as it was returned by the upload.
+     * @return The file once it is no longer being processed.
+     * @throws IOException Whenever the status of the file could not be requested.
+     * @throws GradleException When the file is still being processed after the timeout.
+     */
+    public ResponseUpload await (String filesEndpoint, ResponseUpload upload) throws IOException {
+        
+        final String fileEndpoint = filesEndpoint + "/" + upload.getId();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeout);
+        ResponseUpload current = upload;
+        String etag = null;
+        long delay = this.interval;
+        
+        while (isPending(current)) {
+            
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            
+            if (remaining <= 0) {
+                
+                throw new GradleException("Diluv did not finish processing " + current.getName() + " within " + TimeUnit.MILLISECONDS.toSeconds(this.timeout) + " seconds. The last status was " + current.getStatus() + ".");
+            }
+            
+            sleep(Math.min(delay, remaining));
+            
+            final String lastETag = etag;
+            final Poll poll = this.context.retry("Checking the status of " + current.getName(), attempt -> this.poll(fileEndpoint, lastETag));
+            final ResponseUpload previous = current;
+            
+            if (poll.upload != null) {
+                
+                current = poll.upload;
+                etag = poll.etag;
+            }
+            
+            // Poll more often while the file is changing, and back off while it is not.
+            if (poll.upload != null && !Objects.equals(previous.getStatus(), current.getStatus())) {
+                
+                this.log.lifecycle("{} is now {}.", current.getName(), current.getStatus());
+                delay = this.interval;
+            }
+            
+            else {
+                
+                delay = Math.min(this.maxInterval, delay + delay / 2);
+            }
+        }
+        
+        return current;
+    }
+    
+    /**
+     * Requests the current state of a file. If the file has not changed since the previous
+     * poll the returned poll has no file.
+     */
+    private Poll poll (String fileEndpoint, String etag) throws IOException {
+        
+        final HttpGet get = new HttpGet(fileEndpoint);
+        
+        if (etag != null) {
+            
+            get.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        
+        return this.context.send(get, response -> {
+            
+            final int status = response.getStatusLine().getStatusCode();
+            
+            if (status == HttpStatus.SC_NOT_MODIFIED) {
+                
+                EntityUtils.consume(response.getEntity());
+                return new Poll(null, etag);
+            }
+            
+            if (status != 200) {
+                
+                throw Responses.error(this.context.getGson(), response, "Checking file status");
+            }
+            
+            final Header header = response.getFirstHeader(HttpHeaders.ETAG);
+            return new Poll(Responses.read(this.context.getGson(), response.getEntity(), ResponseUpload.class), header != null ? header.getValue() : null);
+        });
+    }
+    
+    private static void sleep (long millis) {
+        
+        try {
+            
+            Thread.sleep(millis);
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for Diluv to process the file.", e);
+        }
+    }
+    
+    /**
+     * The result of a single poll.
+     */
+    private static class Poll {
+        
+        private final ResponseUpload upload;
+        
+        private final String etag;
+        
+        Poll(ResponseUpload upload, String etag) {
+            
+            this.upload = upload;
+            this.etag = etag;
+        }
+    }
+}
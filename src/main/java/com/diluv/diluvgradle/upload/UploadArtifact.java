@@ -0,0 +1,44 @@
+package com.diluv.diluvgradle.upload;
+
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+/**
+ * An additional artifact that is uploaded by a task alongside the main upload file.
+ */
+public class UploadArtifact {
+    
+    /**
+     * The artifact file. This is resolved lazily so the task producing the file does not need
+     * to run, or even be configured, when the artifact is added.
+     */
+    private final Provider<RegularFile> file;
+    
+    /**
+     * The classifier of the artifact. Ex. "sources"
+     */
+    private final String classifier;
+    
+    public UploadArtifact(Provider<RegularFile> file, String classifier) {
+        
+        this.file = file;
+        this.classifier = classifier;
+    }
+    
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public Provider<RegularFile> getFile () {
+        
+        return this.file;
+    }
+    
+    @Input
+    public String getClassifier () {
+        
+        return this.classifier;
+    }
+}
@@ -0,0 +1,159 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import com.diluv.diluvgradle.http.BandwidthLimiter;
+import com.diluv.diluvgradle.http.DiluvTransport;
+import com.diluv.diluvgradle.http.RetryPolicy;
+import com.diluv.diluvgradle.metrics.PhaseTimings;
+import com.diluv.diluvgradle.metrics.TimedEntity;
+import com.google.gson.Gson;
+
+/**
+ * The shared state used to send the requests of a single upload. Every request is
+ * authenticated, limited by the bandwidth limiter if there is one, and timed. The timings of
+ * every request are added up in {@link #getTimings()}.
+ */
+public class UploadContext {
+    
+    /**
+     * The transport used to send requests.
+     */
+    private final DiluvTransport transport;
+    
+    /**
+     * The Gson instance used to read and write JSON.
+     */
+    private final Gson gson;
+    
+    /**
+     * The API token used to authenticate requests.
+     */
+    private final String token;
+    
+    /**
+     * The policy used to retry requests that failed for temporary reasons.
+     */
+    private final RetryPolicy retryPolicy;
+    
+    /**
+     * Limits the rate request bodies are sent at. This is null if the rate is not limited.
+     */
+    @Nullable
+    private final BandwidthLimiter bandwidthLimiter;
+    
+    /**
+     * The combined timings of every request sent for the upload.
+     */
+    private final PhaseTimings timings = new PhaseTimings();
+    
+    public UploadContext(DiluvTransport transport, Gson gson, String token, RetryPolicy retryPolicy, @Nullable BandwidthLimiter bandwidthLimiter) {
+        
+        this.transport = transport;
+        this.gson = gson;
+        this.token = token;
+        this.retryPolicy = retryPolicy;
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+    
+    public Gson getGson () {
+        
+        return this.gson;
+    }
+    
+    public PhaseTimings getTimings () {
+        
+        return this.timings;
+    }
+    
+    /**
+     * Runs an action using the retry policy. Each attempt is counted in the timings.
+     * 
+     * @param action A short description of the action.
+     * @param attempt The action to run.
+     * @return The result of the successful attempt.
+     * @throws IOException Whenever the last attempt failed with an IOException.
+     */
+    public <T> T retry (String action, RetryPolicy.Attempt<T> attempt) throws IOException {
+        
+        return this.retryPolicy.execute(action, attemptNumber -> {
+            
+            this.timings.addAttempt(attemptNumber);
+            return attempt.run(attemptNumber);
+        });
+    }
+    
+    /**
+     * Sends a request and handles the response. The response is closed once it has been
+     * handled so the connection can be returned to the pool.
+     * 
+     * @param request The request to send.
+     * @param handler The handler for the response.
+     * @return The value returned by the handler.
+     * @throws IOException Whenever the request could not be sent or the response could not be
+     *         handled.
+     */
+    public <T> T send (HttpRequestBase request, ResponseHandler<T> handler) throws IOException {
+        
+        final PhaseTimings requestTimings = new PhaseTimings();
+        request.addHeader("Authorization", "Bearer " + this.token);
+        
+        if (request instanceof HttpEntityEnclosingRequest) {
+            
+            final HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+            final HttpEntity entity = enclosing.getEntity();
+            
+            if (entity != null) {
+                
+                enclosing.setEntity(new TimedEntity(this.bandwidthLimiter != null ? this.bandwidthLimiter.limit(entity) : entity, requestTimings));
+            }
+        }
+        
+        final long start = System.nanoTime();
+        
+        try (CloseableHttpResponse response = this.transport.execute(request, requestTimings)) {
+            
+            requestTimings.completeRequest(System.nanoTime() - start);
+            
+            final long responseStart = System.nanoTime();
+            
+            try {
+                
+                return handler.handle(response);
+            }
+            
+            finally {
+                
+                requestTimings.addResponse(System.nanoTime() - responseStart);
+            }
+        }
+        
+        finally {
+            
+            this.timings.merge(requestTimings);
+        }
+    }
+    
+    /**
+     * Handles the response to a request.
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        
+        /**
+         * Handles a response.
+         * 
+         * @param response The response to handle.
+         * @return The result of handling the response.
+         * @throws IOException Whenever the response could not be read.
+         */
+        T handle (CloseableHttpResponse response) throws IOException;
+    }
+}
@@ -0,0 +1,172 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A small on-disk record of a chunked upload. The journal keeps track of which parts of a file
+ * have been uploaded so an interrupted upload can be resumed by a later build.
+ */
+public class UploadJournal {
+    
+    /**
+     * The ID of the upload session on Diluv.
+     */
+    @Expose
+    @SerializedName("uploadId")
+    private String uploadId;
+    
+    /**
+     * The size of the file being uploaded.
+     */
+    @Expose
+    @SerializedName("size")
+    private long size;
+    
+    /**
+     * The SHA-512 hash of the file being uploaded.
+     */
+    @Expose
+    @SerializedName("sha512")
+    private String sha512;
+    
+    /**
+     * The size of each part in bytes.
+     */
+    @Expose
+    @SerializedName("chunkSize")
+    private long chunkSize;
+    
+    /**
+     * The part numbers that have been uploaded successfully.
+     */
+    @Expose
+    @SerializedName("completedParts")
+    private final Set<Integer> completedParts = new TreeSet<>();
+    
+    private UploadJournal() {
+    
+    }
+    
+    public UploadJournal(String uploadId, long size, String sha512, long chunkSize) {
+        
+        this.uploadId = uploadId;
+        this.size = size;
+        this.sha512 = sha512;
+        this.chunkSize = chunkSize;
+    }
+    
+    public String getUploadId () {
+        
+        return this.uploadId;
+    }
+    
+    /**
+     * Checks if the journal was created for the same file and part layout.
+     * 
+     * @param size The size of the file.
+     * @param sha512 The hash of the file.
+     * @param chunkSize The size of each part.
+     * @return Whether or not the journal can be used to resume the upload.
+     */
+    public boolean matches (long size, String sha512, long chunkSize) {
+        
+        return this.uploadId != null && this.size == size && this.chunkSize == chunkSize && sha512.equalsIgnoreCase(this.sha512);
+    }
+    
+    /**
+     * Checks if a part has already been uploaded.
+     * 
+     * @param part The part number.
+     * @return Whether or not the part was uploaded.
+     */
+    public synchronized boolean isComplete (int part) {
+        
+        return this.completedParts.contains(part);
+    }
+    
+    /**
+     * Marks a part as uploaded.
+     * 
+     * @param part The part number.
+     */
+    public synchronized void markComplete (int part) {
+        
+        this.completedParts.add(part);
+    }
+    
+    /**
+     * Gets the amount of parts that have been uploaded.
+     * 
+     * @return The amount of completed parts.
+     */
+    public synchronized int getCompletedCount () {
+        
+        return this.completedParts.size();
+    }
+    
+    /**
+     * Writes the journal to disk. The journal is written to a temporary file first so a crash
+     * can not leave a partially written journal behind.
+     * 
+     * @param gson The Gson instance used to write the journal.
+     * @param file The file to write the journal to.
+     * @throws IOException Whenever the journal could not be written.
+     */
+    public synchronized void save (Gson gson, File file) throws IOException {
+        
+        final Path target = file.toPath();
+        final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        
+        Files.createDirectories(target.getParent());
+        
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            
+            gson.toJson(this, writer);
+        }
+        
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Reads a journal from disk.
+     * 
+     * @param gson The Gson instance used to read the journal.
+     * @param file The file to read.
+     * @return The journal that was read. If the journal does not exist or is unreadable this
+     *         will be null.
+     */
+    @Nullable
+    public static UploadJournal load (Gson gson, File file) {
+        
+        if (!file.isFile()) {
+            
+            return null;
+        }
+        
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            
+            return gson.fromJson(reader, UploadJournal.class);
+        }
+        
+        catch (final IOException | JsonParseException e) {
+            
+            return null;
+        }
+    }
+}
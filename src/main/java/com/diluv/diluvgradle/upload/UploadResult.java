@@ -0,0 +1,123 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.annotation.Nullable;
+
+import com.diluv.diluvgradle.responses.ResponseError;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.google.gson.Gson;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The outcome of uploading a single artifact. Results are written to disk by the upload worker
+ * so they can be collected by the task once every upload has finished.
+ */
+public class UploadResult {
+    
+    /**
+     * The classifier of the uploaded artifact.
+     */
+    @Expose
+    @SerializedName("classifier")
+    private String classifier;
+    
+    /**
+     * The response from the API when the file was uploaded successfully.
+     */
+    @Nullable
+    @Expose
+    @SerializedName("upload")
+    private ResponseUpload upload;
+    
+    /**
+     * The response from the API when the file failed to upload.
+     */
+    @Nullable
+    @Expose
+    @SerializedName("error")
+    private ResponseError error;
+    
+    private UploadResult() {
+    
+    }
+    
+    public UploadResult(String classifier, @Nullable ResponseUpload upload, @Nullable ResponseError error) {
+        
+        this.classifier = classifier;
+        this.upload = upload;
+        this.error = error;
+    }
+    
+    public String getClassifier () {
+        
+        return this.classifier;
+    }
+    
+    @Nullable
+    public ResponseUpload getUpload () {
+        
+        return this.upload;
+    }
+    
+    @Nullable
+    public ResponseError getError () {
+        
+        return this.error;
+    }
+    
+    /**
+     * Checks if the artifact was uploaded successfully.
+     * 
+     * @return Whether or not the artifact was uploaded.
+     */
+    public boolean isSuccessful () {
+        
+        return this.upload != null && this.error == null;
+    }
+    
+    /**
+     * Writes the result to disk.
+     * 
+     * @param gson The Gson instance used to write the result.
+     * @param file The file to write to.
+     * @throws IOException Whenever the result could not be written.
+     */
+    public void save (Gson gson, File file) throws IOException {
+        
+        Files.createDirectories(file.toPath().getParent());
+        
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            
+            gson.toJson(this, writer);
+        }
+    }
+    
+    /**
+     * Reads a result from disk.
+     * 
+     * @param gson The Gson instance used to read the result.
+     * @param file The file to read.
+     * @return The result that was read. If the file does not exist this will be null.
+     * @throws IOException Whenever the result could not be read.
+     */
+    @Nullable
+    public static UploadResult load (Gson gson, File file) throws IOException {
+        
+        if (!file.isFile()) {
+            
+            return null;
+        }
+        
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            
+            return gson.fromJson(reader, UploadResult.class);
+        }
+    }
+}
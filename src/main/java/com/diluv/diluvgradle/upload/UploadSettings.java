@@ -0,0 +1,100 @@
+package com.diluv.diluvgradle.upload;
+
+import org.gradle.api.provider.Provider;
+
+import com.diluv.diluvgradle.http.DiluvHttpService;
+import com.diluv.diluvgradle.http.DiluvUploadScheduler;
+import com.diluv.diluvgradle.metrics.DiluvMetricsService;
+
+/**
+ * The settings shared by every task that uploads files through {@link UploadWorkAction}. The
+ * parameters of each upload are filled in from these by
+ * {@link UploadWorkAction#configure(UploadWorkAction.Parameters, UploadSettings)}.
+ */
+public interface UploadSettings {
+    
+    /**
+     * Gets the path of the task. Uploads of the same task share a concurrency limit.
+     * 
+     * @return The path of the task.
+     */
+    String getPath ();
+    
+    /**
+     * Gets the path of the project the task belongs to.
+     * 
+     * @return The path of the project.
+     */
+    String getProjectPath ();
+    
+    /**
+     * Gets the shared HTTP service used to communicate with Diluv.
+     * 
+     * @return The HTTP service.
+     */
+    Provider<DiluvHttpService> getHttpService ();
+    
+    /**
+     * Gets the shared scheduler that every upload in the build goes through.
+     * 
+     * @return The upload scheduler.
+     */
+    Provider<DiluvUploadScheduler> getScheduler ();
+    
+    /**
+     * Gets the shared service that collects the metrics of every upload in the build.
+     * 
+     * @return The metrics service.
+     */
+    Provider<DiluvMetricsService> getMetricsService ();
+    
+    /**
+     * Gets the API token used to upload files.
+     * 
+     * @return The API token.
+     */
+    Provider<String> getToken ();
+    
+    /**
+     * Gets the max amount of files the task uploads at once.
+     * 
+     * @return The max amount of parallel uploads.
+     */
+    Provider<Integer> getMaxParallelUploads ();
+    
+    /**
+     * Gets the max amount of times a request to Diluv is attempted.
+     * 
+     * @return The max amount of attempts.
+     */
+    Provider<Integer> getMaxAttempts ();
+    
+    /**
+     * Gets the delay in milliseconds before the first retry of a failed request.
+     * 
+     * @return The initial retry delay.
+     */
+    Provider<Integer> getRetryDelay ();
+    
+    /**
+     * Gets the longest delay in milliseconds between attempts of a failed request.
+     * 
+     * @return The max retry delay.
+     */
+    Provider<Integer> getMaxRetryDelay ();
+    
+    /**
+     * Gets whether or not files that were already published are skipped.
+     * 
+     * @return Whether or not to skip duplicate files.
+     */
+    Provider<Boolean> getSkipDuplicates ();
+    
+    /**
+     * Gets whether or not the files of the project are requested from Diluv when checking for
+     * duplicates.
+     * 
+     * @return Whether or not to check Diluv for duplicates.
+     */
+    Provider<Boolean> getCheckRemoteDuplicates ();
+}
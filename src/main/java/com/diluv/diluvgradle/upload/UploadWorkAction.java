@@ -0,0 +1,935 @@
+package com.diluv.diluvgradle.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpEntity;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import com.diluv.diluvgradle.cache.DigestCache;
+import com.diluv.diluvgradle.cache.PublishedFileIndex;
+import com.diluv.diluvgradle.http.DigestingFileBody;
+import com.diluv.diluvgradle.http.DiluvApiException;
+import com.diluv.diluvgradle.http.DiluvHttpService;
+import com.diluv.diluvgradle.http.DiluvUploadScheduler;
+import com.diluv.diluvgradle.http.RetryPolicy;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.metrics.DiluvMetricsService;
+import com.diluv.diluvgradle.metrics.UploadMetrics;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.spool.SpoolEntry;
+import com.diluv.diluvgradle.spool.SpoolQueue;
+import com.diluv.diluvgradle.util.FileDigests;
+import com.diluv.diluvgradle.util.Hashing;
+import com.diluv.diluvgradle.util.SemanticVersion;
+import com.diluv.diluvgradle.util.SigningKey;
+import com.google.gson.Gson;
+
+/**
+ * A unit of work that uploads a single artifact. Each artifact of an upload task is submitted
+ * to the Gradle worker API as one of these so artifacts can be uploaded in parallel. The
+ * outcome is written to {@link Parameters#getResultFile()}.
+ */
+public abstract class UploadWorkAction implements WorkAction<UploadWorkAction.Parameters> {
+    
+    /**
+     * An internal logger instance used to output status and debug information about the
+     * upload.
+     */
+    private final Logger log = Logging.getLogger("DiluvGradle");
+    
+    /**
+     * The Gson instance used to read and write JSON.
+     */
+    private final Gson gson = DiluvJson.GSON;
+    
+    /**
+     * The outcome of repacking the upload file. This is recorded with the metrics of the
+     * upload.
+     */
+    private JarRepacker.Result repacked;
+    
+    /**
+     * The digests of the uploaded file. Every digest is calculated from a single read of the
+     * file before it is uploaded.
+     */
+    private FileDigests digests;
+    
+    @Override
+    public void execute () {
+        
+        final Parameters params = this.getParameters();
+        final DiluvHttpService http = params.getHttpService().get();
+        final File original = params.getUploadFile().get().getAsFile();
+        final String classifier = params.getClassifier().get();
+        final long start = System.nanoTime();
+        final DiluvUploadScheduler scheduler = params.getScheduler().get();
+        final RetryPolicy retryPolicy = new RetryPolicy(params.getMaxAttempts().get(), params.getRetryDelay().get(), params.getMaxRetryDelay().get());
+        final UploadContext context = new UploadContext(http.getTransport(), this.gson, params.getToken().get(), retryPolicy, scheduler.getBandwidthLimiter());
+        
+        // Limits the amount of artifacts from the same task that are uploaded at once.
+        final Semaphore limit = http.getUploadLimit(params.getOwner().get(), params.getMaxParallelUploads().get());
+        
+        try {
+            
+            limit.acquire();
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting to upload " + original.getName() + ".", e);
+        }
+        
+        ResponseUpload published;
+        
+        try {
+            
+            // When failing fast, uploads that have not started yet are cancelled once another
+            // upload of the same task has failed.
+            if (this.isFailFast() && http.isCancelled(params.getOwner().get())) {
+                
+                this.log.lifecycle("Skipping upload of {}. Another upload of {} failed.", original.getName(), params.getOwner().get());
+                return;
+            }
+            
+            // Repacking happens before the file is hashed, so duplicates are found using the hash
+            // of the file that is actually uploaded.
+            this.repacked = this.repack(original);
+            final File file = this.repacked.getFile();
+            
+            long queueWait = 0;
+            long hashTime = 0;
+            
+            try {
+                
+                final DuplicateChecker duplicates = new DuplicateChecker(context, new PublishedFileIndex(this.gson, params.getCacheDirectory().get().getAsFile(), params.getProjectId().get()));
+                final long hashStart = System.nanoTime();
+                this.digests = this.digest(file);
+                hashTime = System.nanoTime() - hashStart;
+                final String sha512 = params.getSkipDuplicates().get() ? this.digests.get("SHA-512") : null;
+                final Map<String, String> checksumFields = this.getChecksumFields();
+                
+                // Dry runs stop once the request has been built. Nothing is sent to Diluv.
+                if (params.getDryRun().getOrElse(false)) {
+                    
+                    this.dryRun(file, checksumFields);
+                    return;
+                }
+                
+                // Files that were already published to the project are not uploaded again.
+                final ResponseUpload existing = sha512 != null ? duplicates.findExisting(params.getEndpoint().get(), sha512, params.getCheckRemoteDuplicates().get()) : null;
+                
+                if (existing != null) {
+                    
+                    this.log.lifecycle("Skipping upload of {}. The file was already uploaded to {} as file id {}.", file.getName(), params.getProjectId().get(), existing.getId());
+                    this.saveResult(new UploadResult(classifier, existing, null));
+                    this.recordMetrics(file, UploadMetrics.Outcome.SKIPPED, 0, context, 0, hashTime, start);
+                    this.removeSpooledEntry();
+                    published = existing;
+                }
+                
+                else {
+                    
+                    // Publishing a version that is not newer than the latest file is rejected when
+                    // enabled. This happens before anything is sent to Diluv.
+                    if (params.getRejectLowerVersions().getOrElse(false)) {
+                        
+                        this.checkVersion(duplicates, params.getVersion().get(), classifier);
+                    }
+                    
+                    final ResponseUpload uploaded;
+                    
+                    // Every upload in the build goes through the scheduler, which limits the amount
+                    // of uploads that are sent at once and the combined upload rate.
+                    try (DiluvUploadScheduler.Ticket ticket = schedule(scheduler, params.getProjectPath().get(), file)) {
+                        
+                        queueWait = ticket.getQueueWait();
+                        
+                        if (params.getChunked().getOrElse(false)) {
+                            
+                            // Chunked uploads retry each request on their own.
+                            final ChunkedUploader uploader = new ChunkedUploader(context, params.getChunkSize().get(), params.getChunkParallelism().get());
+                            uploaded = uploader.upload(params.getEndpoint().get(), file, this.digests.get("SHA-512"), params.getRequestData().get(), checksumFields, params.getJournalFile().get().getAsFile());
+                        }
+                        
+                        else {
+                            
+                            final FileUploader uploader = new FileUploader(context);
+                            final String uploadSha512 = this.digests.get("SHA-512");
+                            
+                            uploaded = context.retry("Upload of " + file.getName(), attempt -> {
+                                
+                                // A failed response does not always mean the file was not
+                                // received. Make sure the file does not exist before sending it
+                                // again, even when duplicates are not skipped otherwise.
+                                if (attempt > 1 && uploadSha512 != null) {
+                                    
+                                    final ResponseUpload received = duplicates.findExisting(params.getEndpoint().get(), uploadSha512, true);
+                                    
+                                    if (received != null) {
+                                        
+                                        this.log.lifecycle("Diluv received {} during an earlier attempt as file id {}.", file.getName(), received.getId());
+                                        return received;
+                                    }
+                                }
+                                
+                                return uploader.upload(params.getEndpoint().get(), file, uploadSha512, params.getRequestData().get(), checksumFields);
+                            });
+                        }
+                        
+                        ticket.setBytes(context.getTimings().getBytesSent());
+                    }
+                    
+                    this.log.lifecycle("Sucessfully uploaded {} to {} as file id {}.", file.getName(), params.getProjectId().get(), uploaded.getId());
+                    duplicates.record(uploaded);
+                    this.saveResult(new UploadResult(classifier, uploaded, null));
+                    this.recordMetrics(file, UploadMetrics.Outcome.UPLOADED, 0, context, queueWait, hashTime, start);
+                    this.removeSpooledEntry();
+                    published = uploaded;
+                }
+            }
+            
+            catch (final DiluvApiException e) {
+                
+                // Temporary failures can be spooled and uploaded later. Errors such as an invalid
+                // token or request would fail again, so those are not spooled.
+                if (RetryPolicy.isRetryable(e) && this.spool(file, e)) {
+                    
+                    this.recordMetrics(file, UploadMetrics.Outcome.SPOOLED, e.getStatus(), context, queueWait, hashTime, start);
+                    return;
+                }
+                
+                this.log.error(e.getMessage());
+                this.saveResult(new UploadResult(classifier, null, e.getError()));
+                this.recordMetrics(file, UploadMetrics.Outcome.FAILED, e.getStatus(), context, queueWait, hashTime, start);
+                this.cancelRemaining(http);
+                throw e;
+            }
+            
+            catch (final IOException e) {
+                
+                if (this.spool(file, e)) {
+                    
+                    this.recordMetrics(file, UploadMetrics.Outcome.SPOOLED, 0, context, queueWait, hashTime, start);
+                    return;
+                }
+                
+                this.log.error("Failed to upload the file!", e);
+                this.recordMetrics(file, UploadMetrics.Outcome.FAILED, 0, context, queueWait, hashTime, start);
+                this.cancelRemaining(http);
+                throw new GradleException("Failed to upload the file!", e);
+            }
+            
+            catch (final RuntimeException e) {
+                
+                this.recordMetrics(file, UploadMetrics.Outcome.FAILED, 0, context, queueWait, hashTime, start);
+                this.cancelRemaining(http);
+                throw e;
+            }
+        }
+        
+        finally {
+            
+            limit.release();
+        }
+        
+        // Waiting happens after the upload slot of the task is released, so the other
+        // artifacts of the task can be uploaded while Diluv processes this one.
+        if (params.getWaitForProcessing().getOrElse(false) && StatusPoller.isPending(published)) {
+            
+            this.awaitProcessing(context, published);
+        }
+    }
+    
+    /**
+     * Waits for Diluv to finish processing the file, and updates the upload result with the
+     * processed file.
+     */
+    private void awaitProcessing (UploadContext context, ResponseUpload published) {
+        
+        final Parameters params = this.getParameters();
+        final StatusPoller poller = new StatusPoller(context, params.getPollInterval().get(), params.getMaxPollInterval().get(), params.getWaitTimeout().get());
+        
+        try {
+            
+            this.log.lifecycle("Waiting for Diluv to process {}.", published.getName());
+            final ResponseUpload processed = poller.await(params.getEndpoint().get(), published);
+            this.log.lifecycle("Diluv finished processing {}. The status is {}.", processed.getName(), processed.getStatus());
+            this.saveResult(new UploadResult(params.getClassifier().get(), processed, null));
+        }
+        
+        catch (final IOException e) {
+            
+            throw new GradleException("Failed to check the status of " + published.getName() + ".", e);
+        }
+    }
+    
+    /**
+     * Writes the file to the spool queue when the upload could not reach Diluv, if spooling
+     * failed uploads is enabled.
+     * 
+     * @return Whether or not the file was spooled.
+     */
+    private boolean spool (File file, Exception cause) {
+        
+        final Parameters params = this.getParameters();
+        
+        if (!params.getSpoolDirectory().isPresent()) {
+            
+            return false;
+        }
+        
+        try {
+            
+            final SpoolEntry entry = new SpoolEntry(params.getEndpoint().get(), params.getProjectId().get(), params.getClassifier().get(), params.getVersion().get(), file.getName(), this.getSha512(file), params.getRequestData().get(), params.getOwner().get(), params.getCacheDirectory().get().getAsFile().getAbsolutePath());
+            new SpoolQueue(this.gson, params.getSpoolDirectory().get().getAsFile()).add(entry, file);
+            this.log.warn("Could not upload {} to Diluv ({}). The file was spooled and can be uploaded later with the diluvFlushQueue task.", file.getName(), cause.getMessage());
+            return true;
+        }
+        
+        catch (final IOException e) {
+            
+            this.log.error("Failed to spool {}.", file.getName(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Builds the upload request for the file and logs what would have been sent.
+     * 
+     * @param file The file that would be uploaded.
+     * @param fields The additional form fields of the upload.
+     */
+    private void dryRun (File file, Map<String, String> fields) {
+        
+        final Parameters params = this.getParameters();
+        final HttpEntity entity = FileUploader.createEntity(new DigestingFileBody(file), file, params.getRequestData().get(), fields);
+        this.log.lifecycle("Dry run: {} was not uploaded to {}. The upload request would be {} bytes.", file.getName(), params.getEndpoint().get(), entity.getContentLength());
+        this.log.info("Dry run request data for {}: {}", file.getName(), params.getRequestData().get());
+    }
+    
+    /**
+     * Gets the SHA-512 hash of the file, reading the file only if the hash was not calculated
+     * before the upload.
+     */
+    private String getSha512 (File file) throws IOException {
+        
+        final String sha512 = this.digests != null ? this.digests.get("SHA-512") : null;
+        return sha512 != null ? sha512 : Hashing.sha512(file);
+    }
+    
+    /**
+     * Removes the spool entry of the file once it has been uploaded, if the file was uploaded
+     * from the spool queue.
+     */
+    private void removeSpooledEntry () {
+        
+        final Parameters params = this.getParameters();
+        
+        if (params.getSpooledEntry().isPresent()) {
+            
+            SpoolQueue.remove(params.getSpooledEntry().get().getAsFile());
+        }
+    }
+    
+    /**
+     * Repacks the upload file if repacking is enabled. When the file can not be repacked the
+     * original file is uploaded instead.
+     * 
+     * @param file The file to repack.
+     * @return The outcome of repacking the file.
+     */
+    private JarRepacker.Result repack (File file) {
+        
+        final Parameters params = this.getParameters();
+        
+        if (!params.getRepack().getOrElse(false)) {
+            
+            return JarRepacker.Result.unchanged(file);
+        }
+        
+        try {
+            
+            final DigestCache digests = new DigestCache(this.gson, params.getCacheDirectory().get().getAsFile());
+            final JarRepacker repacker = new JarRepacker(params.getRepackLevel().getOrElse(Deflater.BEST_COMPRESSION), params.getRepackExcludes().getOrElse(Collections.emptyList()), new File(params.getCacheDirectory().get().getAsFile(), "repacked"), digests);
+            final JarRepacker.Result result = repacker.repack(file);
+            digests.save();
+            
+            if (result.getSavedBytes() > 0) {
+                
+                this.log.lifecycle("Repacked {} from {} to {} bytes, {}% smaller.{}", file.getName(), result.getOriginalSize(), result.getSize(), result.getSavedBytes() * 100 / result.getOriginalSize(), result.isCached() ? " The repacked file was cached." : "");
+            }
+            
+            return result;
+        }
+        
+        catch (final IOException | IllegalArgumentException e) {
+            
+            this.log.warn("Failed to repack {}. The original file will be uploaded.", file.getName(), e);
+            return JarRepacker.Result.unchanged(file);
+        }
+    }
+    
+    /**
+     * Calculates the digests and signature of the upload file in a single read, and writes
+     * the checksum and signature files if a sidecar directory is set. SHA-512 is always
+     * included when it is needed to find duplicates, to check if a failed upload was received
+     * before it is sent again, or to resume chunked uploads. Digests of files that did not
+     * change since they were last uploaded are read from the cache.
+     * 
+     * @param file The file being uploaded.
+     * @return The digests of the file.
+     * @throws IOException Whenever the file could not be read or signed.
+     */
+    private FileDigests digest (File file) throws IOException {
+        
+        final Parameters params = this.getParameters();
+        final List<String> checksums = params.getChecksums().getOrElse(Collections.emptyList());
+        final Set<String> algorithms = new LinkedHashSet<>(checksums);
+        
+        if (params.getSkipDuplicates().get() || params.getChunked().getOrElse(false) || params.getMaxAttempts().get() > 1) {
+            
+            algorithms.add("SHA-512");
+        }
+        
+        final SigningKey signingKey = this.getSigningKey();
+        
+        if (algorithms.isEmpty() && signingKey == null) {
+            
+            return new FileDigests(Collections.emptyMap(), null);
+        }
+        
+        final DigestCache cache = new DigestCache(this.gson, params.getCacheDirectory().get().getAsFile());
+        final FileDigests digests = cache.get(file, algorithms, signingKey);
+        cache.save();
+        
+        if (params.getSidecarDirectory().isPresent()) {
+            
+            this.writeSidecars(file, checksums, digests);
+        }
+        
+        return digests;
+    }
+    
+    /**
+     * Reads the key used to sign the file.
+     * 
+     * @return The signing key, or null if the file should not be signed.
+     */
+    @Nullable
+    private SigningKey getSigningKey () {
+        
+        final Parameters params = this.getParameters();
+        
+        if (!params.getSigningKey().isPresent()) {
+            
+            return null;
+        }
+        
+        try {
+            
+            return SigningKey.parse(params.getSigningKey().get(), params.getSigningAlgorithm().getOrNull());
+        }
+        
+        catch (final GeneralSecurityException e) {
+            
+            throw new GradleException("The signing key could not be read. " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Writes a checksum file for each configured algorithm, and the detached signature if the
+     * file was signed. Each sidecar is named after the uploaded file, ex. example.jar.sha256.
+     */
+    private void writeSidecars (File file, List<String> checksums, FileDigests digests) {
+        
+        final Path directory = this.getParameters().getSidecarDirectory().get().getAsFile().toPath();
+        
+        try {
+            
+            Files.createDirectories(directory);
+            
+            for (final String algorithm : checksums) {
+                
+                Files.write(directory.resolve(file.getName() + "." + FileDigests.getSuffix(algorithm)), digests.get(algorithm).getBytes(StandardCharsets.US_ASCII));
+            }
+            
+            if (digests.getSignature() != null) {
+                
+                Files.write(directory.resolve(file.getName() + ".sig"), digests.getSignature());
+            }
+        }
+        
+        catch (final IOException e) {
+            
+            throw new GradleException("Failed to write the checksums of " + file.getName() + ".", e);
+        }
+    }
+    
+    /**
+     * Gets the configured checksums of the file as form fields, named after their algorithm.
+     * These are sent along with the file when it is uploaded.
+     * 
+     * @return The checksum fields.
+     */
+    private Map<String, String> getChecksumFields () {
+        
+        final Map<String, String> fields = new LinkedHashMap<>();
+        
+        for (final String algorithm : this.getParameters().getChecksums().getOrElse(Collections.emptyList())) {
+            
+            fields.put(FileDigests.getSuffix(algorithm), this.digests.get(algorithm));
+        }
+        
+        return fields;
+    }
+    
+    /**
+     * Checks if the remaining uploads of the task should be cancelled when an upload fails.
+     * 
+     * @return Whether or not the task fails fast.
+     */
+    private boolean isFailFast () {
+        
+        return this.getParameters().getFailFast().getOrElse(false);
+    }
+    
+    /**
+     * Cancels the uploads of the task that have not started yet, if the task fails fast.
+     */
+    private void cancelRemaining (DiluvHttpService http) {
+        
+        if (this.isFailFast()) {
+            
+            http.cancelUploads(this.getParameters().getOwner().get());
+        }
+    }
+    
+    /**
+     * Makes sure the version being uploaded is higher than the latest version that was
+     * published with the same classifier. The cached index of published files is used while
+     * it is younger than the configured time to live.
+     */
+    private void checkVersion (DuplicateChecker duplicates, String version, String classifier) throws IOException {
+        
+        final SemanticVersion current = SemanticVersion.tryParse(version);
+        
+        if (current == null) {
+            
+            this.log.warn("Can not compare version {} to the published versions. It is not a semantic version.", version);
+            return;
+        }
+        
+        final Parameters params = this.getParameters();
+        final SemanticVersion latest = duplicates.findLatestVersion(params.getEndpoint().get(), classifier, params.getVersionCacheTtl().get());
+        
+        if (latest != null && current.compareTo(latest) <= 0) {
+            
+            throw new GradleException("Version " + current + " is not higher than the latest published " + classifier + " version " + latest + ". The file can not be uploaded.");
+        }
+    }
+    
+    /**
+     * Records the metrics of the upload with the metrics service.
+     */
+    private void recordMetrics (File file, UploadMetrics.Outcome outcome, int status, UploadContext context, long queueWait, long hashNanos, long start) {
+        
+        final Parameters params = this.getParameters();
+        final UploadMetrics metrics = new UploadMetrics(params.getOwner().get(), file.getName(), params.getClassifier().get(), outcome, status, context.getTimings(), queueWait, TimeUnit.NANOSECONDS.toMillis(hashNanos), this.repacked.getMillis(), this.repacked.getSavedBytes(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        params.getMetricsService().get().record(metrics);
+    }
+    
+    /**
+     * Waits for the scheduler to allow the upload to start.
+     * 
+     * @param scheduler The upload scheduler.
+     * @param project The path of the project that owns the upload.
+     * @param file The file being uploaded.
+     * @return The ticket for the upload.
+     */
+    private static DiluvUploadScheduler.Ticket schedule (DiluvUploadScheduler scheduler, String project, File file) {
+        
+        try {
+            
+            return scheduler.acquire(project, file.getName());
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting to upload " + file.getName() + ".", e);
+        }
+    }
+    
+    /**
+     * Writes the result of the upload so it can be read by the task.
+     * 
+     * @param result The result to write.
+     */
+    private void saveResult (UploadResult result) {
+        
+        try {
+            
+            result.save(this.gson, this.getParameters().getResultFile().get().getAsFile());
+        }
+        
+        catch (final IOException e) {
+            
+            throw new GradleException("Failed to write upload result for " + result.getClassifier() + ".", e);
+        }
+    }
+    
+    /**
+     * Sets the parameters that are shared by every task uploading through this action. The
+     * options only some tasks support, such as chunked uploads or waiting for processing, are
+     * left unset and are disabled unless the task sets them.
+     * 
+     * @param params The parameters of the upload.
+     * @param settings The settings of the task submitting the upload.
+     */
+    public static void configure (Parameters params, UploadSettings settings) {
+        
+        params.getHttpService().set(settings.getHttpService());
+        params.getScheduler().set(settings.getScheduler());
+        params.getMetricsService().set(settings.getMetricsService());
+        params.getProjectPath().set(settings.getProjectPath());
+        params.getOwner().set(settings.getPath());
+        params.getMaxParallelUploads().set(settings.getMaxParallelUploads());
+        params.getToken().set(settings.getToken());
+        params.getMaxAttempts().set(settings.getMaxAttempts());
+        params.getRetryDelay().set(settings.getRetryDelay().map(Integer::longValue));
+        params.getMaxRetryDelay().set(settings.getMaxRetryDelay().map(Integer::longValue));
+        params.getSkipDuplicates().set(settings.getSkipDuplicates());
+        params.getCheckRemoteDuplicates().set(settings.getCheckRemoteDuplicates());
+    }
+    
+    /**
+     * The parameters for uploading a single artifact.
+     */
+    public interface Parameters extends WorkParameters {
+        
+        /**
+         * The shared HTTP service used to send requests.
+         * 
+         * @return The HTTP service.
+         */
+        Property<DiluvHttpService> getHttpService ();
+        
+        /**
+         * The shared scheduler that every upload in the build goes through.
+         * 
+         * @return The upload scheduler.
+         */
+        Property<DiluvUploadScheduler> getScheduler ();
+        
+        /**
+         * The shared service that collects the metrics of every upload in the build.
+         * 
+         * @return The metrics service.
+         */
+        Property<DiluvMetricsService> getMetricsService ();
+        
+        /**
+         * The path of the project that owns the upload. Waiting uploads take turns by project.
+         * 
+         * @return The project path.
+         */
+        Property<String> getProjectPath ();
+        
+        /**
+         * A key identifying the task that submitted the upload. Uploads with the same owner
+         * share a concurrency limit.
+         * 
+         * @return The owner of the upload.
+         */
+        Property<String> getOwner ();
+        
+        /**
+         * The max amount of uploads from the same owner that can run at once.
+         * 
+         * @return The max amount of parallel uploads.
+         */
+        Property<Integer> getMaxParallelUploads ();
+        
+        /**
+         * The files endpoint of the project being uploaded to.
+         * 
+         * @return The upload endpoint.
+         */
+        Property<String> getEndpoint ();
+        
+        /**
+         * The ID of the project being uploaded to.
+         * 
+         * @return The project ID.
+         */
+        Property<String> getProjectId ();
+        
+        /**
+         * The API token used to authenticate requests.
+         * 
+         * @return The API token.
+         */
+        Property<String> getToken ();
+        
+        /**
+         * The file to upload.
+         * 
+         * @return The file to upload.
+         */
+        RegularFileProperty getUploadFile ();
+        
+        /**
+         * The classifier of the file being uploaded.
+         * 
+         * @return The classifier of the file.
+         */
+        Property<String> getClassifier ();
+        
+        /**
+         * The serialized request data for the file.
+         * 
+         * @return The request data.
+         */
+        Property<String> getRequestData ();
+        
+        /**
+         * Whether or not the file should be uploaded in parts. Defaults to false when not set.
+         * 
+         * @return Whether or not to use a chunked upload.
+         */
+        Property<Boolean> getChunked ();
+        
+        /**
+         * The size of each part when uploading in parts.
+         * 
+         * @return The size of each part.
+         */
+        Property<Long> getChunkSize ();
+        
+        /**
+         * The max amount of parts that can be uploaded at once.
+         * 
+         * @return The max amount of parallel parts.
+         */
+        Property<Integer> getChunkParallelism ();
+        
+        /**
+         * The max amount of times a request is attempted.
+         * 
+         * @return The max amount of attempts.
+         */
+        Property<Integer> getMaxAttempts ();
+        
+        /**
+         * The delay before the first retry in milliseconds.
+         * 
+         * @return The initial retry delay.
+         */
+        Property<Long> getRetryDelay ();
+        
+        /**
+         * The longest delay between attempts in milliseconds.
+         * 
+         * @return The max retry delay.
+         */
+        Property<Long> getMaxRetryDelay ();
+        
+        /**
+         * The file used to keep track of completed parts.
+         * 
+         * @return The journal file.
+         */
+        RegularFileProperty getJournalFile ();
+        
+        /**
+         * Whether or not files that were already published to the project should be skipped.
+         * 
+         * @return Whether or not to skip duplicate files.
+         */
+        Property<Boolean> getSkipDuplicates ();
+        
+        /**
+         * Whether or not the files of the project should be requested from Diluv when checking
+         * for duplicates.
+         * 
+         * @return Whether or not to check Diluv for duplicates.
+         */
+        Property<Boolean> getCheckRemoteDuplicates ();
+        
+        /**
+         * Whether or not uploads with a version that is not higher than the latest published
+         * version should be rejected. Defaults to false when not set.
+         * 
+         * @return Whether or not to reject lower versions.
+         */
+        Property<Boolean> getRejectLowerVersions ();
+        
+        /**
+         * How long the cached versions of the project can be used before they are refreshed
+         * from Diluv, in milliseconds.
+         * 
+         * @return The time to live of the version cache.
+         */
+        Property<Long> getVersionCacheTtl ();
+        
+        /**
+         * The spool queue that files are written to when they can not be uploaded. If this is
+         * not set failed uploads are not spooled.
+         * 
+         * @return The spool queue directory.
+         */
+        DirectoryProperty getSpoolDirectory ();
+        
+        /**
+         * The spool entry the file was read from. The entry is removed from the queue once the
+         * file has been uploaded.
+         * 
+         * @return The directory of the spool entry.
+         */
+        DirectoryProperty getSpooledEntry ();
+        
+        /**
+         * Whether or not to wait for Diluv to finish processing the file after it has been
+         * uploaded. Defaults to false when not set.
+         * 
+         * @return Whether or not to wait for processing.
+         */
+        Property<Boolean> getWaitForProcessing ();
+        
+        /**
+         * The delay in milliseconds before the first status check.
+         * 
+         * @return The initial poll interval.
+         */
+        Property<Long> getPollInterval ();
+        
+        /**
+         * The longest delay in milliseconds between status checks.
+         * 
+         * @return The max poll interval.
+         */
+        Property<Long> getMaxPollInterval ();
+        
+        /**
+         * How long to wait in milliseconds for Diluv to process the file.
+         * 
+         * @return The processing timeout.
+         */
+        Property<Long> getWaitTimeout ();
+        
+        /**
+         * Whether or not uploads of the same owner that have not started yet are cancelled
+         * when this upload fails. Defaults to false when not set.
+         * 
+         * @return Whether or not to fail fast.
+         */
+        Property<Boolean> getFailFast ();
+        
+        /**
+         * Whether or not the file is repacked before it is uploaded. Defaults to false when
+         * not set.
+         * 
+         * @return Whether or not to repack the file.
+         */
+        Property<Boolean> getRepack ();
+        
+        /**
+         * The deflate level used when repacking the file, from 0 to 9.
+         * 
+         * @return The repack level.
+         */
+        Property<Integer> getRepackLevel ();
+        
+        /**
+         * Glob patterns of entries that are left out when repacking the file.
+         * 
+         * @return The excluded entries.
+         */
+        ListProperty<String> getRepackExcludes ();
+        
+        /**
+         * The digest algorithms of the checksums that are written next to the file and sent
+         * with the upload.
+         * 
+         * @return The checksum algorithms.
+         */
+        ListProperty<String> getChecksums ();
+        
+        /**
+         * The PEM encoded private key used to sign the file. If this is not set the file is
+         * not signed.
+         * 
+         * @return The signing key.
+         */
+        Property<String> getSigningKey ();
+        
+        /**
+         * The signature algorithm. If this is not set it is picked based on the signing key.
+         * 
+         * @return The signature algorithm.
+         */
+        Property<String> getSigningAlgorithm ();
+        
+        /**
+         * The directory the checksum and signature files are written to. If this is not set
+         * no sidecar files are written.
+         * 
+         * @return The sidecar directory.
+         */
+        DirectoryProperty getSidecarDirectory ();
+        
+        /**
+         * Whether or not the upload request is only built and not sent. Defaults to false
+         * when not set.
+         * 
+         * @return Whether or not this is a dry run.
+         */
+        Property<Boolean> getDryRun ();
+        
+        /**
+         * The version of the file being uploaded.
+         * 
+         * @return The version of the file.
+         */
+        Property<String> getVersion ();
+        
+        /**
+         * The directory used to cache information about published files.
+         * 
+         * @return The cache directory.
+         */
+        DirectoryProperty getCacheDirectory ();
+        
+        /**
+         * The file the result of the upload is written to.
+         * 
+         * @return The result file.
+         */
+        RegularFileProperty getResultFile ();
+    }
+}
@@ -0,0 +1,486 @@
+package com.diluv.diluvgradle.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * The digests and signature of a file. Every digest and the signature are calculated from a
+ * single read of the file. When more than one is needed, each chunk that is read is handed to
+ * every digest and signer on their own thread. Reading the file and updating the digests
+ * overlap, so the slowest digest sets the pace rather than the sum of all of them.
+ */
+public final class FileDigests {
+    
+    /**
+     * The size of the chunks that are handed to the digests. These are larger than the chunks
+     * used by {@link Hashing} so the cost of handing a chunk to another thread is small
+     * compared to hashing it.
+     */
+    public static final int CHUNK_SIZE = 1024 * 1024;
+    
+    /**
+     * The amount of chunks that can be read ahead of the slowest digest.
+     */
+    private static final int BUFFERS = 4;
+    
+    /**
+     * Runs the digests and signers of files that are read in parallel.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        
+        final Thread thread = new Thread(runnable, "DiluvGradle Digest");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * The digests of the file as lower case hex strings, keyed by their algorithm.
+     */
+    private final Map<String, String> digests;
+    
+    /**
+     * The detached signature of the file, or null if it was not signed.
+     */
+    @Nullable
+    private final byte[] signature;
+    
+    public FileDigests(Map<String, String> digests, @Nullable byte[] signature) {
+        
+        this.digests = Collections.unmodifiableMap(new LinkedHashMap<>(digests));
+        this.signature = signature;
+    }
+    
+    /**
+     * Gets every digest of the file.
+     * 
+     * @return The digests as lower case hex strings, keyed by their algorithm.
+     */
+    public Map<String, String> getDigests () {
+        
+        return this.digests;
+    }
+    
+    /**
+     * Gets a digest of the file.
+     * 
+     * @param algorithm The algorithm of the digest, ex. SHA-256.
+     * @return The digest as a lower case hex string, or null if it was not calculated.
+     */
+    @Nullable
+    public String get (String algorithm) {
+        
+        return this.digests.get(algorithm);
+    }
+    
+    /**
+     * Gets the detached signature of the file.
+     * 
+     * @return The signature, or null if the file was not signed.
+     */
+    @Nullable
+    public byte[] getSignature () {
+        
+        return this.signature;
+    }
+    
+    /**
+     * Reads a file once and calculates every digest and the signature from it.
+     * 
+     * @param file The file to read.
+     * @param algorithms The digest algorithms to calculate.
+     * @param signingKey The key used to sign the file, or null if it should not be signed.
+     * @return The digests and signature of the file.
+     * @throws IOException Whenever the file could not be read or signed.
+     */
+    public static FileDigests compute (File file, Collection<String> algorithms, @Nullable SigningKey signingKey) throws IOException {
+        
+        final List<Sink> sinks = new ArrayList<>();
+        
+        for (final String algorithm : algorithms) {
+            
+            sinks.add(new Sink(algorithm, Hashing.createDigest(algorithm), null));
+        }
+        
+        if (signingKey != null) {
+            
+            try {
+                
+                sinks.add(new Sink(null, null, signingKey.createSignature()));
+            }
+            
+            catch (final GeneralSecurityException e) {
+                
+                throw new IOException("Could not sign " + file.getName() + ".", e);
+            }
+        }
+        
+        // Handing chunks to other threads only pays off when there is more than one digest
+        // and more than one chunk to read.
+        if (sinks.size() > 1 && file.length() > CHUNK_SIZE) {
+            
+            readParallel(file, sinks);
+        }
+        
+        else {
+            
+            readInline(file, sinks);
+        }
+        
+        final Map<String, String> digests = new LinkedHashMap<>();
+        byte[] signature = null;
+        
+        for (final Sink sink : sinks) {
+            
+            try {
+                
+                if (sink.algorithm != null) {
+                    
+                    digests.put(sink.algorithm, Hashing.toHex(sink.finish()));
+                }
+                
+                else {
+                    
+                    signature = sink.finish();
+                }
+            }
+            
+            catch (final GeneralSecurityException e) {
+                
+                throw new IOException("Could not sign " + file.getName() + ".", e);
+            }
+        }
+        
+        return new FileDigests(digests, signature);
+    }
+    
+    /**
+     * Gets the standard names of digest algorithms. Names such as sha256 are accepted for
+     * SHA-256, and duplicate algorithms are removed.
+     * 
+     * @param names The names of the algorithms.
+     * @return The standard names of the algorithms.
+     * @throws IllegalArgumentException If an algorithm is not supported.
+     */
+    public static List<String> getAlgorithms (Collection<String> names) {
+        
+        final Set<String> algorithms = new LinkedHashSet<>();
+        
+        for (final String name : names) {
+            
+            final String algorithm = name.trim().toUpperCase(Locale.ROOT).replaceFirst("^SHA(\\d+)$", "SHA-$1");
+            
+            try {
+                
+                MessageDigest.getInstance(algorithm);
+            }
+            
+            catch (final NoSuchAlgorithmException e) {
+                
+                throw new IllegalArgumentException("The checksum algorithm " + name + " is not supported.", e);
+            }
+            
+            algorithms.add(algorithm);
+        }
+        
+        return new ArrayList<>(algorithms);
+    }
+    
+    /**
+     * Gets the short name of a digest algorithm, ex. sha256 for SHA-256. This is used as the
+     * extension of checksum files and as the name of the checksum fields in upload requests.
+     * 
+     * @param algorithm The standard name of the algorithm.
+     * @return The short name of the algorithm.
+     */
+    public static String getSuffix (String algorithm) {
+        
+        return algorithm.toLowerCase(Locale.ROOT).replace("-", "");
+    }
+    
+    private static void readInline (File file, List<Sink> sinks) throws IOException {
+        
+        final ByteBuffer buffer = ByteBuffer.allocate(Hashing.CHUNK_SIZE);
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            
+            while (fill(channel, buffer)) {
+                
+                for (final Sink sink : sinks) {
+                    
+                    sink.update(buffer);
+                }
+            }
+        }
+        
+        catch (final GeneralSecurityException e) {
+            
+            throw new IOException("Could not sign " + file.getName() + ".", e);
+        }
+    }
+    
+    private static void readParallel (File file, List<Sink> sinks) throws IOException {
+        
+        final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(BUFFERS);
+        
+        for (int i = 0; i < BUFFERS; i++) {
+            
+            free.add(new Chunk(free));
+        }
+        
+        final List<Future<?>> workers = new ArrayList<>(sinks.size());
+        
+        for (final Sink sink : sinks) {
+            
+            workers.add(EXECUTOR.submit(sink));
+        }
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            
+            while (true) {
+                
+                final Chunk chunk = free.take();
+                
+                if (!fill(channel, chunk.buffer)) {
+                    
+                    break;
+                }
+                
+                chunk.pending.set(sinks.size());
+                
+                for (final Sink sink : sinks) {
+                    
+                    sink.chunks.add(chunk);
+                }
+            }
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + file.getName() + ".");
+        }
+        
+        finally {
+            
+            // Every sink is stopped, even when reading failed, so no thread is left waiting
+            // for chunks that will never come.
+            for (final Sink sink : sinks) {
+                
+                sink.chunks.add(Chunk.END);
+            }
+            
+            await(file, workers);
+        }
+        
+        for (final Sink sink : sinks) {
+            
+            if (sink.failure != null) {
+                
+                throw new IOException("Could not sign " + file.getName() + ".", sink.failure);
+            }
+        }
+    }
+    
+    private static void await (File file, List<Future<?>> workers) throws IOException {
+        
+        for (final Future<?> worker : workers) {
+            
+            try {
+                
+                worker.get();
+            }
+            
+            catch (final InterruptedException e) {
+                
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while hashing " + file.getName() + ".");
+            }
+            
+            catch (final ExecutionException e) {
+                
+                throw new IOException("Could not hash " + file.getName() + ".", e.getCause());
+            }
+        }
+    }
+    
+    /**
+     * Fills a buffer with the next bytes of a file, and flips it so the bytes can be read.
+     * 
+     * @return Whether or not any bytes were read.
+     */
+    private static boolean fill (FileChannel channel, ByteBuffer buffer) throws IOException {
+        
+        buffer.clear();
+        
+        while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            
+            // Keep reading until the buffer is full or the end of the file is reached.
+        }
+        
+        buffer.flip();
+        return buffer.hasRemaining();
+    }
+    
+    /**
+     * A chunk of the file that is shared by every sink. The chunk is reused once every sink
+     * has processed it.
+     */
+    private static final class Chunk {
+        
+        /**
+         * Marks the end of the file.
+         */
+        private static final Chunk END = new Chunk(null);
+        
+        private final ByteBuffer buffer;
+        
+        /**
+         * The amount of sinks that have not processed the chunk yet.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+        
+        /**
+         * The chunks that can be read into.
+         */
+        private final BlockingQueue<Chunk> free;
+        
+        private Chunk(BlockingQueue<Chunk> free) {
+            
+            this.buffer = free != null ? ByteBuffer.allocate(CHUNK_SIZE) : null;
+            this.free = free;
+        }
+        
+        private void release () {
+            
+            if (this.pending.decrementAndGet() == 0) {
+                
+                this.free.add(this);
+            }
+        }
+    }
+    
+    /**
+     * A digest or signer that the chunks of the file are fed to.
+     */
+    private static final class Sink implements Runnable {
+        
+        /**
+         * The algorithm of the digest, or null if this sink signs the file.
+         */
+        @Nullable
+        private final String algorithm;
+        
+        @Nullable
+        private final MessageDigest digest;
+        
+        @Nullable
+        private final Signature signer;
+        
+        /**
+         * The chunks waiting to be processed when reading in parallel.
+         */
+        private final BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+        
+        /**
+         * The error that stopped the sink when reading in parallel.
+         */
+        @Nullable
+        private volatile Exception failure;
+        
+        private Sink(@Nullable String algorithm, @Nullable MessageDigest digest, @Nullable Signature signer) {
+            
+            this.algorithm = algorithm;
+            this.digest = digest;
+            this.signer = signer;
+        }
+        
+        @Override
+        public void run () {
+            
+            while (true) {
+                
+                final Chunk chunk;
+                
+                try {
+                    
+                    chunk = this.chunks.take();
+                }
+                
+                catch (final InterruptedException e) {
+                    
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                
+                if (chunk == Chunk.END) {
+                    
+                    return;
+                }
+                
+                try {
+                    
+                    // A failed sink keeps releasing chunks so the reader is never blocked.
+                    if (this.failure == null) {
+                        
+                        this.update(chunk.buffer.duplicate());
+                    }
+                }
+                
+                catch (final GeneralSecurityException | RuntimeException e) {
+                    
+                    this.failure = e;
+                }
+                
+                finally {
+                    
+                    chunk.release();
+                }
+            }
+        }
+        
+        private void update (ByteBuffer buffer) throws GeneralSecurityException {
+            
+            if (this.digest != null) {
+                
+                this.digest.update(buffer.array(), buffer.position(), buffer.remaining());
+            }
+            
+            else {
+                
+                this.signer.update(buffer.array(), buffer.position(), buffer.remaining());
+            }
+        }
+        
+        private byte[] finish () throws GeneralSecurityException {
+            
+            return this.digest != null ? this.digest.digest() : this.signer.sign();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.diluv.diluvgradle.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers for hashing files.
+ */
+public final class Hashing {
+    
+    /**
+     * The size of the chunks used to read files.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+    
+    /**
+     * Characters used to encode hashes as hex strings.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private Hashing() {
+    
+    }
+    
+    /**
+     * Calculates the SHA-512 hash of a file. The file is read in fixed size chunks and is never
+     * fully loaded into memory.
+     * 
+     * @param file The file to hash.
+     * @return The hash of the file as a lower case hex string.
+     * @throws IOException Whenever the file could not be read.
+     */
+    public static String sha512 (File file) throws IOException {
+        
+        final MessageDigest digest = createDigest("SHA-512");
+        final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            
+            int read;
+            
+            while ((read = channel.read(buffer)) != -1) {
+                
+                digest.update(buffer.array(), 0, read);
+                buffer.clear();
+            }
+        }
+        
+        return toHex(digest.digest());
+    }
+    
+    /**
+     * Creates a new message digest for an algorithm that is required to be supported by every
+     * Java platform.
+     * 
+     * @param algorithm The name of the algorithm.
+     * @return A new message digest.
+     */
+    public static MessageDigest createDigest (String algorithm) {
+        
+        try {
+            
+            return MessageDigest.getInstance(algorithm);
+        }
+        
+        catch (final NoSuchAlgorithmException e) {
+            
+            throw new IllegalStateException(algorithm + " is not supported.", e);
+        }
+    }
+    
+    /**
+     * Encodes an array of bytes as a lower case hex string.
+     * 
+     * @param bytes The bytes to encode.
+     * @return The encoded hex string.
+     */
+    public static String toHex (byte[] bytes) {
+        
+        final char[] chars = new char[bytes.length * 2];
+        
+        for (int i = 0; i < bytes.length; i++) {
+            
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        
+        return new String(chars);
+    }
+}
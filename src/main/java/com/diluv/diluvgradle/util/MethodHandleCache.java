@@ -0,0 +1,161 @@
+package com.diluv.diluvgradle.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A cache of method handles for public no argument methods. Handles are cached per class, and
+ * therefore per class loader, so classes from other plugins are only looked up once even when
+ * they are loaded by several build script class loaders. The cache does not keep classes or
+ * their loaders alive.
+ */
+public final class MethodHandleCache {
+    
+    /**
+     * The cached handles for each class, keyed by method name. Methods that do not exist are
+     * cached as empty values.
+     */
+    private final ClassValue<Map<String, Optional<MethodHandle>>> handles = new ClassValue<Map<String, Optional<MethodHandle>>>() {
+        
+        @Override
+        protected Map<String, Optional<MethodHandle>> computeValue (Class<?> type) {
+            
+            return new ConcurrentHashMap<>();
+        }
+    };
+    
+    /**
+     * Finds a handle for the first public no argument method of a class that matches one of
+     * the given names.
+     * 
+     * @param type The class to search.
+     * @param names The names of the method, in order of preference.
+     * @return A handle for the method, or null if none of the methods exist.
+     */
+    @Nullable
+    public MethodHandle find (Class<?> type, String... names) {
+        
+        final Map<String, Optional<MethodHandle>> classHandles = this.handles.get(type);
+        
+        for (final String name : names) {
+            
+            final Optional<MethodHandle> handle = classHandles.computeIfAbsent(name, key -> Optional.ofNullable(lookup(type, key)));
+            
+            if (handle.isPresent()) {
+                
+                return handle.get();
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Invokes the first public no argument method of an object that matches one of the given
+     * names.
+     * 
+     * @param target The object to invoke the method on.
+     * @param names The names of the method, in order of preference.
+     * @return The value returned by the method, or null if none of the methods exist.
+     * @throws Exception Whenever the method throws an exception.
+     */
+    @Nullable
+    public Object invoke (Object target, String... names) throws Exception {
+        
+        final MethodHandle handle = this.find(target.getClass(), names);
+        
+        if (handle == null) {
+            
+            return null;
+        }
+        
+        try {
+            
+            return handle.invoke(target);
+        }
+        
+        catch (final Exception | Error e) {
+            
+            throw e;
+        }
+        
+        catch (final Throwable e) {
+            
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+    
+    /**
+     * Looks up a public no argument method. Methods declared by classes that are not public,
+     * such as the implementation of an extension, are looked up through the public types
+     * they inherit the method from.
+     * 
+     * @param type The class to search.
+     * @param name The name of the method.
+     * @return A handle for the method, or null if it could not be found or accessed.
+     */
+    @Nullable
+    private static MethodHandle lookup (Class<?> type, String name) {
+        
+        final Method method;
+        
+        try {
+            
+            method = type.getMethod(name);
+        }
+        
+        catch (final NoSuchMethodException e) {
+            
+            return null;
+        }
+        
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            
+            return unreflect(method);
+        }
+        
+        if (type.getSuperclass() != null) {
+            
+            final MethodHandle handle = lookup(type.getSuperclass(), name);
+            
+            if (handle != null) {
+                
+                return handle;
+            }
+        }
+        
+        for (final Class<?> parent : type.getInterfaces()) {
+            
+            final MethodHandle handle = lookup(parent, name);
+            
+            if (handle != null) {
+                
+                return handle;
+            }
+        }
+        
+        return null;
+    }
+    
+    @Nullable
+    private static MethodHandle unreflect (Method method) {
+        
+        try {
+            
+            return MethodHandles.publicLookup().unreflect(method);
+        }
+        
+        catch (final IllegalAccessException e) {
+            
+            return null;
+        }
+    }
+}
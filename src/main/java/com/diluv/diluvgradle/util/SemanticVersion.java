@@ -0,0 +1,537 @@
+package com.diluv.diluvgradle.util;
+
+import java.util.Comparator;
+
+import javax.annotation.Nullable;
+
+/**
+ * A semantic version as defined by https://semver.org/. Versions are parsed in a single pass
+ * over the string. Instead of splitting the version into separate strings, only the positions
+ * of each part are stored and comparisons are done directly against the original string.
+ * 
+ * Versions are ordered by their precedence. Build metadata does not affect precedence, so two
+ * versions that only differ by their build metadata compare as equal even though they are not
+ * {@link #equals(Object) equal}.
+ */
+public final class SemanticVersion implements Comparable<SemanticVersion> {
+    
+    /**
+     * Orders version strings by precedence. Versions that are missing their minor or patch
+     * number are ordered as if they were 0, so 1.16 is ordered the same as 1.16.0. Strings
+     * that are not versions are ordered alphabetically after all versions.
+     */
+    public static final Comparator<String> LENIENT_ORDER = SemanticVersion::compareLeniently;
+    
+    private static final int EXPECTED_NUMBER = 0;
+    private static final int LEADING_ZERO = 1;
+    private static final int EXPECTED_DOT = 2;
+    private static final int EMPTY_IDENTIFIER = 3;
+    private static final int UNEXPECTED_CHARACTER = 4;
+    
+    /**
+     * Descriptions of each error, indexed by the error code.
+     */
+    private static final String[] ERRORS = { "Expected a number", "Numbers can not have leading zeros", "Expected '.'", "Expected an identifier", "Unexpected character" };
+    
+    /**
+     * The full version string.
+     */
+    private final String value;
+    
+    /**
+     * The index the minor number starts at.
+     */
+    private final int minorStart;
+    
+    /**
+     * The index the patch number starts at.
+     */
+    private final int patchStart;
+    
+    /**
+     * The index the prerelease starts at, or -1 when there is no prerelease.
+     */
+    private final int preStart;
+    
+    /**
+     * The index the build metadata starts at, or -1 when there is no build metadata.
+     */
+    private final int buildStart;
+    
+    private SemanticVersion(String value, int minorStart, int patchStart, int preStart, int buildStart) {
+        
+        this.value = value;
+        this.minorStart = minorStart;
+        this.patchStart = patchStart;
+        this.preStart = preStart;
+        this.buildStart = buildStart;
+    }
+    
+    /**
+     * Parses a semantic version.
+     * 
+     * @param version The version to parse.
+     * @return The parsed version.
+     * @throws VersionFormatException When the version is not a valid semantic version. The
+     *         exception points at the character that could not be parsed.
+     */
+    public static SemanticVersion parse (String version) {
+        
+        final int[] offsets = new int[4];
+        final long result = scan(version, offsets);
+        
+        if (result != -1) {
+            
+            throw new VersionFormatException(version, errorIndex(result), ERRORS[errorCode(result)]);
+        }
+        
+        return new SemanticVersion(version, offsets[0], offsets[1], offsets[2], offsets[3]);
+    }
+    
+    /**
+     * Parses a semantic version if it is valid.
+     * 
+     * @param version The version to parse.
+     * @return The parsed version. If the version is not valid this will be null.
+     */
+    @Nullable
+    public static SemanticVersion tryParse (String version) {
+        
+        final int[] offsets = new int[4];
+        
+        if (scan(version, offsets) != -1) {
+            
+            return null;
+        }
+        
+        return new SemanticVersion(version, offsets[0], offsets[1], offsets[2], offsets[3]);
+    }
+    
+    /**
+     * Checks if a string is a valid semantic version. This does not allocate any objects.
+     * 
+     * @param version The version to check.
+     * @return Whether or not the version is valid.
+     */
+    public static boolean isValid (String version) {
+        
+        return scan(version, null) == -1;
+    }
+    
+    public long getMajor () {
+        
+        return Long.parseLong(this.value.substring(0, this.minorStart - 1));
+    }
+    
+    public long getMinor () {
+        
+        return Long.parseLong(this.value.substring(this.minorStart, this.patchStart - 1));
+    }
+    
+    public long getPatch () {
+        
+        return Long.parseLong(this.value.substring(this.patchStart, this.coreEnd()));
+    }
+    
+    public boolean isPrerelease () {
+        
+        return this.preStart != -1;
+    }
+    
+    @Nullable
+    public String getPrerelease () {
+        
+        return this.preStart == -1 ? null : this.value.substring(this.preStart, this.preEnd());
+    }
+    
+    @Nullable
+    public String getBuild () {
+        
+        return this.buildStart == -1 ? null : this.value.substring(this.buildStart);
+    }
+    
+    @Override
+    public int compareTo (SemanticVersion other) {
+        
+        int result = compareNumbers(this.value, 0, this.minorStart - 1, other.value, 0, other.minorStart - 1);
+        
+        if (result == 0) {
+            
+            result = compareNumbers(this.value, this.minorStart, this.patchStart - 1, other.value, other.minorStart, other.patchStart - 1);
+        }
+        
+        if (result == 0) {
+            
+            result = compareNumbers(this.value, this.patchStart, this.coreEnd(), other.value, other.patchStart, other.coreEnd());
+        }
+        
+        if (result == 0) {
+            
+            result = this.comparePrerelease(other);
+        }
+        
+        return result;
+    }
+    
+    @Override
+    public boolean equals (Object obj) {
+        
+        return obj instanceof SemanticVersion && this.value.equals(((SemanticVersion) obj).value);
+    }
+    
+    @Override
+    public int hashCode () {
+        
+        return this.value.hashCode();
+    }
+    
+    @Override
+    public String toString () {
+        
+        return this.value;
+    }
+    
+    /**
+     * Gets the index the major, minor and patch numbers end at.
+     */
+    private int coreEnd () {
+        
+        return this.preStart != -1 ? this.preStart - 1 : this.preEnd();
+    }
+    
+    /**
+     * Gets the index the prerelease ends at. This is where the build metadata starts, or the
+     * end of the version.
+     */
+    private int preEnd () {
+        
+        return this.buildStart != -1 ? this.buildStart - 1 : this.value.length();
+    }
+    
+    /**
+     * Compares the prerelease identifiers of two versions. A version without a prerelease has
+     * a higher precedence than one with a prerelease. Otherwise identifiers are compared one at
+     * a time, and a longer set of identifiers has a higher precedence when all shared
+     * identifiers are equal.
+     */
+    private int comparePrerelease (SemanticVersion other) {
+        
+        if (this.preStart == -1 || other.preStart == -1) {
+            
+            return this.preStart == other.preStart ? 0 : this.preStart == -1 ? 1 : -1;
+        }
+        
+        final int end = this.preEnd();
+        final int otherEnd = other.preEnd();
+        int start = this.preStart;
+        int otherStart = other.preStart;
+        
+        while (true) {
+            
+            final int idEnd = identifierEnd(this.value, start, end);
+            final int otherIdEnd = identifierEnd(other.value, otherStart, otherEnd);
+            final int result = compareIdentifiers(this.value, start, idEnd, other.value, otherStart, otherIdEnd);
+            
+            if (result != 0) {
+                
+                return result;
+            }
+            
+            final boolean hasMore = idEnd < end;
+            final boolean otherHasMore = otherIdEnd < otherEnd;
+            
+            if (!hasMore || !otherHasMore) {
+                
+                return hasMore == otherHasMore ? 0 : hasMore ? 1 : -1;
+            }
+            
+            start = idEnd + 1;
+            otherStart = otherIdEnd + 1;
+        }
+    }
+    
+    /**
+     * Compares two prerelease identifiers. Numeric identifiers are compared numerically and
+     * have a lower precedence than alphanumeric identifiers, which are compared in ASCII order.
+     */
+    private static int compareIdentifiers (String a, int aStart, int aEnd, String b, int bStart, int bEnd) {
+        
+        final boolean aNumeric = isNumeric(a, aStart, aEnd);
+        final boolean bNumeric = isNumeric(b, bStart, bEnd);
+        
+        if (aNumeric && bNumeric) {
+            
+            return compareNumbers(a, aStart, aEnd, b, bStart, bEnd);
+        }
+        
+        if (aNumeric != bNumeric) {
+            
+            return aNumeric ? -1 : 1;
+        }
+        
+        final int length = Math.min(aEnd - aStart, bEnd - bStart);
+        
+        for (int i = 0; i < length; i++) {
+            
+            final int result = Character.compare(a.charAt(aStart + i), b.charAt(bStart + i));
+            
+            if (result != 0) {
+                
+                return result;
+            }
+        }
+        
+        return Integer.compare(aEnd - aStart, bEnd - bStart);
+    }
+    
+    /**
+     * Compares two numbers without parsing them. Numbers never have leading zeros, so a longer
+     * number is always larger, and numbers of the same length compare the same as their digits.
+     */
+    private static int compareNumbers (String a, int aStart, int aEnd, String b, int bStart, int bEnd) {
+        
+        final int result = Integer.compare(aEnd - aStart, bEnd - bStart);
+        
+        if (result != 0) {
+            
+            return result;
+        }
+        
+        for (int i = 0; i < aEnd - aStart; i++) {
+            
+            final int digit = Character.compare(a.charAt(aStart + i), b.charAt(bStart + i));
+            
+            if (digit != 0) {
+                
+                return digit;
+            }
+        }
+        
+        return 0;
+    }
+    
+    private static boolean isNumeric (String value, int start, int end) {
+        
+        for (int i = start; i < end; i++) {
+            
+            if (!isDigit(value.charAt(i))) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private static int identifierEnd (String value, int start, int end) {
+        
+        final int dot = value.indexOf('.', start);
+        return dot == -1 || dot > end ? end : dot;
+    }
+    
+    /**
+     * Scans a version in a single pass. When offsets are provided the start of the minor,
+     * patch, prerelease and build parts are written to them.
+     * 
+     * @return -1 if the version is valid, otherwise the error code and index packed by
+     *         {@link #error(int, int)}.
+     */
+    private static long scan (String version, @Nullable int[] offsets) {
+        
+        final int length = version.length();
+        int pos = 0;
+        
+        for (int part = 0; part < 3; part++) {
+            
+            if (part > 0) {
+                
+                if (pos >= length || version.charAt(pos) != '.') {
+                    
+                    return error(EXPECTED_DOT, pos);
+                }
+                
+                pos++;
+                
+                if (offsets != null) {
+                    
+                    offsets[part - 1] = pos;
+                }
+            }
+            
+            final int start = pos;
+            
+            while (pos < length && isDigit(version.charAt(pos))) {
+                
+                pos++;
+            }
+            
+            if (pos == start) {
+                
+                return error(EXPECTED_NUMBER, pos);
+            }
+            
+            if (pos - start > 1 && version.charAt(start) == '0') {
+                
+                return error(LEADING_ZERO, start);
+            }
+        }
+        
+        int preStart = -1;
+        int buildStart = -1;
+        
+        if (pos < length && version.charAt(pos) == '-') {
+            
+            preStart = pos + 1;
+            final long end = scanIdentifiers(version, preStart, true);
+            
+            if (end < 0) {
+                
+                return end;
+            }
+            
+            pos = (int) end;
+        }
+        
+        if (pos < length && version.charAt(pos) == '+') {
+            
+            buildStart = pos + 1;
+            final long end = scanIdentifiers(version, buildStart, false);
+            
+            if (end < 0) {
+                
+                return end;
+            }
+            
+            pos = (int) end;
+        }
+        
+        if (pos < length) {
+            
+            return error(UNEXPECTED_CHARACTER, pos);
+        }
+        
+        if (offsets != null) {
+            
+            offsets[2] = preStart;
+            offsets[3] = buildStart;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Scans a dot separated list of identifiers. Numeric prerelease identifiers can not have
+     * leading zeros.
+     * 
+     * @return The index the identifiers end at, or a negative error packed by
+     *         {@link #error(int, int)}.
+     */
+    private static long scanIdentifiers (String version, int pos, boolean prerelease) {
+        
+        final int length = version.length();
+        
+        while (true) {
+            
+            final int start = pos;
+            boolean numeric = true;
+            
+            while (pos < length) {
+                
+                final char c = version.charAt(pos);
+                
+                if (isDigit(c)) {
+                    
+                    pos++;
+                }
+                
+                else if (c == '-' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+                    
+                    numeric = false;
+                    pos++;
+                }
+                
+                else {
+                    
+                    break;
+                }
+            }
+            
+            if (pos == start) {
+                
+                return error(EMPTY_IDENTIFIER, pos);
+            }
+            
+            if (prerelease && numeric && pos - start > 1 && version.charAt(start) == '0') {
+                
+                return error(LEADING_ZERO, start);
+            }
+            
+            if (pos >= length || version.charAt(pos) != '.') {
+                
+                return pos;
+            }
+            
+            pos++;
+        }
+    }
+    
+    /**
+     * Packs an error code and the index it occurred at into a negative value.
+     */
+    private static long error (int code, int index) {
+        
+        return -((long) index << 3 | code) - 2;
+    }
+    
+    private static int errorCode (long error) {
+        
+        return (int) (-(error + 2) & 7);
+    }
+    
+    private static int errorIndex (long error) {
+        
+        return (int) (-(error + 2) >>> 3);
+    }
+    
+    private static boolean isDigit (char c) {
+        
+        return c >= '0' && c <= '9';
+    }
+    
+    private static int compareLeniently (String a, String b) {
+        
+        final SemanticVersion versionA = parseLeniently(a);
+        final SemanticVersion versionB = parseLeniently(b);
+        
+        if (versionA == null && versionB == null) {
+            
+            return a.compareTo(b);
+        }
+        
+        if (versionA == null || versionB == null) {
+            
+            return versionA == null ? 1 : -1;
+        }
+        
+        final int result = versionA.compareTo(versionB);
+        return result != 0 ? result : a.compareTo(b);
+    }
+    
+    @Nullable
+    private static SemanticVersion parseLeniently (String version) {
+        
+        SemanticVersion parsed = tryParse(version);
+        
+        if (parsed == null) {
+            
+            parsed = tryParse(version + ".0");
+        }
+        
+        if (parsed == null) {
+            
+            parsed = tryParse(version + ".0.0");
+        }
+        
+        return parsed;
+    }
+}
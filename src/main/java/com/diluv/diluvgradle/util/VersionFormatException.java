@@ -0,0 +1,47 @@
+package com.diluv.diluvgradle.util;
+
+/**
+ * Thrown when a string is not a valid semantic version.
+ */
+public class VersionFormatException extends IllegalArgumentException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The version that could not be parsed.
+     */
+    private final String version;
+    
+    /**
+     * The index of the character that could not be parsed.
+     */
+    private final int index;
+    
+    public VersionFormatException(String version, int index, String reason) {
+        
+        super("Invalid semantic version '" + version + "'. " + reason + (index < version.length() ? ", found '" + version.charAt(index) + "'" : "") + " at position " + (index + 1) + ".");
+        this.version = version;
+        this.index = index;
+    }
+    
+    /**
+     * Gets the version that could not be parsed.
+     * 
+     * @return The invalid version.
+     */
+    public String getVersion () {
+        
+        return this.version;
+    }
+    
+    /**
+     * Gets the index of the character that could not be parsed. If the version ended too
+     * early this will be the length of the version.
+     * 
+     * @return The zero based index of the offending character.
+     */
+    public int getIndex () {
+        
+        return this.index;
+    }
+}
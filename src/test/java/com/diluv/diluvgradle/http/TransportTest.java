@@ -0,0 +1,525 @@
+package com.diluv.diluvgradle.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.reactor.IOSessionListener;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.upload.FileUploader;
+import com.diluv.diluvgradle.upload.UploadContext;
+import com.diluv.diluvgradle.util.Hashing;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+/**
+ * Sends the same requests through the blocking transport and the HTTP/2 transport to a local
+ * server that speaks both HTTP/1.1 and HTTP/2, and checks that the plugin sees the same
+ * results from both.
+ */
+class TransportTest {
+    
+    @TempDir
+    Path temp;
+    
+    private StandInServer server;
+    
+    @BeforeEach
+    void startServer () throws Exception {
+        
+        this.server = new StandInServer();
+    }
+    
+    @AfterEach
+    void stopServer () {
+        
+        this.server.close();
+    }
+    
+    @Test
+    void uploadsAreTheSame () throws IOException {
+        
+        final File file = this.createFile(3 * 1024 * 1024 + 17);
+        final String sha512 = Hashing.sha512(file);
+        
+        final ResponseUpload blocking = this.upload(DiluvTransport.BLOCKING, file);
+        final ResponseUpload http2 = this.upload(DiluvTransport.HTTP2, file);
+        
+        assertEquals(sha512, blocking.getSha512());
+        assertEquals(sha512, http2.getSha512());
+        assertEquals(blocking.getName(), http2.getName());
+        assertEquals(blocking.getSize(), http2.getSize());
+        
+        assertEquals(2, this.server.requests.size());
+        final Request first = this.server.requests.get(0);
+        final Request second = this.server.requests.get(1);
+        assertEquals(first.method, second.method);
+        assertEquals(first.path, second.path);
+        assertEquals(first.authorization, second.authorization);
+        assertEquals("HTTP/1.1", first.protocol);
+        assertEquals("HTTP/2.0", second.protocol);
+    }
+    
+    @Test
+    void errorsAreTheSame () throws IOException {
+        
+        final DiluvApiException blocking = assertThrows(DiluvApiException.class, () -> this.get(DiluvTransport.BLOCKING, "/v1/busy"));
+        final DiluvApiException http2 = assertThrows(DiluvApiException.class, () -> this.get(DiluvTransport.HTTP2, "/v1/busy"));
+        
+        assertEquals(429, blocking.getStatus());
+        assertEquals(blocking.getStatus(), http2.getStatus());
+        assertEquals(2000, blocking.getRetryAfter());
+        assertEquals(blocking.getRetryAfter(), http2.getRetryAfter());
+        assertNotNull(blocking.getError());
+        assertEquals(blocking.getError().getType(), http2.getError().getType());
+        assertEquals(blocking.getError().getMessage(), http2.getError().getMessage());
+        assertTrue(RetryPolicy.isRetryable(blocking));
+        assertTrue(RetryPolicy.isRetryable(http2));
+    }
+    
+    @Test
+    void negotiatedProtocolIsReported () throws IOException {
+        
+        assertEquals(HttpVersion.HTTP_1_1, this.get(DiluvTransport.BLOCKING, "/v1/ok"));
+        assertEquals(new ProtocolVersion("HTTP", 2, 0), this.get(DiluvTransport.HTTP2, "/v1/ok"));
+    }
+    
+    @Test
+    void oversizedBodiesAreNotReadToTheEnd () {
+        
+        for (final String transportName : new String[] { DiluvTransport.BLOCKING, DiluvTransport.HTTP2 }) {
+            
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                
+                assertThrows(JsonParseException.class, () -> this.get(transportName, "/v1/endless"), transportName);
+                
+                final DiluvApiException error = assertThrows(DiluvApiException.class, () -> this.get(transportName, "/v1/endless-error"), transportName);
+                assertEquals(500, error.getStatus());
+            }, transportName);
+        }
+        
+        // Each of the four requests may read up to the limit, plus whatever was already buffered.
+        assertTrue(this.server.endlessBytes.get() < 4 * 2 * Responses.MAX_BODY_SIZE, () -> this.server.endlessBytes.get() + " bytes of the endless bodies were sent.");
+    }
+    
+    @Test
+    void http2MultiplexesConcurrentUploads () throws Exception {
+        
+        final File file = this.createFile(512 * 1024);
+        final String sha512 = Hashing.sha512(file);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        
+        try (DiluvTransport transport = DiluvTransport.create(DiluvTransport.HTTP2, 8, 8)) {
+            
+            final FileUploader uploader = new FileUploader(new UploadContext(transport, DiluvJson.GSON, "test", RetryPolicy.NONE, null));
+            final List<Future<ResponseUpload>> uploads = new ArrayList<>();
+            
+            for (int i = 0; i < 8; i++) {
+                
+                // Half of the uploads already know the hash of the file, so the file is sent
+                // without being hashed again.
+                final String knownSha512 = i % 2 == 0 ? sha512 : null;
+                uploads.add(executor.submit( () -> uploader.upload(this.server.getUrl() + "/v1/projects/1/files", file, knownSha512, "{}", Collections.emptyMap())));
+            }
+            
+            for (final Future<ResponseUpload> upload : uploads) {
+                
+                assertEquals(sha512, upload.get().getSha512());
+            }
+        }
+        
+        finally {
+            
+            executor.shutdownNow();
+        }
+        
+        assertEquals(8, this.server.requests.size());
+        assertEquals(1, this.server.connections.get());
+    }
+    
+    private ResponseUpload upload (String transportName, File file) throws IOException {
+        
+        try (DiluvTransport transport = DiluvTransport.create(transportName, 4, 4)) {
+            
+            return new FileUploader(new UploadContext(transport, DiluvJson.GSON, "test", RetryPolicy.NONE, null)).upload(this.server.getUrl() + "/v1/projects/1/files", file, "{}");
+        }
+    }
+    
+    /**
+     * Sends a GET request, reads the body of the response and returns its protocol version.
+     * Unsuccessful responses are thrown as a {@link DiluvApiException}.
+     */
+    private ProtocolVersion get (String transportName, String path) throws IOException {
+        
+        try (DiluvTransport transport = DiluvTransport.create(transportName, 4, 4)) {
+            
+            final UploadContext context = new UploadContext(transport, DiluvJson.GSON, "test", RetryPolicy.NONE, null);
+            
+            return context.send(new HttpGet(this.server.getUrl() + path), response -> {
+                
+                if (response.getStatusLine().getStatusCode() != 200) {
+                    
+                    throw Responses.error(DiluvJson.GSON, response, "Request");
+                }
+                
+                Responses.read(DiluvJson.GSON, response.getEntity(), JsonObject.class);
+                return response.getProtocolVersion();
+            });
+        }
+    }
+    
+    private File createFile (int size) throws IOException {
+        
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        
+        final File file = this.temp.resolve("upload-" + size + ".jar").toFile();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+    
+    /**
+     * A request received by the server.
+     */
+    private static final class Request {
+        
+        private final String method;
+        
+        private final String path;
+        
+        private final String authorization;
+        
+        private final String protocol;
+        
+        private Request(HttpRequest request, HttpContext context) {
+            
+            this.method = request.getMethod();
+            this.path = request.getPath();
+            this.authorization = request.getFirstHeader("Authorization") != null ? request.getFirstHeader("Authorization").getValue() : null;
+            this.protocol = HttpCoreContext.adapt(context).getProtocolVersion().format();
+        }
+    }
+    
+    /**
+     * A local server that stands in for the Diluv API. HTTP/1.1 and HTTP/2 requests are
+     * accepted on the same port. Uploaded files are read from the multipart form and
+     * answered with their hash, so the client can check that the file arrived intact.
+     */
+    private static final class StandInServer implements AutoCloseable, AsyncServerRequestHandler<Message<HttpRequest, byte[]>> {
+        
+        /**
+         * Every request received by the server, in the order they were received.
+         */
+        private final List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * The amount of connections that were opened to the server.
+         */
+        private final AtomicInteger connections = new AtomicInteger();
+        
+        /**
+         * The amount of bytes of endless bodies that were sent.
+         */
+        private final AtomicLong endlessBytes = new AtomicLong();
+        
+        private final HttpAsyncServer server;
+        
+        private final int port;
+        
+        private StandInServer() throws Exception {
+            
+            this.server = H2ServerBootstrap.bootstrap()
+                    .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                    .setIOSessionListener(new ConnectionCounter(this.connections))
+                    .register("*", this)
+                    .create();
+            this.server.start();
+            
+            final ListenerEndpoint endpoint = this.server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).get();
+            this.port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+        }
+        
+        private String getUrl () {
+            
+            return "http://127.0.0.1:" + this.port;
+        }
+        
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, byte[]>> prepare (HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+            
+            return new BasicRequestConsumer<>(entityDetails != null ? new BasicAsyncEntityConsumer() : null);
+        }
+        
+        @Override
+        public void handle (Message<HttpRequest, byte[]> message, ResponseTrigger trigger, HttpContext context) throws org.apache.hc.core5.http.HttpException, IOException {
+            
+            final HttpRequest request = message.getHead();
+            this.requests.add(new Request(request, context));
+            
+            final AsyncResponseBuilder response;
+            
+            if (request.getPath().endsWith("/files")) {
+                
+                final byte[] file = getFilePart(request.getFirstHeader("Content-Type").getValue(), message.getBody());
+                response = AsyncResponseBuilder.create(200).setEntity("{\"id\":1,\"name\":\"upload.jar\",\"size\":" + file.length + ",\"sha512\":\"" + sha512(file) + "\"}", ContentType.APPLICATION_JSON);
+            }
+            
+            else if (request.getPath().endsWith("/busy")) {
+                
+                response = AsyncResponseBuilder.create(429).setHeader("Retry-After", "2").setEntity("{\"type\":\"Too Many Requests\",\"error\":\"errors.rate_limit\",\"message\":\"Slow down.\"}", ContentType.APPLICATION_JSON);
+            }
+            
+            else if (request.getPath().endsWith("/endless")) {
+                
+                response = AsyncResponseBuilder.create(200).setEntity(new EndlessProducer("{\"id\":1}", ' ', this.endlessBytes));
+            }
+            
+            else if (request.getPath().endsWith("/endless-error")) {
+                
+                response = AsyncResponseBuilder.create(500).setEntity(new EndlessProducer("{\"type\":\"Internal Server Error\",\"message\":\"", 'x', this.endlessBytes));
+            }
+            
+            else {
+                
+                response = AsyncResponseBuilder.create(200).setEntity("{}", ContentType.APPLICATION_JSON);
+            }
+            
+            trigger.submitResponse(response.build(), context);
+        }
+        
+        @Override
+        public void close () {
+            
+            this.server.close(CloseMode.IMMEDIATE);
+        }
+        
+        /**
+         * Reads the bytes of the first part of a multipart form, which is the file.
+         */
+        private static byte[] getFilePart (String contentType, byte[] body) {
+            
+            final byte[] headerEnd = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+            final byte[] delimiter = ("\r\n--" + contentType.substring(contentType.indexOf("boundary=") + 9)).getBytes(StandardCharsets.US_ASCII);
+            final int start = indexOf(body, headerEnd, 0) + headerEnd.length;
+            final int end = indexOf(body, delimiter, start);
+            final byte[] part = new byte[end - start];
+            System.arraycopy(body, start, part, 0, part.length);
+            return part;
+        }
+        
+        private static int indexOf (byte[] data, byte[] pattern, int from) {
+            
+            outer: for (int i = from; i <= data.length - pattern.length; i++) {
+                
+                for (int j = 0; j < pattern.length; j++) {
+                    
+                    if (data[i + j] != pattern[j]) {
+                        
+                        continue outer;
+                    }
+                }
+                
+                return i;
+            }
+            
+            throw new IllegalStateException("The multipart form is malformed.");
+        }
+        
+        private static String sha512 (byte[] data) {
+            
+            final MessageDigest digest = Hashing.createDigest("SHA-512");
+            return Hashing.toHex(digest.digest(data));
+        }
+    }
+    
+    /**
+     * Produces a JSON body that never ends. The prefix is followed by the same character
+     * forever, until the client stops reading.
+     */
+    private static final class EndlessProducer implements AsyncEntityProducer {
+        
+        private final byte[] filler = new byte[8192];
+        
+        private final AtomicLong sent;
+        
+        private ByteBuffer buffer;
+        
+        private EndlessProducer(String prefix, char fill, AtomicLong sent) {
+            
+            Arrays.fill(this.filler, (byte) fill);
+            this.buffer = ByteBuffer.wrap(prefix.getBytes(StandardCharsets.UTF_8));
+            this.sent = sent;
+        }
+        
+        @Override
+        public void produce (DataStreamChannel channel) throws IOException {
+            
+            int written;
+            
+            do {
+                
+                if (!this.buffer.hasRemaining()) {
+                    
+                    this.buffer = ByteBuffer.wrap(this.filler);
+                }
+                
+                written = channel.write(this.buffer);
+                this.sent.addAndGet(written);
+            }
+            while (written > 0);
+        }
+        
+        @Override
+        public int available () {
+            
+            return Integer.MAX_VALUE;
+        }
+        
+        @Override
+        public boolean isRepeatable () {
+            
+            return false;
+        }
+        
+        @Override
+        public long getContentLength () {
+            
+            return -1;
+        }
+        
+        @Override
+        public String getContentType () {
+            
+            return ContentType.APPLICATION_JSON.toString();
+        }
+        
+        @Override
+        public String getContentEncoding () {
+            
+            return null;
+        }
+        
+        @Override
+        public boolean isChunked () {
+            
+            return true;
+        }
+        
+        @Override
+        public Set<String> getTrailerNames () {
+            
+            return null;
+        }
+        
+        @Override
+        public void failed (Exception cause) {
+        
+        }
+        
+        @Override
+        public void releaseResources () {
+        
+        }
+    }
+    
+    /**
+     * Counts the connections opened to the server.
+     */
+    private static final class ConnectionCounter implements IOSessionListener {
+        
+        private final AtomicInteger connections;
+        
+        private ConnectionCounter(AtomicInteger connections) {
+            
+            this.connections = connections;
+        }
+        
+        @Override
+        public void connected (IOSession session) {
+            
+            this.connections.incrementAndGet();
+        }
+        
+        @Override
+        public void startTls (IOSession session) {
+        
+        }
+        
+        @Override
+        public void inputReady (IOSession session) {
+        
+        }
+        
+        @Override
+        public void outputReady (IOSession session) {
+        
+        }
+        
+        @Override
+        public void timeout (IOSession session) {
+        
+        }
+        
+        @Override
+        public void exception (IOSession session, Exception ex) {
+        
+        }
+        
+        @Override
+        public void disconnected (IOSession session) {
+        
+        }
+    }
+}
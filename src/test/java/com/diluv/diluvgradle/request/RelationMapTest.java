@@ -0,0 +1,182 @@
+package com.diluv.diluvgradle.request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Checks the relation map against a {@link LinkedHashMap}, which keeps relations in the same
+ * order, and checks that the map is serialized like the list of relations it replaced.
+ */
+class RelationMapTest {
+    
+    /**
+     * Serializes relations the way the request data did before the relation map, using
+     * reflection and the exposed fields of each relation.
+     */
+    private static final Gson LIST_GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+    
+    private static final int ITERATIONS = 100_000;
+    
+    @Test
+    void replacingKeepsPositionAndReAddingMovesToEnd () throws IOException {
+        
+        final RelationMap relations = new RelationMap();
+        assertNull(relations.put(1, RelationType.REQUIRED));
+        assertNull(relations.put(2, RelationType.OPTIONAL));
+        assertNull(relations.put(3, RelationType.INCOMPATIBLE));
+        
+        assertEquals(RelationType.REQUIRED, relations.put(1, RelationType.OPTIONAL));
+        assertEquals(json(relation(1, RelationType.OPTIONAL), relation(2, RelationType.OPTIONAL), relation(3, RelationType.INCOMPATIBLE)), RelationMap.ADAPTER.toJson(relations));
+        
+        assertEquals(RelationType.OPTIONAL, relations.remove(2));
+        assertNull(relations.remove(2));
+        assertNull(relations.get(2));
+        assertEquals(2, relations.size());
+        
+        assertNull(relations.put(2, RelationType.REQUIRED));
+        assertEquals(RelationType.REQUIRED, relations.get(2));
+        assertEquals(3, relations.size());
+        assertEquals(json(relation(1, RelationType.OPTIONAL), relation(3, RelationType.INCOMPATIBLE), relation(2, RelationType.REQUIRED)), RelationMap.ADAPTER.toJson(relations));
+    }
+    
+    @Test
+    void growsAfterManyRemovals () throws IOException {
+        
+        final RelationMap relations = new RelationMap();
+        final Map<Long, RelationType> expected = new LinkedHashMap<>();
+        
+        // Every round fills the arrays with relations that are removed again, so the arrays
+        // are compacted over and over while the map itself keeps growing.
+        for (long round = 0; round < 200; round++) {
+            
+            for (long i = 0; i < 50; i++) {
+                
+                final long id = 1_000_000 + round * 50 + i;
+                relations.put(id, RelationType.OPTIONAL);
+                expected.put(id, RelationType.OPTIONAL);
+            }
+            
+            for (long i = 0; i < 50; i++) {
+                
+                final long id = 1_000_000 + round * 50 + i;
+                
+                if (i != round % 50) {
+                    
+                    assertEquals(RelationType.OPTIONAL, relations.remove(id));
+                    expected.remove(id);
+                }
+            }
+            
+            relations.put(round, RelationType.REQUIRED);
+            expected.put(round, RelationType.REQUIRED);
+        }
+        
+        assertEquals(expected.size(), relations.size());
+        assertMatches(expected, relations);
+    }
+    
+    @Test
+    void matchesLinkedHashMapForRandomOperations () throws IOException {
+        
+        final Random random = new Random(22);
+        final RelationMap relations = new RelationMap();
+        final Map<Long, RelationType> expected = new LinkedHashMap<>();
+        final long[] edgeIds = { 0, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, 0x9E3779B97F4A7C15L };
+        
+        for (int i = 0; i < ITERATIONS; i++) {
+            
+            // Most IDs come from a small range so they are replaced, removed and added again.
+            final long id = random.nextInt(10) == 0 ? edgeIds[random.nextInt(edgeIds.length)] : random.nextInt(500);
+            final int operation = random.nextInt(10);
+            
+            if (operation < 5) {
+                
+                final RelationType type = RelationType.values()[random.nextInt(RelationType.values().length)];
+                assertEquals(expected.put(id, type), relations.put(id, type), () -> "put " + id);
+            }
+            
+            else if (operation < 9) {
+                
+                assertEquals(expected.remove(id), relations.remove(id), () -> "remove " + id);
+            }
+            
+            else {
+                
+                relations.ensureCapacity(relations.size() + random.nextInt(100));
+            }
+            
+            assertEquals(expected.get(id), relations.get(id), () -> "get " + id);
+            assertEquals(expected.size(), relations.size());
+        }
+        
+        assertMatches(expected, relations);
+    }
+    
+    @Test
+    void adapterMatchesRelationListShape () throws IOException {
+        
+        final List<FileProjectRelation> list = Arrays.asList(relation(42, RelationType.REQUIRED), relation(7, RelationType.OPTIONAL), relation(-3, RelationType.INCOMPATIBLE), relation(Long.MAX_VALUE, RelationType.OPTIONAL));
+        final String listJson = LIST_GSON.toJson(list);
+        
+        final RelationMap relations = new RelationMap();
+        
+        for (final FileProjectRelation relation : list) {
+            
+            relations.put(relation.getProjectId(), relation.getRelationType());
+        }
+        
+        assertEquals(listJson, RelationMap.ADAPTER.toJson(relations));
+        
+        final RelationMap read = RelationMap.ADAPTER.fromJson(listJson);
+        assertEquals(list.size(), read.size());
+        assertEquals(listJson, RelationMap.ADAPTER.toJson(read));
+        
+        final List<FileProjectRelation> readList = LIST_GSON.fromJson(RelationMap.ADAPTER.toJson(read), new TypeToken<List<FileProjectRelation>>() {}.getType());
+        assertEquals(list.size(), readList.size());
+        
+        for (int i = 0; i < list.size(); i++) {
+            
+            assertEquals(list.get(i).getProjectId(), readList.get(i).getProjectId());
+            assertEquals(list.get(i).getRelationType(), readList.get(i).getRelationType());
+        }
+        
+        assertEquals(0, RelationMap.ADAPTER.fromJson("null").size());
+        assertEquals("[]", RelationMap.ADAPTER.toJson(new RelationMap()));
+    }
+    
+    private static void assertMatches (Map<Long, RelationType> expected, RelationMap relations) throws IOException {
+        
+        final List<FileProjectRelation> list = new ArrayList<>();
+        expected.forEach( (id, type) -> list.add(relation(id, type)));
+        assertEquals(LIST_GSON.toJson(list), RelationMap.ADAPTER.toJson(relations));
+        
+        for (final Map.Entry<Long, RelationType> entry : expected.entrySet()) {
+            
+            assertEquals(entry.getValue(), relations.get(entry.getKey()));
+        }
+    }
+    
+    private static FileProjectRelation relation (long projectId, RelationType type) {
+        
+        return new FileProjectRelation(projectId, type);
+    }
+    
+    private static String json (FileProjectRelation... relations) {
+        
+        return LIST_GSON.toJson(Arrays.asList(relations));
+    }
+}
@@ -0,0 +1,356 @@
+package com.diluv.diluvgradle.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.diluv.diluvgradle.http.DiluvApiException;
+import com.diluv.diluvgradle.http.DiluvTransport;
+import com.diluv.diluvgradle.http.RetryPolicy;
+import com.diluv.diluvgradle.json.DiluvJson;
+import com.diluv.diluvgradle.responses.ResponseUpload;
+import com.diluv.diluvgradle.util.Hashing;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Interrupts chunked uploads part way through using a local server that stands in for Diluv,
+ * and checks that the next attempt only sends the parts that were not received.
+ */
+class ChunkedUploaderTest {
+    
+    /**
+     * The size of each part. Every test file is split into {@link #PARTS} parts, the last of
+     * which is shorter than the others.
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    private static final int PARTS = 10;
+    
+    @TempDir
+    Path temp;
+    
+    private StandInServer server;
+    
+    private DiluvTransport transport;
+    
+    private File file;
+    
+    private String sha512;
+    
+    private File journalFile;
+    
+    @BeforeEach
+    void setup () throws IOException {
+        
+        this.server = new StandInServer();
+        this.transport = DiluvTransport.create(DiluvTransport.BLOCKING, 4, 4);
+        this.file = this.temp.resolve("upload.jar").toFile();
+        this.writeFile(1);
+        this.sha512 = Hashing.sha512(this.file);
+        this.journalFile = this.temp.resolve("journal/upload.json").toFile();
+    }
+    
+    @AfterEach
+    void teardown () {
+        
+        this.transport.close();
+        this.server.close();
+    }
+    
+    @Test
+    void resumesOnlyMissingParts () throws IOException {
+        
+        this.server.failAfter.set(4);
+        assertEquals(503, assertThrows(DiluvApiException.class, () -> this.upload(1)).getStatus());
+        
+        final UploadJournal journal = UploadJournal.load(DiluvJson.GSON, this.journalFile);
+        assertNotNull(journal);
+        assertEquals(4, journal.getCompletedCount());
+        assertEquals(1, this.server.sessions.size());
+        
+        this.server.failAfter.set(Integer.MAX_VALUE);
+        this.server.received.clear();
+        final ResponseUpload uploaded = this.upload(3);
+        
+        assertEquals(this.sha512, uploaded.getSha512());
+        assertEquals(1, this.server.sessions.size(), "The upload should resume the first session.");
+        assertEquals(PARTS - 4, this.server.received.size());
+        
+        for (int part = 0; part < PARTS; part++) {
+            
+            assertEquals(journal.isComplete(part), !this.server.received.containsKey(part), "Part " + part + " was sent the wrong amount of times.");
+        }
+        
+        assertTrue(this.server.maxConcurrent.get() <= 3, "At most 3 parts should be sent at once.");
+        assertFalse(this.journalFile.exists(), "The journal should be deleted once the upload is complete.");
+    }
+    
+    @Test
+    void restartsExpiredSessions () throws IOException {
+        
+        this.server.failAfter.set(6);
+        assertThrows(DiluvApiException.class, () -> this.upload(1));
+        
+        this.server.failAfter.set(Integer.MAX_VALUE);
+        this.server.sessions.clear();
+        this.server.received.clear();
+        final ResponseUpload uploaded = this.upload(2);
+        
+        assertEquals(this.sha512, uploaded.getSha512());
+        assertEquals(1, this.server.sessions.size());
+        assertEquals(PARTS, this.server.received.size(), "Every part should be sent again to the new session.");
+    }
+    
+    @Test
+    void ignoresJournalOfChangedFile () throws IOException {
+        
+        this.server.failAfter.set(5);
+        assertThrows(DiluvApiException.class, () -> this.upload(1));
+        
+        this.writeFile(2);
+        this.sha512 = Hashing.sha512(this.file);
+        this.server.failAfter.set(Integer.MAX_VALUE);
+        this.server.received.clear();
+        final ResponseUpload uploaded = this.upload(2);
+        
+        assertEquals(this.sha512, uploaded.getSha512());
+        assertEquals(2, this.server.sessions.size());
+        assertEquals(PARTS, this.server.received.size());
+    }
+    
+    private ResponseUpload upload (int parallelism) throws IOException {
+        
+        final UploadContext context = new UploadContext(this.transport, DiluvJson.GSON, "test", RetryPolicy.NONE, null);
+        return new ChunkedUploader(context, CHUNK_SIZE, parallelism).upload(this.server.getUrl() + "/v1/projects/1/files", this.file, this.sha512, "{}", Collections.emptyMap(), this.journalFile);
+    }
+    
+    private void writeFile (long seed) throws IOException {
+        
+        final byte[] bytes = new byte[CHUNK_SIZE * PARTS - 100];
+        new Random(seed).nextBytes(bytes);
+        Files.write(this.file.toPath(), bytes);
+    }
+    
+    /**
+     * A local server that implements the chunked upload endpoints of the Diluv API. After a set
+     * amount of parts have been received, every other part is rejected as if the server had
+     * become unavailable.
+     */
+    private static final class StandInServer implements AutoCloseable {
+        
+        /**
+         * The sessions that were started, keyed by their ID.
+         */
+        private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+        
+        /**
+         * The amount of times each part was received, keyed by part number.
+         */
+        private final Map<Integer, AtomicInteger> received = new ConcurrentHashMap<>();
+        
+        /**
+         * The amount of parts that are accepted before parts are rejected.
+         */
+        private final AtomicInteger failAfter = new AtomicInteger(Integer.MAX_VALUE);
+        
+        /**
+         * The amount of parts that were accepted.
+         */
+        private final AtomicInteger accepted = new AtomicInteger();
+        
+        private final AtomicInteger concurrent = new AtomicInteger();
+        
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        
+        private final AtomicInteger nextSession = new AtomicInteger();
+        
+        private final HttpServer server;
+        
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        
+        private StandInServer() throws IOException {
+            
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            this.server.createContext("/", this::handle);
+            this.server.setExecutor(this.executor);
+            this.server.start();
+        }
+        
+        private String getUrl () {
+            
+            return "http://127.0.0.1:" + this.server.getAddress().getPort();
+        }
+        
+        private void handle (HttpExchange exchange) throws IOException {
+            
+            final String path = exchange.getRequestURI().getPath();
+            final String[] segments = path.split("/");
+            
+            if (path.endsWith("/files/uploads")) {
+                
+                final JsonObject body = JsonParser.parseReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)).getAsJsonObject();
+                final String id = "session-" + this.nextSession.incrementAndGet();
+                this.sessions.put(id, new Session(body.get("sha512").getAsString(), body.get("parts").getAsInt()));
+                respond(exchange, 201, "{\"uploadId\":\"" + id + "\"}");
+                return;
+            }
+            
+            final Session session = this.sessions.get(segments[segments.length - (path.endsWith("/complete") ? 2 : 3)]);
+            
+            if (session == null) {
+                
+                // The body is read so the server keeps the connection open for the next request.
+                readAll(exchange.getRequestBody());
+                respond(exchange, 404, "{\"type\":\"Not Found\",\"error\":\"errors.upload.not_found\",\"message\":\"The upload session does not exist.\"}");
+            }
+            
+            else if (path.endsWith("/complete")) {
+                
+                readAll(exchange.getRequestBody());
+                this.complete(exchange, session);
+            }
+            
+            else {
+                
+                this.receivePart(exchange, session, Integer.parseInt(segments[segments.length - 1]));
+            }
+        }
+        
+        private void receivePart (HttpExchange exchange, Session session, int part) throws IOException {
+            
+            final int running = this.concurrent.incrementAndGet();
+            this.maxConcurrent.accumulateAndGet(running, Math::max);
+            
+            try {
+                
+                final byte[] data = readAll(exchange.getRequestBody());
+                
+                if (this.accepted.incrementAndGet() > this.failAfter.get()) {
+                    
+                    this.accepted.decrementAndGet();
+                    respond(exchange, 503, "{\"type\":\"Service Unavailable\",\"error\":\"errors.unavailable\",\"message\":\"Try again later.\"}");
+                    return;
+                }
+                
+                session.parts.put(part, data);
+                this.received.computeIfAbsent(part, key -> new AtomicInteger()).incrementAndGet();
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+            
+            finally {
+                
+                this.concurrent.decrementAndGet();
+            }
+        }
+        
+        private void complete (HttpExchange exchange, Session session) throws IOException {
+            
+            final MessageDigest digest = Hashing.createDigest("SHA-512");
+            
+            for (int part = 0; part < session.partCount; part++) {
+                
+                final byte[] data = session.parts.get(part);
+                
+                if (data == null) {
+                    
+                    respond(exchange, 400, "{\"type\":\"Bad Request\",\"error\":\"errors.upload.incomplete\",\"message\":\"Part " + part + " is missing.\"}");
+                    return;
+                }
+                
+                digest.update(data);
+            }
+            
+            final String sha512 = Hashing.toHex(digest.digest());
+            
+            if (!sha512.equals(session.sha512)) {
+                
+                respond(exchange, 400, "{\"type\":\"Bad Request\",\"error\":\"errors.upload.hash\",\"message\":\"The parts do not match the file.\"}");
+                return;
+            }
+            
+            respond(exchange, 200, "{\"id\":1,\"name\":\"upload.jar\",\"sha512\":\"" + sha512 + "\"}");
+        }
+        
+        @Override
+        public void close () {
+            
+            this.server.stop(0);
+            this.executor.shutdownNow();
+        }
+        
+        private static byte[] readAll (InputStream in) throws IOException {
+            
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            
+            while ((read = in.read(buffer)) != -1) {
+                
+                out.write(buffer, 0, read);
+            }
+            
+            return out.toByteArray();
+        }
+        
+        private static void respond (HttpExchange exchange, int status, String body) throws IOException {
+            
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            
+            try (OutputStream out = exchange.getResponseBody()) {
+                
+                out.write(bytes);
+            }
+        }
+    }
+    
+    /**
+     * An upload session and the parts it has received.
+     */
+    private static final class Session {
+        
+        private final String sha512;
+        
+        private final int partCount;
+        
+        private final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+        
+        private Session(String sha512, int partCount) {
+            
+            this.sha512 = sha512;
+            this.partCount = partCount;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.diluv.diluvgradle.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.diluvgradle.Constants;
+
+/**
+ * Checks the semantic version parser against the regex it replaced, using random versions
+ * that are built to be close to valid. The precedence of versions is checked against a
+ * simple implementation of the rules in the semver specification.
+ */
+class SemanticVersionTest {
+    
+    /**
+     * The regex from semver.org that the parser replaced.
+     */
+    @SuppressWarnings("deprecation")
+    private static final Pattern REGEX = Constants.SEM_VER;
+    
+    /**
+     * The pieces random versions are built from. Most are valid parts of a version, the rest
+     * are common mistakes.
+     */
+    private static final String[] PIECES = { "0", "1", "9", "10", "42", "007", "01", "00", "99999999999999999999", ".", ".", ".", "-", "-", "+", "a", "Z", "x-y", "alpha", "rc", "beta", "0a", "-0", "..", "", " ", "_", "v", "\u00e9" };
+    
+    private static final int ITERATIONS = 200_000;
+    
+    @Test
+    void matchesRegexForRandomVersions () {
+        
+        final Random random = new Random(14);
+        
+        for (int i = 0; i < ITERATIONS; i++) {
+            
+            final String version = random.nextBoolean() ? randomPieces(random) : mutate(random, randomValid(random));
+            assertMatchesRegex(version);
+        }
+    }
+    
+    @Test
+    void matchesRegexForEdgeCases () {
+        
+        for (final String version : Arrays.asList("", "1", "1.2", "1.2.3", "1.2.3.", "1.2.3-", "1.2.3+", "1.2.3-+", "1.2.3-a+", "1.2.3-a.", "1.2.3-a..b", "1.2.3-01", "1.2.3-0a", "1.2.3-a-01", "1.2.3--", "1.2.3+01", "1.2.3+a.01", "01.2.3", "1.02.3", "1.2.03", "0.0.0", "1.2.3-0", "1.2.3-rc.1+build.5", "1.2.3+build-x.y", "1.2.3-x.7.z.92", "1.2.3\n", " 1.2.3", "99999999999999999999.0.0")) {
+            
+            assertMatchesRegex(version);
+        }
+    }
+    
+    @Test
+    void ordersLikeSpecification () {
+        
+        final List<String> expected = Arrays.asList("1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-alpha.beta", "1.0.0-beta", "1.0.0-beta.2", "1.0.0-beta.11", "1.0.0-rc.1", "1.0.0", "1.0.1", "1.1.0", "2.0.0", "10.0.0");
+        final List<String> shuffled = new ArrayList<>(expected);
+        Collections.shuffle(shuffled, new Random(1));
+        shuffled.sort(SemanticVersion.LENIENT_ORDER);
+        
+        assertEquals(expected, shuffled);
+        assertEquals(0, SemanticVersion.parse("1.0.0+a").compareTo(SemanticVersion.parse("1.0.0+b")), "Build metadata must be ignored.");
+    }
+    
+    @Test
+    void comparesLikeReference () {
+        
+        final Random random = new Random(2);
+        
+        for (int i = 0; i < ITERATIONS; i++) {
+            
+            final String a = randomValid(random);
+            final String b = random.nextInt(4) == 0 ? a : random.nextBoolean() ? randomValid(random) : mutate(random, a);
+            
+            if (!REGEX.matcher(b).matches()) {
+                
+                continue;
+            }
+            
+            assertEquals(Integer.signum(referenceCompare(a, b)), Integer.signum(SemanticVersion.parse(a).compareTo(SemanticVersion.parse(b))), a + " compared to " + b);
+        }
+    }
+    
+    @Test
+    void pointsAtInvalidCharacter () {
+        
+        assertErrorAt("1.2", 3);
+        assertErrorAt("1.02.3", 2);
+        assertErrorAt("1.2.3-a..b", 8);
+        assertErrorAt("1.2.3 ", 5);
+        assertErrorAt("v1.2.3", 0);
+        
+        final VersionFormatException error = assertThrows(VersionFormatException.class, () -> SemanticVersion.parse("1.2.x"));
+        assertEquals("1.2.x", error.getVersion());
+        assertNull(SemanticVersion.tryParse("1.2.x"));
+    }
+    
+    private static void assertMatchesRegex (String version) {
+        
+        final Matcher matcher = REGEX.matcher(version);
+        final boolean valid = matcher.matches();
+        
+        assertEquals(valid, SemanticVersion.isValid(version), () -> "Validity of '" + version + "'");
+        
+        if (!valid) {
+            
+            final VersionFormatException error = assertThrows(VersionFormatException.class, () -> SemanticVersion.parse(version), () -> "Parsing '" + version + "'");
+            assertTrue(error.getIndex() >= 0 && error.getIndex() <= version.length(), () -> "Error index " + error.getIndex() + " of '" + version + "'");
+            return;
+        }
+        
+        final SemanticVersion parsed = SemanticVersion.parse(version);
+        assertNotNull(parsed);
+        assertEquals(matcher.group(4), parsed.getPrerelease(), () -> "Prerelease of '" + version + "'");
+        assertEquals(matcher.group(5), parsed.getBuild(), () -> "Build of '" + version + "'");
+        assertEquals(matcher.group(4) != null, parsed.isPrerelease());
+        
+        if (version.length() < 18) {
+            
+            assertEquals(Long.parseLong(matcher.group(1)), parsed.getMajor());
+            assertEquals(Long.parseLong(matcher.group(2)), parsed.getMinor());
+            assertEquals(Long.parseLong(matcher.group(3)), parsed.getPatch());
+        }
+    }
+    
+    private static void assertErrorAt (String version, int index) {
+        
+        assertEquals(index, assertThrows(VersionFormatException.class, () -> SemanticVersion.parse(version)).getIndex(), () -> "Error index of '" + version + "'");
+    }
+    
+    /**
+     * Compares two valid versions by splitting them with the regex, following section 11 of
+     * the semver specification.
+     */
+    private static int referenceCompare (String a, String b) {
+        
+        final Matcher first = REGEX.matcher(a);
+        final Matcher second = REGEX.matcher(b);
+        assertTrue(first.matches() && second.matches());
+        
+        for (int group = 1; group <= 3; group++) {
+            
+            final int result = new BigInteger(first.group(group)).compareTo(new BigInteger(second.group(group)));
+            
+            if (result != 0) {
+                
+                return result;
+            }
+        }
+        
+        final String firstPre = first.group(4);
+        final String secondPre = second.group(4);
+        
+        if (firstPre == null || secondPre == null) {
+            
+            return firstPre == null ? secondPre == null ? 0 : 1 : -1;
+        }
+        
+        final String[] firstIds = firstPre.split("\\.");
+        final String[] secondIds = secondPre.split("\\.");
+        
+        for (int i = 0; i < Math.min(firstIds.length, secondIds.length); i++) {
+            
+            final boolean firstNumeric = firstIds[i].matches("\\d+");
+            final boolean secondNumeric = secondIds[i].matches("\\d+");
+            final int result;
+            
+            if (firstNumeric && secondNumeric) {
+                
+                result = new BigInteger(firstIds[i]).compareTo(new BigInteger(secondIds[i]));
+            }
+            
+            else if (firstNumeric || secondNumeric) {
+                
+                result = firstNumeric ? -1 : 1;
+            }
+            
+            else {
+                
+                result = firstIds[i].compareTo(secondIds[i]);
+            }
+            
+            if (result != 0) {
+                
+                return result;
+            }
+        }
+        
+        return Integer.compare(firstIds.length, secondIds.length);
+    }
+    
+    private static String randomPieces (Random random) {
+        
+        final StringBuilder version = new StringBuilder();
+        final int count = random.nextInt(12);
+        
+        for (int i = 0; i < count; i++) {
+            
+            version.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        
+        return version.toString();
+    }
+    
+    private static String randomValid (Random random) {
+        
+        final StringBuilder version = new StringBuilder();
+        version.append(randomNumber(random)).append('.').append(randomNumber(random)).append('.').append(randomNumber(random));
+        
+        if (random.nextBoolean()) {
+            
+            version.append('-');
+            appendIdentifiers(random, version, true);
+        }
+        
+        if (random.nextInt(4) == 0) {
+            
+            version.append('+');
+            appendIdentifiers(random, version, false);
+        }
+        
+        return version.toString();
+    }
+    
+    private static void appendIdentifiers (Random random, StringBuilder version, boolean prerelease) {
+        
+        final int count = 1 + random.nextInt(4);
+        
+        for (int i = 0; i < count; i++) {
+            
+            if (i > 0) {
+                
+                version.append('.');
+            }
+            
+            switch (random.nextInt(prerelease ? 4 : 5)) {
+                
+                case 0:
+                    version.append(randomNumber(random));
+                    break;
+                
+                case 1:
+                    version.append(random.nextInt(3)).append("a-");
+                    break;
+                
+                case 2:
+                    version.append(new String[] { "alpha", "beta", "rc", "x", "-" }[random.nextInt(5)]);
+                    break;
+                
+                case 3:
+                    version.append(new String[] { "a1", "Z", "x-y-z", "-1", "b2" }[random.nextInt(5)]);
+                    break;
+                
+                default:
+                    version.append("00").append(random.nextInt(10));
+            }
+        }
+    }
+    
+    private static String randomNumber (Random random) {
+        
+        switch (random.nextInt(8)) {
+            
+            case 0:
+                return "0";
+            
+            case 1:
+                return "12345678901234567890123";
+            
+            default:
+                return Integer.toString(random.nextInt(random.nextBoolean() ? 3 : 1000));
+        }
+    }
+    
+    /**
+     * Inserts, removes or replaces a single character of a version.
+     */
+    private static String mutate (Random random, String version) {
+        
+        final String alphabet = "0123.-+aZ ";
+        final int index = random.nextInt(version.length() + 1);
+        final char character = alphabet.charAt(random.nextInt(alphabet.length()));
+        
+        switch (random.nextInt(3)) {
+            
+            case 0:
+                return version.substring(0, index) + character + version.substring(index);
+            
+            case 1:
+                return index < version.length() ? version.substring(0, index) + version.substring(index + 1) : version;
+            
+            default:
+                return index < version.length() ? version.substring(0, index) + character + version.substring(index + 1) : version;
+        }
+    }
+}